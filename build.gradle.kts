@@ -37,7 +37,6 @@ allprojects {
 
 dependencies {
     implementation("org.json:json:20220320")
-    implementation("com.google.code.gson:gson:2.9.0")
     implementation("com.squareup.okhttp3:okhttp:4.9.3")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.13.2.2")
 
@@ -5,9 +5,19 @@ import com.lyit.csd.domain.AssetQuote;
 import com.lyit.csd.domain.DateTimeHelper;
 import com.lyit.csd.domain.PortfolioManager;
 import com.lyit.csd.domain.PortfolioSystem;
+import com.lyit.csd.domain.PortfolioValuation;
 import com.lyit.csd.marketapi.MarketClientFactory;
 import com.lyit.csd.marketapi.MarketClientFactory.MarketClientTypes;
 import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.caching.CachingMarketClient;
+import com.lyit.csd.marketapi.caching.ReferenceDataCachingMarketClient;
+import com.lyit.csd.marketapi.coalescing.BatchingMarketClient;
+import com.lyit.csd.marketapi.coalescing.CoalescingMarketClient;
+import com.lyit.csd.marketapi.history.HistoryStore;
+import com.lyit.csd.marketapi.history.StoredHistoryMarketClient;
+import com.lyit.csd.marketapi.resilience.ResilientMarketClient;
+import com.lyit.csd.marketapi.yahoo.YahooHttpTransport;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +29,10 @@ import java.util.function.Function;
  * <p>init(), UI and data retrieval from the user is contained in the main class.
  */
 public class Main {
+  private static final long HTTP_CACHE_BYTES = 50L * 1024 * 1024;
+
   private static PortfolioSystem portfolioSystem;
+  private static MarketClientFactory marketClientFactory;
 
   /**
    * The main method displays the command line interface of this application.
@@ -40,8 +53,24 @@ public class Main {
     // We are using a factory pattern to get the market client. This creational pattern creates
     // a MarketClient object without exposing the creation logic to this client ui. It also reduces
     // coupling in that we do not need to bind the UI or the PortfolioSystem to the YahooClient.
-    MarketClientFactory marketClientFactory = new MarketClientFactory();
+    // Responses are cached on disk, so that trending lists, exchange summaries and histories
+    // fetched before a restart are not requested again while they are still fresh.
+    Path portfolioDirectory = Path.of(System.getProperty("user.home"), ".portfolio");
+    marketClientFactory = new MarketClientFactory(new YahooHttpTransport(
+        portfolioDirectory.resolve("http-cache"), HTTP_CACHE_BYTES));
     MarketClient marketClient = marketClientFactory.getMarketClient(MarketClientTypes.Yahoo);
+    // Quote lookups made at around the same time are merged into bulk requests, concurrent
+    // lookups of the same symbol share one request, and as a single menu action looks up the
+    // same quotes many times, we serve them from a cache. Requests to the API are guarded by a
+    // circuit breaker and slow quote requests are hedged. Trending lists and exchange summaries
+    // only change every few minutes, so they are cached and kept fresh in the background. Price
+    // histories are kept on disk, so only the part of a history that has not been fetched before
+    // is requested.
+    marketClient = new ReferenceDataCachingMarketClient(new CachingMarketClient(
+        new CoalescingMarketClient(new BatchingMarketClient(new ResilientMarketClient(
+            marketClient)))));
+    marketClient = new StoredHistoryMarketClient(marketClient, new HistoryStore(
+        portfolioDirectory.resolve("history")));
     portfolioSystem = new PortfolioManager(marketClient);
   }
 
@@ -266,8 +295,13 @@ public class Main {
    */
   private static void processViewPortfolioValue() {
     printMenuTitle("***VIEW PORTFOLIO VALUE***");
-    double portfolioValue = portfolioSystem.getPortfolioValue();
-    System.out.println(portfolioValue);
+    PortfolioValuation portfolioValuation = portfolioSystem.valuePortfolio();
+    System.out.println(portfolioValuation.getTotalValue());
+    if (!portfolioValuation.isComplete()) {
+      System.out.println("No live price was available for "
+          + String.join(", ", portfolioValuation.getMissingSymbols())
+          + ", so they are not included in the value.");
+    }
     endProcess();
   }
 
@@ -334,7 +368,7 @@ public class Main {
    */
   private static void processViewHistoricalData() {
     MarketClient client =
-        new MarketClientFactory().getMarketClient(MarketClientFactory.MarketClientTypes.Yahoo);
+        marketClientFactory.getMarketClient(MarketClientFactory.MarketClientTypes.Yahoo);
     printMenuTitle("***VIEW HISTORICAL DATA***");
     List<String> inputList = new ArrayList<>();
     while (true) {
@@ -1,8 +1,9 @@
 package com.lyit.csd.domain;
 
 import com.lyit.csd.marketapi.abstraction.MarketClient;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * {@link Asset} class to store relevant market info on held assets.
@@ -14,6 +15,8 @@ public class Asset {
   private final double originalPurchasePrice;
   private final List<SellTransaction> sellTransactions;
   private final MarketClient marketClient;
+  /** Sales are made one at a time, but the units sold may be read from any thread. */
+  private volatile double unitsSold;
 
   /**
    * Asset constructor.
@@ -30,17 +33,17 @@ public class Asset {
     this.originalPurchaseDateTime = purchaseDateTime;
     this.originalPurchaseUnits = purchaseUnits;
     this.originalPurchasePrice = purchasePrice;
-    this.sellTransactions = new ArrayList<>();
+    this.sellTransactions = new CopyOnWriteArrayList<>();
     this.marketClient = marketClient;
   }
 
   /**
    * A getter for the {@link SellTransaction} of sold assets.
    *
-   * @return a list of {@link SellTransaction}.
+   * @return a read-only list of {@link SellTransaction}.
    */
   public List<SellTransaction> getSellTransactions() {
-    return sellTransactions;
+    return Collections.unmodifiableList(sellTransactions);
   }
 
   /**
@@ -94,8 +97,7 @@ public class Asset {
    * @return number of individual asset units sold.
    */
   public double getSumOfUnitsSold() {
-
-    return sellTransactions.stream().mapToDouble(SellTransaction::getUnits).sum();
+    return unitsSold;
   }
 
   /**
@@ -104,7 +106,6 @@ public class Asset {
    * @return Balance of currently held asset units.
    */
   public double getCurrentUnitsBalance() {
-
     return originalPurchaseUnits - getSumOfUnitsSold();
   }
 
@@ -131,6 +132,7 @@ public class Asset {
   public void sellHolding(double unitsToSell, double sellPrice) {
     SellTransaction sellTransaction = new SellTransaction(unitsToSell, sellPrice);
     sellTransactions.add(sellTransaction);
+    unitsSold += unitsToSell;
   }
 
   /**
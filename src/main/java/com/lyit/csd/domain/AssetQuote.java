@@ -2,9 +2,7 @@ package com.lyit.csd.domain;
 
 import java.text.Format;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 /**
  * The {@link AssetQuote} class used to hold pricing information of Assets, this includes.
@@ -16,9 +14,11 @@ public class AssetQuote {
    * you can retrieve from the finance API that you use and what information the user would like to
    * view or may find useful */
 
-  private final List<Long> timestamp = new ArrayList<>();
-
-  private final List<Double> close = new ArrayList<>();
+  /**
+   * The price history of the asset, if one was requested. Held in primitive columns, as a long
+   * history would otherwise cost two boxed objects per point.
+   */
+  private TimeSeries history;
 
   /**
    * The symbol of the asset e.g. APPL, TSLA, BARC or BTC-USD.
@@ -136,20 +136,102 @@ public class AssetQuote {
     return this.regularMarketPrice;
   }
 
-  /** This method add the proper date and time of any asset exchange.
+  /** Gives the UNIX timestamp of the quoted value.
+   *
+   * @return a <code>long</code> with the time of the quote in seconds.
+   */
+  public long getTimeStamp() {
+    return this.timeStamp;
+  }
+
+  /** Gives the change in price of the Asset as a percentage.
+   *
+   * @return a <code>double</code> with the percentage change.
+   */
+  public double getRegularMarketChangePercent() {
+    return this.regularMarketChangePercent;
+  }
+
+  /** Gives the change in price of the Asset in USD.
    *
-   * @param timeStamp The exact time and date when a specific activity or event took place.
+   * @return a <code>double</code> with the price change.
    */
-  public void addTimeStampToList(long timeStamp) {
-    timestamp.add(timeStamp);
+  public double getRegularMarketChange() {
+    return this.regularMarketChange;
+  }
+
+  /** Gives the price at which the Asset closed the previous trading day.
+   *
+   * @return a <code>double</code> with the previous close.
+   */
+  public double getRegularMarketPreviousClose() {
+    return this.regularMarketPreviousClose;
+  }
+
+  /** Gives the price of the Asset at market open.
+   *
+   * @return a <code>double</code> with the opening price.
+   */
+  public double getRegularMarketOpen() {
+    return this.regularMarketOpen;
+  }
+
+  /** Gives the number of historic points held for the Asset.
+   *
+   * @return an <code>int</code> with the number of points.
+   */
+  public int getHistorySize() {
+    return history == null ? 0 : history.size();
+  }
+
+  /** Gives the timestamp of a historic point.
+   *
+   * @param index the position of the point, oldest first.
+   * @return a <code>long</code> with the time of the point in seconds.
+   */
+  public long getHistoricTimeStamp(int index) {
+    return getHistory().getTimestamp(index);
+  }
+
+  /** Gives the closing price of a historic point.
+   *
+   * @param index the position of the point, oldest first.
+   * @return a <code>double</code> with the closing price.
+   */
+  public double getHistoricClosingPrice(int index) {
+    return getHistory().getClose(index);
+  }
+
+  /** This method adds a run of historic points, such as a decoded price history.
+   *
+   * @param timeStamps the timestamps of the points.
+   * @param closingPrices the closing prices of the points, aligned with the timestamps.
+   * @param count the number of points to add from the start of each array.
+   */
+  public void addHistory(long[] timeStamps, double[] closingPrices, int count) {
+    if (history == null) {
+      history = TimeSeries.onHeap(count);
+    }
+    history.appendAll(timeStamps, closingPrices, count);
+  }
+
+  /** Gives the price history of the Asset.
+   *
+   * @return the {@link TimeSeries}, empty if no history was requested.
+   */
+  public TimeSeries getHistory() {
+    if (history == null) {
+      history = TimeSeries.onHeap();
+    }
+    return history;
   }
 
-  /** This method adds the asset closing price to the list.
+  /** This method replaces the price history of the Asset.
    *
-   * @param closingPrice The last transacted price of an asset.
+   * @param history the price history.
    */
-  public void addClosingPriceToList(double closingPrice) {
-    close.add(closingPrice);
+  public void setHistory(TimeSeries history) {
+    this.history = history;
   }
 
   /** This method converts data to string values.
@@ -182,9 +264,9 @@ public class AssetQuote {
    */
   public void historicDataToString() {
     System.out.println("HISTORIC DATA: " + assetSymbol);
-    for (int i = 0; i < close.size(); i++) {
-      System.out.println("Date: " + convertLongToDate(timestamp.get(i))
-              + " - Closing Price (USD): " + close.get(i));
+    for (int i = 0; i < getHistorySize(); i++) {
+      System.out.println("Date: " + convertLongToDate(history.getTimestamp(i))
+              + " - Closing Price (USD): " + history.getClose(i));
       System.out.println();
     }
   }
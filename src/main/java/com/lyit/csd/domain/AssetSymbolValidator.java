@@ -0,0 +1,174 @@
+package com.lyit.csd.domain;
+
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link AssetSymbolValidator} checks whether asset symbols are valid while asking the
+ * {@link MarketClient} as rarely as possible.
+ *
+ * <p>Symbols known to be valid are kept in a hash set, and symbols found to be invalid are kept
+ * in a negative cache for a limited time, so that a mistyped symbol is only looked up once in a
+ * while rather than every time it is entered. Symbols are compared ignoring case. All symbols of a
+ * list that are not already known are checked together in a single request.
+ *
+ * <p>A provider that cannot be reached returns no quotes, which looks the same as every symbol
+ * being invalid. So that an outage is not remembered as invalid symbols, a symbol already known to
+ * be valid is looked up along with the unknown ones, and symbols are only remembered as invalid
+ * when the lookup found at least one symbol. Without any known valid symbol, a lookup that finds
+ * nothing is not remembered.
+ */
+public class AssetSymbolValidator {
+  private static final Duration DEFAULT_NEGATIVE_TIME_TO_LIVE = Duration.ofMinutes(5);
+  private static final int DEFAULT_MAX_NEGATIVE_ENTRIES = 10_000;
+
+  private final MarketClient marketClient;
+  private final Set<String> validSymbols = ConcurrentHashMap.newKeySet();
+  private final Map<String, Long> invalidSymbols = new ConcurrentHashMap<>();
+  private final long negativeTimeToLiveMillis;
+  private final int maxNegativeEntries;
+  private final Clock clock;
+
+  /**
+   * Constructor for the {@link AssetSymbolValidator} class using the default negative cache
+   * settings.
+   *
+   * @param marketClient the client symbols are checked with.
+   */
+  public AssetSymbolValidator(MarketClient marketClient) {
+    this(marketClient, DEFAULT_NEGATIVE_TIME_TO_LIVE, DEFAULT_MAX_NEGATIVE_ENTRIES,
+        Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link AssetSymbolValidator} class.
+   *
+   * @param marketClient the client symbols are checked with.
+   * @param negativeTimeToLive how long a symbol found to be invalid is remembered.
+   * @param maxNegativeEntries the most invalid symbols remembered at once.
+   * @param clock the clock used to expire invalid symbols.
+   */
+  public AssetSymbolValidator(MarketClient marketClient, Duration negativeTimeToLive,
+                              int maxNegativeEntries, Clock clock) {
+    this.marketClient = marketClient;
+    this.negativeTimeToLiveMillis = negativeTimeToLive.toMillis();
+    this.maxNegativeEntries = maxNegativeEntries;
+    this.clock = clock;
+  }
+
+  /**
+   * Records symbols as valid without looking them up.
+   *
+   * @param assetSymbols the symbols.
+   */
+  public void addKnownGood(List<String> assetSymbols) {
+    for (String assetSymbol : assetSymbols) {
+      validSymbols.add(normalise(assetSymbol));
+    }
+  }
+
+  /**
+   * Checks whether a symbol is valid.
+   *
+   * @param assetSymbol the symbol.
+   * @return a boolean indicating whether the symbol is valid.
+   */
+  public boolean isValid(String assetSymbol) {
+    return validate(List.of(assetSymbol == null ? "" : assetSymbol)).get(0);
+  }
+
+  /**
+   * Checks a list of symbols, looking up every symbol that is not already known in one request.
+   *
+   * @param assetSymbols the symbols.
+   * @return a {@link BitSet} with bit i set if the symbol at index i is valid.
+   */
+  public BitSet validate(List<String> assetSymbols) {
+    BitSet valid = new BitSet(assetSymbols.size());
+    long now = clock.millis();
+    // Each unknown symbol once, with the positions it appears at.
+    Map<String, List<Integer>> unknown = new LinkedHashMap<>();
+
+    for (int i = 0; i < assetSymbols.size(); i++) {
+      String assetSymbol = assetSymbols.get(i);
+      if (assetSymbol == null || assetSymbol.isBlank()) {
+        continue;
+      }
+      String key = normalise(assetSymbol);
+      if (validSymbols.contains(key)) {
+        valid.set(i);
+        continue;
+      }
+      Long invalidUntil = invalidSymbols.get(key);
+      if (invalidUntil != null) {
+        if (invalidUntil > now) {
+          continue;
+        }
+        invalidSymbols.remove(key, invalidUntil);
+      }
+      unknown.computeIfAbsent(key, k -> new ArrayList<>(1)).add(i);
+    }
+
+    if (!unknown.isEmpty()) {
+      List<String> lookups = new ArrayList<>(unknown.keySet());
+      int unknownCount = lookups.size();
+      validSymbols.stream().findAny().ifPresent(lookups::add);
+      BitSet found = marketClient.checkAssetSymbols(lookups);
+      // Finding nothing at all, not even the known valid symbol, means the provider did not answer.
+      boolean answered = !found.isEmpty();
+      for (int i = 0; i < unknownCount; i++) {
+        String key = lookups.get(i);
+        if (found.get(i)) {
+          validSymbols.add(key);
+          unknown.get(key).forEach(valid::set);
+        } else if (answered) {
+          rememberInvalid(key, now);
+        }
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Gets the number of symbols known to be valid.
+   *
+   * @return the size of the positive set.
+   */
+  public int getValidCount() {
+    return validSymbols.size();
+  }
+
+  /**
+   * Gets the number of symbols currently remembered as invalid, including any that have expired
+   * but not yet been removed.
+   *
+   * @return the size of the negative cache.
+   */
+  public int getInvalidCount() {
+    return invalidSymbols.size();
+  }
+
+  private void rememberInvalid(String key, long now) {
+    if (invalidSymbols.size() >= maxNegativeEntries) {
+      invalidSymbols.values().removeIf(invalidUntil -> invalidUntil <= now);
+      if (invalidSymbols.size() >= maxNegativeEntries) {
+        // Full of live entries; this symbol is simply looked up again next time.
+        return;
+      }
+    }
+    invalidSymbols.put(key, now + negativeTimeToLiveMillis);
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+}
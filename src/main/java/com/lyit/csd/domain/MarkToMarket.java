@@ -0,0 +1,444 @@
+package com.lyit.csd.domain;
+
+import com.lyit.csd.marketapi.feed.QuoteFeed;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MarkToMarket} keeps the market value, unrealized gain and day change of a portfolio up to
+ * date as quotes arrive, so that reading them costs nothing.
+ *
+ * <p>The units held, the cost of those units and the last price of each symbol are kept. A quote
+ * applies to the totals only the change it makes to its own symbol, the units held times the change
+ * in price, and a purchase or sale applies only the change in units and cost, so neither revalues
+ * the rest of the portfolio. Totals kept this way gather rounding error, so they are summed again
+ * from every symbol once every {@value #RESUM_UPDATES} updates.
+ *
+ * <p>Quotes are taken from a {@link QuoteFeed}, with one subscription per symbol held, or may be
+ * passed to {@link #onQuote(AssetQuote)} directly. A symbol that no usable quote has been received
+ * for yet is left out of the totals and reported by {@link #getUnpricedSymbols()}.
+ */
+public class MarkToMarket implements AutoCloseable {
+  private static final int RESUM_UPDATES = 4096;
+
+  /**
+   * The valuation of the units held of one symbol at its last price.
+   *
+   * @param assetSymbol the symbol.
+   * @param units the units held.
+   * @param costOfUnitsHeld the amount paid for the units held, in USD.
+   * @param price the last price, or NaN if no quote has been received.
+   * @param previousClose the price at the previous close, or 0 if it is not known.
+   */
+  public record Mark(String assetSymbol, double units, double costOfUnitsHeld, double price,
+                     double previousClose) {
+
+    /**
+     * Checks whether a quote has been received for the symbol.
+     *
+     * @return a boolean indicating whether the symbol has a price.
+     */
+    public boolean isPriced() {
+      return price > 0;
+    }
+
+    /**
+     * Gets the value of the units held at the last price.
+     *
+     * @return the market value in USD, 0 if the symbol has no price.
+     */
+    public double getMarketValue() {
+      return isPriced() ? units * price : 0;
+    }
+
+    /**
+     * Gets the market value less the amount paid for the units held.
+     *
+     * @return the unrealized gain in USD, 0 if the symbol has no price.
+     */
+    public double getUnrealizedGain() {
+      return isPriced() ? units * price - costOfUnitsHeld : 0;
+    }
+
+    /**
+     * Gets the change in value of the units held since the previous close, as if they had all been
+     * held then.
+     *
+     * @return the day change in USD, 0 if the symbol has no price or previous close.
+     */
+    public double getDayChange() {
+      return isPriced() && previousClose > 0 ? units * (price - previousClose) : 0;
+    }
+  }
+
+  /**
+   * The totals over every symbol, which are replaced together so that they are always read at the
+   * same update.
+   *
+   * @param marketValue the market value in USD.
+   * @param unrealizedGain the unrealized gain in USD.
+   * @param dayChange the day change in USD.
+   */
+  public record Totals(double marketValue, double unrealizedGain, double dayChange) {
+    private static final Totals EMPTY = new Totals(0, 0, 0);
+  }
+
+  private final QuoteFeed quoteFeed;
+  private final Object lock = new Object();
+  private final Map<String, Mark> marks = new ConcurrentHashMap<>();
+  /** Guarded by {@link #lock}. */
+  private final Map<String, SymbolSubscriber> subscribers = new HashMap<>();
+  /** Guarded by {@link #lock}. */
+  private int updatesSinceResum;
+  /** Guarded by {@link #lock}. */
+  private boolean closed;
+  private volatile Totals totals = Totals.EMPTY;
+
+  private final AtomicLong tickCount = new AtomicLong();
+  private final AtomicLong resumCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link MarkToMarket} class, for quotes passed to
+   * {@link #onQuote(AssetQuote)}.
+   */
+  public MarkToMarket() {
+    this(null);
+  }
+
+  /**
+   * Constructor for the {@link MarkToMarket} class.
+   *
+   * @param quoteFeed the feed each symbol held is subscribed to, or null to only take quotes
+   *                  passed to {@link #onQuote(AssetQuote)}.
+   */
+  public MarkToMarket(QuoteFeed quoteFeed) {
+    this.quoteFeed = quoteFeed;
+  }
+
+  /**
+   * Sets the units held of a symbol and what they cost, after a purchase or sale. The symbol is
+   * subscribed to when first held, and unsubscribed from once no units are held.
+   *
+   * @param assetSymbol the symbol.
+   * @param units the units now held.
+   * @param costOfUnitsHeld the amount paid for the units now held, in USD.
+   */
+  public void setPosition(String assetSymbol, double units, double costOfUnitsHeld) {
+    updatePosition(assetSymbol, units, costOfUnitsHeld).run();
+  }
+
+  /**
+   * Sets the units held of a symbol and what they cost, but leaves subscribing to or unsubscribing
+   * from the feed to the caller, so that the caller can do so after releasing its own locks.
+   *
+   * @param assetSymbol the symbol.
+   * @param units the units now held.
+   * @param costOfUnitsHeld the amount paid for the units now held, in USD.
+   * @return the subscription change to run, which does nothing if there is none.
+   */
+  Runnable updatePosition(String assetSymbol, double units, double costOfUnitsHeld) {
+    String symbol = normalise(assetSymbol);
+    SymbolSubscriber subscribe = null;
+    SymbolSubscriber unsubscribe = null;
+    synchronized (lock) {
+      if (closed) {
+        return () -> { };
+      }
+      Mark previous = marks.get(symbol);
+      if (units <= 0) {
+        if (previous == null) {
+          return () -> { };
+        }
+        marks.remove(symbol);
+        apply(previous, null);
+        unsubscribe = subscribers.remove(symbol);
+      } else {
+        Mark next = previous == null
+            ? new Mark(symbol, units, costOfUnitsHeld, Double.NaN, 0)
+            : new Mark(symbol, units, costOfUnitsHeld, previous.price(), previous.previousClose());
+        marks.put(symbol, next);
+        apply(previous, next);
+        if (quoteFeed != null && !subscribers.containsKey(symbol)) {
+          subscribe = new SymbolSubscriber(symbol);
+          subscribers.put(symbol, subscribe);
+        }
+      }
+    }
+
+    // The feed is subscribed to outside the lock, as it may deliver quotes while holding its own.
+    // A cancel that runs before its subscribe is applied once the subscription arrives.
+    SymbolSubscriber cancelled = unsubscribe;
+    SymbolSubscriber subscriber = subscribe;
+    return () -> {
+      if (cancelled != null) {
+        cancelled.cancel();
+      }
+      if (subscriber != null) {
+        quoteFeed.subscribe(List.of(symbol), subscriber);
+      }
+    };
+  }
+
+  /**
+   * Applies a quote to the symbol it is of. Quotes of symbols that are not held, and quotes
+   * without a positive price, are ignored.
+   *
+   * @param assetQuote the quote.
+   */
+  public void onQuote(AssetQuote assetQuote) {
+    if (assetQuote == null || assetQuote.getAssetSymbol() == null) {
+      return;
+    }
+    double price = assetQuote.getRegularMarketPrice();
+    if (!(price > 0) || Double.isInfinite(price)) {
+      return;
+    }
+    String symbol = normalise(assetQuote.getAssetSymbol());
+    synchronized (lock) {
+      Mark previous = marks.get(symbol);
+      if (closed || previous == null) {
+        return;
+      }
+      Mark next = new Mark(symbol, previous.units(), previous.costOfUnitsHeld(), price,
+          assetQuote.getRegularMarketPreviousClose());
+      marks.put(symbol, next);
+      apply(previous, next);
+    }
+    tickCount.incrementAndGet();
+  }
+
+  /**
+   * Gets the feed the symbols held are subscribed to.
+   *
+   * @return the {@link QuoteFeed}, or null if quotes are only passed to
+   *         {@link #onQuote(AssetQuote)}.
+   */
+  public QuoteFeed getQuoteFeed() {
+    return quoteFeed;
+  }
+
+  /**
+   * Gets the totals over every priced symbol.
+   *
+   * @return the {@link Totals}.
+   */
+  public Totals getTotals() {
+    return totals;
+  }
+
+  /**
+   * Gets the value of the units held of every priced symbol.
+   *
+   * @return the market value in USD.
+   */
+  public double getMarketValue() {
+    return totals.marketValue();
+  }
+
+  /**
+   * Gets the market value less the amount paid for the units held, over every priced symbol.
+   *
+   * @return the unrealized gain in USD.
+   */
+  public double getUnrealizedGain() {
+    return totals.unrealizedGain();
+  }
+
+  /**
+   * Gets the change in market value since the previous close, over every priced symbol.
+   *
+   * @return the day change in USD.
+   */
+  public double getDayChange() {
+    return totals.dayChange();
+  }
+
+  /**
+   * Gets the valuation of one symbol.
+   *
+   * @param assetSymbol the symbol.
+   * @return the {@link Mark}, or null if the symbol is not held.
+   */
+  public Mark getMark(String assetSymbol) {
+    return marks.get(normalise(assetSymbol));
+  }
+
+  /**
+   * Gets the valuation of every symbol held.
+   *
+   * @return a copy of the marks, by symbol, in symbol order.
+   */
+  public Map<String, Mark> getMarks() {
+    return new TreeMap<>(marks);
+  }
+
+  /**
+   * Gets the symbols held that no usable quote has been received for yet.
+   *
+   * @return the symbols, in symbol order.
+   */
+  public List<String> getUnpricedSymbols() {
+    List<String> unpricedSymbols = new ArrayList<>();
+    for (Mark mark : marks.values()) {
+      if (!mark.isPriced()) {
+        unpricedSymbols.add(mark.assetSymbol());
+      }
+    }
+    unpricedSymbols.sort(null);
+    return unpricedSymbols;
+  }
+
+  /**
+   * Gets the number of quotes applied.
+   *
+   * @return the tick count.
+   */
+  public long getTickCount() {
+    return tickCount.get();
+  }
+
+  /**
+   * Gets the number of times the totals were summed again from every symbol.
+   *
+   * @return the resum count.
+   */
+  public long getResumCount() {
+    return resumCount.get();
+  }
+
+  /**
+   * Checks whether the valuation has been closed.
+   *
+   * @return a boolean indicating whether {@link #close()} has been called.
+   */
+  public boolean isClosed() {
+    synchronized (lock) {
+      return closed;
+    }
+  }
+
+  /**
+   * Cancels every subscription. The totals are kept, but no longer updated.
+   */
+  @Override
+  public void close() {
+    List<SymbolSubscriber> cancelled;
+    synchronized (lock) {
+      closed = true;
+      cancelled = new ArrayList<>(subscribers.values());
+      subscribers.clear();
+    }
+    cancelled.forEach(SymbolSubscriber::cancel);
+  }
+
+  /**
+   * Replaces the totals with ones that differ only by the change from one mark of a symbol to the
+   * next. Either mark is null if the symbol was not, or is no longer, held. Must be called holding
+   * the lock.
+   */
+  private void apply(Mark previous, Mark next) {
+    if (++updatesSinceResum >= RESUM_UPDATES) {
+      updatesSinceResum = 0;
+      resumCount.incrementAndGet();
+      double marketValue = 0;
+      double unrealizedGain = 0;
+      double dayChange = 0;
+      for (Mark mark : marks.values()) {
+        marketValue += mark.getMarketValue();
+        unrealizedGain += mark.getUnrealizedGain();
+        dayChange += mark.getDayChange();
+      }
+      totals = new Totals(marketValue, unrealizedGain, dayChange);
+      return;
+    }
+
+    Totals current = totals;
+    totals = new Totals(
+        current.marketValue() + marketValue(next) - marketValue(previous),
+        current.unrealizedGain() + unrealizedGain(next) - unrealizedGain(previous),
+        current.dayChange() + dayChange(next) - dayChange(previous));
+  }
+
+  private static double marketValue(Mark mark) {
+    return mark == null ? 0 : mark.getMarketValue();
+  }
+
+  private static double unrealizedGain(Mark mark) {
+    return mark == null ? 0 : mark.getUnrealizedGain();
+  }
+
+  private static double dayChange(Mark mark) {
+    return mark == null ? 0 : mark.getDayChange();
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Takes every quote the feed publishes for one symbol.
+   */
+  private final class SymbolSubscriber implements Flow.Subscriber<AssetQuote> {
+    private final String assetSymbol;
+    private Flow.Subscription subscription;
+    private boolean cancelled;
+
+    SymbolSubscriber(String assetSymbol) {
+      this.assetSymbol = assetSymbol;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      boolean cancelNow;
+      synchronized (this) {
+        this.subscription = subscription;
+        cancelNow = cancelled;
+      }
+      if (cancelNow) {
+        subscription.cancel();
+      } else {
+        subscription.request(Long.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void onNext(AssetQuote assetQuote) {
+      if (normalise(assetQuote.getAssetSymbol()).equals(assetSymbol)) {
+        onQuote(assetQuote);
+      }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      // The symbol keeps its last price, and is subscribed to again on its next purchase or sale.
+      synchronized (lock) {
+        subscribers.remove(assetSymbol, this);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      synchronized (lock) {
+        subscribers.remove(assetSymbol, this);
+      }
+    }
+
+    void cancel() {
+      Flow.Subscription current;
+      synchronized (this) {
+        cancelled = true;
+        current = subscription;
+      }
+      if (current != null) {
+        current.cancel();
+      }
+    }
+  }
+}
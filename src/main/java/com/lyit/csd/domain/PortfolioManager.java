@@ -1,9 +1,22 @@
 package com.lyit.csd.domain;
 
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
 import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.feed.QuoteFeed;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -11,12 +24,34 @@ import java.util.stream.Collectors;
  * <code>PortfolioManager</code> adds the functionality outlined in the
  * {@link PortfolioSystem} interface The user can add funds, buy and sell stock, get stock
  * information, and list and sort assets.
+ *
+ * <p>Trades may be made from many threads at once. The cost of a purchase is reserved from the
+ * funds with a compare-and-set before the purchase is recorded, so concurrent purchases can never
+ * spend the same funds twice. Purchases and sales of one asset symbol are made one at a time under
+ * a lock for that symbol, taken from a fixed set of {@value #SYMBOL_LOCK_STRIPES} stripes so that
+ * trades in different symbols rarely contend. Valuations and listings take no lock, and read the
+ * holdings and positions as they were after some trade.
  */
 public class PortfolioManager implements PortfolioSystem {
-  private double availableFunds;
-  private final List<Asset> holdings;
+  private static final int SYMBOL_LOCK_STRIPES = 64;
+
+  /** The most asset symbols looked up in one of the concurrent requests valuing the portfolio. */
+  private static final int VALUATION_BATCH_SIZE = 50;
+
+  /** The available funds in USD, held as the bits of a double so that they can be compared and
+   * set. */
+  private final AtomicLong availableFunds = new AtomicLong(Double.doubleToLongBits(0));
+  private final Queue<Asset> holdings;
+  /** The holdings gathered by asset symbol. */
+  private final Map<String, Position> positions = new ConcurrentHashMap<>();
+  /** The same positions, in the order each symbol was first purchased. */
+  private final Queue<Position> positionsInOrder = new ConcurrentLinkedQueue<>();
+  private final Object[] symbolLocks = new Object[SYMBOL_LOCK_STRIPES];
+  /** Kept in step with the positions on every purchase and sale. */
+  private final List<MarkToMarket> markToMarkets = new CopyOnWriteArrayList<>();
   private final MarketClient marketClient;
-  private List<String> knownGoodAssetSymbols;
+  private final AsyncMarketClient asyncMarketClient;
+  private final AssetSymbolValidator assetSymbolValidator;
 
   /**
    * Constructor for the {@link PortfolioManager} class.
@@ -42,7 +77,12 @@ public class PortfolioManager implements PortfolioSystem {
   */
   public PortfolioManager(MarketClient marketClient, Boolean loadPortfolio) {
     this.marketClient = marketClient;
-    this.holdings = new ArrayList<>();
+    this.asyncMarketClient = AsyncMarketClient.of(marketClient);
+    this.assetSymbolValidator = new AssetSymbolValidator(marketClient);
+    this.holdings = new ConcurrentLinkedQueue<>();
+    for (int i = 0; i < symbolLocks.length; i++) {
+      symbolLocks[i] = new Object();
+    }
     initKnownGoodAssetSymbols();
 
     if (loadPortfolio) {
@@ -56,17 +96,12 @@ public class PortfolioManager implements PortfolioSystem {
    * we often get rate limited by the exchange we're querying. For that
    * reason, we have created this method to initialize the program with
    * 'known' good asset symbols. We also add to this array in method
-   * checkAssetSymbol (we store all successful lookups to further
-   * reduce the chances of being rate limited).
+   * checkAssetSymbol (the {@link AssetSymbolValidator} stores all successful lookups, and
+   * remembers failed ones for a while, to further reduce the chances of being rate limited).
    */
   private void initKnownGoodAssetSymbols() {
-    this.knownGoodAssetSymbols = new ArrayList<>();
-    this.knownGoodAssetSymbols.add("TSLA");
-    this.knownGoodAssetSymbols.add("AAPL");
-    this.knownGoodAssetSymbols.add("GME");
-    this.knownGoodAssetSymbols.add("NVDA");
-    this.knownGoodAssetSymbols.add("BTC-USD");
-    this.knownGoodAssetSymbols.add("MSFT");
+    this.assetSymbolValidator.addKnownGood(
+        List.of("TSLA", "AAPL", "GME", "NVDA", "BTC-USD", "MSFT"));
   }
 
   /**
@@ -78,7 +113,7 @@ public class PortfolioManager implements PortfolioSystem {
   public void addFunds(double amount) {
 
     if (amount > 0) {
-      availableFunds += amount;
+      creditFunds(amount);
     }
   }
 
@@ -99,7 +134,7 @@ public class PortfolioManager implements PortfolioSystem {
   };
 
   public double getAvailableFunds() {
-    return this.availableFunds;
+    return Double.longBitsToDouble(this.availableFunds.get());
   }
 
   /**
@@ -112,11 +147,42 @@ public class PortfolioManager implements PortfolioSystem {
     */
   @Override
   public boolean withdrawFunds(double amount) {
-    if (amount <= availableFunds) {
-      availableFunds -= amount;
-      return true;
-    } else {
-      return false;
+    return reserveFunds(amount);
+  }
+
+  /**
+   * Takes an amount from the available funds if at least that much is available, retrying if
+   * another thread changes the funds in between.
+   *
+   * @param amount the amount in USD to take.
+   * @return True if the amount was taken, otherwise false.
+   */
+  private boolean reserveFunds(double amount) {
+    while (true) {
+      long current = availableFunds.get();
+      double funds = Double.longBitsToDouble(current);
+      if (amount > funds) {
+        return false;
+      }
+      if (availableFunds.compareAndSet(current, Double.doubleToLongBits(funds - amount))) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Adds an amount to the available funds, retrying if another thread changes the funds in
+   * between.
+   *
+   * @param amount the amount in USD to add.
+   */
+  private void creditFunds(double amount) {
+    while (true) {
+      long current = availableFunds.get();
+      double funds = Double.longBitsToDouble(current) + amount;
+      if (availableFunds.compareAndSet(current, Double.doubleToLongBits(funds))) {
+        return;
+      }
     }
   }
 
@@ -130,28 +196,28 @@ public class PortfolioManager implements PortfolioSystem {
    */
   @Override
   public boolean purchaseAsset(String assetSymbol, double amount) {
-    AssetQuote livePrice = getAssetQuote(assetSymbol);
-
-    if (livePrice == null) {
+    if (amount <= 0) {
       return false;
     }
 
-    if (amount <= 0) {
+    AssetQuote livePrice = getAssetQuote(assetSymbol);
+
+    if (livePrice == null) {
       return false;
     }
 
     double priceItWouldCost = livePrice.getRegularMarketPrice() * amount;
 
-    if (availableFunds < priceItWouldCost) {
+    // The cost is taken from the funds before the purchase is recorded, so that a concurrent
+    // purchase cannot spend the same funds.
+    if (!reserveFunds(priceItWouldCost)) {
       return false;
     }
 
     // assuming now they can afford it
     Asset newAsset = new Asset(assetSymbol, DateTimeHelper.getCurrentEpochTime(), amount,
                                livePrice.getRegularMarketPrice(), marketClient);
-    holdings.add(newAsset);
-
-    availableFunds -= priceItWouldCost;
+    addHolding(newAsset);
     return true;
   }
 
@@ -175,61 +241,75 @@ public class PortfolioManager implements PortfolioSystem {
   public boolean sellAsset(String assetSymbol, double amount) {
     double amountLeftToSell = amount;
 
-    //Checks if asset symbol is valid
-    if (!checkAssetSymbol(assetSymbol)) {
+    // 1. Get the position in this assetSymbol, which gathers all the holdings of it.
+    Position position = positions.get(assetSymbol);
+    if (position == null) {
       return false;
     }
 
-    // 1. Get all the holdings with this assetSymbol.
-    List<Asset> assetsHoldings = getAssetsWithHoldings(assetSymbol);
-    if (assetsHoldings == null) {
+    // 2. Check if there is sufficient balance across all of them, before asking for a live price.
+    if (position.getUnitsHeld() < amountLeftToSell) {
+      // we don't own enough of the asset to sell.
       return false;
     }
 
-    // 2. Check if there is sufficient balance across all of them.
-    double currentUnitsBalance = assetsHoldings.stream()
-        .mapToDouble(Asset::getCurrentUnitsBalance).sum();
+    // 3. Start the live price lookup, so that it runs alongside the asset symbol check.
+    CompletableFuture<AssetQuote> assetQuoteFuture = asyncMarketClient.getQuoteAsync(assetSymbol);
 
-    if (currentUnitsBalance < amountLeftToSell) {
-      // we don't own enough of the asset to sell.
+    //Checks if asset symbol is valid
+    if (!checkAssetSymbol(assetSymbol)) {
+      assetQuoteFuture.cancel(false);
       return false;
     }
 
-    // 3. Get the live price for this asset
-    AssetQuote assetQuote = getAssetQuote(assetSymbol);
+    AssetQuote assetQuote = assetQuoteFuture.join();
     //If no live price is available, we cannot sell the asset.
     if (assetQuote == null) {
       return false;
     }
 
-    // 3. Work out which holdings will yield the best profit.
-    // There are a few ways to do this. One such way is to sort the list by the purchase price.
-    assetsHoldings.sort(compareByPurchasePrice);
-
-    // 4. We will now iterate through the holdings to sell, up to the amount required.
-    for (Asset asset : assetsHoldings) {
-      // How much of this asset do we need to sell
-      double assetUnitsBalance = asset.getCurrentUnitsBalance();
-
-      if (assetUnitsBalance >= amountLeftToSell) {
-        // This holding has enough units to fulfill the sell.
-        asset.sellHolding(amountLeftToSell, assetQuote.getRegularMarketPrice());
-        amountLeftToSell = 0;
-      } else {
-        asset.sellHolding(assetUnitsBalance, assetQuote.getRegularMarketPrice());
-        amountLeftToSell -= assetUnitsBalance;
+    // The balance is checked again and the sales are made under the symbol's lock, so that a
+    // concurrent sale cannot sell the same units.
+    Runnable afterSale;
+    synchronized (lockFor(assetSymbol)) {
+      if (position.getUnitsHeld() < amountLeftToSell) {
+        // we don't own enough of the asset to sell.
+        return false;
       }
 
-      if (amountLeftToSell == 0) {
-        // all sold.
-        break;
+      // 4. Work out which holdings will yield the best profit.
+      // There are a few ways to do this. One such way is to sort the list by the purchase price.
+      List<Asset> assetsHoldings = position.getOpenLots();
+      assetsHoldings.sort(compareByPurchasePrice);
+
+      // 5. We will now iterate through the holdings to sell, up to the amount required.
+      for (Asset asset : assetsHoldings) {
+        // How much of this asset do we need to sell
+        double assetUnitsBalance = asset.getCurrentUnitsBalance();
+
+        if (assetUnitsBalance >= amountLeftToSell) {
+          // This holding has enough units to fulfill the sell.
+          position.sell(asset, amountLeftToSell, assetQuote.getRegularMarketPrice());
+          amountLeftToSell = 0;
+        } else {
+          position.sell(asset, assetUnitsBalance, assetQuote.getRegularMarketPrice());
+          amountLeftToSell -= assetUnitsBalance;
+        }
+
+        if (amountLeftToSell == 0) {
+          // all sold.
+          break;
+        }
       }
+      afterSale = updateMarkToMarkets(position);
     }
+    afterSale.run();
+    updateFeedHoldings();
 
-    // 5. The revenue generated from the sale should be added to the total funds
+    // 6. The revenue generated from the sale should be added to the total funds
     // available to the user. We know how many units we have sold, and we know the live price.
     double revenueGenerated = amount * assetQuote.getRegularMarketPrice();
-    availableFunds += revenueGenerated;
+    creditFunds(revenueGenerated);
     return true;
   }
 
@@ -304,11 +384,14 @@ public class PortfolioManager implements PortfolioSystem {
   */
   @Override
     public List<AssetQuote> getAssetInformation(List<String> assetNames) {
-    for (int i = 0; i < assetNames.size(); i++) {
-      String assetSymbol = assetNames.get(i);
-      if (!checkAssetSymbol(assetSymbol)) {
-        assetNames.remove(i);
-        i--; //decrement to account for the left shift when an element is removed
+    // Validate every symbol at once; unknown symbols are looked up in a single request.
+    BitSet validSymbols = assetSymbolValidator.validate(assetNames);
+
+    Iterator<String> assetNamesIterator = assetNames.iterator();
+    for (int i = 0; assetNamesIterator.hasNext(); i++) {
+      String assetSymbol = assetNamesIterator.next();
+      if (!validSymbols.get(i)) {
+        assetNamesIterator.remove();
         System.out.println("Skipping invalid symbol..." + assetSymbol);
       }
     }
@@ -375,15 +458,154 @@ public class PortfolioManager implements PortfolioSystem {
    */
   @Override
   public List<Asset> getAssetsWithHoldings(String assetSymbol) {
-    Predicate<Asset> withHoldings = asset -> asset.getCurrentUnitsBalance() > 0;
-
     if (!assetSymbol.isEmpty()) {
-      withHoldings = withHoldings.and(asset -> asset.getAssetSymbol().equals(assetSymbol));
+      Position position = positions.get(assetSymbol);
+      return position == null ? new ArrayList<>() : position.getOpenLots();
     }
 
+    Predicate<Asset> withHoldings = asset -> asset.getCurrentUnitsBalance() > 0;
     return holdings.stream().filter(withHoldings).collect(Collectors.toList());
   }
 
+  /** Gets the units held of each asset symbol, for example so that the quotes of larger holdings
+   * can be refreshed more often.
+
+   * @return the units owned, by asset symbol, of the assets which have units owned.
+   */
+  public Map<String, Double> getHeldUnits() {
+    Map<String, Double> heldUnits = new LinkedHashMap<>();
+    for (Position position : positionsInOrder) {
+      if (position.getUnitsHeld() > 0) {
+        heldUnits.put(position.getAssetSymbol(), position.getUnitsHeld());
+      }
+    }
+    return heldUnits;
+  }
+
+  /** Gets the position in an asset symbol, which gathers all the holdings of it.
+
+   * @param assetSymbol the assetSymbol to get the position in.
+   * @return the {@link Position}, or null if the asset symbol has never been held.
+   */
+  public Position getPosition(String assetSymbol) {
+    return positions.get(assetSymbol);
+  }
+
+  /** Gets the units currently held of an asset symbol.
+
+   * @param assetSymbol the assetSymbol to get the units held of.
+   * @return the units held, 0 if the asset symbol has never been held.
+   */
+  private double getUnitsHeld(String assetSymbol) {
+    Position position = positions.get(assetSymbol);
+    return position == null ? 0 : position.getUnitsHeld();
+  }
+
+  /** Adds a purchase to the holdings and to the position in its asset symbol.
+
+   * @param asset the purchase.
+   */
+  private void addHolding(Asset asset) {
+    Runnable afterPurchase;
+    synchronized (lockFor(asset.getAssetSymbol())) {
+      holdings.add(asset);
+      Position position = positions.computeIfAbsent(asset.getAssetSymbol(), symbol -> {
+        Position created = new Position(symbol);
+        positionsInOrder.add(created);
+        return created;
+      });
+      position.addLot(asset);
+      afterPurchase = updateMarkToMarkets(position);
+    }
+    afterPurchase.run();
+    updateFeedHoldings();
+  }
+
+  /** Gets the lock that purchases and sales of an asset symbol are made under. Symbols share a
+   * fixed number of locks, so two symbols may share one.
+
+   * @param assetSymbol the assetSymbol to get the lock of.
+   * @return the lock.
+   */
+  private Object lockFor(String assetSymbol) {
+    int hash = assetSymbol.hashCode();
+    return symbolLocks[(hash ^ (hash >>> 16)) & (SYMBOL_LOCK_STRIPES - 1)];
+  }
+
+  /** Gets the asset symbols that have been held, in the order each was first purchased.
+
+   * @return a list of the asset symbols.
+   */
+  private List<String> getPositionSymbols() {
+    List<String> assetSymbols = new ArrayList<>();
+    for (Position position : positionsInOrder) {
+      assetSymbols.add(position.getAssetSymbol());
+    }
+    return assetSymbols;
+  }
+
+  /** Starts keeping the value of the portfolio up to date as the feed publishes quotes, so that
+   * it can be read without fetching every quote again. The valuation follows every later purchase
+   * and sale until it is closed.
+
+   * @param quoteFeed the feed each asset symbol held is subscribed to.
+   * @return the {@link MarkToMarket}, which should be closed once no longer needed.
+   */
+  public MarkToMarket startMarkToMarket(QuoteFeed quoteFeed) {
+    MarkToMarket markToMarket = new MarkToMarket(quoteFeed);
+    markToMarkets.add(markToMarket);
+    // Each position is passed under its lock, so that it is not passed part way through a trade.
+    // A trade made before the lock is taken has already been seen by the valuation.
+    for (Position position : positionsInOrder) {
+      Runnable subscriptionChange;
+      synchronized (lockFor(position.getAssetSymbol())) {
+        subscriptionChange = markToMarket.updatePosition(position.getAssetSymbol(),
+            position.getUnitsHeld(), position.getCostOfUnitsHeld());
+      }
+      subscriptionChange.run();
+    }
+    updateFeedHoldings();
+    return markToMarket;
+  }
+
+  /** Passes the units held of an asset symbol, and what they cost, to every valuation being kept
+   * up to date. Must be called holding the symbol's lock, so that valuations see its trades in
+   * order. Subscribing to or unsubscribing from a quote feed may wait for a poll of the feed, so
+   * those changes are returned to be run once the lock has been released.
+
+   * @param position the position that was purchased or sold from.
+   * @return the subscription changes to run after releasing the symbol's lock.
+   */
+  private Runnable updateMarkToMarkets(Position position) {
+    List<Runnable> subscriptionChanges = new ArrayList<>();
+    for (MarkToMarket markToMarket : markToMarkets) {
+      if (markToMarket.isClosed()) {
+        markToMarkets.remove(markToMarket);
+      } else {
+        subscriptionChanges.add(markToMarket.updatePosition(position.getAssetSymbol(),
+            position.getUnitsHeld(), position.getCostOfUnitsHeld()));
+      }
+    }
+    return () -> subscriptionChanges.forEach(Runnable::run);
+  }
+
+  /** Passes the units held of each asset symbol to the feeds of the valuations being kept up to
+   * date, so that the feeds refresh the quotes of larger holdings more often. Takes no lock; if
+   * trades race, the next trade passes the feeds the units held after it.
+   */
+  private void updateFeedHoldings() {
+    if (markToMarkets.isEmpty()) {
+      return;
+    }
+    Map<String, Double> heldUnits = getHeldUnits();
+    markToMarkets.stream()
+        .filter(markToMarket -> !markToMarket.isClosed())
+        .map(MarkToMarket::getQuoteFeed)
+        .filter(Objects::nonNull)
+        .distinct()
+        .forEach(quoteFeed -> quoteFeed.setHoldings(heldUnits));
+  }
+
   /** Gets the distinct assetSymbols from an array of assets.
    *
    * @param assets a list of assets.
@@ -403,54 +625,51 @@ public class PortfolioManager implements PortfolioSystem {
    */
   @Override
   public double getPortfolioValue() {
-    // First, we will get a list of the holdings which still have owned units.
-    List<Asset> assetsWithHoldings = getAssetsWithHoldings();
-
-    // Now get a distinct list of the assetSymbols so that we can look up the live prices with
-    // a single request. This greatly increases the speed of this method versus looking them up
-    // one by one.
-    List<String> assetSymbols = getDistinctAssetSymbols(assetsWithHoldings);
-
-    // Retrieve the current live price for each of our owned assetSymbols.
-    List<AssetQuote> assetQuotes = this.getAssetQuotes(assetSymbols);
-
-    double portfolioValue = 0;
-
-    // We now iterate through the assets we have holdings in and multiply the remaining units
-    // by the live price.
-    for (Asset asset : assetsWithHoldings) {
-      AssetQuote assetQuote = assetQuotes.stream()
-          .filter(a -> a.getAssetSymbol().equals(asset.getAssetSymbol()))
-          .findFirst().orElse(null);
+    return valuePortfolio().getTotalValue();
+  }
 
-      portfolioValue += asset.getCurrentValue(assetQuote);
+  /**
+   * Values the units held of each asset symbol at its current live price, and reports the symbols
+   * no live price was available for.
+   *
+   * @return the {@link PortfolioValuation}.
+   */
+  @Override
+  public PortfolioValuation valuePortfolio() {
+    // The positions already total the units held of each assetSymbol, so we look up the live
+    // prices of the held symbols in bulk requests, sent concurrently, and join them to the units
+    // by symbol.
+    Map<String, Double> heldUnits = getHeldUnits();
+    if (heldUnits.isEmpty()) {
+      return PortfolioValuation.of(heldUnits, List.of());
     }
-
-    return portfolioValue;
+    List<String> assetSymbols = new ArrayList<>(heldUnits.keySet());
+    List<CompletableFuture<List<AssetQuote>>> requests = new ArrayList<>();
+    for (int start = 0; start < assetSymbols.size(); start += VALUATION_BATCH_SIZE) {
+      List<String> batch = List.copyOf(assetSymbols.subList(start,
+          Math.min(assetSymbols.size(), start + VALUATION_BATCH_SIZE)));
+      requests.add(asyncMarketClient.getQuoteAsync(batch));
+    }
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    for (CompletableFuture<List<AssetQuote>> request : requests) {
+      List<AssetQuote> batchQuotes = request.join();
+      if (batchQuotes != null) {
+        assetQuotes.addAll(batchQuotes);
+      }
+    }
+    return PortfolioValuation.of(heldUnits, assetQuotes);
   }
 
 
   /** This method checks that an <code>assetSymbol</code> is valid. In order to speed up checking
    * and to reduce the number of calls we make to the {@link MarketClient}, we store/cache known
-   * good asset symbols after lookup.
+   * good asset symbols after lookup, and remember known bad ones for a while.
    *
    * @param assetSymbol The assetSymbol to check is valid.
    * @return a boolean indicating whether or not the provided assetSymbol is valid.
    */
   public boolean checkAssetSymbol(String assetSymbol) {
-    boolean containsSearchStr = knownGoodAssetSymbols.stream()
-        .anyMatch(assetSymbol::equalsIgnoreCase);
-
-    if (containsSearchStr) {
-      return true;
-    }
-
-    AssetQuote assetQuote = getAssetQuote(assetSymbol);
-    if (assetQuote != null) {
-      knownGoodAssetSymbols.add(assetSymbol);
-    }
-
-    return assetQuote != null;
+    return assetSymbolValidator.isValid(assetSymbol);
   }
 
   /**
@@ -478,15 +697,8 @@ public class PortfolioManager implements PortfolioSystem {
    * @return double - average price.
    */
   public double getAverageInvestmentPrice(String assetSymbol) {
-    double counter = 0;
-    double price = 0;
-    for (Asset holding : holdings) {
-      if (holding.getAssetSymbol().equals(assetSymbol)) {
-        counter += holding.getOriginalPurchaseQty();
-        price += holding.getOriginalPurchasePrice() * holding.getOriginalPurchaseQty();
-      }
-    }
-    return price / counter;
+    Position position = positions.get(assetSymbol);
+    return position == null ? Double.NaN : position.getAveragePurchasePrice();
   }
 
   /**
@@ -514,9 +726,7 @@ public class PortfolioManager implements PortfolioSystem {
     }
 
     //use the symbols to get an assetQuote list (assetQuote class is where the quoteType is held)
-    List<AssetQuote> typeList = getAssetQuotes(getDistinctAssetSymbols(holdings));
-    //An Asset list is used to get the current units
-    List<Asset> assetList = getAssetsWithHoldings();
+    List<AssetQuote> typeList = getAssetQuotes(getPositionSymbols());
 
     //the returnString is concatenated within the for loop
     //if the assetType passed in matches the quoteType from the API
@@ -526,7 +736,8 @@ public class PortfolioManager implements PortfolioSystem {
           .append("\t Symbol: ").append(typeList.get(i))
           .append("\t\t Average Investment Price: ")
           .append(getAverageInvestmentPrice(typeList.get(i).getAssetSymbol()))
-          .append("\t\tCurrent Units: ").append(assetList.get(i).getCurrentUnitsBalance())
+          .append("\t\tCurrent Units: ")
+          .append(getUnitsHeld(typeList.get(i).getAssetSymbol()))
           .append("\n");
       }
     }
@@ -549,8 +760,7 @@ public class PortfolioManager implements PortfolioSystem {
     StringBuilder returnString = new StringBuilder();
 
     // The asset symbols of the holdings are used to get the AssetQuotes
-    List<AssetQuote> assetList = getAssetQuotes(getDistinctAssetSymbols(holdings));
-    List<Asset> unitsList = getAssetsWithHoldings();
+    List<AssetQuote> assetList = getAssetQuotes(getPositionSymbols());
 
     // Nested for loop checks each string against each AssetQuote
     for (String string : assetNames) {
@@ -561,8 +771,8 @@ public class PortfolioManager implements PortfolioSystem {
           returnString.append(" Name: \t").append(quote.getFullExchangeName())
             .append("\tSymbol: ").append(quote).append("\n")
             .append("\t  Average price ").append(getAverageInvestmentPrice(string))
-            .append("\t\tCurrent Units: ").append(unitsList.get(assetList.indexOf(quote))
-            .getCurrentUnitsBalance()).append("\n");
+            .append("\t\tCurrent Units: ").append(getUnitsHeld(quote.getAssetSymbol()))
+            .append("\n");
         }
       }
     }
@@ -648,19 +858,19 @@ public class PortfolioManager implements PortfolioSystem {
    */
   private void loadClientPortfolio() {
     // Set up the assets already owned. These are specified in the assignment.
-    holdings.add(new Asset(
+    addHolding(new Asset(
         "TSLA", DateTimeHelper.getEpochMillisecondsForDate(2021, 10, 1),
         10, 775.22, marketClient));
 
-    holdings.add(new Asset(
+    addHolding(new Asset(
         "AAPL", DateTimeHelper.getEpochMillisecondsForDate(2021, 7, 5),
         20, 139.96, marketClient));
 
-    holdings.add(new Asset(
+    addHolding(new Asset(
         "NVDA", DateTimeHelper.getEpochMillisecondsForDate(2021, 4, 14),
         12, 152.77, marketClient));
 
-    holdings.add(new Asset(
+    addHolding(new Asset(
         "BTC-USD", DateTimeHelper.getEpochMillisecondsForDate(2021, 2, 9),
         0.0445881, 44854.95, marketClient));
   }
@@ -159,6 +159,14 @@ public interface PortfolioSystem {
    */
   double getPortfolioValue();
 
+  /**
+   * Value the assets in the portfolio at the current live value of each asset, reporting the
+   * assets no live value was available for instead of leaving them out silently.
+   *
+   * @return a {@link PortfolioValuation} with the value of each asset and the total.
+   */
+  PortfolioValuation valuePortfolio();
+
   /**
    * Returns a formatted string detailing the name, symbol, average purchase price, current value
    * and amount of each asset within the portfolio. The difference in average purchase price and
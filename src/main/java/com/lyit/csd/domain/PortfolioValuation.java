@@ -0,0 +1,110 @@
+package com.lyit.csd.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link PortfolioValuation} is the value of the units held of each asset symbol at live prices,
+ * together with the symbols that could not be valued because no usable price was available for
+ * them.
+ *
+ * <p>A valuation is made by joining the units held to the quotes through a map keyed by symbol,
+ * so that each held symbol is priced with a single lookup whatever the number of quotes. Symbols
+ * are matched without regard to case. A symbol without a quote, or whose quote has no positive
+ * price, is left out of the total and listed as missing rather than valued at nothing.
+ */
+public class PortfolioValuation {
+  private final Map<String, Double> values;
+  private final List<String> missingSymbols;
+  private final double totalValue;
+
+  private PortfolioValuation(Map<String, Double> values, List<String> missingSymbols,
+                             double totalValue) {
+    this.values = Collections.unmodifiableMap(values);
+    this.missingSymbols = Collections.unmodifiableList(missingSymbols);
+    this.totalValue = totalValue;
+  }
+
+  /**
+   * Values the units held of each asset symbol at the prices of the quotes.
+   *
+   * @param heldUnits the units held, by asset symbol.
+   * @param assetQuotes the quotes. Quotes of symbols that are not held are ignored.
+   * @return the valuation.
+   */
+  public static PortfolioValuation of(Map<String, Double> heldUnits,
+                                      List<AssetQuote> assetQuotes) {
+    Map<String, AssetQuote> quotesBySymbol = new HashMap<>(Math.max(16,
+        assetQuotes.size() * 2));
+    for (AssetQuote assetQuote : assetQuotes) {
+      if (assetQuote != null && assetQuote.getAssetSymbol() != null) {
+        quotesBySymbol.putIfAbsent(normalise(assetQuote.getAssetSymbol()), assetQuote);
+      }
+    }
+
+    Map<String, Double> values = new LinkedHashMap<>();
+    List<String> missingSymbols = new ArrayList<>();
+    double totalValue = 0;
+    for (Map.Entry<String, Double> holding : heldUnits.entrySet()) {
+      double units = holding.getValue();
+      if (units <= 0) {
+        continue;
+      }
+      AssetQuote assetQuote = quotesBySymbol.get(normalise(holding.getKey()));
+      double price = assetQuote == null ? Double.NaN : assetQuote.getRegularMarketPrice();
+      if (!(price > 0) || Double.isInfinite(price)) {
+        missingSymbols.add(holding.getKey());
+        continue;
+      }
+      double value = units * price;
+      values.put(holding.getKey(), value);
+      totalValue += value;
+    }
+    return new PortfolioValuation(values, missingSymbols, totalValue);
+  }
+
+  /**
+   * Gets the value of every symbol that could be valued.
+   *
+   * @return the total value in USD.
+   */
+  public double getTotalValue() {
+    return totalValue;
+  }
+
+  /**
+   * Gets the value of each symbol that could be valued.
+   *
+   * @return a read-only map of the value in USD, by asset symbol, in the order of the holdings.
+   */
+  public Map<String, Double> getValues() {
+    return values;
+  }
+
+  /**
+   * Gets the symbols held that could not be valued, as no usable price was available for them.
+   *
+   * @return a read-only list of the asset symbols, empty if every symbol was valued.
+   */
+  public List<String> getMissingSymbols() {
+    return missingSymbols;
+  }
+
+  /**
+   * Checks whether every symbol held was valued.
+   *
+   * @return a boolean indicating whether no symbol is missing a price.
+   */
+  public boolean isComplete() {
+    return missingSymbols.isEmpty();
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,180 @@
+package com.lyit.csd.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * {@link Position} gathers every purchase of one asset symbol, and keeps running totals over them
+ * so that the units held, the average purchase price and the proceeds of sales can be read without
+ * going through the purchases.
+ *
+ * <p>The totals are updated on every purchase and sale, so purchases and sales must be made
+ * through the position rather than on its {@link Asset} lots directly, and one at a time, for
+ * example while holding a lock for the symbol. The position may be read at any time without
+ * locking: the totals are replaced together after each purchase or sale, so every getter sees
+ * them as they were after some purchase or sale, never part way through one.
+ */
+public class Position {
+  private final String assetSymbol;
+  private final Queue<Asset> lots = new ConcurrentLinkedQueue<>();
+  private final Queue<Asset> openLots = new ConcurrentLinkedQueue<>();
+  private volatile Totals totals = new Totals(0, 0, 0, 0, 0);
+
+  /**
+   * The running totals, which are replaced rather than changed.
+   */
+  private record Totals(double unitsPurchased, double unitsSold, double totalCost,
+                        double realizedProceeds, double costOfUnitsHeld) {
+  }
+
+  /**
+   * Constructor for the {@link Position} class, with no purchases yet.
+   *
+   * @param assetSymbol the symbol of the asset.
+   */
+  public Position(String assetSymbol) {
+    this.assetSymbol = assetSymbol;
+  }
+
+  /**
+   * Adds a purchase to the position.
+   *
+   * @param asset the purchase, which must be of this position's symbol.
+   */
+  public void addLot(Asset asset) {
+    if (!asset.getAssetSymbol().equals(assetSymbol)) {
+      throw new IllegalArgumentException("Cannot add a purchase of " + asset.getAssetSymbol()
+          + " to the position in " + assetSymbol);
+    }
+    lots.add(asset);
+    double unitsHeld = asset.getCurrentUnitsBalance();
+    if (unitsHeld > 0) {
+      openLots.add(asset);
+    }
+    Totals current = totals;
+    totals = new Totals(
+        current.unitsPurchased() + asset.getOriginalPurchaseQty(),
+        current.unitsSold() + asset.getSumOfUnitsSold(),
+        current.totalCost() + asset.getOriginalPurchaseQty() * asset.getOriginalPurchasePrice(),
+        current.realizedProceeds() + asset.getSellTransactions().stream()
+            .mapToDouble(sale -> sale.getUnits() * sale.getSellPrice()).sum(),
+        current.costOfUnitsHeld()
+            + (unitsHeld > 0 ? unitsHeld * asset.getOriginalPurchasePrice() : 0));
+  }
+
+  /**
+   * Sells units from one of the position's purchases.
+   *
+   * @param asset the purchase to sell from.
+   * @param units the number of units to sell.
+   * @param sellPrice the price each unit is sold at.
+   */
+  public void sell(Asset asset, double units, double sellPrice) {
+    asset.sellHolding(units, sellPrice);
+    if (asset.getCurrentUnitsBalance() <= 0) {
+      openLots.remove(asset);
+    }
+    Totals current = totals;
+    totals = new Totals(
+        current.unitsPurchased(),
+        current.unitsSold() + units,
+        current.totalCost(),
+        current.realizedProceeds() + units * sellPrice,
+        openLots.isEmpty() ? 0
+            : current.costOfUnitsHeld() - units * asset.getOriginalPurchasePrice());
+  }
+
+  /**
+   * A getter for <code>assetSymbol</code>.
+   *
+   * @return the symbol of the asset.
+   */
+  public String getAssetSymbol() {
+    return assetSymbol;
+  }
+
+  /**
+   * Gets every purchase in the position, in the order they were added.
+   *
+   * @return a copy of the list of purchases.
+   */
+  public List<Asset> getLots() {
+    return new ArrayList<>(lots);
+  }
+
+  /**
+   * Gets the purchases that still have units held, in the order they were added.
+   *
+   * @return a copy of the list of purchases with units held.
+   */
+  public List<Asset> getOpenLots() {
+    return new ArrayList<>(openLots);
+  }
+
+  /**
+   * Gets the number of units held across all purchases.
+   *
+   * @return the units held.
+   */
+  public double getUnitsHeld() {
+    Totals current = totals;
+    return current.unitsPurchased() - current.unitsSold();
+  }
+
+  /**
+   * Gets the number of units purchased across all purchases, including those since sold.
+   *
+   * @return the units purchased.
+   */
+  public double getUnitsPurchased() {
+    return totals.unitsPurchased();
+  }
+
+  /**
+   * Gets the number of units sold across all purchases.
+   *
+   * @return the units sold.
+   */
+  public double getUnitsSold() {
+    return totals.unitsSold();
+  }
+
+  /**
+   * Gets the amount paid for all purchases, including units since sold.
+   *
+   * @return the total cost in USD.
+   */
+  public double getTotalCost() {
+    return totals.totalCost();
+  }
+
+  /**
+   * Gets the amount paid for the units still held, each at the price of the purchase it is from.
+   *
+   * @return the cost of the units held in USD.
+   */
+  public double getCostOfUnitsHeld() {
+    return totals.costOfUnitsHeld();
+  }
+
+  /**
+   * Gets the amount received from all sales.
+   *
+   * @return the realized proceeds in USD.
+   */
+  public double getRealizedProceeds() {
+    return totals.realizedProceeds();
+  }
+
+  /**
+   * Gets the average price paid per unit over all purchases, including units since sold.
+   *
+   * @return the average purchase price, or NaN if nothing has been purchased.
+   */
+  public double getAveragePurchasePrice() {
+    Totals current = totals;
+    return current.totalCost() / current.unitsPurchased();
+  }
+}
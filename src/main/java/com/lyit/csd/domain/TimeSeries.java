@@ -0,0 +1,545 @@
+package com.lyit.csd.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * {@link TimeSeries} holds a price history as primitive columns: one column of timestamps and one
+ * of closing prices, plus open, high, low and volume columns that are only allocated once a point
+ * that has them is added.
+ *
+ * <p>Columns are either plain arrays on the heap or direct buffers off the heap, which keeps long
+ * histories out of the garbage-collected heap altogether. Either way a point costs 16 bytes for a
+ * timestamp and closing price, where boxed lists cost over 50. Columns grow by doubling as points
+ * are appended.
+ *
+ * <p>Timestamps must not decrease, so that a time range can be found by binary search.
+ * {@link #slice(long, long)} returns a read-only view of a range that shares the columns rather
+ * than copying them. A series may be read from many threads once it is built, but must only be
+ * appended to from one.
+ */
+public final class TimeSeries {
+  private static final int DEFAULT_CAPACITY = 64;
+
+  /**
+   * The columns a series can hold.
+   */
+  public enum Column {
+    Open, High, Low, Close, Volume
+  }
+
+  private final Storage storage;
+  private final int offset;
+  private final boolean view;
+  private int size;
+
+  private TimeSeries(Storage storage, int offset, int size, boolean view) {
+    this.storage = storage;
+    this.offset = offset;
+    this.size = size;
+    this.view = view;
+  }
+
+  /**
+   * Creates an empty series with its columns on the heap.
+   *
+   * @return the series.
+   */
+  public static TimeSeries onHeap() {
+    return onHeap(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates an empty series with its columns on the heap.
+   *
+   * @param initialCapacity the number of points to make room for.
+   * @return the series.
+   */
+  public static TimeSeries onHeap(int initialCapacity) {
+    return new TimeSeries(new HeapStorage(Math.max(1, initialCapacity)), 0, 0, false);
+  }
+
+  /**
+   * Creates an empty series with its columns in direct buffers, off the heap.
+   *
+   * @param initialCapacity the number of points to make room for.
+   * @return the series.
+   */
+  public static TimeSeries offHeap(int initialCapacity) {
+    return new TimeSeries(new DirectStorage(Math.max(1, initialCapacity)), 0, 0, false);
+  }
+
+  /**
+   * Creates a series of closing prices that takes ownership of the given arrays rather than
+   * copying them. The arrays must not be changed afterwards.
+   *
+   * @param timestamps the timestamps, in seconds, not decreasing.
+   * @param closes the closing prices, aligned with the timestamps.
+   * @param count the number of points, from the start of each array.
+   * @return the series.
+   * @throws IllegalArgumentException if the timestamps decrease.
+   */
+  public static TimeSeries wrap(long[] timestamps, double[] closes, int count) {
+    if (count > timestamps.length || count > closes.length) {
+      throw new IllegalArgumentException("count is larger than the arrays");
+    }
+    for (int i = 1; i < count; i++) {
+      if (timestamps[i] < timestamps[i - 1]) {
+        throw new IllegalArgumentException("Timestamps must not decrease");
+      }
+    }
+    return new TimeSeries(new HeapStorage(timestamps, closes), 0, count, false);
+  }
+
+  /**
+   * Appends a point with only a closing price.
+   *
+   * @param timestamp the time of the point in seconds, no earlier than the last point.
+   * @param close the closing price.
+   */
+  public void append(long timestamp, double close) {
+    int index = prepareAppend(timestamp);
+    storage.setPrice(Column.Close, index, close);
+    if (storage.hasOhlcv()) {
+      storage.setPrice(Column.Open, index, Double.NaN);
+      storage.setPrice(Column.High, index, Double.NaN);
+      storage.setPrice(Column.Low, index, Double.NaN);
+      storage.setVolume(index, 0);
+    }
+    size++;
+  }
+
+  /**
+   * Appends a point with open, high, low and closing prices and volume.
+   *
+   * @param timestamp the time of the point in seconds, no earlier than the last point.
+   * @param open the opening price.
+   * @param high the highest price.
+   * @param low the lowest price.
+   * @param close the closing price.
+   * @param volume the number of units traded.
+   */
+  public void append(long timestamp, double open, double high, double low, double close,
+                     long volume) {
+    int index = prepareAppend(timestamp);
+    if (!storage.hasOhlcv()) {
+      storage.addOhlcv(index);
+    }
+    storage.setPrice(Column.Open, index, open);
+    storage.setPrice(Column.High, index, high);
+    storage.setPrice(Column.Low, index, low);
+    storage.setPrice(Column.Close, index, close);
+    storage.setVolume(index, volume);
+    size++;
+  }
+
+  /**
+   * Appends a run of points with only closing prices.
+   *
+   * @param timestamps the timestamps, in seconds, not decreasing.
+   * @param closes the closing prices, aligned with the timestamps.
+   * @param count the number of points to add, from the start of each array.
+   */
+  public void appendAll(long[] timestamps, double[] closes, int count) {
+    storage.ensureCapacity(offset + size + count);
+    for (int i = 0; i < count; i++) {
+      append(timestamps[i], closes[i]);
+    }
+  }
+
+  /**
+   * Gets the number of points.
+   *
+   * @return the size of the series.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks whether the series holds no points.
+   *
+   * @return a boolean indicating whether the series is empty.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Checks whether the series holds a column.
+   *
+   * @param column the column.
+   * @return a boolean indicating whether the column is held. Timestamps and closing prices always
+   *     are.
+   */
+  public boolean hasColumn(Column column) {
+    return column == Column.Close || storage.hasOhlcv();
+  }
+
+  /**
+   * Checks whether the columns are held off the heap.
+   *
+   * @return a boolean indicating whether the columns are in direct buffers.
+   */
+  public boolean isOffHeap() {
+    return storage instanceof DirectStorage;
+  }
+
+  /**
+   * Gets a timestamp.
+   *
+   * @param index the position of the point, oldest first.
+   * @return the time of the point in seconds.
+   */
+  public long getTimestamp(int index) {
+    return storage.getTimestamp(offset + checkIndex(index));
+  }
+
+  /**
+   * Gets a closing price.
+   *
+   * @param index the position of the point, oldest first.
+   * @return the price.
+   */
+  public double getClose(int index) {
+    return storage.getPrice(Column.Close, offset + checkIndex(index));
+  }
+
+  /**
+   * Gets an opening price.
+   *
+   * @param index the position of the point.
+   * @return the price, or NaN if the point has none.
+   */
+  public double getOpen(int index) {
+    return getOptionalPrice(Column.Open, index);
+  }
+
+  /**
+   * Gets a highest price.
+   *
+   * @param index the position of the point.
+   * @return the price, or NaN if the point has none.
+   */
+  public double getHigh(int index) {
+    return getOptionalPrice(Column.High, index);
+  }
+
+  /**
+   * Gets a lowest price.
+   *
+   * @param index the position of the point.
+   * @return the price, or NaN if the point has none.
+   */
+  public double getLow(int index) {
+    return getOptionalPrice(Column.Low, index);
+  }
+
+  /**
+   * Gets a volume.
+   *
+   * @param index the position of the point.
+   * @return the volume, or 0 if the point has none.
+   */
+  public long getVolume(int index) {
+    checkIndex(index);
+    return storage.hasOhlcv() ? storage.getVolume(offset + index) : 0;
+  }
+
+  /**
+   * Finds the first point at or after a time, by binary search.
+   *
+   * @param timestamp the time in seconds.
+   * @return the index of the point, or the size of the series if every point is earlier.
+   */
+  public int ceilingIndex(long timestamp) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (storage.getTimestamp(offset + middle) < timestamp) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets a read-only view of the points in a time range. The view shares this series' columns.
+   *
+   * @param fromInclusive the start of the range, in seconds.
+   * @param toExclusive the end of the range, in seconds.
+   * @return the view.
+   */
+  public TimeSeries slice(long fromInclusive, long toExclusive) {
+    int from = ceilingIndex(fromInclusive);
+    int to = Math.max(from, ceilingIndex(toExclusive));
+    return new TimeSeries(storage, offset + from, to - from, true);
+  }
+
+  /**
+   * Copies the timestamps into a new array.
+   *
+   * @return the timestamps.
+   */
+  public long[] copyTimestamps() {
+    long[] timestamps = new long[size];
+    for (int i = 0; i < size; i++) {
+      timestamps[i] = storage.getTimestamp(offset + i);
+    }
+    return timestamps;
+  }
+
+  /**
+   * Copies the closing prices into a new array.
+   *
+   * @return the closing prices.
+   */
+  public double[] copyCloses() {
+    double[] closes = new double[size];
+    for (int i = 0; i < size; i++) {
+      closes[i] = storage.getPrice(Column.Close, offset + i);
+    }
+    return closes;
+  }
+
+  private double getOptionalPrice(Column column, int index) {
+    checkIndex(index);
+    return storage.hasOhlcv() ? storage.getPrice(column, offset + index) : Double.NaN;
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+    }
+    return index;
+  }
+
+  /**
+   * Checks that a point can be appended and makes room for it.
+   *
+   * @return the storage position of the new point.
+   */
+  private int prepareAppend(long timestamp) {
+    if (view) {
+      throw new UnsupportedOperationException("A slice of a time series is read-only");
+    }
+    if (size > 0 && timestamp < storage.getTimestamp(offset + size - 1)) {
+      throw new IllegalArgumentException("Timestamps must not decrease");
+    }
+    int index = offset + size;
+    storage.ensureCapacity(index + 1);
+    storage.setTimestamp(index, timestamp);
+    return index;
+  }
+
+  /**
+   * The columns behind a series and its slices.
+   */
+  private abstract static class Storage {
+    abstract int capacity();
+
+    abstract void grow(int capacity);
+
+    abstract boolean hasOhlcv();
+
+    /**
+     * Allocates the open, high, low and volume columns, with the points before the given position
+     * having none.
+     */
+    abstract void addOhlcv(int filled);
+
+    abstract long getTimestamp(int index);
+
+    abstract void setTimestamp(int index, long value);
+
+    abstract double getPrice(Column column, int index);
+
+    abstract void setPrice(Column column, int index, double value);
+
+    abstract long getVolume(int index);
+
+    abstract void setVolume(int index, long value);
+
+    void ensureCapacity(int needed) {
+      if (needed > capacity()) {
+        grow(Math.max(needed, capacity() * 2));
+      }
+    }
+  }
+
+  private static class HeapStorage extends Storage {
+    private long[] timestamps;
+    private final double[][] prices = new double[4][];
+    private long[] volumes;
+
+    HeapStorage(int capacity) {
+      this(new long[capacity], new double[capacity]);
+    }
+
+    HeapStorage(long[] timestamps, double[] closes) {
+      // Wrapped arrays may have been grown separately; every column must have the same capacity.
+      int capacity = Math.max(1, Math.max(timestamps.length, closes.length));
+      this.timestamps = timestamps.length == capacity
+          ? timestamps : Arrays.copyOf(timestamps, capacity);
+      this.prices[Column.Close.ordinal()] = closes.length == capacity
+          ? closes : Arrays.copyOf(closes, capacity);
+    }
+
+    @Override
+    int capacity() {
+      return timestamps.length;
+    }
+
+    @Override
+    void grow(int capacity) {
+      timestamps = Arrays.copyOf(timestamps, capacity);
+      for (int i = 0; i < prices.length; i++) {
+        if (prices[i] != null) {
+          prices[i] = Arrays.copyOf(prices[i], capacity);
+        }
+      }
+      if (volumes != null) {
+        volumes = Arrays.copyOf(volumes, capacity);
+      }
+    }
+
+    @Override
+    boolean hasOhlcv() {
+      return volumes != null;
+    }
+
+    @Override
+    void addOhlcv(int filled) {
+      for (Column column : new Column[] {Column.Open, Column.High, Column.Low}) {
+        double[] values = new double[capacity()];
+        Arrays.fill(values, 0, filled, Double.NaN);
+        prices[column.ordinal()] = values;
+      }
+      volumes = new long[capacity()];
+    }
+
+    @Override
+    long getTimestamp(int index) {
+      return timestamps[index];
+    }
+
+    @Override
+    void setTimestamp(int index, long value) {
+      timestamps[index] = value;
+    }
+
+    @Override
+    double getPrice(Column column, int index) {
+      return prices[column.ordinal()][index];
+    }
+
+    @Override
+    void setPrice(Column column, int index, double value) {
+      prices[column.ordinal()][index] = value;
+    }
+
+    @Override
+    long getVolume(int index) {
+      return volumes[index];
+    }
+
+    @Override
+    void setVolume(int index, long value) {
+      volumes[index] = value;
+    }
+  }
+
+  private static class DirectStorage extends Storage {
+    private int capacity;
+    private ByteBuffer timestamps;
+    private final ByteBuffer[] prices = new ByteBuffer[4];
+    private ByteBuffer volumes;
+
+    DirectStorage(int capacity) {
+      this.capacity = capacity;
+      this.timestamps = allocate(capacity);
+      this.prices[Column.Close.ordinal()] = allocate(capacity);
+    }
+
+    @Override
+    int capacity() {
+      return capacity;
+    }
+
+    @Override
+    void grow(int newCapacity) {
+      timestamps = copy(timestamps, newCapacity);
+      for (int i = 0; i < prices.length; i++) {
+        if (prices[i] != null) {
+          prices[i] = copy(prices[i], newCapacity);
+        }
+      }
+      if (volumes != null) {
+        volumes = copy(volumes, newCapacity);
+      }
+      capacity = newCapacity;
+    }
+
+    @Override
+    boolean hasOhlcv() {
+      return volumes != null;
+    }
+
+    @Override
+    void addOhlcv(int filled) {
+      for (Column column : new Column[] {Column.Open, Column.High, Column.Low}) {
+        ByteBuffer values = allocate(capacity);
+        for (int i = 0; i < filled; i++) {
+          values.putDouble(i * Double.BYTES, Double.NaN);
+        }
+        prices[column.ordinal()] = values;
+      }
+      volumes = allocate(capacity);
+    }
+
+    @Override
+    long getTimestamp(int index) {
+      return timestamps.getLong(index * Long.BYTES);
+    }
+
+    @Override
+    void setTimestamp(int index, long value) {
+      timestamps.putLong(index * Long.BYTES, value);
+    }
+
+    @Override
+    double getPrice(Column column, int index) {
+      return prices[column.ordinal()].getDouble(index * Double.BYTES);
+    }
+
+    @Override
+    void setPrice(Column column, int index, double value) {
+      prices[column.ordinal()].putDouble(index * Double.BYTES, value);
+    }
+
+    @Override
+    long getVolume(int index) {
+      return volumes.getLong(index * Long.BYTES);
+    }
+
+    @Override
+    void setVolume(int index, long value) {
+      volumes.putLong(index * Long.BYTES, value);
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+      return ByteBuffer.allocateDirect(capacity * 8).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer copy(ByteBuffer source, int capacity) {
+      ByteBuffer target = allocate(capacity);
+      target.put(source.duplicate().clear());
+      target.clear();
+      return target;
+    }
+  }
+}
@@ -1,8 +1,11 @@
 package com.lyit.csd.marketapi;
 
 import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.composite.CompositeMarketClient;
 import com.lyit.csd.marketapi.mock.MockClient;
+import com.lyit.csd.marketapi.simulated.SimulatedClient;
 import com.lyit.csd.marketapi.yahoo.YahooClient;
+import com.lyit.csd.marketapi.yahoo.YahooHttpTransport;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,9 +13,26 @@ import java.util.List;
  * MarketClientFactory constructor.
  */
 public class MarketClientFactory {
+  private final YahooHttpTransport yahooTransport;
 
   /**
-   * Enumeration containing both types of market client
+   * Creates a factory whose Yahoo clients share the process-wide {@link YahooHttpTransport}.
+   */
+  public MarketClientFactory() {
+    this(YahooHttpTransport.getDefault());
+  }
+
+  /**
+   * Creates a factory whose Yahoo clients send their requests through the supplied transport.
+   *
+   * @param yahooTransport the pooled HTTP transport to inject into every {@link YahooClient}.
+   */
+  public MarketClientFactory(YahooHttpTransport yahooTransport) {
+    this.yahooTransport = yahooTransport;
+  }
+
+  /**
+   * Enumeration containing the types of market client
    * implemented in our code.
    */
   public enum MarketClientTypes {
@@ -23,7 +43,11 @@ public class MarketClientFactory {
     /**
      * Yahoo Finance API.
      */
-    Yahoo
+    Yahoo,
+    /**
+     * Synthetic market of many thousands of symbols. This is used for benchmarks and soak tests.
+     */
+    Simulated
   }
 
   /**
@@ -36,6 +60,8 @@ public class MarketClientFactory {
     switch (marketClientType) {
       case Mock:
         return new MockClient();
+      case Simulated:
+        return new SimulatedClient();
       default:  // Yahoo Finance API is the only 'real' implemented market client currently.
 
         List<String> apiKeys = new ArrayList<>();
@@ -56,7 +82,24 @@ public class MarketClientFactory {
         apiKeys.add("NBowNWDYQL3oDQRU8C9cJ2CHSBY0sMGU6UlzjEDo"); // David's third
         
         String baseUrl = "https://yfapi.net";
-        return new YahooClient(baseUrl, apiKeys);
+        return new YahooClient(baseUrl, apiKeys, yahooTransport);
+    }
+  }
+
+  /**
+   * Method to provide a client that answers from several providers, such as Yahoo first and the
+   * simulated market when Yahoo cannot answer.
+   *
+   * @param policy how the provider to ask is chosen.
+   * @param marketClientTypes the types of the providers, in order of preference.
+   * @return MarketClient object
+   */
+  public MarketClient getMarketClient(CompositeMarketClient.Policy policy,
+                                      MarketClientTypes... marketClientTypes) {
+    List<MarketClient> delegates = new ArrayList<>();
+    for (MarketClientTypes marketClientType : marketClientTypes) {
+      delegates.add(getMarketClient(marketClientType));
     }
+    return new CompositeMarketClient(policy, delegates);
   }
 }
@@ -0,0 +1,97 @@
+package com.lyit.csd.marketapi.abstraction;
+
+import com.lyit.csd.domain.AssetQuote;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous companion to {@link MarketClient}. Each method starts the lookup and returns
+ * immediately, so that independent lookups can be made concurrently rather than one after another.
+ *
+ * <p>The default implementations run the blocking {@link MarketClient} method on
+ * {@link #getAsyncExecutor()}; implementations may override them where they can do better.
+ */
+public interface AsyncMarketClient extends MarketClient {
+
+  /**
+   * Wraps any {@link MarketClient} so that it can be used asynchronously.
+   *
+   * @param marketClient the client to wrap.
+   * @return the client itself if it is already an {@link AsyncMarketClient}, otherwise an adapter.
+   */
+  static AsyncMarketClient of(MarketClient marketClient) {
+    if (marketClient instanceof AsyncMarketClient) {
+      return (AsyncMarketClient) marketClient;
+    }
+    return new AsyncMarketClientAdapter(marketClient);
+  }
+
+  /**
+   * Gets the executor that asynchronous lookups run on.
+   *
+   * @return the executor, by default {@link MarketClientExecutors#shared()}.
+   */
+  default Executor getAsyncExecutor() {
+    return MarketClientExecutors.shared();
+  }
+
+  /** Get an {@link AssetQuote} from an exchange without blocking.
+
+   * @param assetSymbol is the asset symbol to get a quote for.
+
+   * @return a future completed with the {@link AssetQuote}, or null if there is none.
+   */
+  default CompletableFuture<AssetQuote> getQuoteAsync(String assetSymbol) {
+    return CompletableFuture.supplyAsync(() -> getQuote(assetSymbol), getAsyncExecutor());
+  }
+
+  /** Gets a list of {@link AssetQuote} from an exchange without blocking.
+
+   * @param assetSymbols is a list of asset symbols to get quotes for.
+
+   * @return a future completed with the list of {@link AssetQuote}.
+   */
+  default CompletableFuture<List<AssetQuote>> getQuoteAsync(List<String> assetSymbols) {
+    return CompletableFuture.supplyAsync(() -> getQuote(assetSymbols), getAsyncExecutor());
+  }
+
+  /** Gets a list of trending stocks for a region from an exchange without blocking.
+
+   * @param region is the region to look up.
+
+   * @return a future completed with the trending asset symbols.
+   */
+  default CompletableFuture<ArrayList<String>> getTrendingStocksForRegionAsync(String region) {
+    return CompletableFuture.supplyAsync(() -> getTrendingStocksForRegion(region),
+        getAsyncExecutor());
+  }
+
+  /**
+   * Retrieves historic data for the provided stock tickers without blocking.
+   *
+   * @param assetSymbols list of stock tickers
+   * @param interval granularity of the returned data.
+   * @param range time period of which data is to be gathered.
+   * @return a future completed with the {@link AssetQuote} histories.
+   */
+  default CompletableFuture<List<AssetQuote>> getHistoricalInfoAsync(List<String> assetSymbols,
+                                                                     String interval,
+                                                                     String range) {
+    return CompletableFuture.supplyAsync(() -> getHistoricalInfo(assetSymbols, interval, range),
+        getAsyncExecutor());
+  }
+
+  /**
+   * Returns information regarding the specified exchange and region without blocking.
+   *
+   * @param region region where exchange is located.
+   * @param exchange the exchange to return data on.
+   * @return a future completed with the exchange information.
+   */
+  default CompletableFuture<String> getExchangeInfoAsync(String region, String exchange) {
+    return CompletableFuture.supplyAsync(() -> getExchangeInfo(region, exchange),
+        getAsyncExecutor());
+  }
+}
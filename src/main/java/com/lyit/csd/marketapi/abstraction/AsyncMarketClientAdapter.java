@@ -0,0 +1,54 @@
+package com.lyit.csd.marketapi.abstraction;
+
+import com.lyit.csd.domain.AssetQuote;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Adapts a blocking {@link MarketClient} to the {@link AsyncMarketClient} interface by delegating
+ * every call to it.
+ */
+class AsyncMarketClientAdapter implements AsyncMarketClient {
+  private final MarketClient delegate;
+
+  AsyncMarketClientAdapter(MarketClient delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    return delegate.getQuote(assetSymbol);
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    return delegate.getQuote(assetSymbols);
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return delegate.getTrendingStocksForRegion(region);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return delegate.getHistoricalInfo(assetSymbols, interval, range);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return delegate.getExchangeInfo(region, exchange);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return delegate.checkAssetSymbol(assetSymbol);
+  }
+
+  @Override
+  public BitSet checkAssetSymbols(List<String> assetSymbols) {
+    return delegate.checkAssetSymbols(assetSymbols);
+  }
+}
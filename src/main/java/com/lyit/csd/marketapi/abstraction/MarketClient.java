@@ -2,7 +2,11 @@ package com.lyit.csd.marketapi.abstraction;
 
 import com.lyit.csd.domain.AssetQuote;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 /**
  * This interface displays the asset quote and symbol, including which stock are
@@ -62,4 +66,30 @@ public interface MarketClient {
    * @return a boolean indicating whether asset is valid.
    */
   boolean checkAssetSymbol(String assetSymbol);
+
+  /** Checks a list of asset symbols in a single quote request. A symbol is valid if the exchange
+   * returns a quote for it; symbols are compared ignoring case.
+   *
+   * @param assetSymbols are the asset symbols to check.
+   * @return a {@link BitSet} with bit i set if the symbol at index i is valid.
+   */
+  default BitSet checkAssetSymbols(List<String> assetSymbols) {
+    BitSet valid = new BitSet(assetSymbols.size());
+    if (assetSymbols.isEmpty()) {
+      return valid;
+    }
+    Set<String> quoted = new HashSet<>();
+    for (AssetQuote assetQuote : getQuote(assetSymbols)) {
+      if (assetQuote != null && assetQuote.getAssetSymbol() != null) {
+        quoted.add(assetQuote.getAssetSymbol().toUpperCase(Locale.ROOT));
+      }
+    }
+    for (int i = 0; i < assetSymbols.size(); i++) {
+      String assetSymbol = assetSymbols.get(i);
+      if (assetSymbol != null && quoted.contains(assetSymbol.toUpperCase(Locale.ROOT))) {
+        valid.set(i);
+      }
+    }
+    return valid;
+  }
 }
@@ -0,0 +1,55 @@
+package com.lyit.csd.marketapi.abstraction;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link MarketClientExecutors} provides the executor that {@link AsyncMarketClient} calls run on.
+ *
+ * <p>Market lookups spend nearly all of their time waiting on the network, so they are run on
+ * virtual threads when the runtime provides them (Java 21 onwards). On older runtimes we fall back
+ * to a cached pool of daemon threads, which grows with demand and never keeps the JVM alive.
+ */
+public final class MarketClientExecutors {
+
+  private MarketClientExecutors() {
+  }
+
+  /**
+   * Gets the executor shared by all asynchronous market client calls in this process.
+   *
+   * @return the shared {@link ExecutorService}.
+   */
+  public static ExecutorService shared() {
+    return SharedHolder.INSTANCE;
+  }
+
+  /**
+   * Creates a new executor with one virtual thread per task, or a daemon thread pool where virtual
+   * threads are not available.
+   *
+   * @return a new {@link ExecutorService}.
+   */
+  public static ExecutorService newExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+      AtomicInteger threadCount = new AtomicInteger();
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "market-client-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Lazily creates the shared executor the first time it is needed.
+   */
+  private static class SharedHolder {
+    private static final ExecutorService INSTANCE = newExecutor();
+  }
+}
@@ -0,0 +1,119 @@
+package com.lyit.csd.marketapi.abstraction;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * {@link MarketPeriods} works out the Yahoo Finance intervals and ranges that
+ * {@link MarketClient#getHistoricalInfo} takes, such as <code>5m</code>, <code>1d</code>,
+ * <code>3mo</code>, <code>ytd</code> or <code>max</code>.
+ *
+ * <p>An interval or range is a count followed by a unit: <code>m</code> for minutes,
+ * <code>h</code> for hours, <code>d</code> for days, <code>wk</code> for weeks, <code>mo</code> for
+ * months or <code>y</code> for years. A missing count means one, and an unknown unit is taken as
+ * days. Ranges are counted back in calendar units; <code>ytd</code> starts at the beginning of the
+ * current year and <code>max</code> at the earliest time there is.
+ */
+public final class MarketPeriods {
+  private static final long SECONDS_PER_DAY = 86_400;
+
+  private MarketPeriods() {
+  }
+
+  /**
+   * Gets the length of an interval in seconds. A month counts as 30 days and a year as 365.
+   *
+   * @param interval the interval, such as <code>5m</code> or <code>1wk</code>.
+   * @return the length in seconds, at least one.
+   */
+  public static long intervalSeconds(String interval) {
+    int unit = unitIndex(interval);
+    long seconds = switch (interval.substring(unit)) {
+      case "m" -> 60;
+      case "h" -> 3600;
+      case "wk" -> 7 * SECONDS_PER_DAY;
+      case "mo" -> 30 * SECONDS_PER_DAY;
+      case "y" -> 365 * SECONDS_PER_DAY;
+      default -> SECONDS_PER_DAY;
+    };
+    return Math.max(1, count(interval, unit) * seconds);
+  }
+
+  /**
+   * Gets the start of the interval that is in progress now. A point is timestamped at the start of
+   * its interval, so every point timestamped before this is complete. Weeks start on Monday, and
+   * months and years on their first day; shorter intervals are counted from the epoch. All are in
+   * UTC.
+   *
+   * @param interval the interval, such as <code>5m</code> or <code>1d</code>.
+   * @param nowSeconds the time, in seconds since the epoch.
+   * @return the start of the current interval, in seconds since the epoch.
+   */
+  public static long intervalStart(String interval, long nowSeconds) {
+    ZonedDateTime now = ZonedDateTime.ofInstant(Instant.ofEpochSecond(nowSeconds), ZoneOffset.UTC);
+    ZonedDateTime today = now.toLocalDate().atStartOfDay(ZoneOffset.UTC);
+    return switch (interval.substring(unitIndex(interval))) {
+      case "wk" -> today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochSecond();
+      case "mo" -> today.withDayOfMonth(1).toEpochSecond();
+      case "y" -> today.withDayOfYear(1).toEpochSecond();
+      default -> nowSeconds - Math.floorMod(nowSeconds, intervalSeconds(interval));
+    };
+  }
+
+  /**
+   * Gets the start of a range that ends now.
+   *
+   * @param range the range, such as <code>5d</code>, <code>1y</code>, <code>ytd</code> or
+   *              <code>max</code>.
+   * @param nowSeconds the end of the range, in seconds since the epoch.
+   * @return the start of the range, in seconds since the epoch; 0 for <code>max</code>.
+   */
+  public static long rangeStart(String range, long nowSeconds) {
+    if (range.equals("max")) {
+      return 0;
+    }
+    ZonedDateTime end = ZonedDateTime.ofInstant(Instant.ofEpochSecond(nowSeconds),
+        ZoneOffset.UTC);
+    if (range.equals("ytd")) {
+      return end.withDayOfYear(1).toLocalDate().atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+    int unit = unitIndex(range);
+    long amount = count(range, unit);
+    ZonedDateTime start = switch (range.substring(unit)) {
+      case "m" -> end.minusMinutes(amount);
+      case "h" -> end.minusHours(amount);
+      case "wk" -> end.minusWeeks(amount);
+      case "mo" -> end.minusMonths(amount);
+      case "y" -> end.minusYears(amount);
+      default -> end.minusDays(amount);
+    };
+    return start.toEpochSecond();
+  }
+
+  /**
+   * Gets the length of a range that ends now.
+   *
+   * @param range the range, such as <code>5d</code>, <code>1y</code>, <code>ytd</code> or
+   *              <code>max</code>.
+   * @param nowSeconds the end of the range, in seconds since the epoch.
+   * @return the length in seconds, at least one.
+   */
+  public static long rangeSeconds(String range, long nowSeconds) {
+    return Math.max(1, nowSeconds - rangeStart(range, nowSeconds));
+  }
+
+  private static int unitIndex(String period) {
+    int unit = 0;
+    while (unit < period.length() && Character.isDigit(period.charAt(unit))) {
+      unit++;
+    }
+    return unit;
+  }
+
+  private static long count(String period, int unit) {
+    return unit == 0 ? 1 : Long.parseLong(period.substring(0, unit));
+  }
+}
@@ -0,0 +1,333 @@
+package com.lyit.csd.marketapi.caching;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClientExecutors;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CachingMarketClient} wraps any {@link MarketClient} and keeps recent {@link AssetQuote}s
+ * in memory, keyed by asset symbol. Symbols are matched without regard to case, as providers may
+ * return a symbol in a different case from the one requested.
+ *
+ * <p>A quote younger than the time to live is served straight from the cache. A quote older than
+ * that, but still within the maximum staleness, is served as it is while a refresh is made in the
+ * background (stale-while-revalidate). Anything older is fetched again before returning. The cache
+ * holds at most a fixed number of symbols, evicting the least recently used first.
+ *
+ * <p>Only quote lookups are cached; every other call is passed straight to the wrapped client.
+ */
+public class CachingMarketClient implements AsyncMarketClient {
+  private static final int DEFAULT_MAX_ENTRIES = 1024;
+  private static final Duration DEFAULT_TIME_TO_LIVE = Duration.ofSeconds(15);
+  private static final Duration DEFAULT_MAX_STALENESS = Duration.ofSeconds(60);
+
+  private final MarketClient delegate;
+  private final long timeToLiveMillis;
+  private final long maxStalenessMillis;
+  private final Clock clock;
+  private final Executor refreshExecutor;
+  private final Map<String, CachedQuote> cache;
+  private final Set<String> refreshesInFlight = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong staleHitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link CachingMarketClient} class using the default cache settings.
+   *
+   * @param delegate the client that quotes are fetched from on a cache miss.
+   */
+  public CachingMarketClient(MarketClient delegate) {
+    this(delegate, DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE, DEFAULT_MAX_STALENESS,
+        Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link CachingMarketClient} class.
+   *
+   * @param delegate the client that quotes are fetched from on a cache miss.
+   * @param maxEntries the maximum number of symbols held in the cache.
+   * @param timeToLive how long a quote is served without being refreshed.
+   * @param maxStaleness how long a quote may be served at all. Quotes older than the time to live
+   *                     but younger than this are served while being refreshed in the background.
+   * @param clock the clock used to age cached quotes.
+   */
+  public CachingMarketClient(MarketClient delegate, int maxEntries, Duration timeToLive,
+                             Duration maxStaleness, Clock clock) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("maxEntries must be positive");
+    }
+    if (maxStaleness.compareTo(timeToLive) < 0) {
+      throw new IllegalArgumentException("maxStaleness must not be shorter than timeToLive");
+    }
+    this.delegate = delegate;
+    this.timeToLiveMillis = timeToLive.toMillis();
+    this.maxStalenessMillis = maxStaleness.toMillis();
+    this.clock = clock;
+    this.refreshExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+    this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedQuote> eldest) {
+        if (size() > maxEntries) {
+          evictionCount.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Gets a quote from the cache, fetching it from the wrapped client if it is missing or too old.
+   *
+   * @param assetSymbol is the asset symbol to get a quote for.
+   * @return an {@link AssetQuote}, or null if the wrapped client has none.
+   */
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    AssetQuote cachedQuote = lookup(assetSymbol);
+    if (cachedQuote != null) {
+      return cachedQuote;
+    }
+
+    AssetQuote assetQuote = delegate.getQuote(assetSymbol);
+    store(assetSymbol, assetQuote);
+    return assetQuote;
+  }
+
+  /**
+   * Gets quotes from the cache, fetching all missing or expired symbols from the wrapped client in
+   * a single request.
+   *
+   * @param assetSymbols is a list of asset symbols to get quotes for.
+   * @return a list of {@link AssetQuote}, in the order the symbols were requested.
+   */
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    Map<String, AssetQuote> found = new HashMap<>();
+    List<String> symbolsToFetch = new ArrayList<>();
+
+    Set<String> keysToFetch = new HashSet<>();
+
+    for (String assetSymbol : assetSymbols) {
+      String key = normalise(assetSymbol);
+      if (found.containsKey(key) || keysToFetch.contains(key)) {
+        continue;
+      }
+      AssetQuote cachedQuote = lookup(assetSymbol);
+      if (cachedQuote != null) {
+        found.put(key, cachedQuote);
+      } else {
+        keysToFetch.add(key);
+        symbolsToFetch.add(assetSymbol);
+      }
+    }
+
+    if (!symbolsToFetch.isEmpty()) {
+      for (AssetQuote assetQuote : delegate.getQuote(symbolsToFetch)) {
+        if (assetQuote == null || assetQuote.getAssetSymbol() == null) {
+          continue;
+        }
+        store(assetQuote.getAssetSymbol(), assetQuote);
+        found.put(normalise(assetQuote.getAssetSymbol()), assetQuote);
+      }
+    }
+
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    for (String assetSymbol : assetSymbols) {
+      AssetQuote assetQuote = found.remove(normalise(assetSymbol));
+      if (assetQuote != null) {
+        assetQuotes.add(assetQuote);
+      }
+    }
+    return assetQuotes;
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return delegate.getTrendingStocksForRegion(region);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return delegate.getHistoricalInfo(assetSymbols, interval, range);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return delegate.getExchangeInfo(region, exchange);
+  }
+
+  /**
+   * Checks a symbol by looking up its quote, so that a symbol quoted recently costs no request.
+   *
+   * @param assetSymbol the symbol to check.
+   * @return a boolean indicating whether a quote exists for the symbol.
+   */
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return getQuote(assetSymbol) != null;
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return refreshExecutor;
+  }
+
+  /**
+   * Removes every quote from the cache.
+   */
+  public void invalidateAll() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /**
+   * Gets the number of lookups served from a fresh cached quote.
+   *
+   * @return the hit count.
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Gets the number of lookups served from a stale cached quote while it was being refreshed.
+   *
+   * @return the stale hit count.
+   */
+  public long getStaleHitCount() {
+    return staleHitCount.get();
+  }
+
+  /**
+   * Gets the number of lookups that had to go to the wrapped client.
+   *
+   * @return the miss count.
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Gets the number of quotes removed because the cache was full or they were too old to serve.
+   *
+   * @return the eviction count.
+   */
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+
+  /**
+   * Gets the number of symbols currently cached.
+   *
+   * @return the cache size.
+   */
+  public int size() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  /**
+   * Looks up a symbol, recording a hit or miss and starting a background refresh if the cached
+   * quote is stale.
+   *
+   * @param assetSymbol the symbol to look up.
+   * @return the cached quote if it can still be served, otherwise null.
+   */
+  private AssetQuote lookup(String assetSymbol) {
+    CachedQuote cachedQuote;
+    long now = clock.millis();
+    String key = normalise(assetSymbol);
+
+    synchronized (cache) {
+      cachedQuote = cache.get(key);
+      if (cachedQuote != null && now - cachedQuote.fetchedAt > maxStalenessMillis) {
+        cache.remove(key);
+        evictionCount.incrementAndGet();
+        cachedQuote = null;
+      }
+    }
+
+    if (cachedQuote == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+
+    if (now - cachedQuote.fetchedAt <= timeToLiveMillis) {
+      hitCount.incrementAndGet();
+    } else {
+      staleHitCount.incrementAndGet();
+      refreshInBackground(assetSymbol);
+    }
+    return cachedQuote.assetQuote;
+  }
+
+  /**
+   * Starts a refresh of the symbol unless one is already in flight.
+   *
+   * @param assetSymbol the symbol to refresh.
+   */
+  private void refreshInBackground(String assetSymbol) {
+    String key = normalise(assetSymbol);
+    if (!refreshesInFlight.add(key)) {
+      return;
+    }
+    CompletableFuture.runAsync(() -> store(assetSymbol, delegate.getQuote(assetSymbol)),
+            refreshExecutor)
+        .whenComplete((ignored, throwable) -> refreshesInFlight.remove(key));
+  }
+
+  /**
+   * Stores a quote in the cache. Null quotes are not cached.
+   *
+   * @param assetSymbol the symbol the quote is for.
+   * @param assetQuote the quote to store.
+   */
+  private void store(String assetSymbol, AssetQuote assetQuote) {
+    if (assetQuote == null) {
+      return;
+    }
+    CachedQuote cachedQuote = new CachedQuote(assetQuote, clock.millis());
+    synchronized (cache) {
+      cache.put(normalise(assetSymbol), cachedQuote);
+    }
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * A quote together with the time it was fetched.
+   */
+  private static class CachedQuote {
+    private final AssetQuote assetQuote;
+    private final long fetchedAt;
+
+    CachedQuote(AssetQuote assetQuote, long fetchedAt) {
+      this.assetQuote = assetQuote;
+      this.fetchedAt = fetchedAt;
+    }
+  }
+}
@@ -0,0 +1,298 @@
+package com.lyit.csd.marketapi.caching;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link ReferenceDataCachingMarketClient} wraps any {@link MarketClient} and keeps trending
+ * lists, keyed by region, and exchange summaries, keyed by region and exchange, in memory.
+ *
+ * <p>Time is divided into buckets of a fixed length. A value fetched in the current bucket is
+ * served as it is; a value from an earlier bucket is served while it is refreshed in the
+ * background. A background refresher also runs at the start of every bucket, refreshing each value
+ * that was looked up recently, so that screens showing them render from memory. Values that have
+ * not been looked up for a few buckets are dropped rather than refreshed. Empty trending lists and
+ * missing summaries, which is what the wrapped client returns on failure, are not cached.
+ *
+ * <p>Quotes and histories are passed straight to the wrapped client.
+ */
+public class ReferenceDataCachingMarketClient implements AsyncMarketClient, AutoCloseable {
+  private static final Duration DEFAULT_BUCKET = Duration.ofMinutes(5);
+  private static final int DEFAULT_IDLE_BUCKETS = 3;
+
+  private final MarketClient delegate;
+  private final long bucketMillis;
+  private final int idleBuckets;
+  private final Clock clock;
+  private final Executor refreshExecutor;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, Cached<ArrayList<String>>> trending = new ConcurrentHashMap<>();
+  private final Map<String, Cached<String>> exchanges = new ConcurrentHashMap<>();
+  private final Map<String, Long> lastUpdatedByRegion = new ConcurrentHashMap<>();
+  private final Set<String> refreshesInFlight = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong staleHitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong refreshCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link ReferenceDataCachingMarketClient} class using the default bucket
+   * length.
+   *
+   * @param delegate the client that trending lists and exchange summaries are fetched from.
+   */
+  public ReferenceDataCachingMarketClient(MarketClient delegate) {
+    this(delegate, DEFAULT_BUCKET, DEFAULT_IDLE_BUCKETS, Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link ReferenceDataCachingMarketClient} class.
+   *
+   * @param delegate the client that trending lists and exchange summaries are fetched from.
+   * @param bucket how long a fetched value is served before it is refreshed.
+   * @param idleBuckets how many buckets a value is kept refreshed without being looked up.
+   * @param clock the clock used to find the current bucket.
+   */
+  public ReferenceDataCachingMarketClient(MarketClient delegate, Duration bucket, int idleBuckets,
+                                          Clock clock) {
+    if (bucket.isZero() || bucket.isNegative()) {
+      throw new IllegalArgumentException("bucket must be positive");
+    }
+    this.delegate = delegate;
+    this.bucketMillis = bucket.toMillis();
+    this.idleBuckets = idleBuckets;
+    this.clock = clock;
+    this.refreshExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "reference-data-refresher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long untilNextBucket = bucketMillis - Math.floorMod(clock.millis(), bucketMillis);
+    scheduler.scheduleAtFixedRate(this::refreshStale, untilNextBucket, bucketMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    return delegate.getQuote(assetSymbol);
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    return delegate.getQuote(assetSymbols);
+  }
+
+  /**
+   * Gets the trending symbols of a region from the cache, fetching them if they are not cached.
+   *
+   * @param region the region, such as <code>US</code>.
+   * @return the trending symbols. The list is a copy, so it may be changed by the caller.
+   */
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    ArrayList<String> trendingStocks = lookup(trending, region, region,
+        () -> delegate.getTrendingStocksForRegion(region));
+    return trendingStocks == null ? new ArrayList<>() : new ArrayList<>(trendingStocks);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return delegate.getHistoricalInfo(assetSymbols, interval, range);
+  }
+
+  /**
+   * Gets the summary of an exchange from the cache, fetching it if it is not cached.
+   *
+   * @param region the region the exchange is in.
+   * @param exchange the exchange.
+   * @return the exchange summary.
+   */
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return lookup(exchanges, region + "|" + exchange, region,
+        () -> delegate.getExchangeInfo(region, exchange));
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return delegate.checkAssetSymbol(assetSymbol);
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return refreshExecutor;
+  }
+
+  /**
+   * Refreshes every value from an earlier bucket that was looked up recently, and drops the ones
+   * that were not. This runs at the start of every bucket, and may also be called directly.
+   */
+  public void refreshStale() {
+    long bucket = currentBucket();
+    refreshStale(trending, bucket);
+    refreshStale(exchanges, bucket);
+  }
+
+  /**
+   * Gets when anything for a region was last fetched.
+   *
+   * @param region the region.
+   * @return the time in epoch milliseconds, or 0 if nothing has been fetched for the region.
+   */
+  public long getLastUpdated(String region) {
+    return lastUpdatedByRegion.getOrDefault(region, 0L);
+  }
+
+  /**
+   * Gets the number of lookups served from a value fetched in the current bucket.
+   *
+   * @return the hit count.
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Gets the number of lookups served from a value of an earlier bucket while it was refreshed.
+   *
+   * @return the stale hit count.
+   */
+  public long getStaleHitCount() {
+    return staleHitCount.get();
+  }
+
+  /**
+   * Gets the number of lookups that had to wait for the wrapped client.
+   *
+   * @return the miss count.
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Gets the number of background refreshes made.
+   *
+   * @return the refresh count.
+   */
+  public long getRefreshCount() {
+    return refreshCount.get();
+  }
+
+  /**
+   * Stops the background refresher.
+   */
+  @Override
+  public void close() {
+    scheduler.shutdown();
+  }
+
+  private <T> T lookup(Map<String, Cached<T>> cache, String key, String region,
+                       Supplier<T> loader) {
+    long bucket = currentBucket();
+    Cached<T> cached = cache.get(key);
+    if (cached == null) {
+      missCount.incrementAndGet();
+      return store(cache, key, region, loader, bucket);
+    }
+    cached.lastLookupBucket = bucket;
+    if (cached.bucket == bucket) {
+      hitCount.incrementAndGet();
+    } else {
+      staleHitCount.incrementAndGet();
+      refreshInBackground(cache, key, cached);
+    }
+    return cached.value;
+  }
+
+  private <T> void refreshStale(Map<String, Cached<T>> cache, long bucket) {
+    for (Map.Entry<String, Cached<T>> entry : cache.entrySet()) {
+      Cached<T> cached = entry.getValue();
+      if (bucket - cached.lastLookupBucket > idleBuckets) {
+        cache.remove(entry.getKey(), cached);
+      } else if (cached.bucket < bucket) {
+        refreshInBackground(cache, entry.getKey(), cached);
+      }
+    }
+  }
+
+  private <T> void refreshInBackground(Map<String, Cached<T>> cache, String key,
+                                       Cached<T> cached) {
+    // Trending and exchange keys cannot collide: exchange keys always contain a separator.
+    if (!refreshesInFlight.add(key)) {
+      return;
+    }
+    refreshCount.incrementAndGet();
+    CompletableFuture.runAsync(() -> {
+      Cached<T> refreshed = storeResult(cache, key, cached.region, cached.loader.get(),
+          cached.loader, currentBucket());
+      if (refreshed != null) {
+        refreshed.lastLookupBucket = cached.lastLookupBucket;
+      }
+    }, refreshExecutor).whenComplete((ignored, throwable) -> refreshesInFlight.remove(key));
+  }
+
+  private <T> T store(Map<String, Cached<T>> cache, String key, String region,
+                      Supplier<T> loader, long bucket) {
+    T value = loader.get();
+    storeResult(cache, key, region, value, loader, bucket);
+    return value;
+  }
+
+  /**
+   * Caches a fetched value unless it is empty.
+   *
+   * @return the new cache entry, or null if the value was not cached.
+   */
+  private <T> Cached<T> storeResult(Map<String, Cached<T>> cache, String key, String region,
+                                    T value, Supplier<T> loader, long bucket) {
+    if (value == null || (value instanceof List<?> list && list.isEmpty())) {
+      return null;
+    }
+    Cached<T> cached = new Cached<>(value, region, loader, bucket);
+    cache.put(key, cached);
+    lastUpdatedByRegion.put(region, clock.millis());
+    return cached;
+  }
+
+  private long currentBucket() {
+    return Math.floorDiv(clock.millis(), bucketMillis);
+  }
+
+  /**
+   * A cached value, with the bucket it was fetched in and the way to fetch it again.
+   */
+  private static class Cached<T> {
+    private final T value;
+    private final String region;
+    private final Supplier<T> loader;
+    private final long bucket;
+    private volatile long lastLookupBucket;
+
+    Cached(T value, String region, Supplier<T> loader, long bucket) {
+      this.value = value;
+      this.region = region;
+      this.loader = loader;
+      this.bucket = bucket;
+      this.lastLookupBucket = bucket;
+    }
+  }
+}
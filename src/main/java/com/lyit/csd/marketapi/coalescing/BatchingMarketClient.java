@@ -0,0 +1,342 @@
+package com.lyit.csd.marketapi.coalescing;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BatchingMarketClient} wraps any {@link MarketClient} and merges quote lookups made at
+ * around the same time into bulk requests (micro-batching).
+ *
+ * <p>Each symbol requested is added to the current batch. The batch is sent as one bulk quote
+ * request once the batching window has passed since its first symbol arrived, or straight away
+ * once it holds the maximum number of symbols. Batches larger than the provider allows, either in
+ * symbol count or in the length of the comma-separated symbol list that ends up in the URL, are
+ * split into several requests. Each caller's future is completed with its own quote. Symbols are
+ * matched without regard to case, as providers may return a symbol in a different case from the
+ * one requested.
+ */
+public class BatchingMarketClient implements AsyncMarketClient, AutoCloseable {
+  private static final Duration DEFAULT_WINDOW = Duration.ofMillis(3);
+  private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+  private static final int DEFAULT_MAX_SYMBOLS_LENGTH = 1500;
+
+  private final MarketClient delegate;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final int maxSymbolsLength;
+  private final Executor asyncExecutor;
+  private final ScheduledExecutorService scheduler;
+
+  private final Object lock = new Object();
+  private Map<String, CompletableFuture<AssetQuote>> pending = new LinkedHashMap<>();
+  private long batchNumber;
+
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong symbolCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link BatchingMarketClient} class using the default batching window and
+   * limits.
+   *
+   * @param delegate the client that bulk quote requests are sent to.
+   */
+  public BatchingMarketClient(MarketClient delegate) {
+    this(delegate, DEFAULT_WINDOW, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_SYMBOLS_LENGTH);
+  }
+
+  /**
+   * Constructor for the {@link BatchingMarketClient} class.
+   *
+   * @param delegate the client that bulk quote requests are sent to.
+   * @param window how long a batch collects symbols before it is sent.
+   * @param maxBatchSize the most symbols sent in one request.
+   * @param maxSymbolsLength the longest comma-separated symbol list sent in one request.
+   */
+  public BatchingMarketClient(MarketClient delegate, Duration window, int maxBatchSize,
+                              int maxSymbolsLength) {
+    if (maxBatchSize <= 0 || maxSymbolsLength <= 0) {
+      throw new IllegalArgumentException("Batch limits must be positive");
+    }
+    this.delegate = delegate;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.maxSymbolsLength = maxSymbolsLength;
+    this.asyncExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "quote-batcher");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Adds the symbol to the current batch.
+   *
+   * @param assetSymbol is the asset symbol to get a quote for.
+   * @return a future completed with the {@link AssetQuote}, or null if there is none.
+   */
+  @Override
+  public CompletableFuture<AssetQuote> getQuoteAsync(String assetSymbol) {
+    Map<String, CompletableFuture<AssetQuote>> fullBatch = null;
+    CompletableFuture<AssetQuote> future;
+    String key = normalise(assetSymbol);
+
+    synchronized (lock) {
+      future = pending.get(key);
+      if (future != null) {
+        return future;
+      }
+      future = new CompletableFuture<>();
+      pending.put(key, future);
+
+      if (pending.size() == 1) {
+        long batch = batchNumber;
+        scheduler.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+      }
+      if (pending.size() >= maxBatchSize) {
+        fullBatch = takePending();
+      }
+    }
+
+    if (fullBatch != null) {
+      dispatch(fullBatch);
+    }
+    return future;
+  }
+
+  /**
+   * Adds every symbol to the current batch and waits for their quotes.
+   *
+   * @param assetSymbols is a list of asset symbols to get quotes for.
+   * @return a future completed with the quotes, in the order the symbols were requested.
+   */
+  @Override
+  public CompletableFuture<List<AssetQuote>> getQuoteAsync(List<String> assetSymbols) {
+    // Repeated symbols share a future, so each quote is only returned once.
+    Set<CompletableFuture<AssetQuote>> futures = new LinkedHashSet<>();
+    for (String assetSymbol : assetSymbols) {
+      futures.add(getQuoteAsync(assetSymbol));
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+        .thenApply(ignored -> {
+          List<AssetQuote> assetQuotes = new ArrayList<>();
+          for (CompletableFuture<AssetQuote> future : futures) {
+            AssetQuote assetQuote = future.join();
+            if (assetQuote != null) {
+              assetQuotes.add(assetQuote);
+            }
+          }
+          return assetQuotes;
+        });
+  }
+
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    return join(getQuoteAsync(assetSymbol));
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    return join(getQuoteAsync(assetSymbols));
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return delegate.getTrendingStocksForRegion(region);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return delegate.getHistoricalInfo(assetSymbols, interval, range);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return delegate.getExchangeInfo(region, exchange);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return getQuote(assetSymbol) != null;
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Gets the number of bulk requests sent to the wrapped client.
+   *
+   * @return the request count.
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of symbols sent to the wrapped client across all requests.
+   *
+   * @return the symbol count.
+   */
+  public long getSymbolCount() {
+    return symbolCount.get();
+  }
+
+  /**
+   * Sends any batch still waiting for its window and stops the batching timer.
+   */
+  @Override
+  public void close() {
+    Map<String, CompletableFuture<AssetQuote>> remaining;
+    synchronized (lock) {
+      remaining = takePending();
+    }
+    dispatch(remaining);
+    scheduler.shutdown();
+  }
+
+  /**
+   * Splits symbols into batches that respect both the symbol count and the symbol list length
+   * limits.
+   *
+   * @param assetSymbols the symbols to split.
+   * @param maxBatchSize the most symbols in one batch.
+   * @param maxSymbolsLength the longest comma-separated symbol list in one batch.
+   * @return the batches, in order.
+   */
+  static List<List<String>> split(List<String> assetSymbols, int maxBatchSize,
+                                  int maxSymbolsLength) {
+    List<List<String>> batches = new ArrayList<>();
+    List<String> batch = new ArrayList<>();
+    int batchLength = 0;
+
+    for (String assetSymbol : assetSymbols) {
+      int lengthWithSymbol = batch.isEmpty()
+          ? assetSymbol.length() : batchLength + 1 + assetSymbol.length();
+      if (!batch.isEmpty() && (batch.size() >= maxBatchSize
+          || lengthWithSymbol > maxSymbolsLength)) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        lengthWithSymbol = assetSymbol.length();
+      }
+      batch.add(assetSymbol);
+      batchLength = lengthWithSymbol;
+    }
+
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  /**
+   * Sends the pending batch if it is still the one the timer was started for.
+   *
+   * @param batch the number of the batch the timer was started for.
+   */
+  private void flush(long batch) {
+    Map<String, CompletableFuture<AssetQuote>> ready;
+    synchronized (lock) {
+      if (batch != batchNumber || pending.isEmpty()) {
+        return;
+      }
+      ready = takePending();
+    }
+    dispatch(ready);
+  }
+
+  /**
+   * Takes the pending batch and starts a new one. Must be called while holding the lock.
+   *
+   * @return the batch that was pending.
+   */
+  private Map<String, CompletableFuture<AssetQuote>> takePending() {
+    Map<String, CompletableFuture<AssetQuote>> ready = pending;
+    pending = new LinkedHashMap<>();
+    batchNumber++;
+    return ready;
+  }
+
+  /**
+   * Sends a batch to the wrapped client, one request per split.
+   *
+   * @param batch the futures to complete, keyed by normalised symbol.
+   */
+  private void dispatch(Map<String, CompletableFuture<AssetQuote>> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (List<String> assetSymbols : split(new ArrayList<>(batch.keySet()), maxBatchSize,
+        maxSymbolsLength)) {
+      asyncExecutor.execute(() -> fetch(assetSymbols, batch));
+    }
+  }
+
+  /**
+   * Fetches one split of a batch and completes the futures of its symbols.
+   *
+   * @param assetSymbols the symbols to fetch.
+   * @param batch the futures of the whole batch, keyed by normalised symbol.
+   */
+  private void fetch(List<String> assetSymbols,
+                     Map<String, CompletableFuture<AssetQuote>> batch) {
+    requestCount.incrementAndGet();
+    symbolCount.addAndGet(assetSymbols.size());
+    try {
+      for (AssetQuote assetQuote : delegate.getQuote(assetSymbols)) {
+        if (assetQuote == null || assetQuote.getAssetSymbol() == null) {
+          continue;
+        }
+        CompletableFuture<AssetQuote> future = batch.get(normalise(assetQuote.getAssetSymbol()));
+        if (future != null) {
+          future.complete(assetQuote);
+        }
+      }
+      // Symbols the provider did not return have no quote.
+      assetSymbols.forEach(assetSymbol -> batch.get(assetSymbol).complete(null));
+    } catch (RuntimeException e) {
+      assetSymbols.forEach(assetSymbol -> batch.get(assetSymbol).completeExceptionally(e));
+    }
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Waits for a result, rethrowing the original exception if the request failed.
+   *
+   * @param future the pending result.
+   * @param <T> the type of the result.
+   * @return the result.
+   */
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
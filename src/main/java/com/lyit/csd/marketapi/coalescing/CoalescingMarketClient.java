@@ -0,0 +1,183 @@
+package com.lyit.csd.marketapi.coalescing;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link CoalescingMarketClient} wraps any {@link MarketClient} so that concurrent quote lookups
+ * for the same symbol share one request (single-flight).
+ *
+ * <p>Every symbol being fetched has an entry in an in-flight map for as long as its request is
+ * pending. A caller asking for a set of symbols attaches to the pending request of each symbol
+ * that is already in flight, and fetches the remaining symbols itself in a single request. All
+ * callers then share the parsed {@link AssetQuote}s. Symbols are matched without regard to case,
+ * as providers may return a symbol in a different case from the one requested. Nothing is kept
+ * once a request completes; wrap this client in a cache if results should outlive the request.
+ */
+public class CoalescingMarketClient implements AsyncMarketClient {
+  private final MarketClient delegate;
+  private final Executor asyncExecutor;
+  private final Map<String, CompletableFuture<AssetQuote>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong coalescedCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link CoalescingMarketClient} class.
+   *
+   * @param delegate the client that quote requests are sent to.
+   */
+  public CoalescingMarketClient(MarketClient delegate) {
+    this.delegate = delegate;
+    this.asyncExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+  }
+
+  /**
+   * Gets a quote, sharing the request with any other caller already fetching the same symbol.
+   *
+   * @param assetSymbol is the asset symbol to get a quote for.
+   * @return an {@link AssetQuote}, or null if the wrapped client has none.
+   */
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    List<AssetQuote> assetQuotes = getQuote(List.of(assetSymbol));
+    return assetQuotes.isEmpty() ? null : assetQuotes.get(0);
+  }
+
+  /**
+   * Gets quotes, attaching to pending requests for symbols already in flight and fetching the rest
+   * in one request.
+   *
+   * @param assetSymbols is a list of asset symbols to get quotes for.
+   * @return a list of {@link AssetQuote}, in the order the symbols were requested.
+   */
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    Map<String, CompletableFuture<AssetQuote>> pending = new LinkedHashMap<>();
+    Map<String, CompletableFuture<AssetQuote>> owned = new LinkedHashMap<>();
+    List<String> ownedSymbols = new ArrayList<>();
+
+    for (String assetSymbol : assetSymbols) {
+      String key = normalise(assetSymbol);
+      if (pending.containsKey(key)) {
+        continue;
+      }
+      CompletableFuture<AssetQuote> created = new CompletableFuture<>();
+      CompletableFuture<AssetQuote> existing = inFlight.putIfAbsent(key, created);
+      if (existing != null) {
+        coalescedCount.incrementAndGet();
+        pending.put(key, existing);
+      } else {
+        owned.put(key, created);
+        ownedSymbols.add(assetSymbol);
+        pending.put(key, created);
+      }
+    }
+
+    if (!owned.isEmpty()) {
+      fetch(ownedSymbols, owned);
+    }
+
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    for (CompletableFuture<AssetQuote> future : pending.values()) {
+      AssetQuote assetQuote = join(future);
+      if (assetQuote != null) {
+        assetQuotes.add(assetQuote);
+      }
+    }
+    return assetQuotes;
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return delegate.getTrendingStocksForRegion(region);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return delegate.getHistoricalInfo(assetSymbols, interval, range);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return delegate.getExchangeInfo(region, exchange);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return getQuote(assetSymbol) != null;
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Gets the number of symbol lookups that attached to a request already in flight.
+   *
+   * @return the coalesced lookup count.
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.get();
+  }
+
+  /**
+   * Fetches the symbols this caller owns in a single request and completes their futures. The
+   * symbols are removed from the in-flight map whether the request succeeds or not.
+   *
+   * @param ownedSymbols the symbols this caller owns, as they were requested.
+   * @param owned the futures this caller created, keyed by normalised symbol.
+   */
+  private void fetch(List<String> ownedSymbols, Map<String, CompletableFuture<AssetQuote>> owned) {
+    try {
+      List<AssetQuote> assetQuotes = delegate.getQuote(ownedSymbols);
+      for (AssetQuote assetQuote : assetQuotes) {
+        if (assetQuote == null || assetQuote.getAssetSymbol() == null) {
+          continue;
+        }
+        CompletableFuture<AssetQuote> future = owned.get(normalise(assetQuote.getAssetSymbol()));
+        if (future != null) {
+          future.complete(assetQuote);
+        }
+      }
+      // Symbols the provider did not return have no quote.
+      owned.values().forEach(future -> future.complete(null));
+    } catch (RuntimeException e) {
+      owned.values().forEach(future -> future.completeExceptionally(e));
+    } finally {
+      owned.forEach(inFlight::remove);
+    }
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Waits for a shared result, rethrowing the original exception if the request failed.
+   *
+   * @param future the pending quote.
+   * @return the quote, or null if the symbol has none.
+   */
+  private static AssetQuote join(CompletableFuture<AssetQuote> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,491 @@
+package com.lyit.csd.marketapi.composite;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * {@link CompositeMarketClient} answers from an ordered list of {@link MarketClient} providers,
+ * so that quotes keep arriving on time when one source slows down or fails.
+ *
+ * <p>Which provider is asked first depends on the {@link Policy}. Whatever the policy, a lookup
+ * that a provider answers only in part, such as a list of quotes missing some symbols, has the
+ * gaps filled from the next provider, asking it only for what is missing. A provider that throws
+ * is treated as having answered nothing.
+ *
+ * <p>The median latency of each provider is kept over its recent calls, counting failed calls as
+ * slow, and is used by {@link Policy#Latency}. So that a provider which has recovered is noticed,
+ * a provider that has not been asked for a while is asked first once.
+ */
+public class CompositeMarketClient implements AsyncMarketClient {
+
+  /**
+   * How a {@link CompositeMarketClient} chooses which provider to ask.
+   */
+  public enum Policy {
+    /**
+     * Providers are asked in the order given, moving on to the next only for what is missing.
+     */
+    Failover,
+    /**
+     * Providers are asked in order of their median latency, fastest first.
+     */
+    Latency,
+    /**
+     * Quote lookups are sent to every provider at once; the first quote of each symbol wins and
+     * the calls still running once every symbol is quoted are cancelled. A cancelled call that has
+     * already started is left to finish, not interrupted, and its answer is ignored. Other lookups
+     * are made as for {@link #Latency}, as they are too costly to send everywhere.
+     */
+    Race
+  }
+
+  private static final Duration DEFAULT_FAILURE_PENALTY = Duration.ofSeconds(2);
+
+  /**
+   * How many calls a provider may go without being asked before it is asked first once.
+   */
+  private static final int PROBE_EVERY = 32;
+
+  /**
+   * How many recent calls a provider's median latency is taken over. Kept short so that a
+   * provider's median follows it quickly when it slows down or recovers.
+   */
+  private static final int LATENCY_WINDOW = 16;
+
+  private final List<MarketClient> delegates;
+  private final Policy policy;
+  private final Executor asyncExecutor;
+  private final long failurePenaltyNanos;
+  private final Provider[] providers;
+  private final AtomicLong callCount = new AtomicLong();
+  private final AtomicLong backfillCount = new AtomicLong();
+  private final AtomicLong cancelledCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link CompositeMarketClient} class.
+   *
+   * @param policy how the provider to ask is chosen.
+   * @param delegates the providers, in order of preference.
+   */
+  public CompositeMarketClient(Policy policy, List<? extends MarketClient> delegates) {
+    this(policy, delegates, DEFAULT_FAILURE_PENALTY);
+  }
+
+  /**
+   * Constructor for the {@link CompositeMarketClient} class.
+   *
+   * @param policy how the provider to ask is chosen.
+   * @param delegates the providers, in order of preference.
+   * @param failurePenalty the latency a failed call is counted as, at least.
+   */
+  public CompositeMarketClient(Policy policy, List<? extends MarketClient> delegates,
+                               Duration failurePenalty) {
+    if (delegates.isEmpty()) {
+      throw new IllegalArgumentException("At least one provider is needed");
+    }
+    this.policy = policy;
+    this.delegates = List.copyOf(delegates);
+    this.asyncExecutor = AsyncMarketClient.of(delegates.get(0)).getAsyncExecutor();
+    this.failurePenaltyNanos = failurePenalty.toNanos();
+    this.providers = new Provider[delegates.size()];
+    for (int i = 0; i < providers.length; i++) {
+      providers[i] = new Provider(this.delegates.get(i));
+    }
+  }
+
+  /**
+   * Gets a quote from the first provider that has one.
+   *
+   * @param assetSymbol is the asset symbol to get a quote for.
+   * @return an {@link AssetQuote}, or null if no provider has one.
+   */
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    if (policy == Policy.Race && providers.length > 1) {
+      AssetQuote[] winner = new AssetQuote[1];
+      race(byLatency(true), delegate -> delegate.getQuote(assetSymbol), assetQuote -> {
+        winner[0] = assetQuote;
+        return assetQuote != null;
+      });
+      return winner[0];
+    }
+    for (Provider provider : order()) {
+      AssetQuote assetQuote = provider.call(delegate -> delegate.getQuote(assetSymbol),
+          CompositeMarketClient::isAnswer);
+      if (assetQuote != null) {
+        return assetQuote;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets quotes, filling in the symbols one provider has no quote for from the next.
+   *
+   * @param assetSymbols is a list of asset symbols to get quotes for.
+   * @return a list of {@link AssetQuote}, in the order of the symbols, without the symbols no
+   *     provider has a quote for.
+   */
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    if (policy == Policy.Race && providers.length > 1) {
+      Map<String, AssetQuote> found = new LinkedHashMap<>();
+      Set<String> wanted = normalise(assetSymbols);
+      race(byLatency(true), delegate -> delegate.getQuote(assetSymbols), assetQuotes -> {
+        merge(found, assetQuotes, wanted);
+        return found.keySet().containsAll(wanted);
+      });
+      return inOrder(assetSymbols, found);
+    }
+    return backfilled(order(), assetSymbols,
+        (delegate, missing) -> delegate.getQuote(missing));
+  }
+
+  /**
+   * Gets the trending symbols of a region from the first provider that has any.
+   *
+   * @param region is the region to look up.
+   * @return the trending symbols, or an empty list if no provider has any.
+   */
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    for (Provider provider : order()) {
+      ArrayList<String> trending = provider.call(
+          delegate -> delegate.getTrendingStocksForRegion(region),
+          CompositeMarketClient::isAnswer);
+      if (trending != null && !trending.isEmpty()) {
+        return trending;
+      }
+    }
+    return new ArrayList<>();
+  }
+
+  /**
+   * Gets price histories, filling in the symbols one provider has no history for from the next.
+   *
+   * @param assetSymbols list of stock tickers
+   * @param interval granularity of the returned data.
+   * @param range time period of which data is to be gathered.
+   * @return the histories, in the order of the symbols, without the symbols no provider has a
+   *     history for.
+   */
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return backfilled(order(), assetSymbols,
+        (delegate, missing) -> delegate.getHistoricalInfo(missing, interval, range));
+  }
+
+  /**
+   * Gets the summary of an exchange from the first provider that has one.
+   *
+   * @param region region where exchange is located.
+   * @param exchange the exchange to return data on.
+   * @return the summary, or null if no provider has one.
+   */
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    for (Provider provider : order()) {
+      String exchangeInfo = provider.call(delegate -> delegate.getExchangeInfo(region, exchange),
+          CompositeMarketClient::isAnswer);
+      if (exchangeInfo != null) {
+        return exchangeInfo;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return getQuote(assetSymbol) != null;
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Gets the policy the provider to ask is chosen by.
+   *
+   * @return the {@link Policy}.
+   */
+  public Policy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Gets the median latency of a provider over its recent calls.
+   *
+   * @param index the position of the provider in the list given to the constructor.
+   * @return the median latency in nanoseconds, or -1 if the provider has not been called.
+   */
+  public long getMedianLatencyNanos(int index) {
+    return providers[index].latencies.median();
+  }
+
+  /**
+   * Gets the number of calls made to a provider only to fill in what an earlier one left out.
+   *
+   * @return the backfill count.
+   */
+  public long getBackfillCount() {
+    return backfillCount.get();
+  }
+
+  /**
+   * Gets the number of raced calls cancelled because the other providers had already answered.
+   *
+   * @return the cancelled count.
+   */
+  public long getCancelledCount() {
+    return cancelledCount.get();
+  }
+
+  /**
+   * Asks each provider in turn for the symbols the earlier ones left out.
+   */
+  private List<AssetQuote> backfilled(List<Provider> order, List<String> assetSymbols,
+                                      Lookup lookup) {
+    Map<String, AssetQuote> found = new LinkedHashMap<>();
+    Set<String> wanted = normalise(assetSymbols);
+    List<String> missing = assetSymbols;
+    for (Provider provider : order) {
+      if (missing != assetSymbols) {
+        backfillCount.incrementAndGet();
+      }
+      List<String> request = missing;
+      List<AssetQuote> assetQuotes = provider.call(delegate -> lookup.get(delegate, request),
+          CompositeMarketClient::isAnswer);
+      merge(found, assetQuotes, wanted);
+      missing = new ArrayList<>();
+      for (String assetSymbol : assetSymbols) {
+        if (!found.containsKey(normaliseSymbol(assetSymbol))) {
+          missing.add(assetSymbol);
+        }
+      }
+      if (missing.isEmpty()) {
+        break;
+      }
+    }
+    return inOrder(assetSymbols, found);
+  }
+
+  /**
+   * Sends a lookup to every provider at once. Each answer is passed to the collector as it
+   * arrives, until the collector says it has everything or every provider has answered; the
+   * calls still running then are cancelled. They are not interrupted, as providers such as Yahoo
+   * treat an interrupted request as a failure and report it.
+   */
+  private <T> void race(List<Provider> order, Function<MarketClient, T> lookup,
+                        Predicate<T> collector) {
+    CompletableFuture<Void> finished = new CompletableFuture<>();
+    AtomicInteger running = new AtomicInteger(order.size());
+    // Guarded by finished.
+    boolean[] answered = new boolean[order.size()];
+    List<FutureTask<T>> tasks = new ArrayList<>();
+    for (int i = 0; i < order.size(); i++) {
+      Provider provider = order.get(i);
+      int index = i;
+      FutureTask<T> task = new FutureTask<>(() -> {
+        T result = provider.call(lookup, CompositeMarketClient::isAnswer);
+        synchronized (finished) {
+          answered[index] = true;
+          if (!finished.isDone() && collector.test(result)) {
+            finished.complete(null);
+          }
+        }
+        return result;
+      }) {
+        @Override
+        protected void done() {
+          if (running.decrementAndGet() == 0) {
+            synchronized (finished) {
+              finished.complete(null);
+            }
+          }
+        }
+      };
+      tasks.add(task);
+      asyncExecutor.execute(task);
+    }
+    finished.join();
+    synchronized (finished) {
+      for (int i = 0; i < tasks.size(); i++) {
+        if (!answered[i] && tasks.get(i).cancel(false)) {
+          cancelledCount.incrementAndGet();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the providers in the order the policy asks them in.
+   */
+  private List<Provider> order() {
+    return policy == Policy.Failover ? Arrays.asList(providers) : byLatency(false);
+  }
+
+  /**
+   * Gets the providers fastest first, except that one not asked for a while is put first.
+   *
+   * @param all whether every provider is about to be asked, rather than only the first.
+   */
+  private List<Provider> byLatency(boolean all) {
+    long call = callCount.incrementAndGet();
+    List<Provider> order = new ArrayList<>(Arrays.asList(providers));
+    order.sort(Comparator.comparingLong(provider -> provider.latencies.median()));
+    for (Provider provider : order) {
+      if (call - provider.lastCalled.get() >= PROBE_EVERY) {
+        order.remove(provider);
+        order.add(0, provider);
+        break;
+      }
+    }
+    for (Provider provider : order) {
+      provider.lastCalled.set(call);
+      if (!all) {
+        // Only the first is sure to be asked; the others only if it leaves gaps.
+        break;
+      }
+    }
+    return order;
+  }
+
+  private static boolean isAnswer(Object result) {
+    return result != null && !(result instanceof List<?> list && list.isEmpty());
+  }
+
+  private static void merge(Map<String, AssetQuote> found, List<AssetQuote> assetQuotes,
+                            Set<String> wanted) {
+    if (assetQuotes == null) {
+      return;
+    }
+    for (AssetQuote assetQuote : assetQuotes) {
+      if (assetQuote != null && assetQuote.getAssetSymbol() != null) {
+        String assetSymbol = normaliseSymbol(assetQuote.getAssetSymbol());
+        if (wanted.contains(assetSymbol)) {
+          found.putIfAbsent(assetSymbol, assetQuote);
+        }
+      }
+    }
+  }
+
+  private static List<AssetQuote> inOrder(List<String> assetSymbols,
+                                          Map<String, AssetQuote> found) {
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    for (String assetSymbol : normalise(assetSymbols)) {
+      AssetQuote assetQuote = found.get(assetSymbol);
+      if (assetQuote != null) {
+        assetQuotes.add(assetQuote);
+      }
+    }
+    return assetQuotes;
+  }
+
+  private static Set<String> normalise(List<String> assetSymbols) {
+    Set<String> normalised = new LinkedHashSet<>();
+    for (String assetSymbol : assetSymbols) {
+      if (assetSymbol != null) {
+        normalised.add(normaliseSymbol(assetSymbol));
+      }
+    }
+    return normalised;
+  }
+
+  private static String normaliseSymbol(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * A list lookup that can be repeated for the symbols still missing.
+   */
+  @FunctionalInterface
+  private interface Lookup {
+    List<AssetQuote> get(MarketClient delegate, List<String> assetSymbols);
+  }
+
+  /**
+   * One provider and what has been observed of it.
+   */
+  private final class Provider {
+    private final MarketClient delegate;
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_WINDOW);
+    private final AtomicLong lastCalled = new AtomicLong();
+
+    Provider(MarketClient delegate) {
+      this.delegate = delegate;
+    }
+
+    /**
+     * Calls the provider, recording its latency. A call that throws, or whose answer is not
+     * usable, is recorded as at least the failure penalty.
+     *
+     * @return the answer, or null if the call threw.
+     */
+    <T> T call(Function<MarketClient, T> lookup, Predicate<T> usable) {
+      long start = System.nanoTime();
+      T result = null;
+      boolean failed = true;
+      try {
+        result = lookup.apply(delegate);
+        failed = !usable.test(result);
+      } catch (RuntimeException e) {
+        // Treated as no answer; the next provider is asked instead.
+      }
+      long nanos = System.nanoTime() - start;
+      latencies.record(failed ? Math.max(nanos, failurePenaltyNanos) : nanos);
+      return result;
+    }
+  }
+
+  /**
+   * The latencies of a provider's most recent calls.
+   */
+  private static class LatencyWindow {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyWindow(int size) {
+      this.samples = new long[size];
+    }
+
+    synchronized void record(long nanos) {
+      samples[next] = nanos;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+    }
+
+    /**
+     * Gets the median of the recorded latencies, or -1 if there are none, so that a provider
+     * not yet called is tried early.
+     */
+    synchronized long median() {
+      if (count == 0) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(samples, count);
+      Arrays.sort(sorted);
+      return sorted[(count - 1) / 2];
+    }
+  }
+}
@@ -0,0 +1,337 @@
+package com.lyit.csd.marketapi.feed;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link QuoteFeed} pushes quotes to subscribers as prices move, so that consumers do not each
+ * have to poll a {@link MarketClient}.
+ *
+ * <p>A single timer refreshes the subscribed symbols that a {@link RefreshScheduler} says are due,
+ * in bulk requests of at most a fixed number of symbols, and publishes only the quotes whose price
+ * or timestamp changed since they were last polled. However many subscribers watch a symbol, it is
+ * requested once per interval. A new subscriber is first sent the latest known quote of each of
+ * its symbols.
+ *
+ * <p>Subscriptions follow {@link Flow}: a subscriber is sent no more quotes than it has requested.
+ * Quotes waiting for a slow subscriber are conflated, keeping only the latest quote of each symbol,
+ * so a slow subscriber never holds more than one quote per symbol and never slows down the others.
+ */
+public class QuoteFeed implements AutoCloseable {
+  private static final int DEFAULT_BATCH_SIZE = 50;
+  private static final Duration DEFAULT_TICK = Duration.ofMillis(500);
+
+  /**
+   * How many times per base interval the feed checks for due symbols, so that symbols the
+   * scheduler shortens the interval of are still refreshed on time.
+   */
+  private static final int TICKS_PER_INTERVAL = 10;
+
+  private final MarketClient delegate;
+  private final RefreshScheduler refreshScheduler;
+  private final int batchSize;
+  private final Executor deliveryExecutor;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, Set<QuoteSubscription>> subscriptionsBySymbol =
+      new ConcurrentHashMap<>();
+  private final Map<String, AssetQuote> latestQuotes = new ConcurrentHashMap<>();
+  /** Guards the subscriptions. Never held while quotes are requested. */
+  private final Object lock = new Object();
+  /**
+   * Held while quotes are requested and published, so that polls do not overlap and a quote is
+   * never published after a newer one of the same symbol. Subscribing and cancelling do not take
+   * it, so they never wait for a request.
+   */
+  private final Object pollLock = new Object();
+  private volatile boolean closed;
+
+  private final AtomicLong pollCount = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong publishedCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link QuoteFeed} class using the default refresh schedule and batch size.
+   *
+   * @param delegate the client quotes are polled from.
+   */
+  public QuoteFeed(MarketClient delegate) {
+    this(delegate, new RefreshScheduler(), DEFAULT_BATCH_SIZE, DEFAULT_TICK);
+  }
+
+  /**
+   * Constructor for the {@link QuoteFeed} class.
+   *
+   * @param delegate the client quotes are polled from.
+   * @param pollInterval the base interval symbols are refreshed at, before the
+   *                     {@link RefreshScheduler} adapts it to each symbol.
+   * @param batchSize the most symbols requested in one request.
+   */
+  public QuoteFeed(MarketClient delegate, Duration pollInterval, int batchSize) {
+    this(delegate, new RefreshScheduler(pollInterval), batchSize,
+        pollInterval.dividedBy(TICKS_PER_INTERVAL));
+  }
+
+  /**
+   * Constructor for the {@link QuoteFeed} class.
+   *
+   * @param delegate the client quotes are polled from.
+   * @param refreshScheduler decides when each symbol is refreshed.
+   * @param batchSize the most symbols requested in one request.
+   * @param tick how often the scheduler is asked for the symbols that are due.
+   */
+  public QuoteFeed(MarketClient delegate, RefreshScheduler refreshScheduler, int batchSize,
+                   Duration tick) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be positive");
+    }
+    this.delegate = delegate;
+    this.refreshScheduler = refreshScheduler;
+    this.batchSize = batchSize;
+    this.deliveryExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "quote-feed");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long tickNanos = Math.max(1, tick.toNanos());
+    scheduler.scheduleWithFixedDelay(this::refreshDue, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Subscribes to quotes for a list of symbols.
+   *
+   * @param assetSymbols the symbols to be sent quotes for.
+   * @param subscriber receives the quotes, once it has requested them.
+   */
+  public void subscribe(List<String> assetSymbols, Flow.Subscriber<? super AssetQuote> subscriber) {
+    Set<String> symbols = new LinkedHashSet<>();
+    for (String assetSymbol : assetSymbols) {
+      symbols.add(normalise(assetSymbol));
+    }
+    QuoteSubscription subscription = new QuoteSubscription(this, symbols, subscriber,
+        deliveryExecutor);
+    subscriber.onSubscribe(subscription);
+
+    synchronized (lock) {
+      if (closed) {
+        subscription.complete();
+        return;
+      }
+      if (subscription.isDone()) {
+        // Cancelled from onSubscribe, before there was anything for cancel() to remove.
+        return;
+      }
+      for (String assetSymbol : symbols) {
+        Set<QuoteSubscription> subscriptions = subscriptionsBySymbol.computeIfAbsent(assetSymbol,
+            s -> ConcurrentHashMap.newKeySet());
+        subscriptions.add(subscription);
+        refreshScheduler.setSubscriberCount(assetSymbol, subscriptions.size());
+      }
+    }
+    for (String assetSymbol : symbols) {
+      AssetQuote latestQuote = latestQuotes.get(assetSymbol);
+      if (latestQuote != null) {
+        subscription.offer(assetSymbol, latestQuote);
+      }
+    }
+  }
+
+  /**
+   * Polls every subscribed symbol now, whether or not it is due, and publishes the quotes that
+   * changed. Like {@link #refreshDue()}, it stays within the {@link RefreshScheduler}'s request
+   * budget; the symbols it leaves out, the least overdue, are refreshed when next due.
+   */
+  public void poll() {
+    synchronized (pollLock) {
+      List<String> symbols;
+      synchronized (lock) {
+        symbols = takeSymbols(refreshScheduler.take(subscriptionsBySymbol.keySet(), batchSize));
+      }
+      refresh(symbols);
+    }
+  }
+
+  /**
+   * Polls the subscribed symbols that are due and publishes the quotes that changed. This is
+   * called by the feed's timer, and may also be called directly.
+   */
+  public void refreshDue() {
+    synchronized (pollLock) {
+      List<String> symbols;
+      synchronized (lock) {
+        symbols = takeSymbols(refreshScheduler.takeDue(batchSize));
+      }
+      refresh(symbols);
+    }
+  }
+
+  /**
+   * Sets the units held of each symbol, so that larger holdings are refreshed more often.
+   *
+   * @param heldUnits the units held, by symbol.
+   */
+  public void setHoldings(Map<String, Double> heldUnits) {
+    Map<String, Double> normalised = new HashMap<>();
+    heldUnits.forEach((assetSymbol, units) -> normalised.merge(normalise(assetSymbol), units,
+        Double::sum));
+    refreshScheduler.setHoldings(normalised);
+  }
+
+  /**
+   * Gets the scheduler that decides when each symbol is refreshed.
+   *
+   * @return the {@link RefreshScheduler}.
+   */
+  public RefreshScheduler getRefreshScheduler() {
+    return refreshScheduler;
+  }
+
+  /**
+   * Forgets the quotes of symbols nobody watches any more, and gets the symbols to poll. Must be
+   * called holding the lock.
+   *
+   * @return the symbols to poll, or an empty list if the feed is closed.
+   */
+  private List<String> takeSymbols(List<String> symbols) {
+    latestQuotes.keySet().retainAll(subscriptionsBySymbol.keySet());
+    return closed ? List.of() : symbols;
+  }
+
+  /**
+   * Requests quotes for symbols in batches and publishes the ones that changed. Must be called
+   * holding the poll lock but not the lock, as the requests may take a long time.
+   */
+  private void refresh(List<String> symbols) {
+    if (symbols.isEmpty()) {
+      return;
+    }
+    pollCount.incrementAndGet();
+
+    for (int start = 0; start < symbols.size() && !closed; start += batchSize) {
+      List<String> batch = symbols.subList(start, Math.min(symbols.size(), start + batchSize));
+      requestCount.incrementAndGet();
+      List<AssetQuote> assetQuotes;
+      try {
+        assetQuotes = delegate.getQuote(batch);
+      } catch (RuntimeException e) {
+        // A failed batch is tried again when next due; the other batches still go ahead.
+        continue;
+      }
+      if (assetQuotes != null) {
+        for (AssetQuote assetQuote : assetQuotes) {
+          String assetSymbol = normalise(assetQuote.getAssetSymbol());
+          refreshScheduler.onRefreshed(assetSymbol, assetQuote);
+          publishIfChanged(assetSymbol, assetQuote);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the number of polls that requested at least one symbol.
+   *
+   * @return the poll count.
+   */
+  public long getPollCount() {
+    return pollCount.get();
+  }
+
+  /**
+   * Gets the number of requests made to the wrapped client.
+   *
+   * @return the request count.
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of changed quotes published, counting each quote once however many
+   * subscribers it was sent to.
+   *
+   * @return the published count.
+   */
+  public long getPublishedCount() {
+    return publishedCount.get();
+  }
+
+  /**
+   * Gets the number of symbols at least one subscriber is watching.
+   *
+   * @return the number of subscribed symbols.
+   */
+  public int getSymbolCount() {
+    return subscriptionsBySymbol.size();
+  }
+
+  /**
+   * Stops polling and completes every subscription once its waiting quotes are delivered.
+   */
+  @Override
+  public void close() {
+    List<QuoteSubscription> subscriptions = new ArrayList<>();
+    synchronized (lock) {
+      closed = true;
+      subscriptionsBySymbol.values().forEach(subscriptions::addAll);
+      subscriptionsBySymbol.clear();
+    }
+    scheduler.shutdown();
+    subscriptions.stream().distinct().forEach(QuoteSubscription::complete);
+  }
+
+  /**
+   * Removes a cancelled subscription.
+   */
+  void remove(QuoteSubscription subscription) {
+    synchronized (lock) {
+      for (String assetSymbol : subscription.getSymbols()) {
+        Set<QuoteSubscription> subscriptions = subscriptionsBySymbol.get(assetSymbol);
+        if (subscriptions != null) {
+          subscriptions.remove(subscription);
+          if (subscriptions.isEmpty()) {
+            subscriptionsBySymbol.remove(assetSymbol);
+          }
+          refreshScheduler.setSubscriberCount(assetSymbol, subscriptions.size());
+        }
+      }
+    }
+  }
+
+  private void publishIfChanged(String assetSymbol, AssetQuote assetQuote) {
+    AssetQuote previous = latestQuotes.get(assetSymbol);
+    if (previous != null
+        && Double.compare(previous.getRegularMarketPrice(), assetQuote.getRegularMarketPrice()) == 0
+        && previous.getTimeStamp() == assetQuote.getTimeStamp()) {
+      return;
+    }
+    Set<QuoteSubscription> subscriptions = subscriptionsBySymbol.get(assetSymbol);
+    if (subscriptions == null) {
+      return;
+    }
+    latestQuotes.put(assetSymbol, assetQuote);
+    publishedCount.incrementAndGet();
+    for (QuoteSubscription subscription : subscriptions) {
+      subscription.offer(assetSymbol, assetQuote);
+    }
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,161 @@
+package com.lyit.csd.marketapi.feed;
+
+import com.lyit.csd.domain.AssetQuote;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One subscriber's subscription to a {@link QuoteFeed}.
+ *
+ * <p>Quotes waiting to be delivered are held per symbol, so a newer quote replaces an older one of
+ * the same symbol that the subscriber has not yet been sent. Delivery runs on the feed's executor,
+ * one drain at a time, and stops whenever the subscriber's demand runs out. An invalid request is
+ * reported through the same drain, so the subscriber is never called from two threads at once.
+ */
+final class QuoteSubscription implements Flow.Subscription {
+  private final QuoteFeed feed;
+  private final Set<String> symbols;
+  private final Flow.Subscriber<? super AssetQuote> subscriber;
+  private final Executor executor;
+
+  /** Guarded by itself. */
+  private final Map<String, AssetQuote> waiting = new LinkedHashMap<>();
+  /** Guarded by {@link #waiting}. */
+  private long demand;
+  /** Guarded by {@link #waiting}. */
+  private boolean completing;
+  /** Guarded by {@link #waiting}. */
+  private Throwable error;
+
+  private final AtomicInteger drainsRequested = new AtomicInteger();
+  private volatile boolean done;
+
+  QuoteSubscription(QuoteFeed feed, Set<String> symbols,
+                    Flow.Subscriber<? super AssetQuote> subscriber, Executor executor) {
+    this.feed = feed;
+    this.symbols = symbols;
+    this.subscriber = subscriber;
+    this.executor = executor;
+  }
+
+  Set<String> getSymbols() {
+    return symbols;
+  }
+
+  /**
+   * Tells whether the subscription has been cancelled, completed or failed.
+   */
+  boolean isDone() {
+    return done;
+  }
+
+  @Override
+  public void request(long n) {
+    synchronized (waiting) {
+      if (n <= 0) {
+        if (error == null) {
+          error = new IllegalArgumentException("Requested a non-positive number of quotes");
+        }
+      } else {
+        demand += n;
+        if (demand < 0) {
+          // Overflow: the subscriber wants everything.
+          demand = Long.MAX_VALUE;
+        }
+      }
+    }
+    drain();
+  }
+
+  @Override
+  public void cancel() {
+    done = true;
+    synchronized (waiting) {
+      waiting.clear();
+    }
+    feed.remove(this);
+  }
+
+  /**
+   * Queues a quote for delivery, replacing any undelivered quote of the same symbol.
+   */
+  void offer(String assetSymbol, AssetQuote assetQuote) {
+    if (done) {
+      return;
+    }
+    synchronized (waiting) {
+      waiting.remove(assetSymbol);
+      waiting.put(assetSymbol, assetQuote);
+    }
+    drain();
+  }
+
+  /**
+   * Completes the subscription once the waiting quotes have been delivered.
+   */
+  void complete() {
+    synchronized (waiting) {
+      completing = true;
+    }
+    drain();
+  }
+
+  private void drain() {
+    if (drainsRequested.getAndIncrement() == 0) {
+      executor.execute(this::deliver);
+    }
+  }
+
+  private void deliver() {
+    int missed = 1;
+    do {
+      while (!done) {
+        AssetQuote next;
+        boolean finished = false;
+        Throwable failure;
+        synchronized (waiting) {
+          failure = error;
+          if (failure != null) {
+            next = null;
+          } else if (waiting.isEmpty()) {
+            finished = completing;
+            next = null;
+          } else if (demand == 0) {
+            break;
+          } else {
+            Iterator<AssetQuote> iterator = waiting.values().iterator();
+            next = iterator.next();
+            iterator.remove();
+            if (demand != Long.MAX_VALUE) {
+              demand--;
+            }
+          }
+        }
+        if (failure != null) {
+          cancel();
+          subscriber.onError(failure);
+          break;
+        }
+        if (next == null) {
+          if (finished) {
+            done = true;
+            subscriber.onComplete();
+          }
+          break;
+        }
+        try {
+          subscriber.onNext(next);
+        } catch (RuntimeException e) {
+          // A subscriber that throws has broken the contract, and is sent nothing more.
+          cancel();
+        }
+      }
+      missed = drainsRequested.addAndGet(-missed);
+    } while (missed != 0);
+  }
+}
@@ -0,0 +1,355 @@
+package com.lyit.csd.marketapi.feed;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.yahoo.ApiKeyScheduler;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * {@link RefreshScheduler} decides when each watched symbol should next be refreshed, so that a
+ * limited request quota is spent where prices matter most.
+ *
+ * <p>Symbols wait in a priority queue ordered by the time they are next due. Each symbol's refresh
+ * interval starts from a base interval and is shortened for symbols with more subscribers, for
+ * symbols that make up a larger share of the holdings, and for symbols whose price has recently
+ * been moving more than usual. It is lengthened for symbols whose price barely moves, and set to
+ * a long interval while the symbol's market is closed (see {@link TradingHours}).
+ *
+ * <p>Refreshes are limited by a token bucket to the request rate the API keys allow together (see
+ * {@link ApiKeyScheduler#getRequestsPerSecond()}). When more symbols fall due than the budget
+ * allows, every interval is stretched until demand fits the budget, and the stretch is relaxed
+ * again once there is spare capacity.
+ */
+public class RefreshScheduler {
+  private static final Duration DEFAULT_BASE_INTERVAL = Duration.ofSeconds(5);
+  private static final long MIN_INTERVAL_MILLIS = 1_000;
+  private static final long MAX_INTERVAL_MILLIS = 15 * 60_000;
+  private static final long CLOSED_MARKET_INTERVAL_MILLIS = 15 * 60_000;
+
+  /**
+   * Price volatility, per square root of a second, at which the base interval is used unchanged.
+   * About that of a large US equity moving 2% over a trading day.
+   */
+  private static final double REFERENCE_VOLATILITY = 0.00013;
+
+  /**
+   * Weight given to the latest price move in a symbol's volatility.
+   */
+  private static final double VOLATILITY_WEIGHT = 0.2;
+  private static final double MAX_STRETCH = 16;
+
+  private final long baseIntervalMillis;
+  private final double tokensPerMilli;
+  private final double burst;
+  private final Clock clock;
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final PriorityQueue<Due> queue = new PriorityQueue<>();
+  private Map<String, Double> heldUnits = Collections.emptyMap();
+  private double totalHeldValue;
+  private double tokens;
+  private long lastRefillMillis;
+  private double stretch = 1;
+
+  /**
+   * Constructor for the {@link RefreshScheduler} class using the default base interval, within the
+   * request rate of one API key at the default rate.
+   */
+  public RefreshScheduler() {
+    this(DEFAULT_BASE_INTERVAL);
+  }
+
+  /**
+   * Constructor for the {@link RefreshScheduler} class within the request rate of one API key at
+   * the default rate.
+   *
+   * @param baseInterval the refresh interval of a symbol with one subscriber, no holdings and
+   *                     ordinary volatility, while its market is open.
+   */
+  public RefreshScheduler(Duration baseInterval) {
+    this(baseInterval, ApiKeyScheduler.DEFAULT_REQUESTS_PER_SECOND, Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link RefreshScheduler} class within the request rate the API keys allow
+   * together.
+   *
+   * @param baseInterval the refresh interval of a symbol with one subscriber, no holdings and
+   *                     ordinary volatility, while its market is open.
+   * @param keyScheduler schedules the API keys the refreshes are sent with.
+   */
+  public RefreshScheduler(Duration baseInterval, ApiKeyScheduler keyScheduler) {
+    this(baseInterval, keyScheduler.getRequestsPerSecond(), Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link RefreshScheduler} class.
+   *
+   * @param baseInterval the refresh interval of a symbol with one subscriber, no holdings and
+   *                     ordinary volatility, while its market is open.
+   * @param requestsPerSecond the aggregate request rate refreshes must stay within.
+   * @param clock the clock used for due times and the request budget.
+   */
+  public RefreshScheduler(Duration baseInterval, double requestsPerSecond, Clock clock) {
+    if (requestsPerSecond <= 0) {
+      throw new IllegalArgumentException("requestsPerSecond must be positive");
+    }
+    this.baseIntervalMillis = baseInterval.toMillis();
+    this.tokensPerMilli = requestsPerSecond / 1000;
+    // Enough to refresh everything due within one base interval at once.
+    this.burst = Math.max(1, requestsPerSecond * baseInterval.toMillis() / 1000);
+    this.clock = clock;
+    this.tokens = burst;
+    this.lastRefillMillis = clock.millis();
+  }
+
+  /**
+   * Sets the number of subscribers watching a symbol. A symbol with subscribers is scheduled, due
+   * straight away if it was not already; a symbol without is no longer refreshed.
+   *
+   * @param assetSymbol the symbol.
+   * @param subscriberCount the number of subscribers.
+   */
+  public synchronized void setSubscriberCount(String assetSymbol, int subscriberCount) {
+    if (subscriberCount <= 0) {
+      entries.remove(assetSymbol);
+      return;
+    }
+    Entry entry = entries.get(assetSymbol);
+    if (entry == null) {
+      entry = new Entry(assetSymbol);
+      entries.put(assetSymbol, entry);
+      entry.subscriberCount = subscriberCount;
+      schedule(entry, clock.millis());
+    } else {
+      entry.subscriberCount = subscriberCount;
+    }
+  }
+
+  /**
+   * Sets the units held of each symbol, such as from
+   * {@link com.lyit.csd.domain.PortfolioManager#getHeldUnits()}. Larger holdings, by value, are
+   * refreshed more often.
+   *
+   * @param heldUnits the units held, by symbol.
+   */
+  public synchronized void setHoldings(Map<String, Double> heldUnits) {
+    this.heldUnits = Map.copyOf(heldUnits);
+    updateTotalHeldValue();
+  }
+
+  /**
+   * Takes the symbols that are due, as many as the request budget allows, and schedules their
+   * next refresh.
+   *
+   * @param batchSize the most symbols sent in one request.
+   * @return the symbols to refresh now, most overdue first.
+   */
+  public synchronized List<String> takeDue(int batchSize) {
+    long now = clock.millis();
+    refill(now);
+
+    long maxSymbols = maxSymbols(batchSize);
+    List<String> due = new ArrayList<>();
+    while (due.size() < maxSymbols && isHeadDue(now)) {
+      Entry entry = queue.poll().entry;
+      due.add(entry.assetSymbol);
+      // Rescheduled again once the quote arrives; this keeps it from being taken twice meanwhile.
+      schedule(entry, now + interval(entry, now));
+    }
+    spend(due.size(), batchSize);
+
+    // Symbols still due after spending the budget mean demand is above it.
+    if (isHeadDue(now)) {
+      stretch = Math.min(MAX_STRETCH, stretch * 1.25);
+    } else if (tokens >= 1 && stretch > 1) {
+      stretch = Math.max(1, stretch / 1.1);
+    }
+    return due;
+  }
+
+  /**
+   * Takes symbols to refresh now whether or not they are due, as many as the request budget allows,
+   * and schedules their next refresh.
+   *
+   * @param assetSymbols the symbols to refresh.
+   * @param batchSize the most symbols sent in one request.
+   * @return the symbols to refresh now, most overdue first.
+   */
+  public synchronized List<String> take(Collection<String> assetSymbols, int batchSize) {
+    long now = clock.millis();
+    refill(now);
+
+    List<String> wanted = new ArrayList<>(assetSymbols);
+    wanted.sort(Comparator.comparingLong(this::dueMillis));
+    List<String> taken = new ArrayList<>(
+        wanted.subList(0, (int) Math.min(wanted.size(), maxSymbols(batchSize))));
+    for (String assetSymbol : taken) {
+      Entry entry = entries.get(assetSymbol);
+      if (entry != null) {
+        schedule(entry, now + interval(entry, now));
+      }
+    }
+    spend(taken.size(), batchSize);
+    return taken;
+  }
+
+  /**
+   * Records a refreshed quote, so that the symbol's next interval reflects its price moves and
+   * market hours.
+   *
+   * @param assetSymbol the symbol, as it was scheduled.
+   * @param assetQuote the quote.
+   */
+  public synchronized void onRefreshed(String assetSymbol, AssetQuote assetQuote) {
+    Entry entry = entries.get(assetSymbol);
+    if (entry == null) {
+      return;
+    }
+    long now = clock.millis();
+    double price = assetQuote.getRegularMarketPrice();
+    if (entry.lastPrice > 0 && price > 0 && now > entry.lastRefreshMillis) {
+      double move = Math.abs(Math.log(price / entry.lastPrice))
+          / Math.sqrt((now - entry.lastRefreshMillis) / 1000.0);
+      entry.volatility = Double.isNaN(entry.volatility)
+          ? move : entry.volatility * (1 - VOLATILITY_WEIGHT) + move * VOLATILITY_WEIGHT;
+    }
+    entry.lastPrice = price;
+    entry.lastRefreshMillis = now;
+    entry.quoteType = assetQuote.getQuoteType();
+    entry.fullExchangeName = assetQuote.getFullExchangeName();
+    updateTotalHeldValue();
+    schedule(entry, now + interval(entry, now));
+  }
+
+  /**
+   * Gets the interval a symbol is currently refreshed at.
+   *
+   * @param assetSymbol the symbol.
+   * @return the interval in milliseconds, or -1 if the symbol is not scheduled.
+   */
+  public synchronized long getIntervalMillis(String assetSymbol) {
+    Entry entry = entries.get(assetSymbol);
+    return entry == null ? -1 : interval(entry, clock.millis());
+  }
+
+  /**
+   * Gets the factor every interval is currently stretched by to stay within the request budget.
+   *
+   * @return the stretch, 1 when demand fits the budget.
+   */
+  public synchronized double getStretch() {
+    return stretch;
+  }
+
+  private void refill(long now) {
+    tokens = Math.min(burst, tokens + (now - lastRefillMillis) * tokensPerMilli);
+    lastRefillMillis = now;
+  }
+
+  private long maxSymbols(int batchSize) {
+    return (long) Math.floor(tokens) * batchSize;
+  }
+
+  private void spend(int symbolCount, int batchSize) {
+    tokens -= Math.ceil((double) symbolCount / batchSize);
+  }
+
+  private long dueMillis(String assetSymbol) {
+    Entry entry = entries.get(assetSymbol);
+    return entry == null ? Long.MIN_VALUE : entry.dueMillis;
+  }
+
+  private boolean isHeadDue(long now) {
+    while (!queue.isEmpty()) {
+      Due head = queue.peek();
+      if (entries.get(head.entry.assetSymbol) == head.entry && head.version == head.entry.version) {
+        return head.dueMillis <= now;
+      }
+      // Replaced by a later schedule, or no longer watched.
+      queue.poll();
+    }
+    return false;
+  }
+
+  private void schedule(Entry entry, long dueMillis) {
+    entry.version++;
+    entry.dueMillis = dueMillis;
+    queue.add(new Due(dueMillis, entry, entry.version));
+  }
+
+  private long interval(Entry entry, long now) {
+    if (entry.quoteType != null && !TradingHours.isOpen(entry.quoteType, entry.fullExchangeName,
+        Instant.ofEpochMilli(now))) {
+      return CLOSED_MARKET_INTERVAL_MILLIS;
+    }
+    double interval = baseIntervalMillis;
+    interval /= 1 + Math.log(entry.subscriberCount) / Math.log(2);
+    interval /= 1 + 4 * holdingWeight(entry);
+    if (!Double.isNaN(entry.volatility)) {
+      interval *= Math.max(0.5, Math.min(4, REFERENCE_VOLATILITY / entry.volatility));
+    }
+    interval *= stretch;
+    return Math.max(MIN_INTERVAL_MILLIS, Math.min(MAX_INTERVAL_MILLIS, Math.round(interval)));
+  }
+
+  /**
+   * Gets the share of the held value in a symbol, between 0 and 1.
+   */
+  private double holdingWeight(Entry entry) {
+    Double units = heldUnits.get(entry.assetSymbol);
+    if (units == null || totalHeldValue <= 0 || entry.lastPrice <= 0) {
+      return 0;
+    }
+    return Math.min(1, units * entry.lastPrice / totalHeldValue);
+  }
+
+  private void updateTotalHeldValue() {
+    double total = 0;
+    for (Map.Entry<String, Double> holding : heldUnits.entrySet()) {
+      Entry entry = entries.get(holding.getKey());
+      if (entry != null && entry.lastPrice > 0) {
+        total += holding.getValue() * entry.lastPrice;
+      }
+    }
+    totalHeldValue = total;
+  }
+
+  /**
+   * What is known about a scheduled symbol.
+   */
+  private static class Entry {
+    private final String assetSymbol;
+    private int subscriberCount;
+    private double lastPrice;
+    private long lastRefreshMillis = Long.MIN_VALUE;
+    private double volatility = Double.NaN;
+    private String quoteType;
+    private String fullExchangeName;
+    private long version;
+    private long dueMillis;
+
+    Entry(String assetSymbol) {
+      this.assetSymbol = assetSymbol;
+    }
+  }
+
+  /**
+   * A place in the queue. A symbol that is rescheduled gets a new place, and its old one is
+   * skipped when it reaches the head.
+   */
+  private record Due(long dueMillis, Entry entry, long version) implements Comparable<Due> {
+    @Override
+    public int compareTo(Due other) {
+      return Long.compare(dueMillis, other.dueMillis);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.lyit.csd.marketapi.feed;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+
+/**
+ * {@link TradingHours} tells whether the market a quote comes from is open.
+ *
+ * <p>Cryptocurrencies trade around the clock. Other quotes trade on weekdays during the regular
+ * session of their exchange, found from the exchange name Yahoo Finance reports. Public holidays
+ * are not known, and an exchange that is not recognised is taken to be open, so that it is never
+ * starved of refreshes by mistake.
+ */
+public final class TradingHours {
+  private static final Session[] SESSIONS = {
+      new Session(ZoneId.of("America/New_York"), LocalTime.of(9, 30), LocalTime.of(16, 0),
+          "nasdaq", "nyse", "nyq", "nms", "ngm", "ncm", "bats", "cboe", "amex", "nyse arca"),
+      new Session(ZoneId.of("America/Toronto"), LocalTime.of(9, 30), LocalTime.of(16, 0),
+          "toronto", "tsx"),
+      new Session(ZoneId.of("Europe/London"), LocalTime.of(8, 0), LocalTime.of(16, 30),
+          "lse", "london"),
+      new Session(ZoneId.of("Europe/Berlin"), LocalTime.of(9, 0), LocalTime.of(17, 30),
+          "xetra", "frankfurt"),
+      new Session(ZoneId.of("Europe/Paris"), LocalTime.of(9, 0), LocalTime.of(17, 30),
+          "paris", "amsterdam", "brussels", "euronext"),
+      new Session(ZoneId.of("Asia/Tokyo"), LocalTime.of(9, 0), LocalTime.of(15, 0),
+          "tokyo"),
+      new Session(ZoneId.of("Asia/Hong_Kong"), LocalTime.of(9, 30), LocalTime.of(16, 0),
+          "hong kong", "hkse"),
+  };
+
+  private TradingHours() {
+  }
+
+  /**
+   * Checks whether a market is open.
+   *
+   * @param quoteType the type of the quote, such as <code>EQUITY</code> or
+   *                  <code>CRYPTOCURRENCY</code>.
+   * @param fullExchangeName the exchange name, such as <code>NasdaqGS</code>.
+   * @param time the time to check.
+   * @return a boolean indicating whether the market is open at that time.
+   */
+  public static boolean isOpen(String quoteType, String fullExchangeName, Instant time) {
+    if ("CRYPTOCURRENCY".equalsIgnoreCase(quoteType)) {
+      return true;
+    }
+    Session session = find(fullExchangeName);
+    if (session == null) {
+      return true;
+    }
+    ZonedDateTime local = time.atZone(session.zone);
+    DayOfWeek day = local.getDayOfWeek();
+    if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) {
+      return false;
+    }
+    LocalTime localTime = local.toLocalTime();
+    return !localTime.isBefore(session.open) && localTime.isBefore(session.close);
+  }
+
+  private static Session find(String fullExchangeName) {
+    if (fullExchangeName == null) {
+      return null;
+    }
+    String name = fullExchangeName.toLowerCase(Locale.ROOT);
+    for (Session session : SESSIONS) {
+      for (String prefix : session.exchangePrefixes) {
+        if (name.startsWith(prefix)) {
+          return session;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The regular session of a group of exchanges, in their local time.
+   */
+  private record Session(ZoneId zone, LocalTime open, LocalTime close,
+                         String... exchangePrefixes) {
+  }
+}
@@ -0,0 +1,282 @@
+package com.lyit.csd.marketapi.history;
+
+import com.lyit.csd.domain.TimeSeries;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The stored history of one symbol at one interval, in a single append-only file.
+ *
+ * <p>The file is laid out as:
+ *
+ * <pre>
+ * long   magic number
+ * long   covered from: the time, in seconds, from which the points are complete
+ * long   checked at: when, in seconds, the tail was last fetched
+ * then, for each point, oldest first:
+ * long   timestamp in seconds
+ * double closing price
+ * </pre>
+ *
+ * <p>Points are only ever appended, except when a longer history than the one stored is fetched,
+ * which writes a new file and moves it over the old one. A range is found by a binary search of
+ * positional reads, and then copied out in a single read. The file is never memory-mapped: a
+ * mapping is only released when it is garbage collected, and until then some platforms refuse to
+ * truncate or replace the file.
+ */
+final class HistorySegment implements AutoCloseable {
+  static final long MAGIC = 0x4d4b544849535431L; // "MKTHIST1"
+  static final int HEADER_BYTES = 3 * Long.BYTES;
+  static final int POINT_BYTES = Long.BYTES + Double.BYTES;
+
+  private static final int COVERED_FROM_OFFSET = Long.BYTES;
+  private static final int CHECKED_AT_OFFSET = 2 * Long.BYTES;
+
+  private final Path path;
+  private FileChannel channel;
+  private int size;
+  private long coveredFrom;
+  private long checkedAt;
+  private long lastTimestamp = Long.MIN_VALUE;
+
+  /**
+   * Opens a segment file, creating it if it does not exist.
+   *
+   * @param path the segment file.
+   * @throws IOException if the file cannot be opened or is not a segment file.
+   */
+  HistorySegment(Path path) throws IOException {
+    this.path = path;
+    channel = open(path);
+    if (channel.size() < HEADER_BYTES) {
+      // Nothing is covered and the tail has never been fetched.
+      coveredFrom = Long.MAX_VALUE;
+      checkedAt = Long.MIN_VALUE;
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putLong(MAGIC).putLong(coveredFrom).putLong(checkedAt).flip();
+      channel.truncate(0);
+      writeFully(channel, header, 0);
+      return;
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    readFully(header, 0);
+    if (header.getLong(0) != MAGIC) {
+      channel.close();
+      throw new IOException("Not a history segment file: " + path);
+    }
+    coveredFrom = header.getLong(COVERED_FROM_OFFSET);
+    checkedAt = header.getLong(CHECKED_AT_OFFSET);
+    // A point only partly written before a crash is dropped.
+    size = (int) ((channel.size() - HEADER_BYTES) / POINT_BYTES);
+    channel.truncate(positionOf(size));
+    if (size > 0) {
+      lastTimestamp = timestampAt(size - 1);
+    }
+  }
+
+  synchronized int size() {
+    return size;
+  }
+
+  synchronized long getCoveredFrom() {
+    return coveredFrom;
+  }
+
+  synchronized long getCheckedAt() {
+    return checkedAt;
+  }
+
+  /**
+   * Gets the time of the newest point.
+   *
+   * @return the timestamp in seconds, or {@link Long#MIN_VALUE} if the segment is empty.
+   */
+  synchronized long getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Appends the points of a series that are newer than the newest stored point and older than a
+   * cut-off, and records when the tail was fetched.
+   *
+   * @param series the fetched points.
+   * @param before only points earlier than this, in seconds, are stored.
+   * @param fetchedAt when the points were fetched, in seconds.
+   * @return the number of points appended.
+   * @throws IOException if the file cannot be written.
+   */
+  synchronized int append(TimeSeries series, long before, long fetchedAt) throws IOException {
+    ByteBuffer points = encode(series, lastTimestamp, before);
+    int appended = points.remaining() / POINT_BYTES;
+    if (appended > 0) {
+      long last = points.getLong(points.limit() - POINT_BYTES);
+      writeFully(channel, points, positionOf(size));
+      size += appended;
+      lastTimestamp = last;
+    }
+    writeHeader(coveredFrom, fetchedAt);
+    return appended;
+  }
+
+  /**
+   * Replaces every stored point with the points of a series older than a cut-off.
+   *
+   * <p>The new points go to a temporary file, which is moved over the old one once this segment's
+   * channel to it is closed, so that a crash part way through leaves either the old points or the
+   * new ones. If the move fails, the old file is reopened and kept.
+   *
+   * @param series the fetched points.
+   * @param from the time, in seconds, the series was fetched from.
+   * @param before only points earlier than this, in seconds, are stored.
+   * @param fetchedAt when the points were fetched, in seconds.
+   * @return the number of points stored.
+   * @throws IOException if the file cannot be written.
+   */
+  synchronized int replace(TimeSeries series, long from, long before, long fetchedAt)
+      throws IOException {
+    ByteBuffer points = encode(series, Long.MIN_VALUE, before);
+    int stored = points.remaining() / POINT_BYTES;
+    long last = stored > 0 ? points.getLong(points.limit() - POINT_BYTES) : Long.MIN_VALUE;
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    header.putLong(MAGIC).putLong(from).putLong(fetchedAt).flip();
+
+    Path replacement = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(replacement, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      writeFully(out, header, 0);
+      writeFully(out, points, HEADER_BYTES);
+    }
+
+    channel.close();
+    try {
+      Files.move(replacement, path, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Files.deleteIfExists(replacement);
+      channel = open(path);
+      throw e;
+    }
+    channel = open(path);
+    size = stored;
+    lastTimestamp = last;
+    coveredFrom = from;
+    checkedAt = fetchedAt;
+    return stored;
+  }
+
+  /**
+   * Reads the points in a time range.
+   *
+   * @param fromInclusive the start of the range, in seconds.
+   * @param toExclusive the end of the range, in seconds.
+   * @return the points, copied out of the file.
+   * @throws IOException if the file cannot be read.
+   */
+  synchronized TimeSeries read(long fromInclusive, long toExclusive) throws IOException {
+    if (size == 0) {
+      return TimeSeries.onHeap(1);
+    }
+    int from = ceilingIndex(fromInclusive);
+    int to = Math.max(from, ceilingIndex(toExclusive));
+    long[] timestamps = new long[to - from];
+    double[] closes = new double[to - from];
+    if (to > from) {
+      ByteBuffer points = ByteBuffer.allocate((to - from) * POINT_BYTES);
+      readFully(points, positionOf(from));
+      for (int i = 0; i < to - from; i++) {
+        timestamps[i] = points.getLong(i * POINT_BYTES);
+        closes[i] = points.getDouble(i * POINT_BYTES + Long.BYTES);
+      }
+    }
+    return TimeSeries.wrap(timestamps, closes, to - from);
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private int ceilingIndex(long timestamp) throws IOException {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (timestampAt(middle) < timestamp) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static FileChannel open(Path path) throws IOException {
+    return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Encodes the points of a series that are newer than one time and older than another.
+   *
+   * @param series the fetched points.
+   * @param after only points later than this, in seconds, are encoded.
+   * @param before only points earlier than this, in seconds, are encoded.
+   * @return the encoded points, ready to be written.
+   */
+  private static ByteBuffer encode(TimeSeries series, long after, long before) {
+    ByteBuffer buffer = ByteBuffer.allocate(Math.max(1, series.size()) * POINT_BYTES);
+    long last = after;
+    for (int i = 0; i < series.size(); i++) {
+      long timestamp = series.getTimestamp(i);
+      if (timestamp <= last || timestamp >= before) {
+        continue;
+      }
+      buffer.putLong(timestamp).putDouble(series.getClose(i));
+      last = timestamp;
+    }
+    return buffer.flip();
+  }
+
+  private void writeHeader(long newCoveredFrom, long newCheckedAt) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(2 * Long.BYTES);
+    header.putLong(newCoveredFrom).putLong(newCheckedAt).flip();
+    writeFully(channel, header, COVERED_FROM_OFFSET);
+    coveredFrom = newCoveredFrom;
+    checkedAt = newCheckedAt;
+  }
+
+  private long timestampAt(int index) throws IOException {
+    ByteBuffer timestamp = ByteBuffer.allocate(Long.BYTES);
+    readFully(timestamp, positionOf(index));
+    return timestamp.getLong(0);
+  }
+
+  private static long positionOf(int index) {
+    return HEADER_BYTES + (long) index * POINT_BYTES;
+  }
+
+  private static void writeFully(FileChannel to, ByteBuffer buffer, long position)
+      throws IOException {
+    long at = position;
+    while (buffer.hasRemaining()) {
+      at += to.write(buffer, at);
+    }
+  }
+
+  private void readFully(ByteBuffer buffer, long position) throws IOException {
+    long at = position;
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, at);
+      if (read < 0) {
+        throw new IOException("Unexpected end of history segment: " + path);
+      }
+      at += read;
+    }
+  }
+}
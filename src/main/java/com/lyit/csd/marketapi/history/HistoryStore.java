@@ -0,0 +1,141 @@
+package com.lyit.csd.marketapi.history;
+
+import com.lyit.csd.domain.TimeSeries;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link HistoryStore} keeps price histories on disk, one append-only segment file per symbol
+ * and interval, laid out as <code>directory/interval/SYMBOL.hist</code>.
+ *
+ * <p>Open segments are kept open, so repeated range queries are served from file pages the
+ * operating system already holds in memory. Close the store to release the files.
+ */
+public class HistoryStore implements AutoCloseable {
+  private static final String SEGMENT_SUFFIX = ".hist";
+
+  private final Path directory;
+  private final Map<String, HistorySegment> segments = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor for the {@link HistoryStore} class. The directory is created when the first
+   * history is stored.
+   *
+   * @param directory the directory the segment files are kept in.
+   */
+  public HistoryStore(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Reads a stored history.
+   *
+   * @param assetSymbol the symbol.
+   * @param interval the time between points, such as <code>1d</code>.
+   * @param fromInclusive the start of the range, in seconds.
+   * @param toExclusive the end of the range, in seconds.
+   * @return the points in the range, empty if none are stored.
+   * @throws IOException if the segment file cannot be read.
+   */
+  public TimeSeries read(String assetSymbol, String interval, long fromInclusive,
+                         long toExclusive) throws IOException {
+    HistorySegment segment = find(assetSymbol, interval);
+    return segment == null ? TimeSeries.onHeap(1) : segment.read(fromInclusive, toExclusive);
+  }
+
+  /**
+   * Gets the time of the newest stored point.
+   *
+   * @param assetSymbol the symbol.
+   * @param interval the time between points.
+   * @return the timestamp in seconds, or {@link Long#MIN_VALUE} if nothing is stored.
+   * @throws IOException if the segment file cannot be read.
+   */
+  public long getLastTimestamp(String assetSymbol, String interval) throws IOException {
+    HistorySegment segment = find(assetSymbol, interval);
+    return segment == null ? Long.MIN_VALUE : segment.getLastTimestamp();
+  }
+
+  /**
+   * Closes every open segment file.
+   *
+   * @throws IOException if a segment file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    for (HistorySegment segment : segments.values()) {
+      segment.close();
+    }
+    segments.clear();
+  }
+
+  /**
+   * Finds the segment of a symbol and interval, if one has been stored.
+   *
+   * @return the open segment, or null if there is no segment file.
+   */
+  HistorySegment find(String assetSymbol, String interval) throws IOException {
+    String key = key(assetSymbol, interval);
+    HistorySegment segment = segments.get(key);
+    if (segment != null || !Files.exists(path(assetSymbol, interval))) {
+      return segment;
+    }
+    return open(key, assetSymbol, interval);
+  }
+
+  /**
+   * Gets the segment of a symbol and interval, creating its file if it does not exist.
+   */
+  HistorySegment getOrCreate(String assetSymbol, String interval) throws IOException {
+    HistorySegment segment = segments.get(key(assetSymbol, interval));
+    return segment != null ? segment : open(key(assetSymbol, interval), assetSymbol, interval);
+  }
+
+  private synchronized HistorySegment open(String key, String assetSymbol, String interval)
+      throws IOException {
+    HistorySegment segment = segments.get(key);
+    if (segment == null) {
+      Path path = path(assetSymbol, interval);
+      Files.createDirectories(path.getParent());
+      segment = new HistorySegment(path);
+      segments.put(key, segment);
+    }
+    return segment;
+  }
+
+  private Path path(String assetSymbol, String interval) {
+    return directory.resolve(fileName(interval))
+        .resolve(fileName(normalise(assetSymbol)) + SEGMENT_SUFFIX);
+  }
+
+  private static String key(String assetSymbol, String interval) {
+    return normalise(assetSymbol) + "|" + interval;
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Makes a name safe to use as a file name, escaping anything other than letters, digits, dots
+   * and dashes, so that symbols such as <code>^GSPC</code> or <code>EURUSD=X</code> can be stored.
+   */
+  private static String fileName(String name) {
+    StringBuilder fileName = new StringBuilder(name.length());
+    for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xff);
+      if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+          || c == '-' || (c == '.' && fileName.length() > 0)) {
+        fileName.append(c);
+      } else {
+        fileName.append('_').append(String.format("%02X", b & 0xff));
+      }
+    }
+    return fileName.toString();
+  }
+}
@@ -0,0 +1,214 @@
+package com.lyit.csd.marketapi.history;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.TimeSeries;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketPeriods;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StoredHistoryMarketClient} wraps any {@link MarketClient} and answers historical info
+ * calls from a {@link HistoryStore}, fetching only the part of each history that is not stored.
+ *
+ * <p>For each symbol there are three cases. If the stored history does not reach back far enough,
+ * the whole range is fetched and replaces it. If the tail has not been fetched for at least one
+ * interval, only the missing tail is fetched, using the shortest range that covers it, and
+ * appended. Otherwise the history is read from disk without a request. Symbols needing the same
+ * fetch are fetched together in one request.
+ *
+ * <p>Only completed intervals are stored and returned, as the point for the interval in progress
+ * still changes. If the store cannot be read or written, the call is passed straight to the wrapped
+ * client. Every other call is passed straight to the wrapped client.
+ */
+public class StoredHistoryMarketClient implements AsyncMarketClient {
+  /** Ranges the provider accepts, with the seconds each is sure to cover, shortest first. */
+  private static final String[] TAIL_RANGES = {"1d", "5d", "1mo", "3mo", "6mo", "1y", "2y", "5y",
+      "10y"};
+  private static final long[] TAIL_RANGE_SECONDS = {86_400L, 5 * 86_400L, 28 * 86_400L,
+      89 * 86_400L, 181 * 86_400L, 365 * 86_400L, 730 * 86_400L, 1826 * 86_400L, 3652 * 86_400L};
+
+  private final MarketClient delegate;
+  private final HistoryStore historyStore;
+  private final Clock clock;
+  private final Executor asyncExecutor;
+
+  private final AtomicLong diskHitCount = new AtomicLong();
+  private final AtomicLong tailFetchCount = new AtomicLong();
+  private final AtomicLong fullFetchCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link StoredHistoryMarketClient} class.
+   *
+   * @param delegate the client histories are fetched from.
+   * @param historyStore the store histories are kept in.
+   */
+  public StoredHistoryMarketClient(MarketClient delegate, HistoryStore historyStore) {
+    this(delegate, historyStore, Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link StoredHistoryMarketClient} class.
+   *
+   * @param delegate the client histories are fetched from.
+   * @param historyStore the store histories are kept in.
+   * @param clock the clock used to find the missing part of each history.
+   */
+  public StoredHistoryMarketClient(MarketClient delegate, HistoryStore historyStore,
+                                   Clock clock) {
+    this.delegate = delegate;
+    this.historyStore = historyStore;
+    this.clock = clock;
+    this.asyncExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+  }
+
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    return delegate.getQuote(assetSymbol);
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    return delegate.getQuote(assetSymbols);
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return delegate.getTrendingStocksForRegion(region);
+  }
+
+  /**
+   * Gets the history of each symbol, fetching only what the store is missing.
+   *
+   * @param assetSymbols list of asset symbols.
+   * @param interval the time between points, such as <code>1d</code>.
+   * @param range how far back to go, such as <code>5y</code>, <code>ytd</code> or
+   *              <code>max</code>.
+   * @return the history of each symbol that has one, in the order the symbols were given.
+   */
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    long now = clock.millis() / 1000;
+    long intervalSeconds = MarketPeriods.intervalSeconds(interval);
+    long from = MarketPeriods.rangeStart(range, now);
+    // Only complete points are stored; the point of the interval in progress is still moving.
+    long before = MarketPeriods.intervalStart(interval, now);
+    List<String> symbols = new ArrayList<>();
+    for (String assetSymbol : new LinkedHashSet<>(assetSymbols)) {
+      symbols.add(assetSymbol.trim().toUpperCase(Locale.ROOT));
+    }
+
+    try {
+      // Symbols grouped by the range that has to be fetched for them.
+      Map<String, List<String>> fetches = new LinkedHashMap<>();
+      for (String assetSymbol : symbols) {
+        HistorySegment segment = historyStore.find(assetSymbol, interval);
+        if (segment == null || segment.size() == 0 || from < segment.getCoveredFrom()) {
+          fetches.computeIfAbsent(range, r -> new ArrayList<>()).add(assetSymbol);
+          fullFetchCount.incrementAndGet();
+        } else if (now - segment.getCheckedAt() >= intervalSeconds) {
+          String tailRange = tailRange(now - segment.getLastTimestamp());
+          fetches.computeIfAbsent(tailRange, r -> new ArrayList<>()).add(assetSymbol);
+          tailFetchCount.incrementAndGet();
+        } else {
+          diskHitCount.incrementAndGet();
+        }
+      }
+
+      for (Map.Entry<String, List<String>> fetch : fetches.entrySet()) {
+        boolean full = fetch.getKey().equals(range);
+        List<AssetQuote> fetched = delegate.getHistoricalInfo(fetch.getValue(), interval,
+            fetch.getKey());
+        if (fetched == null) {
+          continue;
+        }
+        for (AssetQuote assetQuote : fetched) {
+          HistorySegment segment = historyStore.getOrCreate(assetQuote.getAssetSymbol(),
+              interval);
+          if (full && from < segment.getCoveredFrom()) {
+            segment.replace(assetQuote.getHistory(), from, before, now);
+          } else {
+            segment.append(assetQuote.getHistory(), before, now);
+          }
+        }
+      }
+
+      List<AssetQuote> assetQuotes = new ArrayList<>();
+      for (String assetSymbol : symbols) {
+        TimeSeries history = historyStore.read(assetSymbol, interval, from, before);
+        if (!history.isEmpty()) {
+          AssetQuote assetQuote = new AssetQuote(assetSymbol);
+          assetQuote.setHistory(history);
+          assetQuotes.add(assetQuote);
+        }
+      }
+      return assetQuotes;
+    } catch (IOException e) {
+      return delegate.getHistoricalInfo(assetSymbols, interval, range);
+    }
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return delegate.getExchangeInfo(region, exchange);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return delegate.checkAssetSymbol(assetSymbol);
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Gets the number of symbols whose history was served from disk without a request.
+   *
+   * @return the disk hit count.
+   */
+  public long getDiskHitCount() {
+    return diskHitCount.get();
+  }
+
+  /**
+   * Gets the number of symbols for which only the missing tail was fetched.
+   *
+   * @return the tail fetch count.
+   */
+  public long getTailFetchCount() {
+    return tailFetchCount.get();
+  }
+
+  /**
+   * Gets the number of symbols for which the whole range was fetched.
+   *
+   * @return the full fetch count.
+   */
+  public long getFullFetchCount() {
+    return fullFetchCount.get();
+  }
+
+  /**
+   * Picks the shortest range that covers a gap.
+   */
+  static String tailRange(long gapSeconds) {
+    for (int i = 0; i < TAIL_RANGES.length; i++) {
+      if (gapSeconds < TAIL_RANGE_SECONDS[i]) {
+        return TAIL_RANGES[i];
+      }
+    }
+    return "max";
+  }
+}
@@ -0,0 +1,36 @@
+package com.lyit.csd.marketapi.metrics;
+
+/**
+ * The JMX view of the requests sent with one API key, registered by
+ * {@link MarketClientMetrics#registerMBeans(String)}.
+ */
+public interface ApiKeyMetricsMXBean {
+
+  /**
+   * Gets the number of requests sent with the key.
+   *
+   * @return the attempt count.
+   */
+  long getAttemptCount();
+
+  /**
+   * Gets the number of requests sent with the key to retry an earlier failed attempt.
+   *
+   * @return the retry count.
+   */
+  long getRetryCount();
+
+  /**
+   * Gets the number of requests sent with the key that failed.
+   *
+   * @return the failure count.
+   */
+  long getFailureCount();
+
+  /**
+   * Gets the status code of the latest failed request sent with the key.
+   *
+   * @return the status code, 0 if the request got no response, or -1 if none has failed.
+   */
+  int getLastFailureStatus();
+}
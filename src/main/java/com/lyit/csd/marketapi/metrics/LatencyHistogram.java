@@ -0,0 +1,177 @@
+package com.lyit.csd.marketapi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link LatencyHistogram} records durations in nanoseconds without taking a lock, so that it can
+ * be updated on every request.
+ *
+ * <p>Durations are counted in buckets that double in width with every power of two, each split
+ * into {@value #SUB_BUCKETS} equal parts, so a percentile is within an eighth of the true value
+ * whatever the scale. Recording a duration is one increment of an atomic counter and two striped
+ * adders, and the whole histogram is a few kilobytes.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Enough buckets for any positive long.
+   */
+  private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Records a duration.
+   *
+   * @param nanos the duration in nanoseconds. Negative durations are recorded as zero.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets.incrementAndGet(indexOf(value));
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * Takes a snapshot of the durations recorded so far. Durations recorded while the snapshot is
+   * taken may or may not be included.
+   *
+   * @return the snapshot.
+   */
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new Snapshot(counts, sum.sum(), max.get());
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int highestBit = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (highestBit - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (highestBit - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * Gets the largest value counted in a bucket.
+   */
+  static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowerBound + (1L << shift) - 1;
+  }
+
+  /**
+   * The durations recorded by a {@link LatencyHistogram} up to some moment. Two snapshots of the
+   * same histogram can be subtracted to find the durations recorded between them.
+   */
+  public static final class Snapshot {
+    private static final Snapshot EMPTY = new Snapshot(new long[BUCKET_COUNT], 0, 0);
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    private Snapshot(long[] counts, long sum, long max) {
+      this.counts = counts;
+      long total = 0;
+      for (long bucketCount : counts) {
+        total += bucketCount;
+      }
+      this.count = total;
+      this.sum = sum;
+      this.max = max;
+    }
+
+    /**
+     * Gets a snapshot with nothing recorded.
+     *
+     * @return the empty snapshot.
+     */
+    public static Snapshot empty() {
+      return EMPTY;
+    }
+
+    /**
+     * Gets the durations recorded after an earlier snapshot of the same histogram.
+     *
+     * @param earlier the earlier snapshot.
+     * @return the difference. Its maximum is the maximum of the bucket of the longest duration,
+     *     as the true maximum of the interval is not known.
+     */
+    public Snapshot since(Snapshot earlier) {
+      long[] difference = new long[BUCKET_COUNT];
+      int highest = -1;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        difference[i] = Math.max(0, counts[i] - earlier.counts[i]);
+        if (difference[i] > 0) {
+          highest = i;
+        }
+      }
+      long intervalMax = highest < 0 ? 0 : Math.min(max, upperBoundOf(highest));
+      return new Snapshot(difference, Math.max(0, sum - earlier.sum), intervalMax);
+    }
+
+    /**
+     * Gets the number of durations recorded.
+     *
+     * @return the count.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the mean duration.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the longest duration recorded.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Gets a percentile of the durations recorded.
+     *
+     * @param percentile the percentile, between 0 and 100, such as 99.
+     * @return the duration in nanoseconds that the given percentage of durations did not exceed,
+     *     within an eighth, or 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(max, upperBoundOf(i));
+        }
+      }
+      return max;
+    }
+  }
+}
@@ -0,0 +1,413 @@
+package com.lyit.csd.marketapi.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * {@link MarketClientMetrics} collects how a market data client's requests are performing: the
+ * latency of the calls to each endpoint, the bytes received and the time spent decoding them, and
+ * how many attempts, retries and failures each API key accounts for.
+ *
+ * <p>Everything is recorded without taking a lock. The metrics can be read as a
+ * {@link MetricsSnapshot}, or registered as JMX MBeans so that monitoring tools can read them.
+ * Besides latencies since the client started, each endpoint keeps the latencies of a recent
+ * window, covering between one and two window lengths as long as it is read at least once per
+ * window, so that a rising 99th percentile shows up without being diluted by the past.
+ *
+ * <p>API keys are never exposed. Each is labelled by the order it was first used in, followed by
+ * its last few characters when it is long enough for them not to give it away.
+ */
+public class MarketClientMetrics {
+
+  /**
+   * The market data endpoints calls are recorded for.
+   */
+  public enum Operation {
+    /**
+     * Live quotes.
+     */
+    Quote,
+    /**
+     * Price histories.
+     */
+    Spark,
+    /**
+     * Trending symbols of a region.
+     */
+    Trending,
+    /**
+     * Exchange summaries.
+     */
+    Exchange
+  }
+
+  private static final Duration DEFAULT_RECENT_WINDOW = Duration.ofMinutes(1);
+  private static final String DOMAIN = "com.lyit.csd";
+  private static final int VISIBLE_KEY_CHARACTERS = 4;
+  private static final int MIN_KEY_LENGTH_SHOWN = 16;
+
+  private final long recentWindowMillis;
+  private final Clock clock;
+  private final Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+  private final Map<String, KeyStats> keys = new ConcurrentHashMap<>();
+  private final AtomicInteger keyCount = new AtomicInteger();
+
+  /** Guarded by this. */
+  private MBeanServer server;
+  /** Guarded by this. */
+  private String mbeanName;
+  /** Guarded by this. */
+  private final List<ObjectName> registered = new ArrayList<>();
+
+  /**
+   * Constructor for the {@link MarketClientMetrics} class using the default recent window.
+   */
+  public MarketClientMetrics() {
+    this(DEFAULT_RECENT_WINDOW, Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link MarketClientMetrics} class.
+   *
+   * @param recentWindow the length of the window recent latencies are kept for.
+   * @param clock the clock used to roll the recent window.
+   */
+  public MarketClientMetrics(Duration recentWindow, Clock clock) {
+    this.recentWindowMillis = recentWindow.toMillis();
+    this.clock = clock;
+    for (Operation operation : Operation.values()) {
+      operations.put(operation, new OperationStats(clock.millis()));
+    }
+  }
+
+  /**
+   * Gets the process-wide metrics, registered as MBeans under the name <code>default</code>.
+   * Clients that are not given metrics of their own record into these.
+   *
+   * @return the shared metrics.
+   */
+  public static MarketClientMetrics getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Records a call to an endpoint.
+   *
+   * @param operation the endpoint.
+   * @param nanos how long the call took.
+   * @param error why the call failed, or null if it succeeded.
+   */
+  public void recordCall(Operation operation, long nanos, String error) {
+    OperationStats stats = operations.get(operation);
+    stats.latency.record(nanos);
+    if (error != null) {
+      stats.failureCount.increment();
+      stats.lastError = error;
+    }
+  }
+
+  /**
+   * Records a response body that was read and decoded.
+   *
+   * @param operation the endpoint the response came from.
+   * @param bytes the number of bytes read.
+   * @param parseNanos how long reading and decoding the body took.
+   */
+  public void recordResponseBody(Operation operation, long bytes, long parseNanos) {
+    OperationStats stats = operations.get(operation);
+    stats.bytesReceived.add(bytes);
+    stats.parseTime.record(parseNanos);
+  }
+
+  /**
+   * Records a request sent with an API key.
+   *
+   * @param apiKey the key.
+   * @param retry whether the request retried an earlier failed attempt.
+   * @param statusCode the status code of the response, or 0 if there was no response.
+   */
+  public void recordAttempt(String apiKey, boolean retry, int statusCode) {
+    KeyStats stats = keys.get(apiKey);
+    if (stats == null) {
+      stats = keys.computeIfAbsent(apiKey, this::newKeyStats);
+    }
+    stats.attemptCount.increment();
+    if (retry) {
+      stats.retryCount.increment();
+    }
+    if (statusCode != 200) {
+      stats.failureCount.increment();
+      stats.lastFailureStatus = statusCode;
+    }
+  }
+
+  /**
+   * Takes a snapshot of the metrics.
+   *
+   * @return the snapshot.
+   */
+  public MetricsSnapshot snapshot() {
+    long now = clock.millis();
+    Map<Operation, MetricsSnapshot.OperationSnapshot> operationSnapshots =
+        new EnumMap<>(Operation.class);
+    operations.forEach((operation, stats) -> operationSnapshots.put(operation,
+        stats.snapshot(now)));
+    Map<String, MetricsSnapshot.ApiKeySnapshot> keySnapshots = new HashMap<>();
+    for (KeyStats stats : keys.values()) {
+      keySnapshots.put(stats.label, stats.snapshot());
+    }
+    return new MetricsSnapshot(clock.instant(), operationSnapshots, keySnapshots);
+  }
+
+  /**
+   * Registers the metrics as MBeans with the platform MBean server, one per endpoint and one per
+   * API key, named <code>com.lyit.csd:type=MarketClient,name=</code><i>name</i> with an
+   * <code>operation</code> or <code>apiKey</code> property. Keys first used later are registered
+   * as they are used.
+   *
+   * @param name the name that tells these metrics apart from those of other clients.
+   * @throws JMException if an MBean could not be registered.
+   */
+  public synchronized void registerMBeans(String name) throws JMException {
+    unregisterMBeans();
+    server = ManagementFactory.getPlatformMBeanServer();
+    mbeanName = name;
+    for (Map.Entry<Operation, OperationStats> entry : operations.entrySet()) {
+      register(new StandardMBean(new OperationView(entry.getValue()),
+          OperationMetricsMXBean.class, true), "operation", entry.getKey().name());
+    }
+    for (KeyStats stats : keys.values()) {
+      register(new StandardMBean(new KeyView(stats), ApiKeyMetricsMXBean.class, true),
+          "apiKey", ObjectName.quote(stats.label));
+    }
+  }
+
+  /**
+   * Unregisters the MBeans registered by {@link #registerMBeans(String)}, if any.
+   */
+  public synchronized void unregisterMBeans() {
+    for (ObjectName objectName : registered) {
+      try {
+        server.unregisterMBean(objectName);
+      } catch (InstanceNotFoundException e) {
+        // Already unregistered by someone else.
+      } catch (JMException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    registered.clear();
+    server = null;
+  }
+
+  private void register(Object mbean, String property, String value) throws JMException {
+    ObjectName objectName = new ObjectName(DOMAIN + ":type=MarketClient,name="
+        + ObjectName.quote(mbeanName) + "," + property + "=" + value);
+    server.registerMBean(mbean, objectName);
+    registered.add(objectName);
+  }
+
+  private KeyStats newKeyStats(String apiKey) {
+    String label = "key" + keyCount.incrementAndGet();
+    if (apiKey.length() >= MIN_KEY_LENGTH_SHOWN) {
+      label += "..." + apiKey.substring(apiKey.length() - VISIBLE_KEY_CHARACTERS);
+    }
+    KeyStats stats = new KeyStats(label);
+    synchronized (this) {
+      if (server != null) {
+        try {
+          register(new StandardMBean(new KeyView(stats), ApiKeyMetricsMXBean.class, true),
+              "apiKey", ObjectName.quote(label));
+        } catch (JMException e) {
+          // The key's metrics are still in snapshots.
+        }
+      }
+    }
+    return stats;
+  }
+
+  private static double toMillis(double nanos) {
+    return nanos / 1_000_000;
+  }
+
+  /**
+   * What is recorded about one endpoint.
+   */
+  private final class OperationStats {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private volatile String lastError;
+
+    /** Guarded by this. */
+    private long windowStartMillis;
+    /** Guarded by this. */
+    private LatencyHistogram.Snapshot windowStart = LatencyHistogram.Snapshot.empty();
+    /** Guarded by this. */
+    private LatencyHistogram.Snapshot previousWindowStart = LatencyHistogram.Snapshot.empty();
+
+    OperationStats(long now) {
+      this.windowStartMillis = now;
+    }
+
+    MetricsSnapshot.OperationSnapshot snapshot(long now) {
+      LatencyHistogram.Snapshot current = latency.snapshot();
+      return new MetricsSnapshot.OperationSnapshot(current, recent(current, now),
+          parseTime.snapshot(), failureCount.sum(), bytesReceived.sum(), lastError);
+    }
+
+    synchronized LatencyHistogram.Snapshot recent(LatencyHistogram.Snapshot current, long now) {
+      if (now - windowStartMillis >= recentWindowMillis) {
+        previousWindowStart = windowStart;
+        windowStart = current;
+        windowStartMillis = now;
+      }
+      return current.since(previousWindowStart);
+    }
+  }
+
+  /**
+   * What is recorded about one API key.
+   */
+  private static final class KeyStats {
+    private final String label;
+    private final LongAdder attemptCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private volatile int lastFailureStatus = -1;
+
+    KeyStats(String label) {
+      this.label = label;
+    }
+
+    MetricsSnapshot.ApiKeySnapshot snapshot() {
+      return new MetricsSnapshot.ApiKeySnapshot(attemptCount.sum(), retryCount.sum(),
+          failureCount.sum(), lastFailureStatus);
+    }
+  }
+
+  /**
+   * Exposes an endpoint's metrics through JMX.
+   */
+  private final class OperationView implements OperationMetricsMXBean {
+    private final OperationStats stats;
+
+    OperationView(OperationStats stats) {
+      this.stats = stats;
+    }
+
+    @Override
+    public long getCallCount() {
+      return stats.latency.snapshot().getCount();
+    }
+
+    @Override
+    public long getFailureCount() {
+      return stats.failureCount.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+      return toMillis(stats.latency.snapshot().getMean());
+    }
+
+    @Override
+    public double getP50Millis() {
+      return toMillis(stats.latency.snapshot().getPercentile(50));
+    }
+
+    @Override
+    public double getP99Millis() {
+      return toMillis(stats.latency.snapshot().getPercentile(99));
+    }
+
+    @Override
+    public double getRecentP99Millis() {
+      LatencyHistogram.Snapshot current = stats.latency.snapshot();
+      return toMillis(stats.recent(current, clock.millis()).getPercentile(99));
+    }
+
+    @Override
+    public double getMaxMillis() {
+      return toMillis(stats.latency.snapshot().getMax());
+    }
+
+    @Override
+    public double getParseP99Millis() {
+      return toMillis(stats.parseTime.snapshot().getPercentile(99));
+    }
+
+    @Override
+    public long getBytesReceived() {
+      return stats.bytesReceived.sum();
+    }
+
+    @Override
+    public String getLastError() {
+      return stats.lastError;
+    }
+  }
+
+  /**
+   * Exposes an API key's metrics through JMX.
+   */
+  private static final class KeyView implements ApiKeyMetricsMXBean {
+    private final KeyStats stats;
+
+    KeyView(KeyStats stats) {
+      this.stats = stats;
+    }
+
+    @Override
+    public long getAttemptCount() {
+      return stats.attemptCount.sum();
+    }
+
+    @Override
+    public long getRetryCount() {
+      return stats.retryCount.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+      return stats.failureCount.sum();
+    }
+
+    @Override
+    public int getLastFailureStatus() {
+      return stats.lastFailureStatus;
+    }
+  }
+
+  /**
+   * Holds the process-wide metrics, created and registered on first use.
+   */
+  private static final class DefaultHolder {
+    private static final MarketClientMetrics INSTANCE = create();
+
+    private static MarketClientMetrics create() {
+      MarketClientMetrics metrics = new MarketClientMetrics();
+      try {
+        metrics.registerMBeans("default");
+      } catch (JMException e) {
+        // Metrics still work without JMX, through snapshots.
+      }
+      return metrics;
+    }
+  }
+}
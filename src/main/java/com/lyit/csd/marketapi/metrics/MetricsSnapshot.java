@@ -0,0 +1,53 @@
+package com.lyit.csd.marketapi.metrics;
+
+import com.lyit.csd.marketapi.metrics.MarketClientMetrics.Operation;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * The metrics of a {@link MarketClientMetrics} at one moment.
+ *
+ * @param takenAt when the snapshot was taken.
+ * @param operations the metrics of each endpoint.
+ * @param apiKeys the metrics of each API key, by its masked label.
+ */
+public record MetricsSnapshot(Instant takenAt, Map<Operation, OperationSnapshot> operations,
+                              Map<String, ApiKeySnapshot> apiKeys) {
+
+  /**
+   * Creates a snapshot, copying its maps.
+   */
+  public MetricsSnapshot {
+    operations = Map.copyOf(operations);
+    apiKeys = Map.copyOf(apiKeys);
+  }
+
+  /**
+   * The metrics of the calls made to one endpoint.
+   *
+   * @param latency the call durations since the client started.
+   * @param recentLatency the call durations over the recent window.
+   * @param parseTime the time spent reading and decoding response bodies.
+   * @param failureCount the number of calls that did not return a decoded response.
+   * @param bytesReceived the number of response body bytes received.
+   * @param lastError the message of the latest failure, or null.
+   */
+  public record OperationSnapshot(LatencyHistogram.Snapshot latency,
+                                  LatencyHistogram.Snapshot recentLatency,
+                                  LatencyHistogram.Snapshot parseTime, long failureCount,
+                                  long bytesReceived, String lastError) {
+  }
+
+  /**
+   * The metrics of the requests sent with one API key.
+   *
+   * @param attemptCount the number of requests sent.
+   * @param retryCount the number of requests that retried an earlier failed attempt.
+   * @param failureCount the number of requests that failed.
+   * @param lastFailureStatus the status code of the latest failure, 0 if it got no response, or
+   *                          -1 if none has failed.
+   */
+  public record ApiKeySnapshot(long attemptCount, long retryCount, long failureCount,
+                               int lastFailureStatus) {
+  }
+}
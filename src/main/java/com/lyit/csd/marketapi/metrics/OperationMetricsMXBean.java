@@ -0,0 +1,79 @@
+package com.lyit.csd.marketapi.metrics;
+
+/**
+ * The JMX view of the calls made to one market data endpoint, registered by
+ * {@link MarketClientMetrics#registerMBeans(String)}. Durations are in milliseconds.
+ */
+public interface OperationMetricsMXBean {
+
+  /**
+   * Gets the number of calls made.
+   *
+   * @return the call count.
+   */
+  long getCallCount();
+
+  /**
+   * Gets the number of calls that did not return a decoded response.
+   *
+   * @return the failure count.
+   */
+  long getFailureCount();
+
+  /**
+   * Gets the mean call duration since the client started.
+   *
+   * @return the mean duration.
+   */
+  double getMeanMillis();
+
+  /**
+   * Gets the median call duration since the client started.
+   *
+   * @return the median duration.
+   */
+  double getP50Millis();
+
+  /**
+   * Gets the 99th percentile call duration since the client started.
+   *
+   * @return the 99th percentile duration.
+   */
+  double getP99Millis();
+
+  /**
+   * Gets the 99th percentile call duration over the recent window, which is what alerts on
+   * latency regressions should watch.
+   *
+   * @return the recent 99th percentile duration.
+   */
+  double getRecentP99Millis();
+
+  /**
+   * Gets the longest call duration.
+   *
+   * @return the maximum duration.
+   */
+  double getMaxMillis();
+
+  /**
+   * Gets the 99th percentile time spent reading and decoding a response body.
+   *
+   * @return the 99th percentile parse time.
+   */
+  double getParseP99Millis();
+
+  /**
+   * Gets the number of response body bytes received.
+   *
+   * @return the bytes received.
+   */
+  long getBytesReceived();
+
+  /**
+   * Gets the message of the latest failure.
+   *
+   * @return the message, or null if no call has failed.
+   */
+  String getLastError();
+}
@@ -1,6 +1,7 @@
 package com.lyit.csd.marketapi.mock;
 
 import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
 import com.lyit.csd.marketapi.abstraction.MarketClient;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,7 +9,7 @@ import java.util.List;
 /**
  * {@link MockClient} is used to Mock {@link MarketClient} for unit testing.
  */
-public class MockClient implements MarketClient {
+public class MockClient implements AsyncMarketClient {
 
   /**
    * This function gives a quote of the asset.
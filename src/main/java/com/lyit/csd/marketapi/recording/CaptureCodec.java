@@ -0,0 +1,211 @@
+package com.lyit.csd.marketapi.recording;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.TimeSeries;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes call results into capture payloads and decodes them again.
+ *
+ * <p>Payloads are big-endian, as written by {@link DataOutputStream} and read by
+ * {@link ByteBuffer}. Strings are a length, or -1 for null, followed by UTF-8 bytes. A list of
+ * quotes is a count followed by each quote; a null list has a count of -1. Decoding reads with
+ * absolute gets, straight from the mapped capture file, so that a shared buffer can be read by many
+ * threads at once.
+ */
+final class CaptureCodec {
+  private CaptureCodec() {
+  }
+
+  static byte[] encodeQuotes(List<AssetQuote> assetQuotes) {
+    return encode(output -> {
+      if (assetQuotes == null) {
+        output.writeInt(-1);
+        return;
+      }
+      output.writeInt(assetQuotes.size());
+      for (AssetQuote assetQuote : assetQuotes) {
+        writeString(output, assetQuote.getAssetSymbol());
+        writeString(output, assetQuote.getFullExchangeName());
+        writeString(output, assetQuote.getQuoteType());
+        output.writeLong(assetQuote.getTimeStamp());
+        output.writeDouble(assetQuote.getRegularMarketPrice());
+        output.writeDouble(assetQuote.getRegularMarketChangePercent());
+        output.writeDouble(assetQuote.getRegularMarketChange());
+        output.writeDouble(assetQuote.getRegularMarketPreviousClose());
+        output.writeDouble(assetQuote.getRegularMarketOpen());
+        int points = assetQuote.getHistorySize();
+        output.writeInt(points);
+        if (points > 0) {
+          TimeSeries history = assetQuote.getHistory();
+          for (int i = 0; i < points; i++) {
+            output.writeLong(history.getTimestamp(i));
+          }
+          for (int i = 0; i < points; i++) {
+            output.writeDouble(history.getClose(i));
+          }
+        }
+      }
+    });
+  }
+
+  static byte[] encodeStrings(List<String> values) {
+    return encode(output -> {
+      if (values == null) {
+        output.writeInt(-1);
+        return;
+      }
+      output.writeInt(values.size());
+      for (String value : values) {
+        writeString(output, value);
+      }
+    });
+  }
+
+  static byte[] encodeString(String value) {
+    return encode(output -> writeString(output, value));
+  }
+
+  static byte[] encodeBoolean(boolean value) {
+    return new byte[] {(byte) (value ? 1 : 0)};
+  }
+
+  /**
+   * Decodes a list of quotes.
+   *
+   * @param buffer the capture file.
+   * @param offset where the payload starts.
+   * @return the quotes, or null if a null list was recorded.
+   */
+  static List<AssetQuote> decodeQuotes(ByteBuffer buffer, int offset) {
+    int count = buffer.getInt(offset);
+    if (count < 0) {
+      return null;
+    }
+    List<AssetQuote> assetQuotes = new ArrayList<>(count);
+    int position = offset + Integer.BYTES;
+    for (int i = 0; i < count; i++) {
+      assetQuotes.add(decodeQuote(buffer, position));
+      position = skipQuote(buffer, position);
+    }
+    return assetQuotes;
+  }
+
+  /**
+   * Decodes one quote of a quote list.
+   *
+   * @param buffer the capture file.
+   * @param offset where the quote starts.
+   * @return the quote.
+   */
+  static AssetQuote decodeQuote(ByteBuffer buffer, int offset) {
+    int position = offset;
+    String assetSymbol = readString(buffer, position);
+    position = skipString(buffer, position);
+    String fullExchangeName = readString(buffer, position);
+    position = skipString(buffer, position);
+    String quoteType = readString(buffer, position);
+    position = skipString(buffer, position);
+
+    AssetQuote assetQuote = new AssetQuote(assetSymbol, fullExchangeName,
+        (int) buffer.getLong(position), buffer.getDouble(position + 8),
+        buffer.getDouble(position + 16), buffer.getDouble(position + 24), quoteType,
+        buffer.getDouble(position + 32), buffer.getDouble(position + 40));
+    position += 48;
+
+    int points = buffer.getInt(position);
+    position += Integer.BYTES;
+    if (points > 0) {
+      long[] timeStamps = new long[points];
+      double[] closingPrices = new double[points];
+      for (int i = 0; i < points; i++) {
+        timeStamps[i] = buffer.getLong(position + i * Long.BYTES);
+      }
+      position += points * Long.BYTES;
+      for (int i = 0; i < points; i++) {
+        closingPrices[i] = buffer.getDouble(position + i * Double.BYTES);
+      }
+      assetQuote.setHistory(TimeSeries.wrap(timeStamps, closingPrices, points));
+    }
+    return assetQuote;
+  }
+
+  /**
+   * Gets the offset just past a quote.
+   *
+   * @param buffer the capture file.
+   * @param offset where the quote starts.
+   * @return the offset of whatever follows the quote.
+   */
+  static int skipQuote(ByteBuffer buffer, int offset) {
+    int position = skipString(buffer, offset);
+    position = skipString(buffer, position);
+    position = skipString(buffer, position);
+    position += 48;
+    int points = buffer.getInt(position);
+    return position + Integer.BYTES + points * (Long.BYTES + Double.BYTES);
+  }
+
+  static ArrayList<String> decodeStrings(ByteBuffer buffer, int offset) {
+    int count = buffer.getInt(offset);
+    if (count < 0) {
+      return null;
+    }
+    ArrayList<String> values = new ArrayList<>(count);
+    int position = offset + Integer.BYTES;
+    for (int i = 0; i < count; i++) {
+      values.add(readString(buffer, position));
+      position = skipString(buffer, position);
+    }
+    return values;
+  }
+
+  static boolean decodeBoolean(ByteBuffer buffer, int offset) {
+    return buffer.get(offset) != 0;
+  }
+
+  static String readString(ByteBuffer buffer, int offset) {
+    int length = buffer.getInt(offset);
+    if (length < 0) {
+      return null;
+    }
+    return StandardCharsets.UTF_8.decode(buffer.slice(offset + Integer.BYTES, length)).toString();
+  }
+
+  static int skipString(ByteBuffer buffer, int offset) {
+    return offset + Integer.BYTES + Math.max(0, buffer.getInt(offset));
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    if (value == null) {
+      output.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] encode(PayloadWriter writer) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      writer.write(output);
+    } catch (IOException e) {
+      // Writing to memory does not fail.
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  @FunctionalInterface
+  private interface PayloadWriter {
+    void write(DataOutputStream output) throws IOException;
+  }
+}
@@ -0,0 +1,208 @@
+package com.lyit.csd.marketapi.recording;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * The layout of a capture file, with an append-only writer and a reader over the mapped file.
+ *
+ * <p>A capture file starts with an 8-byte magic number and is followed by records, each laid out
+ * as:
+ *
+ * <pre>
+ * int    length of the rest of the record
+ * byte   the {@link Call} recorded
+ * long   nanoseconds from the start of the recording to the call
+ * long   nanoseconds the call took
+ * int    key length, then the key as UTF-8 (the call's arguments)
+ * byte[] the payload, encoded by {@link CaptureCodec}
+ * </pre>
+ *
+ * <p>The writer maps the file in large regions and copies each record into the mapping, so an
+ * append is a memory copy rather than a system call. Mapping extends the file, so the end of the
+ * data is marked by a zero length; the file is trimmed to the data on close.
+ */
+final class CaptureFile {
+  static final long MAGIC = 0x4d4b544341503031L; // "MKTCAP01"
+  static final int HEADER_BYTES = Long.BYTES;
+  static final int RECORD_FIXED_BYTES = 1 + Long.BYTES + Long.BYTES + Integer.BYTES;
+
+  /**
+   * The calls that can be recorded.
+   */
+  enum Call {
+    Quote, Quotes, Trending, History, Exchange, CheckSymbol;
+
+    private static final Call[] VALUES = values();
+
+    static Call of(byte code) {
+      return VALUES[code];
+    }
+  }
+
+  private CaptureFile() {
+  }
+
+  /**
+   * Appends records to a capture file.
+   */
+  static class Writer implements AutoCloseable {
+    private static final int REGION_BYTES = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long startNanos = System.nanoTime();
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position;
+
+    /**
+     * Opens a capture file for appending, creating it if it does not exist.
+     *
+     * @param path the capture file.
+     * @throws IOException if the file cannot be opened or is not a capture file.
+     */
+    Writer(Path path) throws IOException {
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      if (channel.size() == 0) {
+        map(0, REGION_BYTES);
+        region.putLong(0, MAGIC);
+        position = HEADER_BYTES;
+      } else {
+        position = findEnd(channel);
+        map(position, REGION_BYTES);
+      }
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param call the call recorded.
+     * @param key the call's arguments.
+     * @param startedNanos when the call started, from {@link System#nanoTime()}.
+     * @param latencyNanos how long the call took.
+     * @param payload the encoded result.
+     * @throws IOException if the file cannot be extended.
+     */
+    synchronized void append(Call call, String key, long startedNanos, long latencyNanos,
+                             byte[] payload) throws IOException {
+      byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+      int length = RECORD_FIXED_BYTES + keyBytes.length + payload.length;
+      // Room for the record and the zero length that marks the end of the data.
+      long needed = Integer.BYTES + length + Integer.BYTES;
+      if (position + needed > regionStart + region.capacity()) {
+        map(position, Math.max(REGION_BYTES, needed));
+      }
+
+      int offset = (int) (position - regionStart);
+      ByteBuffer buffer = region.duplicate();
+      buffer.position(offset + Integer.BYTES);
+      buffer.put((byte) call.ordinal());
+      buffer.putLong(startedNanos - startNanos);
+      buffer.putLong(latencyNanos);
+      buffer.putInt(keyBytes.length);
+      buffer.put(keyBytes);
+      buffer.put(payload);
+      // The length goes in last, so a reader never sees a record that is only partly written.
+      region.putInt(offset, length);
+      position += Integer.BYTES + length;
+    }
+
+    /**
+     * Flushes the data to disk and trims the file to it.
+     *
+     * @throws IOException if the file cannot be flushed or trimmed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+      region.force();
+      channel.truncate(position);
+      channel.close();
+    }
+
+    private void map(long start, long size) throws IOException {
+      region = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+      regionStart = start;
+    }
+
+    /**
+     * Finds the end of the data in an existing file, which may have been left mapped past its end
+     * if the recording was not closed.
+     */
+    private static long findEnd(FileChannel channel) throws IOException {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      checkMagic(buffer);
+      int position = HEADER_BYTES;
+      while (position + Integer.BYTES <= buffer.limit()) {
+        int length = buffer.getInt(position);
+        if (length <= 0) {
+          break;
+        }
+        position += Integer.BYTES + length;
+      }
+      return position;
+    }
+  }
+
+  /**
+   * A record as seen by a reader. The payload is not copied out of the file; it is read where it
+   * lies in the mapped buffer.
+   */
+  record Entry(Call call, String key, long offsetNanos, long latencyNanos, int payloadOffset) {
+  }
+
+  /**
+   * Maps a whole capture file for reading.
+   *
+   * @param path the capture file.
+   * @return the read-only mapping.
+   * @throws IOException if the file cannot be read, is too large or is not a capture file.
+   */
+  static ByteBuffer map(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("Capture file is larger than 2GB: " + path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      checkMagic(buffer);
+      return buffer;
+    }
+  }
+
+  /**
+   * Reads each record in a mapped capture file, in the order they were written.
+   *
+   * @param buffer the mapped file.
+   * @param consumer receives each record.
+   */
+  static void forEach(ByteBuffer buffer, Consumer<Entry> consumer) {
+    int position = HEADER_BYTES;
+    while (position + Integer.BYTES <= buffer.limit()) {
+      int length = buffer.getInt(position);
+      if (length <= 0) {
+        break;
+      }
+      int field = position + Integer.BYTES;
+      Call call = Call.of(buffer.get(field));
+      long offsetNanos = buffer.getLong(field + 1);
+      long latencyNanos = buffer.getLong(field + 1 + Long.BYTES);
+      int keyLength = buffer.getInt(field + 1 + 2 * Long.BYTES);
+      int keyOffset = field + RECORD_FIXED_BYTES;
+      String key = StandardCharsets.UTF_8.decode(buffer.slice(keyOffset, keyLength)).toString();
+      consumer.accept(new Entry(call, key, offsetNanos, latencyNanos, keyOffset + keyLength));
+      position += Integer.BYTES + length;
+    }
+  }
+
+  private static void checkMagic(ByteBuffer buffer) throws IOException {
+    if (buffer.limit() < HEADER_BYTES || buffer.getLong(0) != MAGIC) {
+      throw new IOException("Not a market client capture file");
+    }
+  }
+}
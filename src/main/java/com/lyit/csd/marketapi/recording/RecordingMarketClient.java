@@ -0,0 +1,125 @@
+package com.lyit.csd.marketapi.recording;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.recording.CaptureFile.Call;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link RecordingMarketClient} wraps a {@link MarketClient}, typically the
+ * {@link com.lyit.csd.marketapi.yahoo.YahooClient}, and appends every call it makes, with its
+ * arguments, result and latency, to a capture file. The capture can later be served back by a
+ * {@link ReplayMarketClient}, so that tests run against real market data without the API.
+ *
+ * <p>The capture file is memory-mapped and only ever appended to. Close the client when the
+ * recording is finished so that the file is flushed and trimmed.
+ */
+public class RecordingMarketClient implements AsyncMarketClient, AutoCloseable {
+  private final MarketClient delegate;
+  private final Executor asyncExecutor;
+  private final CaptureFile.Writer writer;
+
+  /**
+   * Constructor for the {@link RecordingMarketClient} class.
+   *
+   * @param delegate the client that calls are sent to.
+   * @param captureFile the file to append the calls to. It is created if it does not exist.
+   * @throws IOException if the capture file cannot be opened.
+   */
+  public RecordingMarketClient(MarketClient delegate, Path captureFile) throws IOException {
+    this.delegate = delegate;
+    this.asyncExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+    this.writer = new CaptureFile.Writer(captureFile);
+  }
+
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    return record(Call.Quote, assetSymbol, () -> delegate.getQuote(assetSymbol),
+        assetQuote -> CaptureCodec.encodeQuotes(
+            assetQuote == null ? List.of() : List.of(assetQuote)));
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    return record(Call.Quotes, String.join(",", assetSymbols),
+        () -> delegate.getQuote(assetSymbols), CaptureCodec::encodeQuotes);
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return record(Call.Trending, region, () -> delegate.getTrendingStocksForRegion(region),
+        CaptureCodec::encodeStrings);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return record(Call.History, historyKey(assetSymbols, interval, range),
+        () -> delegate.getHistoricalInfo(assetSymbols, interval, range),
+        CaptureCodec::encodeQuotes);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return record(Call.Exchange, region + "|" + exchange,
+        () -> delegate.getExchangeInfo(region, exchange), CaptureCodec::encodeString);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return record(Call.CheckSymbol, assetSymbol, () -> delegate.checkAssetSymbol(assetSymbol),
+        CaptureCodec::encodeBoolean);
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Flushes the capture file to disk and trims it to the recorded data.
+   *
+   * @throws IOException if the capture file cannot be flushed or trimmed.
+   */
+  @Override
+  public void close() throws IOException {
+    writer.close();
+  }
+
+  /**
+   * Builds the key a historical info call is recorded under.
+   */
+  static String historyKey(List<String> assetSymbols, String interval, String range) {
+    return String.join(",", assetSymbols) + "|" + interval + "|" + range;
+  }
+
+  /**
+   * Makes the call and appends it to the capture file. Calls that throw are not recorded.
+   *
+   * @param call the call being made.
+   * @param key the call's arguments.
+   * @param request the call to the wrapped client.
+   * @param encoder encodes the result.
+   * @param <T> the type of the result.
+   * @return the result.
+   */
+  private <T> T record(Call call, String key, Supplier<T> request, Function<T, byte[]> encoder) {
+    long start = System.nanoTime();
+    T result = request.get();
+    long latency = System.nanoTime() - start;
+    try {
+      writer.append(call, key, start, latency, encoder.apply(result));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,247 @@
+package com.lyit.csd.marketapi.recording;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.recording.CaptureFile.Call;
+import com.lyit.csd.marketapi.recording.CaptureFile.Entry;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ReplayMarketClient} serves the calls captured by a {@link RecordingMarketClient}.
+ *
+ * <p>The capture file is memory-mapped once and indexed when the client is created. Results are
+ * decoded straight from the mapping each time they are served, so the recorded data is never
+ * copied onto the heap as a whole. A call made with the same arguments as a recorded call gets
+ * the recorded results, in the order they were recorded, starting again from the first once they
+ * run out. Quote and history lookups for a set of symbols that was never recorded together are
+ * answered symbol by symbol from the latest result recorded for each.
+ */
+public class ReplayMarketClient implements AsyncMarketClient {
+
+  /**
+   * How quickly recorded results are served.
+   */
+  public enum ReplaySpeed {
+    /**
+     * Each call takes as long as it did when it was recorded.
+     */
+    Recorded,
+    /**
+     * Each call is answered as soon as its result is decoded.
+     */
+    AsFastAsPossible
+  }
+
+  private final ByteBuffer buffer;
+  private final ReplaySpeed speed;
+  private final Map<String, Recordings> recordings = new HashMap<>();
+  private final Map<String, Recording> latestQuotes = new HashMap<>();
+  private final Map<String, Recording> latestHistories = new HashMap<>();
+  private final AtomicLong replayCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link ReplayMarketClient} class.
+   *
+   * @param captureFile a file written by a {@link RecordingMarketClient}.
+   * @param speed how quickly recorded results are served.
+   * @throws IOException if the capture file cannot be read.
+   */
+  public ReplayMarketClient(Path captureFile, ReplaySpeed speed) throws IOException {
+    this.buffer = CaptureFile.map(captureFile);
+    this.speed = speed;
+    CaptureFile.forEach(buffer, this::index);
+  }
+
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    Recording recording = next(Call.Quote, assetSymbol);
+    if (recording == null) {
+      List<AssetQuote> assetQuotes = fromLatest(latestQuotes, List.of(assetSymbol), "");
+      return assetQuotes.isEmpty() ? null : assetQuotes.get(0);
+    }
+    List<AssetQuote> assetQuotes = CaptureCodec.decodeQuotes(buffer, recording.offset);
+    return assetQuotes == null || assetQuotes.isEmpty() ? null : assetQuotes.get(0);
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    Recording recording = next(Call.Quotes, String.join(",", assetSymbols));
+    if (recording == null) {
+      return fromLatest(latestQuotes, assetSymbols, "");
+    }
+    return CaptureCodec.decodeQuotes(buffer, recording.offset);
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    Recording recording = next(Call.Trending, region);
+    return recording == null ? new ArrayList<>()
+        : CaptureCodec.decodeStrings(buffer, recording.offset);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    Recording recording = next(Call.History,
+        RecordingMarketClient.historyKey(assetSymbols, interval, range));
+    if (recording == null) {
+      return fromLatest(latestHistories, assetSymbols, "|" + interval + "|" + range);
+    }
+    return CaptureCodec.decodeQuotes(buffer, recording.offset);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    Recording recording = next(Call.Exchange, region + "|" + exchange);
+    return recording == null ? null : CaptureCodec.readString(buffer, recording.offset);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    Recording recording = next(Call.CheckSymbol, assetSymbol);
+    if (recording == null) {
+      return getQuote(assetSymbol) != null;
+    }
+    return CaptureCodec.decodeBoolean(buffer, recording.offset);
+  }
+
+  /**
+   * Gets the number of calls answered from the capture.
+   *
+   * @return the replayed call count.
+   */
+  public long getReplayCount() {
+    return replayCount.get();
+  }
+
+  /**
+   * Gets the number of calls made with arguments that were never recorded.
+   *
+   * @return the missed call count.
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /**
+   * Adds a record to the indexes.
+   *
+   * @param entry the record.
+   */
+  private void index(Entry entry) {
+    Recording recording = new Recording(entry.payloadOffset(), entry.latencyNanos());
+    recordings.computeIfAbsent(entry.call() + ":" + entry.key(), key -> new Recordings())
+        .add(recording);
+
+    Map<String, Recording> latest;
+    String suffix;
+    switch (entry.call()) {
+      case Quote, Quotes -> {
+        latest = latestQuotes;
+        suffix = "";
+      }
+      case History -> {
+        latest = latestHistories;
+        String key = entry.key();
+        int separator = key.lastIndexOf('|', key.lastIndexOf('|') - 1);
+        suffix = key.substring(separator);
+      }
+      default -> {
+        return;
+      }
+    }
+    int count = buffer.getInt(entry.payloadOffset());
+    int position = entry.payloadOffset() + Integer.BYTES;
+    for (int i = 0; i < count; i++) {
+      String assetSymbol = CaptureCodec.readString(buffer, position);
+      latest.put(assetSymbol + suffix, new Recording(position, entry.latencyNanos()));
+      position = CaptureCodec.skipQuote(buffer, position);
+    }
+  }
+
+  /**
+   * Gets the next recorded result for a call, waiting out its recorded latency if replaying at
+   * recorded speed.
+   *
+   * @param call the call.
+   * @param key the call's arguments.
+   * @return the recording, or null if the call was never recorded.
+   */
+  private Recording next(Call call, String key) {
+    Recordings candidates = recordings.get(call + ":" + key);
+    if (candidates == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    replayCount.incrementAndGet();
+    Recording recording = candidates.next();
+    pause(recording.latencyNanos);
+    return recording;
+  }
+
+  /**
+   * Answers a lookup symbol by symbol from the latest quote recorded for each.
+   *
+   * @param latest the latest recorded quote offsets, keyed by symbol and suffix.
+   * @param assetSymbols the symbols to look up.
+   * @param suffix added to each symbol to form its key.
+   * @return the quotes found, in the order the symbols were given.
+   */
+  private List<AssetQuote> fromLatest(Map<String, Recording> latest, List<String> assetSymbols,
+                                      String suffix) {
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    long latencyNanos = 0;
+    for (String assetSymbol : assetSymbols) {
+      Recording recording = latest.get(assetSymbol + suffix);
+      if (recording != null) {
+        assetQuotes.add(CaptureCodec.decodeQuote(buffer, recording.offset));
+        latencyNanos = Math.max(latencyNanos, recording.latencyNanos);
+      }
+    }
+    pause(latencyNanos);
+    return assetQuotes;
+  }
+
+  private void pause(long latencyNanos) {
+    if (speed != ReplaySpeed.Recorded || latencyNanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(latencyNanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Where a recorded result starts in the capture file, and how long it took to get.
+   */
+  private record Recording(int offset, long latencyNanos) {
+  }
+
+  /**
+   * The results recorded for one call, served in turn.
+   */
+  private static class Recordings {
+    private final List<Recording> recordings = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    void add(Recording recording) {
+      recordings.add(recording);
+    }
+
+    Recording next() {
+      return recordings.get(Math.floorMod(next.getAndIncrement(), recordings.size()));
+    }
+  }
+}
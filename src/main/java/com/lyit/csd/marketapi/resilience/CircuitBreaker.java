@@ -0,0 +1,178 @@
+package com.lyit.csd.marketapi.resilience;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * {@link CircuitBreaker} stops calls to a failing service so that callers fail fast instead of
+ * waiting on it.
+ *
+ * <p>The breaker records the outcome of the most recent calls. While closed, every call is
+ * allowed. Once enough calls have been recorded and the share that failed reaches the threshold,
+ * the breaker opens and refuses every call. After the open duration it lets a single trial call
+ * through (half-open): if the trial succeeds the breaker closes again, otherwise it re-opens.
+ */
+public class CircuitBreaker {
+  private static final int DEFAULT_WINDOW_SIZE = 20;
+  private static final int DEFAULT_MINIMUM_CALLS = 10;
+  private static final double DEFAULT_FAILURE_RATE_THRESHOLD = 0.5;
+  private static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+  /**
+   * The states a {@link CircuitBreaker} can be in.
+   */
+  public enum State {
+    /**
+     * Calls are allowed and their outcomes recorded.
+     */
+    Closed,
+    /**
+     * Calls are refused.
+     */
+    Open,
+    /**
+     * A single trial call is allowed to find out whether the service has recovered.
+     */
+    HalfOpen
+  }
+
+  private final boolean[] outcomes;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long openDurationMillis;
+  private final Clock clock;
+
+  private State state = State.Closed;
+  private int recordedCalls;
+  private int nextOutcome;
+  private int failedCalls;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  /**
+   * Constructor for the {@link CircuitBreaker} class using the default thresholds.
+   */
+  public CircuitBreaker() {
+    this(DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_CALLS, DEFAULT_FAILURE_RATE_THRESHOLD,
+        DEFAULT_OPEN_DURATION, Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link CircuitBreaker} class.
+   *
+   * @param windowSize the number of recent calls the failure rate is worked out over.
+   * @param minimumCalls the number of calls that must be recorded before the breaker can open.
+   * @param failureRateThreshold the share of failed calls, between 0 and 1, that opens the breaker.
+   * @param openDuration how long the breaker stays open before allowing a trial call.
+   * @param clock the clock used to time the open duration.
+   */
+  public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                        Duration openDuration, Clock clock) {
+    if (windowSize <= 0 || minimumCalls > windowSize) {
+      throw new IllegalArgumentException("minimumCalls must fit within a positive windowSize");
+    }
+    this.outcomes = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.openDurationMillis = openDuration.toMillis();
+    this.clock = clock;
+  }
+
+  /**
+   * Checks whether a call may be made now. A caller that is allowed through must record the
+   * outcome of its call.
+   *
+   * @return a boolean indicating whether the call may be made.
+   */
+  public synchronized boolean allowRequest() {
+    switch (state) {
+      case Closed:
+        return true;
+      case Open:
+        if (clock.millis() - openedAt < openDurationMillis) {
+          return false;
+        }
+        state = State.HalfOpen;
+        trialInFlight = true;
+        return true;
+      default:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+  }
+
+  /**
+   * Records a call that succeeded.
+   */
+  public synchronized void recordSuccess() {
+    if (state == State.HalfOpen) {
+      trialInFlight = false;
+      close();
+      return;
+    }
+    record(false);
+  }
+
+  /**
+   * Records a call that failed or was too slow.
+   */
+  public synchronized void recordFailure() {
+    if (state == State.HalfOpen) {
+      trialInFlight = false;
+      open();
+      return;
+    }
+    record(true);
+    if (state == State.Closed && recordedCalls >= minimumCalls
+        && (double) failedCalls / recordedCalls >= failureRateThreshold) {
+      open();
+    }
+  }
+
+  /**
+   * Gets the current state of the breaker.
+   *
+   * @return the {@link State}.
+   */
+  public synchronized State getState() {
+    if (state == State.Open && clock.millis() - openedAt >= openDurationMillis) {
+      return State.HalfOpen;
+    }
+    return state;
+  }
+
+  /**
+   * Adds an outcome to the window, replacing the oldest once the window is full.
+   *
+   * @param failed whether the call failed.
+   */
+  private void record(boolean failed) {
+    if (recordedCalls == outcomes.length) {
+      if (outcomes[nextOutcome]) {
+        failedCalls--;
+      }
+    } else {
+      recordedCalls++;
+    }
+    outcomes[nextOutcome] = failed;
+    if (failed) {
+      failedCalls++;
+    }
+    nextOutcome = (nextOutcome + 1) % outcomes.length;
+  }
+
+  private void open() {
+    state = State.Open;
+    openedAt = clock.millis();
+  }
+
+  private void close() {
+    state = State.Closed;
+    recordedCalls = 0;
+    nextOutcome = 0;
+    failedCalls = 0;
+  }
+}
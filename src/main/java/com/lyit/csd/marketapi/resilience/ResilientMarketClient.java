@@ -0,0 +1,389 @@
+package com.lyit.csd.marketapi.resilience;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * {@link ResilientMarketClient} wraps any {@link MarketClient} with a {@link CircuitBreaker} and
+ * hedged quote requests.
+ *
+ * <p>Every call is guarded by the breaker. A call that throws, takes longer than the slow call
+ * threshold, or gives no answer to a non-empty request counts as a failure; the Yahoo client
+ * reports an unreachable or refusing API by returning null or an empty list rather than by
+ * throwing. A failed call, or any call while the breaker is open, is answered with the last
+ * quote seen for each symbol, or with an empty result for calls other than quote lookups. While
+ * the breaker is open, calls are not sent at all.
+ *
+ * <p>The last quote seen is kept for a bounded number of symbols, evicting the least recently
+ * used first.
+ *
+ * <p>Quote lookups are hedged: if no answer has arrived by the 95th percentile of recent request
+ * latencies, the same request is sent again and whichever answer arrives first is used.
+ */
+public class ResilientMarketClient implements AsyncMarketClient {
+  private static final Duration DEFAULT_MIN_HEDGE_DELAY = Duration.ofMillis(50);
+  private static final Duration DEFAULT_SLOW_CALL_THRESHOLD = Duration.ofSeconds(2);
+  private static final int MAX_LAST_KNOWN_QUOTES = 1024;
+
+  /**
+   * Delay used before enough latencies have been recorded to work out a percentile.
+   */
+  private static final Duration INITIAL_HEDGE_DELAY = Duration.ofMillis(500);
+
+  private final MarketClient delegate;
+  private final Executor asyncExecutor;
+  private final CircuitBreaker circuitBreaker;
+  private final long minHedgeDelayNanos;
+  private final long slowCallThresholdNanos;
+  private final LatencyWindow latencies = new LatencyWindow(128);
+  private final Map<String, AssetQuote> lastKnownQuotes =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AssetQuote> eldest) {
+          return size() > MAX_LAST_KNOWN_QUOTES;
+        }
+      };
+  private final AtomicLong hedgeCount = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link ResilientMarketClient} class using the default breaker and delays.
+   *
+   * @param delegate the client that requests are sent to.
+   */
+  public ResilientMarketClient(MarketClient delegate) {
+    this(delegate, new CircuitBreaker(), DEFAULT_MIN_HEDGE_DELAY, DEFAULT_SLOW_CALL_THRESHOLD);
+  }
+
+  /**
+   * Constructor for the {@link ResilientMarketClient} class.
+   *
+   * @param delegate the client that requests are sent to.
+   * @param circuitBreaker the breaker guarding the wrapped client.
+   * @param minHedgeDelay the shortest wait before a quote request is hedged.
+   * @param slowCallThreshold calls taking longer than this count as failures. It is also the
+   *                          longest wait before a quote request is hedged.
+   */
+  public ResilientMarketClient(MarketClient delegate, CircuitBreaker circuitBreaker,
+                               Duration minHedgeDelay, Duration slowCallThreshold) {
+    this.delegate = delegate;
+    this.asyncExecutor = AsyncMarketClient.of(delegate).getAsyncExecutor();
+    this.circuitBreaker = circuitBreaker;
+    this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+    this.slowCallThresholdNanos = slowCallThreshold.toNanos();
+  }
+
+  /**
+   * Gets a quote, hedging the request if it is slow.
+   *
+   * @param assetSymbol is the asset symbol to get a quote for.
+   * @return an {@link AssetQuote}, or the last quote seen for the symbol if the wrapped client is
+   *     failing.
+   */
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    return call(() -> delegate.getQuote(assetSymbol), Objects::isNull,
+        () -> getLastKnownQuote(assetSymbol), this::putLastKnownQuote, true);
+  }
+
+  /**
+   * Gets quotes, hedging the request if it is slow.
+   *
+   * @param assetSymbols is a list of asset symbols to get quotes for.
+   * @return a list of {@link AssetQuote}, or the last quotes seen for the symbols if the wrapped
+   *     client is failing.
+   */
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    return call(() -> delegate.getQuote(assetSymbols), noAnswerTo(assetSymbols),
+        () -> getLastKnownQuotes(assetSymbols), this::putLastKnownQuotes, true);
+  }
+
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    return call(() -> delegate.getTrendingStocksForRegion(region),
+        trending -> trending == null || trending.isEmpty(), ArrayList::new, trending -> { },
+        false);
+  }
+
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    return call(() -> delegate.getHistoricalInfo(assetSymbols, interval, range),
+        noAnswerTo(assetSymbols), ArrayList::new, history -> { }, false);
+  }
+
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    return call(() -> delegate.getExchangeInfo(region, exchange), Objects::isNull, () -> null,
+        info -> { }, false);
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return getQuote(assetSymbol) != null;
+  }
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * Gets the circuit breaker guarding the wrapped client.
+   *
+   * @return the {@link CircuitBreaker}.
+   */
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  /**
+   * Gets the number of hedge requests sent.
+   *
+   * @return the hedge count.
+   */
+  public long getHedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /**
+   * Gets the number of calls answered without reaching the wrapped client because the breaker was
+   * open.
+   *
+   * @return the rejected call count.
+   */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+
+  /**
+   * Makes a call through the circuit breaker, answering with the fallback if the breaker is open
+   * or the call fails.
+   *
+   * @param request the call to the wrapped client.
+   * @param noAnswer tells whether an answer means the wrapped client could not be reached.
+   * @param fallback the answer to give when the wrapped client cannot be used.
+   * @param onAnswer is given every answer from the wrapped client that is used.
+   * @param hedge whether the call may be hedged.
+   * @param <T> the type of the answer.
+   * @return the answer.
+   */
+  private <T> T call(Supplier<T> request, Predicate<T> noAnswer, Supplier<T> fallback,
+                     Consumer<T> onAnswer, boolean hedge) {
+    if (!circuitBreaker.allowRequest()) {
+      rejectedCount.incrementAndGet();
+      return fallback.get();
+    }
+
+    long start = System.nanoTime();
+    T result;
+    try {
+      result = hedge ? hedged(request) : timed(request).get();
+    } catch (RuntimeException e) {
+      circuitBreaker.recordFailure();
+      return fallback.get();
+    }
+    if (noAnswer.test(result)) {
+      circuitBreaker.recordFailure();
+      return fallback.get();
+    }
+    if (System.nanoTime() - start > slowCallThresholdNanos) {
+      circuitBreaker.recordFailure();
+    } else {
+      circuitBreaker.recordSuccess();
+    }
+    onAnswer.accept(result);
+    return result;
+  }
+
+  /**
+   * Sends the request and, if it has not answered within the hedge delay, sends it again. The first
+   * answer to arrive is returned; an exception is only thrown if both requests fail.
+   *
+   * @param request the call to the wrapped client.
+   * @param <T> the type of the answer.
+   * @return the first answer.
+   */
+  private <T> T hedged(Supplier<T> request) {
+    CompletableFuture<T> primary = CompletableFuture.supplyAsync(timed(request), asyncExecutor);
+    try {
+      return primary.get(hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      // Slower than usual, hedge below.
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+
+    hedgeCount.incrementAndGet();
+    CompletableFuture<T> secondary = CompletableFuture.supplyAsync(timed(request), asyncExecutor);
+    CompletableFuture<T> first = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    BiConsumer<T, Throwable> onComplete = (result, failure) -> {
+      if (failure == null) {
+        first.complete(result);
+      } else if (failures.incrementAndGet() == 2) {
+        first.completeExceptionally(failure);
+      }
+    };
+    primary.whenComplete(onComplete);
+    secondary.whenComplete(onComplete);
+
+    try {
+      return first.join();
+    } catch (CompletionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  /**
+   * Wraps a request so that its latency is recorded.
+   *
+   * @param request the call to the wrapped client.
+   * @param <T> the type of the answer.
+   * @return the timed request.
+   */
+  private <T> Supplier<T> timed(Supplier<T> request) {
+    return () -> {
+      long start = System.nanoTime();
+      try {
+        return request.get();
+      } finally {
+        latencies.record(System.nanoTime() - start);
+      }
+    };
+  }
+
+  /**
+   * Works out how long to wait before hedging: the 95th percentile of recent latencies, kept
+   * between the minimum hedge delay and the slow call threshold.
+   *
+   * @return the delay in nanoseconds.
+   */
+  private long hedgeDelayNanos() {
+    long p95 = latencies.percentile(0.95);
+    if (p95 < 0) {
+      p95 = INITIAL_HEDGE_DELAY.toNanos();
+    }
+    return Math.min(slowCallThresholdNanos, Math.max(minHedgeDelayNanos, p95));
+  }
+
+  private static <T> Predicate<List<T>> noAnswerTo(List<String> assetSymbols) {
+    return answer -> answer == null || (answer.isEmpty() && !assetSymbols.isEmpty());
+  }
+
+  private AssetQuote getLastKnownQuote(String assetSymbol) {
+    synchronized (lastKnownQuotes) {
+      return lastKnownQuotes.get(normalise(assetSymbol));
+    }
+  }
+
+  private List<AssetQuote> getLastKnownQuotes(List<String> assetSymbols) {
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    synchronized (lastKnownQuotes) {
+      for (String assetSymbol : assetSymbols) {
+        AssetQuote assetQuote = lastKnownQuotes.get(normalise(assetSymbol));
+        if (assetQuote != null) {
+          assetQuotes.add(assetQuote);
+        }
+      }
+    }
+    return assetQuotes;
+  }
+
+  private void putLastKnownQuote(AssetQuote assetQuote) {
+    synchronized (lastKnownQuotes) {
+      lastKnownQuotes.put(normalise(assetQuote.getAssetSymbol()), assetQuote);
+    }
+  }
+
+  private void putLastKnownQuotes(List<AssetQuote> assetQuotes) {
+    synchronized (lastKnownQuotes) {
+      for (AssetQuote assetQuote : assetQuotes) {
+        lastKnownQuotes.put(normalise(assetQuote.getAssetSymbol()), assetQuote);
+      }
+    }
+  }
+
+  private static String normalise(String assetSymbol) {
+    return assetSymbol.trim().toUpperCase(Locale.ROOT);
+  }
+
+  private static RuntimeException unwrap(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    return new CompletionException(cause);
+  }
+
+  /**
+   * The most recent request latencies, with the percentile worked out again every few samples
+   * rather than on every call.
+   */
+  private static class LatencyWindow {
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECALCULATE_EVERY = 16;
+
+    private final long[] samples;
+    private int count;
+    private int next;
+    private int sinceRecalculated;
+    private double cachedQuantile = -1;
+    private long cachedPercentile = -1;
+
+    LatencyWindow(int size) {
+      this.samples = new long[size];
+    }
+
+    synchronized void record(long nanos) {
+      samples[next] = nanos;
+      next = (next + 1) % samples.length;
+      count = Math.min(count + 1, samples.length);
+      sinceRecalculated++;
+    }
+
+    /**
+     * Gets a percentile of the recorded latencies.
+     *
+     * @param quantile the quantile, between 0 and 1.
+     * @return the latency in nanoseconds, or -1 if too few have been recorded.
+     */
+    synchronized long percentile(double quantile) {
+      if (count < MIN_SAMPLES) {
+        return -1;
+      }
+      if (quantile != cachedQuantile || sinceRecalculated >= RECALCULATE_EVERY) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        cachedPercentile = sorted[Math.min(count - 1, (int) Math.ceil(quantile * count) - 1)];
+        cachedQuantile = quantile;
+        sinceRecalculated = 0;
+      }
+      return cachedPercentile;
+    }
+  }
+}
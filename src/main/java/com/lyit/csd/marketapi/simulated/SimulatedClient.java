@@ -0,0 +1,384 @@
+package com.lyit.csd.marketapi.simulated;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.TimeSeries;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketPeriods;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * {@link SimulatedClient} is a synthetic market of many thousands of symbols, for benchmarks and
+ * soak tests that need realistic, repeatable prices without the Yahoo Finance API.
+ *
+ * <p>Every symbol's price follows geometric Brownian motion, with a starting price, drift and
+ * volatility drawn for it from the seed. The market runs on a {@link Clock}, normally a
+ * {@link SimulatedClock}, and prices move every simulated second.
+ *
+ * <p>The Brownian path is built with Levy's midpoint construction over a fixed horizon of 2^32
+ * seconds: the value at any second is found by halving the horizon 32 times, drawing each midpoint
+ * from a hash of the seed, the symbol and the midpoint. So any price, past or present, is worked
+ * out in constant time without storing a path, and it is always the same however and in whatever
+ * order it is asked for. Quotes, histories and trending lists therefore agree with each other, and
+ * two clients built with the same seed and clock give the same answers.
+ */
+public class SimulatedClient implements AsyncMarketClient {
+  private static final long DEFAULT_SEED = 42;
+  private static final int DEFAULT_SYMBOL_COUNT = 20_000;
+  private static final Instant DEFAULT_START = Instant.parse("2022-01-03T14:30:00Z");
+  private static final double DEFAULT_SPEED = 60;
+  private static final int TRENDING_SIZE = 20;
+  private static final int MAX_HISTORY_POINTS = 10_000;
+  private static final long SECONDS_PER_DAY = 86_400;
+  private static final double YEARS_PER_SECOND = 1 / (365.25 * SECONDS_PER_DAY);
+
+  /**
+   * The simulated second that each path is anchored at, so that a symbol's price at this second is
+   * its starting price.
+   */
+  private static final long ORIGIN_EPOCH_SECOND = Instant.parse("2022-01-03T00:00:00Z")
+      .getEpochSecond();
+  private static final int HORIZON_BITS = 32;
+  private static final long HORIZON = 1L << HORIZON_BITS;
+  private static final long HALF_HORIZON = HORIZON >>> 1;
+
+  private static final String[] WELL_KNOWN_SYMBOLS = {
+      "AAPL", "TSLA", "NVDA", "MSFT", "AMZN", "META", "GOOGL", "AMD", "NFLX", "INTC",
+      "JPM", "V", "DIS", "BA", "NIO", "PLTR", "F", "GME", "KO", "PEP"
+  };
+
+  private final long seed;
+  private final Clock clock;
+  private final String[] symbols;
+  private final Map<String, Integer> symbolIndex;
+  private final double[] startLogPrice;
+  private final double[] logDriftPerSecond;
+  private final double[] volatilityPerSecond;
+  private final double[] originBrownian;
+  private volatile Trending trending;
+
+  /**
+   * Constructor for the {@link SimulatedClient} class, with the default seed and symbol count, on
+   * a market that runs sixty times faster than real time.
+   */
+  public SimulatedClient() {
+    this(DEFAULT_SEED, DEFAULT_SYMBOL_COUNT, new SimulatedClock(DEFAULT_START, DEFAULT_SPEED));
+  }
+
+  /**
+   * Constructor for the {@link SimulatedClient} class.
+   *
+   * @param seed the seed every price is derived from.
+   * @param symbolCount the number of symbols in the market.
+   * @param clock the clock the market runs on.
+   */
+  public SimulatedClient(long seed, int symbolCount, Clock clock) {
+    if (symbolCount <= 0) {
+      throw new IllegalArgumentException("symbolCount must be positive");
+    }
+    this.seed = seed;
+    this.clock = clock;
+    this.symbols = generateSymbols(symbolCount);
+    this.symbolIndex = new HashMap<>(symbolCount * 2);
+    this.startLogPrice = new double[symbolCount];
+    this.logDriftPerSecond = new double[symbolCount];
+    this.volatilityPerSecond = new double[symbolCount];
+    this.originBrownian = new double[symbolCount];
+
+    for (int i = 0; i < symbolCount; i++) {
+      symbolIndex.put(symbols[i], i);
+      SplittableRandom random = new SplittableRandom(mix(seed, i, -1));
+      // Prices from 10 to 500, annual drift from -5% to 15%, annual volatility from 15% to 80%.
+      double startPrice = 10 * Math.exp(random.nextDouble() * Math.log(50));
+      double drift = -0.05 + random.nextDouble() * 0.2;
+      double volatility = 0.15 + random.nextDouble() * 0.65;
+      startLogPrice[i] = Math.log(startPrice);
+      logDriftPerSecond[i] = (drift - volatility * volatility / 2) * YEARS_PER_SECOND;
+      volatilityPerSecond[i] = volatility * Math.sqrt(YEARS_PER_SECOND);
+      originBrownian[i] = brownian(i, HALF_HORIZON);
+    }
+  }
+
+  /**
+   * Gets the quote of a symbol at the current simulated time.
+   *
+   * @param assetSymbol is the asset symbol to get a quote for.
+   * @return an {@link AssetQuote}, or null if the symbol is not in the market.
+   */
+  @Override
+  public AssetQuote getQuote(String assetSymbol) {
+    Integer index = indexOf(assetSymbol);
+    if (index == null) {
+      return null;
+    }
+    return quote(index, symbols[index], "Simulated " + symbols[index], now());
+  }
+
+  @Override
+  public List<AssetQuote> getQuote(List<String> assetSymbols) {
+    long now = now();
+    List<AssetQuote> assetQuotes = new ArrayList<>(assetSymbols.size());
+    for (String assetSymbol : assetSymbols) {
+      Integer index = indexOf(assetSymbol);
+      if (index != null) {
+        assetQuotes.add(quote(index, symbols[index], "Simulated " + symbols[index], now));
+      }
+    }
+    return assetQuotes;
+  }
+
+  /**
+   * Gets the symbols that have moved most, up or down, since the previous close. The list is
+   * worked out again once per simulated minute and is the same for every region.
+   *
+   * @param region the region; every region shares one market.
+   * @return the trending symbols, biggest movers first.
+   */
+  @Override
+  public ArrayList<String> getTrendingStocksForRegion(String region) {
+    long minute = Math.floorDiv(now(), 60);
+    Trending current = trending;
+    if (current == null || current.minute != minute) {
+      current = new Trending(minute, topMovers(minute * 60));
+      trending = current;
+    }
+    return new ArrayList<>(current.assetSymbols);
+  }
+
+  /**
+   * Gets the closing prices of each symbol over the range, one per interval, ending at the
+   * current simulated time.
+   *
+   * @param assetSymbols list of asset symbols.
+   * @param interval the time between points, such as <code>5m</code> or <code>1d</code>.
+   * @param range how far back to go, such as <code>5d</code>, <code>1y</code>, <code>ytd</code>
+   *              or <code>max</code>; at most a fixed number of points are returned.
+   * @return the history of each symbol in the market, in the order the symbols were given.
+   */
+  @Override
+  public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                            String range) {
+    long now = now();
+    long intervalSeconds = MarketPeriods.intervalSeconds(interval);
+    int points = (int) Math.min(MAX_HISTORY_POINTS,
+        Math.max(1, MarketPeriods.rangeSeconds(range, now) / intervalSeconds));
+    long last = now - Math.floorMod(now, intervalSeconds);
+
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+    for (String assetSymbol : new LinkedHashSet<>(assetSymbols)) {
+      Integer index = indexOf(assetSymbol);
+      if (index == null) {
+        continue;
+      }
+      long[] timeStamps = new long[points];
+      double[] closingPrices = new double[points];
+      for (int i = 0; i < points; i++) {
+        timeStamps[i] = last - (points - 1 - i) * intervalSeconds;
+        closingPrices[i] = round(price(index, timeStamps[i]));
+      }
+      AssetQuote assetQuote = new AssetQuote(symbols[index]);
+      assetQuote.setHistory(TimeSeries.wrap(timeStamps, closingPrices, points));
+      assetQuotes.add(assetQuote);
+    }
+    return assetQuotes;
+  }
+
+  /**
+   * Gets a summary of an exchange. Exchanges are priced like symbols, by borrowing the path of a
+   * symbol chosen from the exchange's name.
+   *
+   * @param region the region the exchange is in.
+   * @param exchange the exchange.
+   * @return the exchange summary.
+   */
+  @Override
+  public String getExchangeInfo(String region, String exchange) {
+    int index = Math.floorMod(exchange.hashCode(), symbols.length);
+    return quote(index, exchange, "Simulated " + region + " Exchange", now()).exchangeToString();
+  }
+
+  @Override
+  public boolean checkAssetSymbol(String assetSymbol) {
+    return indexOf(assetSymbol) != null;
+  }
+
+  @Override
+  public BitSet checkAssetSymbols(List<String> assetSymbols) {
+    BitSet valid = new BitSet(assetSymbols.size());
+    for (int i = 0; i < assetSymbols.size(); i++) {
+      if (indexOf(assetSymbols.get(i)) != null) {
+        valid.set(i);
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Gets every symbol in the market.
+   *
+   * @return the symbols, well-known symbols first.
+   */
+  public List<String> getSymbols() {
+    return List.of(symbols);
+  }
+
+  /**
+   * Gets the price of a symbol at a simulated time.
+   *
+   * @param assetSymbol the symbol.
+   * @param time the simulated time.
+   * @return the price, or NaN if the symbol is not in the market.
+   */
+  public double getPrice(String assetSymbol, Instant time) {
+    Integer index = indexOf(assetSymbol);
+    return index == null ? Double.NaN : round(price(index, time.getEpochSecond()));
+  }
+
+  private long now() {
+    return clock.instant().getEpochSecond();
+  }
+
+  private Integer indexOf(String assetSymbol) {
+    if (assetSymbol == null) {
+      return null;
+    }
+    Integer index = symbolIndex.get(assetSymbol);
+    return index != null ? index : symbolIndex.get(assetSymbol.toUpperCase(Locale.ROOT));
+  }
+
+  private AssetQuote quote(int index, String assetSymbol, String name, long now) {
+    long dayStart = now - Math.floorMod(now, SECONDS_PER_DAY);
+    double price = round(price(index, now));
+    double open = round(price(index, dayStart));
+    double previousClose = round(price(index, dayStart - 1));
+    double change = round(price - previousClose);
+    double changePercent = round(change / previousClose * 100);
+    return new AssetQuote(assetSymbol, name, (int) now, price, changePercent, change, "EQUITY",
+        previousClose, open);
+  }
+
+  /**
+   * Works out a symbol's price at a simulated second: S(t) = S(0) exp((mu - sigma^2 / 2) t +
+   * sigma W(t)).
+   */
+  private double price(int index, long epochSecond) {
+    long tick = epochSecond - ORIGIN_EPOCH_SECOND;
+    long position = Math.max(0, Math.min(HORIZON, tick + HALF_HORIZON));
+    double brownian = brownian(index, position) - originBrownian[index];
+    return Math.exp(startLogPrice[index] + logDriftPerSecond[index] * tick
+        + volatilityPerSecond[index] * brownian);
+  }
+
+  /**
+   * Finds the value of a symbol's standard Brownian path at a position in the horizon, by
+   * repeatedly drawing the midpoint of the interval that contains it. Given its ends, the midpoint
+   * of an interval of length n is normally distributed around their mean with variance n / 4.
+   */
+  private double brownian(int index, long position) {
+    long low = 0;
+    long high = HORIZON;
+    double lowValue = 0;
+    double highValue = Math.sqrt(HORIZON) * gaussian(index, HORIZON);
+    while (true) {
+      if (position == low) {
+        return lowValue;
+      }
+      if (position == high) {
+        return highValue;
+      }
+      long middle = (low + high) >>> 1;
+      double middleValue = (lowValue + highValue) / 2
+          + Math.sqrt(high - low) / 2 * gaussian(index, middle);
+      if (position < middle) {
+        high = middle;
+        highValue = middleValue;
+      } else {
+        low = middle;
+        lowValue = middleValue;
+      }
+    }
+  }
+
+  /**
+   * Draws a standard normal value for a point on a symbol's path, from a hash of the seed, the
+   * symbol and the point (Box-Muller).
+   */
+  private double gaussian(int index, long point) {
+    long bits = mix(seed, index, point);
+    double u1 = ((bits >>> 11) + 1) * 0x1.0p-53;
+    double u2 = (mix(bits, index, point) >>> 11) * 0x1.0p-53;
+    return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+  }
+
+  private List<String> topMovers(long epochSecond) {
+    long dayStart = epochSecond - Math.floorMod(epochSecond, SECONDS_PER_DAY);
+    double[] moves = new double[symbols.length];
+    Integer[] order = new Integer[symbols.length];
+    for (int i = 0; i < symbols.length; i++) {
+      moves[i] = Math.abs(Math.log(price(i, epochSecond) / price(i, dayStart - 1)));
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(moves[b], moves[a]));
+    List<String> assetSymbols = new ArrayList<>(TRENDING_SIZE);
+    for (int i = 0; i < Math.min(TRENDING_SIZE, order.length); i++) {
+      assetSymbols.add(symbols[order[i]]);
+    }
+    return assetSymbols;
+  }
+
+  /**
+   * Names the symbols: the well-known symbols, then four-letter codes counted in base 26.
+   */
+  private static String[] generateSymbols(int symbolCount) {
+    Set<String> generated = new LinkedHashSet<>(symbolCount * 2);
+    for (String symbol : WELL_KNOWN_SYMBOLS) {
+      if (generated.size() == symbolCount) {
+        break;
+      }
+      generated.add(symbol);
+    }
+    char[] code = new char[4];
+    for (int n = 0; generated.size() < symbolCount; n++) {
+      int remainder = n;
+      for (int i = code.length - 1; i >= 0; i--) {
+        code[i] = (char) ('A' + remainder % 26);
+        remainder /= 26;
+      }
+      generated.add(new String(code));
+    }
+    return generated.toArray(new String[0]);
+  }
+
+  /**
+   * Hashes three values into one well-mixed value, with two rounds of the SplitMix64 finaliser.
+   */
+  private static long mix(long a, long b, long c) {
+    return finalise(finalise(a + 0x9e3779b97f4a7c15L * (b + 1)) + c);
+  }
+
+  private static long finalise(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  /**
+   * The trending list worked out for one simulated minute.
+   */
+  private record Trending(long minute, List<String> assetSymbols) {
+  }
+}
@@ -0,0 +1,70 @@
+package com.lyit.csd.marketapi.simulated;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link SimulatedClock} is the clock the {@link SimulatedClient} market runs on.
+ *
+ * <p>The clock starts at a fixed instant. It only moves when {@link #advance(Duration)} is called,
+ * which makes runs repeatable, unless it is given a speed, in which case it also runs that many
+ * times faster than real time.
+ */
+public class SimulatedClock extends Clock {
+  private final Instant start;
+  private final double speed;
+  private final long createdNanos = System.nanoTime();
+  private final AtomicLong advancedNanos = new AtomicLong();
+
+  /**
+   * Constructor for a {@link SimulatedClock} that only moves when advanced.
+   *
+   * @param start the simulated time the clock starts at.
+   */
+  public SimulatedClock(Instant start) {
+    this(start, 0);
+  }
+
+  /**
+   * Constructor for the {@link SimulatedClock} class.
+   *
+   * @param start the simulated time the clock starts at.
+   * @param speed how many simulated seconds pass per real second, or 0 to only move when advanced.
+   */
+  public SimulatedClock(Instant start, double speed) {
+    this.start = start;
+    this.speed = speed;
+  }
+
+  /**
+   * Moves the clock forward.
+   *
+   * @param duration the simulated time to skip.
+   */
+  public void advance(Duration duration) {
+    advancedNanos.addAndGet(duration.toNanos());
+  }
+
+  @Override
+  public Instant instant() {
+    long elapsedNanos = advancedNanos.get();
+    if (speed > 0) {
+      elapsedNanos += (long) ((System.nanoTime() - createdNanos) * speed);
+    }
+    return start.plusNanos(elapsedNanos);
+  }
+
+  @Override
+  public ZoneId getZone() {
+    return ZoneOffset.UTC;
+  }
+
+  @Override
+  public Clock withZone(ZoneId zone) {
+    return this;
+  }
+}
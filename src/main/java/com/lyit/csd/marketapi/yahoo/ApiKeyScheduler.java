@@ -0,0 +1,315 @@
+package com.lyit.csd.marketapi.yahoo;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link ApiKeyScheduler} decides which API key each request to the Yahoo Finance API is sent
+ * with.
+ *
+ * <p>Every key has its own token bucket, so that no key is sent more requests per second than the
+ * API allows, and a recent error rate. A key that is rate limited (429) or refused (403, typically
+ * because its quota is used up) is put in a cool-down that doubles each time it happens again in a
+ * row. Requests go to the healthiest key, the one with the lowest error rate and then the most
+ * tokens left, among those that are not cooling down.
+ */
+public class ApiKeyScheduler {
+  /**
+   * The sustained request rate allowed per key unless another is given.
+   */
+  public static final double DEFAULT_REQUESTS_PER_SECOND = 5;
+
+  private static final int DEFAULT_BURST = 10;
+  private static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(2);
+  private static final Duration RATE_LIMITED_COOL_DOWN = Duration.ofSeconds(30);
+  private static final Duration REFUSED_COOL_DOWN = Duration.ofMinutes(5);
+  private static final Duration MAX_COOL_DOWN = Duration.ofHours(1);
+  private static final Duration BASE_BACKOFF = Duration.ofMillis(100);
+  private static final Duration MAX_BACKOFF = Duration.ofSeconds(2);
+
+  /**
+   * Weight given to the latest outcome in a key's error rate.
+   */
+  private static final double ERROR_RATE_WEIGHT = 0.2;
+
+  private final Map<String, KeyState> keys = new LinkedHashMap<>();
+  private final double tokensPerMilli;
+  private final int burst;
+  private final long maxWaitMillis;
+  private final Clock clock;
+  private final Sleeper sleeper;
+
+  /**
+   * Waits for time to pass on the scheduler's clock.
+   */
+  @FunctionalInterface
+  public interface Sleeper {
+    /**
+     * Waits until the clock has moved on by the given time.
+     *
+     * @param millis how long to wait, in milliseconds.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    void sleep(long millis) throws InterruptedException;
+  }
+
+  /**
+   * Constructor for the {@link ApiKeyScheduler} class using the default rate limits.
+   *
+   * @param apiKeys the keys to schedule requests across.
+   */
+  public ApiKeyScheduler(List<String> apiKeys) {
+    this(apiKeys, DEFAULT_REQUESTS_PER_SECOND, DEFAULT_BURST, DEFAULT_MAX_WAIT,
+        Clock.systemUTC());
+  }
+
+  /**
+   * Constructor for the {@link ApiKeyScheduler} class.
+   *
+   * @param apiKeys the keys to schedule requests across.
+   * @param requestsPerSecond the sustained request rate allowed per key.
+   * @param burst the most requests a key may send at once after being idle.
+   * @param maxWait the longest a caller will wait for a key with spare capacity.
+   * @param clock the clock used for token refills and cool-downs, which must move in real time.
+   */
+  public ApiKeyScheduler(List<String> apiKeys, double requestsPerSecond, int burst,
+                         Duration maxWait, Clock clock) {
+    this(apiKeys, requestsPerSecond, burst, maxWait, clock, Thread::sleep);
+  }
+
+  /**
+   * Constructor for the {@link ApiKeyScheduler} class.
+   *
+   * @param apiKeys the keys to schedule requests across.
+   * @param requestsPerSecond the sustained request rate allowed per key.
+   * @param burst the most requests a key may send at once after being idle.
+   * @param maxWait the longest a caller will wait for a key with spare capacity.
+   * @param clock the clock used for token refills and cool-downs.
+   * @param sleeper waits for the clock to move on while no key is available.
+   */
+  public ApiKeyScheduler(List<String> apiKeys, double requestsPerSecond, int burst,
+                         Duration maxWait, Clock clock, Sleeper sleeper) {
+    if (apiKeys.isEmpty()) {
+      throw new IllegalArgumentException("At least one API key is required");
+    }
+    this.tokensPerMilli = requestsPerSecond / 1000;
+    this.burst = burst;
+    this.maxWaitMillis = maxWait.toMillis();
+    this.clock = clock;
+    this.sleeper = sleeper;
+    long now = clock.millis();
+    for (String apiKey : apiKeys) {
+      keys.put(apiKey, new KeyState(apiKey, burst, now));
+    }
+  }
+
+  /**
+   * Takes a token from the healthiest key with spare capacity, waiting up to the maximum wait if
+   * every key is out of tokens or cooling down. A key other than the one just used is preferred.
+   *
+   * @param lastKeyUsed the key used for the previous attempt, or an empty string.
+   * @return the key to send the request with, or null if no key became available in time.
+   */
+  public String acquire(String lastKeyUsed) {
+    long deadline = clock.millis() + maxWaitMillis;
+
+    while (true) {
+      long wait;
+      synchronized (this) {
+        long now = clock.millis();
+        KeyState best = selectKey(now, lastKeyUsed);
+        if (best != null) {
+          best.tokens -= 1;
+          return best.apiKey;
+        }
+        wait = millisUntilAvailable(now);
+        if (now + wait > deadline) {
+          return null;
+        }
+      }
+      if (!sleep(Math.max(wait, 1))) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Records a successful request made with the key.
+   *
+   * @param apiKey the key the request was sent with.
+   */
+  public synchronized void recordSuccess(String apiKey) {
+    KeyState state = keys.get(apiKey);
+    if (state != null) {
+      state.errorRate = state.errorRate * (1 - ERROR_RATE_WEIGHT);
+      state.consecutiveRejections = 0;
+    }
+  }
+
+  /**
+   * Records a failed request made with the key. Requests rejected with 429 or 403 put the key in a
+   * cool-down.
+   *
+   * @param apiKey the key the request was sent with.
+   * @param statusCode the HTTP status received, or 0 if the request failed without a response.
+   */
+  public synchronized void recordFailure(String apiKey, int statusCode) {
+    KeyState state = keys.get(apiKey);
+    if (state == null) {
+      return;
+    }
+    state.errorRate = state.errorRate * (1 - ERROR_RATE_WEIGHT) + ERROR_RATE_WEIGHT;
+
+    Duration coolDown = switch (statusCode) {
+      case 429 -> RATE_LIMITED_COOL_DOWN;
+      case 403 -> REFUSED_COOL_DOWN;
+      default -> null;
+    };
+    if (coolDown != null) {
+      long coolDownMillis = Math.min(MAX_COOL_DOWN.toMillis(),
+          coolDown.toMillis() << Math.min(state.consecutiveRejections, 16));
+      state.coolDownUntil = clock.millis() + coolDownMillis;
+      state.consecutiveRejections++;
+    }
+  }
+
+  /**
+   * Gets how long to wait before the given retry: an exponential backoff, capped, with full jitter
+   * so that retries from many callers do not arrive together.
+   *
+   * @param attempt the number of attempts made so far, starting at 1.
+   * @return the delay before the next attempt.
+   */
+  public Duration backoff(int attempt) {
+    long ceiling = Math.min(MAX_BACKOFF.toMillis(),
+        BASE_BACKOFF.toMillis() << Math.min(Math.max(attempt - 1, 0), 16));
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+  }
+
+  /**
+   * Gets the sustained request rate all the keys together allow.
+   *
+   * @return the requests per second across every key.
+   */
+  public double getRequestsPerSecond() {
+    return keys.size() * tokensPerMilli * 1000;
+  }
+
+  /**
+   * Gets the keys that can take a request right now.
+   *
+   * @return the available keys, in the order they were supplied.
+   */
+  public synchronized List<String> getAvailableKeys() {
+    long now = clock.millis();
+    List<String> available = new ArrayList<>();
+    for (KeyState state : keys.values()) {
+      state.refill(now, tokensPerMilli, burst);
+      if (state.coolDownUntil <= now && state.tokens >= 1) {
+        available.add(state.apiKey);
+      }
+    }
+    return available;
+  }
+
+  /**
+   * Gets the recent error rate of a key.
+   *
+   * @param apiKey the key.
+   * @return a value between 0 (no recent errors) and 1 (only errors).
+   */
+  public synchronized double getErrorRate(String apiKey) {
+    KeyState state = keys.get(apiKey);
+    return state == null ? 0 : state.errorRate;
+  }
+
+  /**
+   * Picks the healthiest key with a token to spare. Must be called while holding the lock.
+   *
+   * @param now the current time in milliseconds.
+   * @param lastKeyUsed the key to avoid if another is available.
+   * @return the key, or null if none can take a request.
+   */
+  private KeyState selectKey(long now, String lastKeyUsed) {
+    KeyState best = null;
+    KeyState lastUsed = null;
+    for (KeyState state : keys.values()) {
+      state.refill(now, tokensPerMilli, burst);
+      if (state.coolDownUntil > now || state.tokens < 1) {
+        continue;
+      }
+      if (state.apiKey.equals(lastKeyUsed)) {
+        lastUsed = state;
+        continue;
+      }
+      if (best == null || state.errorRate < best.errorRate
+          || (state.errorRate == best.errorRate && state.tokens > best.tokens)) {
+        best = state;
+      }
+    }
+    return best != null ? best : lastUsed;
+  }
+
+  /**
+   * Works out how long until some key can take a request. Must be called while holding the lock.
+   *
+   * @param now the current time in milliseconds.
+   * @return the wait in milliseconds.
+   */
+  private long millisUntilAvailable(long now) {
+    long wait = Long.MAX_VALUE;
+    for (KeyState state : keys.values()) {
+      long coolDownWait = Math.max(0, state.coolDownUntil - now);
+      long tokenWait = state.tokens >= 1
+          ? 0 : (long) Math.ceil((1 - state.tokens) / tokensPerMilli);
+      wait = Math.min(wait, Math.max(coolDownWait, tokenWait));
+    }
+    return wait;
+  }
+
+  /**
+   * Sleeps for the given time.
+   *
+   * @param millis how long to sleep.
+   * @return false if the thread was interrupted.
+   */
+  private boolean sleep(long millis) {
+    try {
+      sleeper.sleep(millis);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * The scheduling state of one key.
+   */
+  private static class KeyState {
+    private final String apiKey;
+    private double tokens;
+    private long lastRefill;
+    private long coolDownUntil;
+    private double errorRate;
+    private int consecutiveRejections;
+
+    KeyState(String apiKey, int tokens, long now) {
+      this.apiKey = apiKey;
+      this.tokens = tokens;
+      this.lastRefill = now;
+    }
+
+    void refill(long now, double tokensPerMilli, int burst) {
+      if (now > lastRefill) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerMilli);
+        lastRefill = now;
+      }
+    }
+  }
+}
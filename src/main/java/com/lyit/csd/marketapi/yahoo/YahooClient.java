@@ -1,40 +1,121 @@
 package com.lyit.csd.marketapi.yahoo;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.lyit.csd.domain.AssetQuote;
-import com.lyit.csd.marketapi.abstraction.MarketClient;
-import com.lyit.csd.marketapi.yahoo.quote.Result;
-import com.lyit.csd.marketapi.yahoo.quote.Root;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.metrics.MarketClientMetrics;
+import com.lyit.csd.marketapi.metrics.MarketClientMetrics.Operation;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import okhttp3.OkHttpClient;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 /**
  * YahooClient class implements MarketClient interface to retrieve data from Yahoo Finance API.
+ * The asynchronous variants provided by {@link AsyncMarketClient} run on the shared
+ * market client executor.
+ *
+ * <p>Every call, attempt and response body is recorded in a {@link MarketClientMetrics}.
  */
-public class YahooClient implements MarketClient {
+public class YahooClient implements AsyncMarketClient {
   private String baseUrl;
-  private List<String> apiKeys;
+  private final ApiKeyScheduler keyScheduler;
+  private final YahooHttpTransport transport;
+  private final MarketClientMetrics metrics;
   private final int maxCounter = 4;
 
   /**
-   * Constructor for the {@link YahooClient} class.
+   * The most symbols the spark endpoint accepts in one request.
+   */
+  private static final int MAX_SPARK_SYMBOLS = 10;
+
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-zA-Z0-9]");
+
+  /**
+   * How long trending lists and exchange summaries are served from the transport's cache, where
+   * it has one and the API does not say otherwise.
+   */
+  private static final Duration REFERENCE_DATA_FRESHNESS = Duration.ofMinutes(5);
+
+  /**
+   * The longest a price history is served from the transport's cache, where it has one and the
+   * API does not say otherwise.
+   */
+  private static final Duration MAX_HISTORY_FRESHNESS = Duration.ofMinutes(15);
+
+  /**
+   * Constructor for the {@link YahooClient} class. Requests are sent through the process-wide
+   * {@link YahooHttpTransport#getDefault() shared transport}.
 
    * @param url URL for the Yahoo Finance API.
    * @param apiKeys apiKeys to use for authenticating with Yahoo Finance API.
    */
   public YahooClient(String url, List<String> apiKeys) {
+    this(url, apiKeys, YahooHttpTransport.getDefault());
+  }
+
+  /**
+   * Constructor for the {@link YahooClient} class.
+
+   * @param url URL for the Yahoo Finance API.
+   * @param apiKeys apiKeys to use for authenticating with Yahoo Finance API.
+   * @param transport the pooled HTTP transport used to send requests.
+   */
+  public YahooClient(String url, List<String> apiKeys, YahooHttpTransport transport) {
+    this(url, new ApiKeyScheduler(apiKeys), transport);
+  }
+
+  /**
+   * Constructor for the {@link YahooClient} class.
+
+   * @param url URL for the Yahoo Finance API.
+   * @param keyScheduler chooses the API key each request is sent with.
+   * @param transport the pooled HTTP transport used to send requests.
+   */
+  public YahooClient(String url, ApiKeyScheduler keyScheduler, YahooHttpTransport transport) {
+    this(url, keyScheduler, transport, MarketClientMetrics.getDefault());
+  }
+
+  /**
+   * Constructor for the {@link YahooClient} class.
+
+   * @param url URL for the Yahoo Finance API.
+   * @param keyScheduler chooses the API key each request is sent with.
+   * @param transport the pooled HTTP transport used to send requests.
+   * @param metrics records the latency, size and outcome of every request.
+   */
+  public YahooClient(String url, ApiKeyScheduler keyScheduler, YahooHttpTransport transport,
+                     MarketClientMetrics metrics) {
     this.baseUrl = url;
-    this.apiKeys = apiKeys;
+    this.keyScheduler = keyScheduler;
+    this.transport = transport;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Gets the scheduler that chooses the API key each request is sent with.
+   *
+   * @return the {@link ApiKeyScheduler}.
+   */
+  public ApiKeyScheduler getKeyScheduler() {
+    return keyScheduler;
+  }
+
+  /**
+   * Gets the metrics this client records into.
+   *
+   * @return the {@link MarketClientMetrics}.
+   */
+  public MarketClientMetrics getMetrics() {
+    return metrics;
   }
 
   /**
@@ -52,6 +133,11 @@ public class YahooClient implements MarketClient {
    * Method to retrieve historic data regarding provided
    * stock tickers between predefined time interval and range.
    *
+   * <p>The spark endpoint accepts a limited number of symbols per request, so the symbols are sent
+   * in batches of {@value #MAX_SPARK_SYMBOLS}, and each response is parsed once. Symbols that the
+   * API does not recognise are missing from the response and are skipped, so no separate lookup
+   * is needed to validate them.
+   *
    * @param assetSymbols list of stock tickers
    * @param interval granularity of the returned data.
    * @param range time period of which data is to be gathered.
@@ -59,51 +145,36 @@ public class YahooClient implements MarketClient {
    */
   public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols,
                                             String interval, String range) {
-    //Remove invalid symbols
-    assetSymbols.removeIf(s -> !checkAssetSymbol(s));
-    //Construct URL
-    String assetSymbolsSeparated = String.join(",", assetSymbols);
-    String operation = "/v8/finance/spark";
-    String parameters = "interval=" + interval + "&range="
-            + range + "&symbols=" + assetSymbolsSeparated;
-    String url = baseUrl + operation + "?" + parameters;
-
-    //Parse response & map onto AssetQuote object
+    List<String> distinctAssetSymbols = assetSymbols.stream().distinct()
+        .collect(Collectors.toList());
     List<AssetQuote> assetQuotes = new ArrayList<>();
 
-    // Parse the response and return a quote
-    try {
-      for (String s : assetSymbols) {
-        Response response = makeGetRequest(url);
-        ResponseBody responseBody = response.body();
-        AssetQuote assetQuote = new AssetQuote(s);
-
-        //Convert json response into JsonElement -> JsonObject -> JsonArray
-        JsonElement jsonElement = new JsonParser().parse(responseBody.string());
-        JsonObject jsonObject = jsonElement.getAsJsonObject();
-        jsonObject = jsonObject.getAsJsonObject(s);
-        JsonArray timestampArray = jsonObject.getAsJsonArray("timestamp");
-
-        //Extract data from JsonArray containing timestamp info
-        for (int i = 0; i < timestampArray.size(); i++) {
-          JsonElement temp = timestampArray.get(i);
-          long value = temp.getAsLong();
-          assetQuote.addTimeStampToList(value);
-        }
-
-        JsonArray closeArray = jsonObject.getAsJsonArray("close");
-
-        //Extract data from JsonArray containing closing price info
-        for (int i = 0; i < closeArray.size(); i++) {
-          JsonElement temp = closeArray.get(i);
-          double value = temp.getAsDouble();
-          assetQuote.addClosingPriceToList(value);
+    for (int i = 0; i < distinctAssetSymbols.size(); i += MAX_SPARK_SYMBOLS) {
+      List<String> batch = distinctAssetSymbols.subList(i,
+          Math.min(i + MAX_SPARK_SYMBOLS, distinctAssetSymbols.size()));
+
+      //Construct URL
+      String operation = "/v8/finance/spark";
+      String parameters = "interval=" + interval + "&range="
+              + range + "&symbols=" + String.join(",", batch);
+      String url = baseUrl + operation + "?" + parameters;
+
+      // Decode the response once for the whole batch
+      try {
+        Map<String, AssetQuote> series = readResponse(Operation.Spark, url,
+            historyFreshness(interval), YahooResponseDecoder::decodeSpark);
+        for (String assetSymbol : batch) {
+          AssetQuote assetQuote = series.get(assetSymbol);
+          if (assetQuote == null) {
+            assetQuote = series.get(assetSymbol.toUpperCase(Locale.ROOT));
+          }
+          if (assetQuote != null) {
+            assetQuotes.add(assetQuote);
+          }
         }
-        //Add assetQuote object to list
-        assetQuotes.add(assetQuote);
+      } catch (Exception e) {
+        e.printStackTrace();
       }
-    } catch (Exception e) {
-      e.printStackTrace();
     }
     return assetQuotes;
   }
@@ -136,36 +207,13 @@ public class YahooClient implements MarketClient {
     String operation = "/v6/finance/quote";
     String parameters = "region=US&lang=en&symbols=" + assetSymbolsSeparated;
     String url = baseUrl + operation + "?" + parameters;
-    Response response = makeGetRequest(url);
-    ResponseBody responseBody = response.body();
 
-    // Parse the response and return a quote
-    ObjectMapper om = new ObjectMapper();
+    // Decode the response straight into quotes
     List<AssetQuote> assetQuotes = new ArrayList<>();
 
     try {
-      Root root = om.readValue(responseBody.string(), Root.class);
-
-      if (root.quoteResponse != null) {
-        for (Result result : root.quoteResponse.result) {
-          String assetQuoteName = result.displayName;
-          if (assetQuoteName == null || assetQuoteName.length() == 0) {
-            assetQuoteName = result.shortName;
-          }
-
-          AssetQuote assetQuote = new AssetQuote(result.symbol,
-              assetQuoteName,
-              result.regularMarketTime,
-              result.regularMarketPrice,
-              result.regularMarketChangePercent,
-              result.regularMarketChange,
-                  result.quoteType,
-                  result.regularMarketPreviousClose,
-                  result.regularMarketOpen);
-
-          assetQuotes.add(assetQuote);
-        }
-      }
+      assetQuotes = readResponse(Operation.Quote, url, Duration.ZERO,
+          YahooResponseDecoder::decodeQuotes);
     } catch (Exception ex) {
       ex.printStackTrace();
     }
@@ -184,27 +232,14 @@ public class YahooClient implements MarketClient {
     String operation = "/v6/finance/quote";
     String parameters = "region=" + region + "&lang=en&symbols=" + exchange;
     String url = baseUrl + operation + "?" + parameters;
-    Response response = makeGetRequest(url);
-    ResponseBody responseBody = response.body();
     AssetQuote assetQuote = null;
 
-    // Parse the response and return a quote
-    ObjectMapper om = new ObjectMapper();
+    // Decode the response straight into quotes
     try {
-      Root root = om.readValue(responseBody.string(), Root.class);
-
-      if (root.quoteResponse != null) {
-        for (Result result : root.quoteResponse.result) {
-          assetQuote = new AssetQuote(result.symbol,
-                  result.fullExchangeName,
-                  result.regularMarketTime,
-                  result.regularMarketPrice,
-                  result.regularMarketChangePercent,
-                  result.regularMarketChange,
-                  result.quoteType,
-                  result.regularMarketPreviousClose,
-                  result.regularMarketOpen);
-        }
+      List<AssetQuote> assetQuotes = readResponse(Operation.Exchange, url,
+          REFERENCE_DATA_FRESHNESS, YahooResponseDecoder::decodeExchangeQuotes);
+      if (!assetQuotes.isEmpty()) {
+        assetQuote = assetQuotes.get(assetQuotes.size() - 1);
       }
     } catch (Exception ex) {
       ex.printStackTrace();
@@ -225,23 +260,15 @@ public class YahooClient implements MarketClient {
   public ArrayList<String> getTrendingStocksForRegion(String region) {
     String operation = "/v1/finance/trending/";
     String url = baseUrl + operation + region;
-    Response response = makeGetRequest(url);
-    ResponseBody responseBody = response.body();
 
-    // Parse the response and return a quote
-    ObjectMapper om = new ObjectMapper();
+    // Decode the response straight into the list of symbols
     ArrayList<String> trendingAssetsList = new ArrayList<>();
 
     try {
-      com.lyit.csd.marketapi.yahoo.trending.Root root = om.readValue(responseBody.string(),
-          com.lyit.csd.marketapi.yahoo.trending.Root.class);
-
-      for (var result : root.finance.result) {
-        for (var quote : result.quotes) {
-          trendingAssetsList.add(removeNonAlphanumeric(quote.symbol));
-        }
+      for (String assetSymbol : readResponse(Operation.Trending, url,
+          REFERENCE_DATA_FRESHNESS, YahooResponseDecoder::decodeTrending)) {
+        trendingAssetsList.add(removeNonAlphanumeric(assetSymbol));
       }
-
     } catch (Exception ex) {
       ex.printStackTrace();
     }
@@ -256,15 +283,82 @@ public class YahooClient implements MarketClient {
    * @return string containing only alphanumerics.
    */
   public static String removeNonAlphanumeric(String str) {
-    // replace the given string with empty string except the pattern "[^a-zA-Z0-9]"
-    str = str.replaceAll(
-        "[^a-zA-Z0-9]", "");
-
+    // Most symbols are already clean, so check before building a new string.
+    for (int i = 0; i < str.length(); i++) {
+      char c = str.charAt(i);
+      if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9')) {
+        return NON_ALPHANUMERIC.matcher(str).replaceAll("");
+      }
+    }
     return str;
   }
 
   /**
-   * Method to make get request from API.
+   * Works out how long a price history stays fresh: as long as one bar, but no longer than
+   * {@link #MAX_HISTORY_FRESHNESS}.
+   *
+   * @param interval the bar interval, such as <code>5m</code> or <code>1d</code>.
+   * @return the freshness.
+   */
+  private static Duration historyFreshness(String interval) {
+    if (interval.endsWith("m") && interval.length() > 1) {
+      try {
+        Duration bar = Duration.ofMinutes(Long.parseLong(
+            interval.substring(0, interval.length() - 1)));
+        return bar.compareTo(MAX_HISTORY_FRESHNESS) < 0 ? bar : MAX_HISTORY_FRESHNESS;
+      } catch (NumberFormatException e) {
+        return Duration.ZERO;
+      }
+    }
+    return MAX_HISTORY_FRESHNESS;
+  }
+
+  /**
+   * Makes a get request and decodes the response body as it streams in. The response is always
+   * closed so that its connection goes back to the transport's pool. The call's duration and
+   * outcome, and the size and decoding time of the body, are recorded in the metrics.
+   *
+   * @param operation the endpoint the url belongs to.
+   * @param url target url containing operation to be performed.
+   * @param defaultFreshness how long the response may be served from the transport's cache, if
+   *                         the API does not say.
+   * @param decoder reads the response body into its result.
+   * @param <T> the type of the decoded result.
+   * @return the decoded response.
+   * @throws IOException if no response could be obtained or its body could not be decoded.
+   */
+  private <T> T readResponse(Operation operation, String url, Duration defaultFreshness,
+                             ResponseDecoder<T> decoder) throws IOException {
+    long start = System.nanoTime();
+    String error = null;
+    try (Response response = makeGetRequest(url, 1, "", defaultFreshness)) {
+      if (response == null) {
+        throw new IOException("No response received for " + url);
+      }
+      ResponseBody responseBody = response.body();
+      if (responseBody == null) {
+        throw new IOException("Empty response received for " + url);
+      }
+      if (response.code() != 200) {
+        error = "HTTP " + response.code() + " for " + url;
+      }
+      long parseStart = System.nanoTime();
+      CountingInputStream inputStream = new CountingInputStream(responseBody.byteStream());
+      try {
+        return decoder.decode(inputStream);
+      } finally {
+        metrics.recordResponseBody(operation, inputStream.count, System.nanoTime() - parseStart);
+      }
+    } catch (IOException | RuntimeException e) {
+      error = e.toString();
+      throw e;
+    } finally {
+      metrics.recordCall(operation, System.nanoTime() - start, error);
+    }
+  }
+
+  /**
+   * Method to make get request from API. The caller must close the returned response.
    *
    * @param url target url containing operation to be performed.
    * @return a http response object
@@ -274,54 +368,119 @@ public class YahooClient implements MarketClient {
   }
 
   /**
-   * Method to make get request from API.
+   * Method to make get request from API. The caller must close the returned response; responses
+   * that are discarded before a retry are closed here.
+   *
+   * <p>Each attempt is sent with the key chosen by the {@link ApiKeyScheduler}, preferring a
+   * different key to the one that just failed. Failed attempts are retried, up to a total of
+   * <code>maxCounter</code> attempts, after a jittered exponential backoff.
    *
    * @param url target url containing operation to be performed.
    * @param counter a counter to track the number of attempts made..
-   * @return a http response object
+   * @param lastKeyUsed the key used for the previous attempt, or an empty string.
+   * @return a http response object, or null if no response could be obtained.
    */
   public Response makeGetRequest(String url, int counter, String lastKeyUsed) {
-    OkHttpClient client = new OkHttpClient().newBuilder()
-        .build();
-    String apiKey = getRandomApiKey(lastKeyUsed);
-    Request request = new Request.Builder()
-        .url(url)
-        .method("GET", null)
-        .addHeader("X-API-KEY", apiKey)
-        .build();
-    try {
-      Response response = client.newCall(request).execute();
+    return makeGetRequest(url, counter, lastKeyUsed, Duration.ZERO);
+  }
 
-      int responseCode = response.code();
-      if (responseCode != 200 && counter < maxCounter) {
-        // try again!
-        return makeGetRequest(url, counter++, apiKey);
+  /**
+   * Makes a get request as {@link #makeGetRequest(String, int, String)} does, letting the
+   * transport serve the response from its cache for as long as it stays fresh.
+   */
+  private Response makeGetRequest(String url, int counter, String lastKeyUsed,
+                                  Duration defaultFreshness) {
+    for (int attempt = counter; ; attempt++) {
+      String apiKey = keyScheduler.acquire(lastKeyUsed);
+      if (apiKey == null) {
+        // Every key is exhausted or cooling down; fail fast rather than hammer them.
+        return null;
       }
-      return response;
 
-    } catch (IOException e) {
-      e.printStackTrace();
+      Request request = new Request.Builder()
+          .url(url)
+          .method("GET", null)
+          .addHeader("X-API-KEY", apiKey)
+          .build();
+      try {
+        Response response = transport.execute(request, defaultFreshness);
+
+        int responseCode = response.code();
+        metrics.recordAttempt(apiKey, attempt > counter, responseCode);
+        if (responseCode == 200) {
+          keyScheduler.recordSuccess(apiKey);
+          return response;
+        }
+        keyScheduler.recordFailure(apiKey, responseCode);
+        if (attempt >= maxCounter) {
+          return response;
+        }
+        // Release the connection before trying again.
+        response.close();
+
+      } catch (IOException e) {
+        e.printStackTrace();
+        metrics.recordAttempt(apiKey, attempt > counter, 0);
+        keyScheduler.recordFailure(apiKey, 0);
+        if (attempt >= maxCounter) {
+          return null;
+        }
+      }
 
-      // try again
-      if (counter < maxCounter) {
-        return makeGetRequest(url, counter++, apiKey);
+      // try again, after backing off
+      lastKeyUsed = apiKey;
+      try {
+        Thread.sleep(keyScheduler.backoff(attempt).toMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
       }
     }
-    return null;
   }
 
-  /** This method gets element randomly based in input.
+  /**
+   * Reads a response body into a result.
+   *
+   * @param <T> the type of the decoded result.
+   */
+  @FunctionalInterface
+  private interface ResponseDecoder<T> {
+    T decode(InputStream inputStream) throws IOException;
+  }
 
-   * @return a random ApiKey to use for authenticating with Yahoo Finance.
+  /**
+   * Counts the bytes read from a response body.
    */
-  private String getRandomApiKey(String lastKeyUsed) {
-    Random rand = new Random();
-    String keyToUse = apiKeys.get(rand.nextInt(apiKeys.size()));
+  private static final class CountingInputStream extends FilterInputStream {
+    private long count;
+
+    CountingInputStream(InputStream inputStream) {
+      super(inputStream);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
+    }
 
-    // If we've just used this key, lets try another.
-    if (keyToUse == lastKeyUsed) {
-      return getRandomApiKey(lastKeyUsed);
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count += skipped;
+      return skipped;
     }
-    return keyToUse;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,261 @@
+package com.lyit.csd.marketapi.yahoo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * {@link YahooHttpTransport} owns the long-lived HTTP client used by {@link YahooClient}.
+ *
+ * <p>Building an {@link OkHttpClient} is expensive: each one brings its own connection pool,
+ * dispatcher threads and TLS sessions. A single transport is therefore created once and shared by
+ * every {@link YahooClient}, so that connections to the API are kept alive and reused (and
+ * multiplexed over HTTP/2 where the server supports it) instead of being re-established per call.
+ *
+ * <p>A transport may be given an on-disk {@link Cache}, so that responses outlive the process.
+ * The cache honours the <code>Cache-Control</code> headers of the server and revalidates stale
+ * responses with their <code>ETag</code> or <code>Last-Modified</code>; it evicts the least
+ * recently used responses once it is full. Responses are cached by URL, with the query parameters
+ * in a fixed order. The API key is sent in a header, so it is not part of the key, and a response
+ * fetched with one key is served to requests made with any other. Where the server says nothing
+ * about freshness, a request may say how long its response stays fresh, which is how slowly
+ * changing data is kept across restarts.
+ */
+public class YahooHttpTransport {
+  private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+  private static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(20);
+  private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 16;
+  private static final Duration DEFAULT_KEEP_ALIVE = Duration.ofMinutes(5);
+  private static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+  private static final String API_KEY_HEADER = "X-API-KEY";
+
+  private final OkHttpClient httpClient;
+
+  /**
+   * Constructor for the {@link YahooHttpTransport} class using the default timeouts and pool size.
+   */
+  public YahooHttpTransport() {
+    this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_CALL_TIMEOUT,
+        DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE, DEFAULT_MAX_REQUESTS_PER_HOST);
+  }
+
+  /**
+   * Constructor for the {@link YahooHttpTransport} class.
+   *
+   * @param connectTimeout time allowed to establish a new connection.
+   * @param readTimeout time allowed between bytes when reading a response.
+   * @param callTimeout time allowed for a complete call, including redirects and the body.
+   * @param maxIdleConnections number of idle connections kept in the pool.
+   * @param keepAlive how long an idle connection is kept before it is evicted from the pool.
+   * @param maxRequestsPerHost number of requests that may be in flight to one host at once.
+   */
+  public YahooHttpTransport(Duration connectTimeout, Duration readTimeout, Duration callTimeout,
+                            int maxIdleConnections, Duration keepAlive, int maxRequestsPerHost) {
+    this(connectTimeout, readTimeout, callTimeout, maxIdleConnections, keepAlive,
+        maxRequestsPerHost, null);
+  }
+
+  /**
+   * Constructor for the {@link YahooHttpTransport} class using the default timeouts and pool size,
+   * with responses cached on disk.
+   *
+   * @param cacheDirectory the directory responses are cached in.
+   * @param maxCacheBytes the most bytes the cache may take up on disk.
+   */
+  public YahooHttpTransport(Path cacheDirectory, long maxCacheBytes) {
+    this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_CALL_TIMEOUT,
+        DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE, DEFAULT_MAX_REQUESTS_PER_HOST,
+        new Cache(cacheDirectory.toFile(), maxCacheBytes));
+  }
+
+  /**
+   * Constructor for the {@link YahooHttpTransport} class.
+   *
+   * @param connectTimeout time allowed to establish a new connection.
+   * @param readTimeout time allowed between bytes when reading a response.
+   * @param callTimeout time allowed for a complete call, including redirects and the body.
+   * @param maxIdleConnections number of idle connections kept in the pool.
+   * @param keepAlive how long an idle connection is kept before it is evicted from the pool.
+   * @param maxRequestsPerHost number of requests that may be in flight to one host at once.
+   * @param cache the cache responses are kept in, or null to cache nothing.
+   */
+  public YahooHttpTransport(Duration connectTimeout, Duration readTimeout, Duration callTimeout,
+                            int maxIdleConnections, Duration keepAlive, int maxRequestsPerHost,
+                            Cache cache) {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(Math.max(maxRequestsPerHost, dispatcher.getMaxRequests()));
+    dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+    this.httpClient = new OkHttpClient.Builder()
+        .dispatcher(dispatcher)
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(),
+            TimeUnit.MILLISECONDS))
+        .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+        .connectTimeout(connectTimeout)
+        .readTimeout(readTimeout)
+        .callTimeout(callTimeout)
+        .retryOnConnectionFailure(true)
+        .cache(cache)
+        .addInterceptor(YahooHttpTransport::normaliseUrl)
+        .addNetworkInterceptor(YahooHttpTransport::applyDefaultFreshness)
+        .build();
+  }
+
+  /**
+   * Gets the transport shared by all {@link YahooClient} instances in this process.
+   *
+   * @return the shared {@link YahooHttpTransport}.
+   */
+  public static YahooHttpTransport getDefault() {
+    return DefaultHolder.INSTANCE;
+  }
+
+  /**
+   * Executes a request on the shared client. The caller owns the returned {@link Response} and
+   * must close it so that its connection is returned to the pool.
+   *
+   * @param request the request to execute.
+   * @return the http response.
+   * @throws IOException if the request could not be executed.
+   */
+  public Response execute(Request request) throws IOException {
+    return httpClient.newCall(request).execute();
+  }
+
+  /**
+   * Executes a request on the shared client, treating its response as fresh for a while if the
+   * server does not say how long it stays fresh. The caller must close the returned
+   * {@link Response}.
+   *
+   * @param request the request to execute.
+   * @param defaultFreshness how long the response may be served from the cache without asking the
+   *                         server, unless the server says otherwise.
+   * @return the http response.
+   * @throws IOException if the request could not be executed.
+   */
+  public Response execute(Request request, Duration defaultFreshness) throws IOException {
+    if (defaultFreshness.isZero() || defaultFreshness.isNegative()) {
+      return execute(request);
+    }
+    return execute(request.newBuilder()
+        .tag(DefaultFreshness.class, new DefaultFreshness(defaultFreshness.toSeconds()))
+        .build());
+  }
+
+  /**
+   * Gets the cache responses are kept in, such as to read its hit and network counts.
+   *
+   * @return the {@link Cache}, or null if responses are not cached.
+   */
+  public Cache getCache() {
+    return httpClient.cache();
+  }
+
+  /**
+   * Gets the underlying client, for callers that need to derive a client sharing this pool.
+   *
+   * @return the shared {@link OkHttpClient}.
+   */
+  public OkHttpClient getHttpClient() {
+    return httpClient;
+  }
+
+  /**
+   * Releases the dispatcher threads and closes all pooled connections.
+   */
+  public void shutdown() {
+    httpClient.dispatcher().executorService().shutdown();
+    httpClient.connectionPool().evictAll();
+    Cache cache = httpClient.cache();
+    if (cache != null) {
+      try {
+        cache.close();
+      } catch (IOException e) {
+        // Anything not yet written is simply not cached.
+      }
+    }
+  }
+
+  /**
+   * Puts the query parameters in order of their names, so that the same request made with its
+   * parameters in a different order is cached once. The parameters are moved as they were
+   * encoded, so that a value such as <code>A%2BB</code> reaches the server unchanged.
+   */
+  private static Response normaliseUrl(Interceptor.Chain chain) throws IOException {
+    Request request = chain.request();
+    HttpUrl url = request.url();
+    String query = url.encodedQuery();
+    if (url.querySize() < 2 || query == null) {
+      return chain.proceed(request);
+    }
+    List<String> pairs = new ArrayList<>(Arrays.asList(query.split("&", -1)));
+    // A stable sort, so repeated parameters keep their order.
+    pairs.sort(Comparator.comparing(YahooHttpTransport::parameterName));
+    HttpUrl sorted = url.newBuilder().encodedQuery(String.join("&", pairs)).build();
+    return chain.proceed(request.newBuilder().url(sorted).build());
+  }
+
+  private static String parameterName(String encodedPair) {
+    int separator = encodedPair.indexOf('=');
+    return separator < 0 ? encodedPair : encodedPair.substring(0, separator);
+  }
+
+  /**
+   * Makes a response from the server cacheable across API keys and, where the server does not say
+   * how long it stays fresh, fresh for as long as the request asked.
+   */
+  private static Response applyDefaultFreshness(Interceptor.Chain chain) throws IOException {
+    Request request = chain.request();
+    Response response = chain.proceed(request);
+    Response.Builder builder = response.newBuilder();
+    String vary = response.header("Vary");
+    if (vary != null && vary.toUpperCase(Locale.ROOT).contains(API_KEY_HEADER)) {
+      List<String> fields = new ArrayList<>();
+      for (String field : vary.split(",")) {
+        if (!field.trim().equalsIgnoreCase(API_KEY_HEADER)) {
+          fields.add(field.trim());
+        }
+      }
+      if (fields.isEmpty()) {
+        builder.removeHeader("Vary");
+      } else {
+        builder.header("Vary", String.join(", ", fields));
+      }
+    }
+    DefaultFreshness freshness = request.tag(DefaultFreshness.class);
+    if (freshness != null && response.code() == 200 && response.header("Cache-Control") == null
+        && response.header("Expires") == null) {
+      builder.header("Cache-Control", "max-age=" + freshness.seconds());
+    }
+    return builder.build();
+  }
+
+  /**
+   * How long a response stays fresh when the server does not say.
+   */
+  private record DefaultFreshness(long seconds) {
+  }
+
+  /**
+   * Lazily creates the shared transport the first time it is needed.
+   */
+  private static class DefaultHolder {
+    private static final YahooHttpTransport INSTANCE = new YahooHttpTransport();
+  }
+}
@@ -0,0 +1,340 @@
+package com.lyit.csd.marketapi.yahoo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.TimeSeries;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link YahooResponseDecoder} decodes Yahoo Finance API responses straight from the response
+ * byte stream.
+ *
+ * <p>Responses are read token by token with a single shared, thread-safe {@link JsonFactory}, and
+ * values are written directly into {@link AssetQuote} objects and primitive arrays. No response
+ * string, JSON tree or intermediate POJO is built, and fields we do not use are skipped without
+ * being decoded.
+ */
+public final class YahooResponseDecoder {
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private YahooResponseDecoder() {
+  }
+
+  /**
+   * Decodes a <code>/v6/finance/quote</code> response. The quote's name is the asset's display
+   * name, or its short name where it has no display name.
+   *
+   * @param inputStream the response body.
+   * @return the decoded quotes, in response order.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  public static List<AssetQuote> decodeQuotes(InputStream inputStream) throws IOException {
+    return decodeQuoteResponse(inputStream, false);
+  }
+
+  /**
+   * Decodes a <code>/v6/finance/quote</code> response for an exchange. The quote's name is the
+   * full exchange name.
+   *
+   * @param inputStream the response body.
+   * @return the decoded quotes, in response order.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  public static List<AssetQuote> decodeExchangeQuotes(InputStream inputStream)
+      throws IOException {
+    return decodeQuoteResponse(inputStream, true);
+  }
+
+  /**
+   * Decodes a <code>/v8/finance/spark</code> response. Points with no timestamp or no closing
+   * price are dropped so that timestamps and prices stay aligned.
+   *
+   * @param inputStream the response body.
+   * @return the history of every symbol in the response, keyed by symbol in response order.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  public static Map<String, AssetQuote> decodeSpark(InputStream inputStream) throws IOException {
+    Map<String, AssetQuote> assetQuotes = new LinkedHashMap<>();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return assetQuotes;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String assetSymbol = parser.getCurrentName();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        AssetQuote assetQuote = decodeSparkSeries(parser, assetSymbol);
+        if (assetQuote != null) {
+          assetQuotes.put(assetSymbol, assetQuote);
+        }
+      }
+    }
+    return assetQuotes;
+  }
+
+  /**
+   * Decodes a <code>/v1/finance/trending</code> response.
+   *
+   * @param inputStream the response body.
+   * @return the raw trending symbols, in response order.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  public static ArrayList<String> decodeTrending(InputStream inputStream) throws IOException {
+    ArrayList<String> assetSymbols = new ArrayList<>();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return assetSymbols;
+      }
+      // { "finance": { "result": [ { "quotes": [ { "symbol": ... } ] } ] } }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (!"finance".equals(field) || value != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String financeField = parser.getCurrentName();
+          JsonToken financeValue = parser.nextToken();
+          if (!"result".equals(financeField) || financeValue != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            continue;
+          }
+          JsonToken element;
+          while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element == JsonToken.START_OBJECT) {
+              decodeTrendingResult(parser, assetSymbols);
+            } else {
+              parser.skipChildren();
+            }
+          }
+        }
+      }
+    }
+    return assetSymbols;
+  }
+
+  /**
+   * Decodes the quote response body, positioned before its first token.
+   *
+   * @param inputStream the response body.
+   * @param useExchangeName whether the quote is named after its exchange rather than the asset.
+   * @return the decoded quotes.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  private static List<AssetQuote> decodeQuoteResponse(InputStream inputStream,
+                                                      boolean useExchangeName)
+      throws IOException {
+    List<AssetQuote> assetQuotes = new ArrayList<>();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return assetQuotes;
+      }
+      // { "quoteResponse": { "result": [ { ... }, ... ], "error": null } }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (!"quoteResponse".equals(field) || value != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String responseField = parser.getCurrentName();
+          JsonToken responseValue = parser.nextToken();
+          if (!"result".equals(responseField) || responseValue != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            continue;
+          }
+          JsonToken element;
+          while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element == JsonToken.START_OBJECT) {
+              assetQuotes.add(decodeQuote(parser, useExchangeName));
+            } else {
+              parser.skipChildren();
+            }
+          }
+        }
+      }
+    }
+    return assetQuotes;
+  }
+
+  /**
+   * Decodes one quote result, positioned on its opening brace.
+   *
+   * @param parser the parser.
+   * @param useExchangeName whether the quote is named after its exchange rather than the asset.
+   * @return the decoded quote.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  private static AssetQuote decodeQuote(JsonParser parser, boolean useExchangeName)
+      throws IOException {
+    String symbol = null;
+    String displayName = null;
+    String shortName = null;
+    String fullExchangeName = null;
+    String quoteType = null;
+    int regularMarketTime = 0;
+    double regularMarketPrice = 0;
+    double regularMarketChange = 0;
+    double regularMarketChangePercent = 0;
+    double regularMarketPreviousClose = 0;
+    double regularMarketOpen = 0;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      if (value == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      switch (field) {
+        case "symbol" -> symbol = parser.getText();
+        case "displayName" -> displayName = parser.getText();
+        case "shortName" -> shortName = parser.getText();
+        case "fullExchangeName" -> fullExchangeName = parser.getText();
+        case "quoteType" -> quoteType = parser.getText();
+        case "regularMarketTime" -> regularMarketTime = (int) parser.getLongValue();
+        case "regularMarketPrice" -> regularMarketPrice = parser.getDoubleValue();
+        case "regularMarketChange" -> regularMarketChange = parser.getDoubleValue();
+        case "regularMarketChangePercent" -> regularMarketChangePercent =
+            parser.getDoubleValue();
+        case "regularMarketPreviousClose" -> regularMarketPreviousClose =
+            parser.getDoubleValue();
+        case "regularMarketOpen" -> regularMarketOpen = parser.getDoubleValue();
+        default -> {
+          // Not used by the portfolio.
+        }
+      }
+    }
+
+    String name;
+    if (useExchangeName) {
+      name = fullExchangeName;
+    } else {
+      name = displayName == null || displayName.length() == 0 ? shortName : displayName;
+    }
+    return new AssetQuote(symbol, name, regularMarketTime, regularMarketPrice,
+        regularMarketChangePercent, regularMarketChange, quoteType, regularMarketPreviousClose,
+        regularMarketOpen);
+  }
+
+  /**
+   * Decodes the series of one symbol in a spark response, positioned on its opening brace.
+   *
+   * @param parser the parser.
+   * @param assetSymbol the symbol the series belongs to.
+   * @return the symbol's history, or null if the series holds no timestamps or prices.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  private static AssetQuote decodeSparkSeries(JsonParser parser, String assetSymbol)
+      throws IOException {
+    long[] timestamps = null;
+    double[] closes = null;
+    int timestampCount = 0;
+    int closeCount = 0;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (value != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      if ("timestamp".equals(field)) {
+        timestamps = new long[64];
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          if (timestampCount == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, timestampCount * 2);
+          }
+          // Missing timestamps are marked with Long.MIN_VALUE and dropped below.
+          timestamps[timestampCount++] = parser.currentToken() == JsonToken.VALUE_NULL
+              ? Long.MIN_VALUE : parser.getLongValue();
+        }
+      } else if ("close".equals(field)) {
+        closes = new double[64];
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          if (closeCount == closes.length) {
+            closes = Arrays.copyOf(closes, closeCount * 2);
+          }
+          // Missing prices are marked with NaN and dropped below.
+          closes[closeCount++] = parser.currentToken() == JsonToken.VALUE_NULL
+              ? Double.NaN : parser.getDoubleValue();
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    if (timestamps == null || closes == null) {
+      return null;
+    }
+
+    // Compact in place, dropping points with a missing timestamp or price.
+    int points = Math.min(timestampCount, closeCount);
+    int kept = 0;
+    for (int i = 0; i < points; i++) {
+      if (timestamps[i] != Long.MIN_VALUE && !Double.isNaN(closes[i])) {
+        timestamps[kept] = timestamps[i];
+        closes[kept] = closes[i];
+        kept++;
+      }
+    }
+
+    // The compacted arrays become the series' columns without being copied or boxed.
+    AssetQuote assetQuote = new AssetQuote(assetSymbol);
+    assetQuote.setHistory(TimeSeries.wrap(timestamps, closes, kept));
+    return assetQuote;
+  }
+
+  /**
+   * Decodes one trending result, positioned on its opening brace.
+   *
+   * @param parser the parser.
+   * @param assetSymbols the list the trending symbols are added to.
+   * @throws IOException if the body cannot be read or is not valid JSON.
+   */
+  private static void decodeTrendingResult(JsonParser parser, List<String> assetSymbols)
+      throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken value = parser.nextToken();
+      if (!"quotes".equals(field) || value != JsonToken.START_ARRAY) {
+        parser.skipChildren();
+        continue;
+      }
+      JsonToken element;
+      while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+        if (element != JsonToken.START_OBJECT) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String quoteField = parser.getCurrentName();
+          JsonToken quoteValue = parser.nextToken();
+          if ("symbol".equals(quoteField) && quoteValue == JsonToken.VALUE_STRING) {
+            assetSymbols.add(parser.getText());
+          } else {
+            parser.skipChildren();
+          }
+        }
+      }
+    }
+  }
+}
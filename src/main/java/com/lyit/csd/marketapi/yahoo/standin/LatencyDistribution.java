@@ -0,0 +1,65 @@
+package com.lyit.csd.marketapi.yahoo.standin;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link LatencyDistribution} decides how long the {@link YahooStandInServer} waits before
+ * answering each request.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+  /**
+   * Draws the delay for one request.
+   *
+   * @return the delay in milliseconds.
+   */
+  long sampleMillis();
+
+  /**
+   * Answers every request at once.
+   *
+   * @return the distribution.
+   */
+  static LatencyDistribution none() {
+    return () -> 0;
+  }
+
+  /**
+   * Delays every request by the same amount.
+   *
+   * @param latency the delay.
+   * @return the distribution.
+   */
+  static LatencyDistribution fixed(Duration latency) {
+    long millis = latency.toMillis();
+    return () -> millis;
+  }
+
+  /**
+   * Delays each request by an amount drawn evenly between two bounds.
+   *
+   * @param min the shortest delay.
+   * @param max the longest delay.
+   * @return the distribution.
+   */
+  static LatencyDistribution uniform(Duration min, Duration max) {
+    long minMillis = min.toMillis();
+    long maxMillis = max.toMillis();
+    return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+  }
+
+  /**
+   * Delays each request by an amount drawn from a log-normal distribution. Most requests are close
+   * to the median, with a long tail of slow ones, which is how real API latency behaves.
+   *
+   * @param median the median delay.
+   * @param sigma the spread; 0.5 gives a p99 of about three times the median.
+   * @return the distribution.
+   */
+  static LatencyDistribution logNormal(Duration median, double sigma) {
+    double mu = Math.log(Math.max(1, median.toMillis()));
+    return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+  }
+}
@@ -0,0 +1,87 @@
+package com.lyit.csd.marketapi.yahoo.standin;
+
+/**
+ * {@link StandInBehaviour} holds the faults and delays the {@link YahooStandInServer} injects.
+ *
+ * <p>Every setting can be changed while the server is running, so that a test can, for example,
+ * start an outage part way through a run.
+ */
+public class StandInBehaviour {
+  private volatile LatencyDistribution latency = LatencyDistribution.none();
+  private volatile double errorRate;
+  private volatile double rateLimitRate;
+  private volatile int payloadScale = 1;
+
+  /**
+   * Gets how long each request waits before it is answered.
+   *
+   * @return the delay distribution.
+   */
+  public LatencyDistribution getLatency() {
+    return latency;
+  }
+
+  /**
+   * Sets how long each request waits before it is answered.
+   *
+   * @param latency the delay distribution.
+   */
+  public void setLatency(LatencyDistribution latency) {
+    this.latency = latency;
+  }
+
+  /**
+   * Gets the share of requests answered with a 500 error.
+   *
+   * @return a value between 0 and 1.
+   */
+  public double getErrorRate() {
+    return errorRate;
+  }
+
+  /**
+   * Sets the share of requests answered with a 500 error.
+   *
+   * @param errorRate a value between 0 and 1.
+   */
+  public void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  /**
+   * Gets the share of requests answered with a 429 (too many requests) error.
+   *
+   * @return a value between 0 and 1.
+   */
+  public double getRateLimitRate() {
+    return rateLimitRate;
+  }
+
+  /**
+   * Sets the share of requests answered with a 429 (too many requests) error.
+   *
+   * @param rateLimitRate a value between 0 and 1.
+   */
+  public void setRateLimitRate(double rateLimitRate) {
+    this.rateLimitRate = rateLimitRate;
+  }
+
+  /**
+   * Gets how many times larger than usual spark and trending responses are.
+   *
+   * @return the multiplier.
+   */
+  public int getPayloadScale() {
+    return payloadScale;
+  }
+
+  /**
+   * Sets how many times larger than usual spark and trending responses are. At a scale of 1 a
+   * spark series has one point per interval over the range, and the trending list has 20 symbols.
+   *
+   * @param payloadScale the multiplier, at least 1.
+   */
+  public void setPayloadScale(int payloadScale) {
+    this.payloadScale = Math.max(1, payloadScale);
+  }
+}
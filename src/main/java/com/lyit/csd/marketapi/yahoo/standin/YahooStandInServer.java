@@ -0,0 +1,377 @@
+package com.lyit.csd.marketapi.yahoo.standin;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lyit.csd.marketapi.abstraction.MarketClientExecutors;
+import com.lyit.csd.marketapi.abstraction.MarketPeriods;
+import com.lyit.csd.marketapi.yahoo.quote.QuoteResponse;
+import com.lyit.csd.marketapi.yahoo.trending.Finance;
+import com.lyit.csd.marketapi.yahoo.trending.Quote;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * {@link YahooStandInServer} is a local, in-process stand-in for the Yahoo Finance API, so that
+ * {@link com.lyit.csd.marketapi.yahoo.YahooClient} can be load tested end to end without a network
+ * or an API quota.
+ *
+ * <p>The server answers <code>/v6/finance/quote</code>, <code>/v8/finance/spark</code> and
+ * <code>/v1/finance/trending/{region}</code> with the same payload shapes as the real API: quote
+ * and trending responses are written from the {@link com.lyit.csd.marketapi.yahoo.quote.Root} and
+ * {@link com.lyit.csd.marketapi.yahoo.trending.Root} classes. Every symbol exists, and its price
+ * is derived from the symbol so that the same symbol always gets a similar price. Requests without
+ * an <code>X-API-KEY</code> header are refused with 403. Successful responses carry an
+ * <code>ETag</code>, and a request whose <code>If-None-Match</code> matches it is answered with
+ * 304 and no body. Delays, errors and payload sizes are controlled by a {@link StandInBehaviour}.
+ *
+ * <pre>
+ * try (YahooStandInServer server = new YahooStandInServer(new StandInBehaviour())) {
+ *   server.start();
+ *   MarketClient client = new YahooClient(server.getBaseUrl(), List.of("key"));
+ *   ...
+ * }
+ * </pre>
+ */
+public class YahooStandInServer implements AutoCloseable {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+  private static final int TRENDING_SYMBOLS = 20;
+  private static final int MAX_SPARK_POINTS = 100_000;
+  private static final String[] TRENDING_BASE = {
+      "AAPL", "TSLA", "NVDA", "MSFT", "AMZN", "META", "GOOGL", "AMD", "NFLX", "INTC",
+      "BRK-B", "JPM", "V", "DIS", "BA", "NIO", "PLTR", "F", "GME", "^GSPC"
+  };
+
+  private final HttpServer httpServer;
+  private final ExecutorService executor;
+  private final StandInBehaviour behaviour;
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong injectedErrorCount = new AtomicLong();
+  private final AtomicLong notModifiedCount = new AtomicLong();
+
+  /**
+   * Constructor for the {@link YahooStandInServer} class, listening on a free local port.
+   *
+   * @param behaviour the delays and faults to inject.
+   * @throws IOException if the server socket cannot be opened.
+   */
+  public YahooStandInServer(StandInBehaviour behaviour) throws IOException {
+    this(0, behaviour);
+  }
+
+  /**
+   * Constructor for the {@link YahooStandInServer} class.
+   *
+   * @param port the local port to listen on, or 0 for any free port.
+   * @param behaviour the delays and faults to inject.
+   * @throws IOException if the server socket cannot be opened.
+   */
+  public YahooStandInServer(int port, StandInBehaviour behaviour) throws IOException {
+    this.behaviour = behaviour;
+    this.httpServer = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+    // Injected latency is spent sleeping, so each request gets its own (virtual where possible)
+    // thread rather than queueing behind slow ones.
+    this.executor = MarketClientExecutors.newExecutor();
+    httpServer.setExecutor(executor);
+    httpServer.createContext("/v6/finance/quote", exchange -> handle(exchange, this::quote));
+    httpServer.createContext("/v8/finance/spark", exchange -> handle(exchange, this::spark));
+    httpServer.createContext("/v1/finance/trending/",
+        exchange -> handle(exchange, this::trending));
+  }
+
+  /**
+   * Starts answering requests.
+   */
+  public void start() {
+    httpServer.start();
+  }
+
+  /**
+   * Gets the URL to give the client in place of the real API's URL.
+   *
+   * @return the base URL, without a trailing slash.
+   */
+  public String getBaseUrl() {
+    return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+        + httpServer.getAddress().getPort();
+  }
+
+  /**
+   * Gets the number of requests received.
+   *
+   * @return the request count.
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of requests answered with an injected 500 or 429 error.
+   *
+   * @return the injected error count.
+   */
+  public long getInjectedErrorCount() {
+    return injectedErrorCount.get();
+  }
+
+  /**
+   * Gets the number of requests answered with 304 because the client's copy was still current.
+   *
+   * @return the not modified count.
+   */
+  public long getNotModifiedCount() {
+    return notModifiedCount.get();
+  }
+
+  /**
+   * Stops the server at once, dropping any requests still being answered.
+   */
+  @Override
+  public void close() {
+    httpServer.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Applies the configured delay and faults, then writes the payload.
+   *
+   * @param exchange the request.
+   * @param payload writes the body of a successful response.
+   * @throws IOException if the response cannot be written.
+   */
+  private void handle(HttpExchange exchange, PayloadWriter payload) throws IOException {
+    try (exchange) {
+      requestCount.incrementAndGet();
+      long delay = behaviour.getLatency().sampleMillis();
+      if (delay > 0) {
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+
+      if (exchange.getRequestHeaders().getFirst("X-API-KEY") == null) {
+        sendError(exchange, 403, "Forbidden");
+        return;
+      }
+      double roll = ThreadLocalRandom.current().nextDouble();
+      if (roll < behaviour.getRateLimitRate()) {
+        injectedErrorCount.incrementAndGet();
+        sendError(exchange, 429, "Limit Exceeded");
+        return;
+      }
+      if (roll < behaviour.getRateLimitRate() + behaviour.getErrorRate()) {
+        injectedErrorCount.incrementAndGet();
+        sendError(exchange, 500, "Internal Server Error");
+        return;
+      }
+
+      ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+      payload.write(exchange, body);
+      byte[] bytes = body.toByteArray();
+      CRC32 checksum = new CRC32();
+      checksum.update(bytes);
+      String etag = "\"" + Long.toHexString(checksum.getValue()) + "-" + bytes.length + "\"";
+      exchange.getResponseHeaders().set("ETag", etag);
+      if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModifiedCount.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+        return;
+      }
+      send(exchange, 200, bytes);
+    }
+  }
+
+  /**
+   * Writes a <code>/v6/finance/quote</code> response for the requested symbols.
+   */
+  private void quote(HttpExchange exchange, OutputStream body) throws IOException {
+    Map<String, String> parameters = parseQuery(exchange);
+    String region = parameters.getOrDefault("region", "US");
+    long now = System.currentTimeMillis() / 1000;
+
+    QuoteResponse quoteResponse = new QuoteResponse();
+    quoteResponse.result = new ArrayList<>();
+    for (String symbol : splitSymbols(parameters.get("symbols"))) {
+      double previousClose = basePrice(symbol);
+      double price = previousClose * (1 + drift(symbol, now));
+      com.lyit.csd.marketapi.yahoo.quote.Result result =
+          new com.lyit.csd.marketapi.yahoo.quote.Result();
+      result.symbol = symbol;
+      result.shortName = symbol + " Inc.";
+      result.displayName = symbol;
+      result.quoteType = symbol.startsWith("^") ? "INDEX" : "EQUITY";
+      result.fullExchangeName = symbol.startsWith("^") ? "SNP" : "NasdaqGS";
+      result.region = region;
+      result.regularMarketTime = (int) now;
+      result.regularMarketPrice = round(price);
+      result.regularMarketPreviousClose = round(previousClose);
+      result.regularMarketOpen = round(previousClose * (1 + drift(symbol, now - 3600) / 2));
+      result.regularMarketChange = round(price - previousClose);
+      result.regularMarketChangePercent = round((price - previousClose) / previousClose * 100);
+      quoteResponse.result.add(result);
+    }
+
+    com.lyit.csd.marketapi.yahoo.quote.Root root = new com.lyit.csd.marketapi.yahoo.quote.Root();
+    root.quoteResponse = quoteResponse;
+    OBJECT_MAPPER.writeValue(body, root);
+  }
+
+  /**
+   * Writes a <code>/v8/finance/spark</code> response: a closing price series per symbol, ending
+   * now, with one point per interval over the range times the payload scale.
+   */
+  private void spark(HttpExchange exchange, OutputStream body) throws IOException {
+    Map<String, String> parameters = parseQuery(exchange);
+    long end = System.currentTimeMillis() / 1000;
+    long intervalSeconds = MarketPeriods.intervalSeconds(parameters.getOrDefault("interval", "1d"));
+    long rangeSeconds = MarketPeriods.rangeSeconds(parameters.getOrDefault("range", "1mo"), end);
+    int scale = behaviour.getPayloadScale();
+    int points = (int) Math.min(MAX_SPARK_POINTS,
+        Math.max(1, rangeSeconds / intervalSeconds) * scale);
+    long step = Math.max(1, intervalSeconds / scale);
+
+    try (JsonGenerator generator = JSON_FACTORY.createGenerator(body)) {
+      generator.writeStartObject();
+      for (String symbol : splitSymbols(parameters.get("symbols"))) {
+        double base = basePrice(symbol);
+        long start = end - (points - 1) * step;
+        generator.writeObjectFieldStart(symbol);
+        generator.writeStringField("symbol", symbol);
+        generator.writeArrayFieldStart("timestamp");
+        for (int i = 0; i < points; i++) {
+          generator.writeNumber(start + i * step);
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("close");
+        for (int i = 0; i < points; i++) {
+          generator.writeNumber(round(base * (1 + drift(symbol, start + i * step))));
+        }
+        generator.writeEndArray();
+        generator.writeNumberField("chartPreviousClose", round(base));
+        generator.writeNumberField("dataGranularity", intervalSeconds);
+        generator.writeNullField("previousClose");
+        generator.writeNullField("end");
+        generator.writeNullField("start");
+        generator.writeEndObject();
+      }
+      generator.writeEndObject();
+    }
+  }
+
+  /**
+   * Writes a <code>/v1/finance/trending/{region}</code> response.
+   */
+  private void trending(HttpExchange exchange, OutputStream body) throws IOException {
+    String path = exchange.getRequestURI().getPath();
+    String region = path.substring(path.lastIndexOf('/') + 1);
+    int count = TRENDING_SYMBOLS * behaviour.getPayloadScale();
+
+    com.lyit.csd.marketapi.yahoo.trending.Result result =
+        new com.lyit.csd.marketapi.yahoo.trending.Result();
+    result.region = region;
+    result.quotes = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Quote quote = new Quote();
+      quote.symbol = i < TRENDING_BASE.length ? TRENDING_BASE[i] : "SYM" + i;
+      result.quotes.add(quote);
+    }
+
+    Finance finance = new Finance();
+    finance.result = new ArrayList<>(List.of(result));
+    com.lyit.csd.marketapi.yahoo.trending.Root root =
+        new com.lyit.csd.marketapi.yahoo.trending.Root();
+    root.finance = finance;
+    OBJECT_MAPPER.writeValue(body, root);
+  }
+
+  private static void sendError(HttpExchange exchange, int statusCode, String message)
+      throws IOException {
+    String body = "{\"message\":\"" + message + "\"}";
+    send(exchange, statusCode, body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void send(HttpExchange exchange, int statusCode, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.sendResponseHeaders(statusCode, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  private static Map<String, String> parseQuery(HttpExchange exchange) {
+    Map<String, String> parameters = new HashMap<>();
+    String query = exchange.getRequestURI().getRawQuery();
+    if (query == null) {
+      return parameters;
+    }
+    for (String pair : query.split("&")) {
+      int separator = pair.indexOf('=');
+      if (separator > 0) {
+        parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+            URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  private static Set<String> splitSymbols(String symbols) {
+    Set<String> assetSymbols = new LinkedHashSet<>();
+    if (symbols != null) {
+      for (String symbol : symbols.split(",")) {
+        if (!symbol.isBlank()) {
+          assetSymbols.add(symbol.trim().toUpperCase(Locale.ROOT));
+        }
+      }
+    }
+    return assetSymbols;
+  }
+
+  /**
+   * Gives every symbol a stable price between 5 and 505.
+   */
+  private static double basePrice(String symbol) {
+    return 5 + Math.floorMod(symbol.hashCode(), 50_000) / 100.0;
+  }
+
+  /**
+   * A smooth, symbol-specific movement of up to 3% either way over time.
+   */
+  private static double drift(String symbol, long epochSeconds) {
+    double phase = Math.floorMod(symbol.hashCode(), 360) * Math.PI / 180;
+    return 0.03 * Math.sin(epochSeconds / 3600.0 + phase);
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+
+  /**
+   * Writes the body of a successful response.
+   */
+  @FunctionalInterface
+  private interface PayloadWriter {
+    void write(HttpExchange exchange, OutputStream body) throws IOException;
+  }
+}
@@ -0,0 +1,87 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.marketapi.yahoo.ApiKeyScheduler;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class ApiKeyScheduler_AcquireUTest {
+
+  @Test
+  protected void acquire_KeyRateLimited_UsesOtherKeys() {
+    // Arrange
+    ApiKeyScheduler scheduler = new ApiKeyScheduler(List.of("A", "B"), 5, 10,
+        Duration.ZERO, new ManualClock());
+
+    // Act
+    scheduler.recordFailure("A", 429);
+
+    // Assert
+    for (int i = 0; i < 10; i++) {
+      assertEquals(scheduler.acquire(""), "B");
+    }
+    assertNull(scheduler.acquire(""));
+  }
+
+  @Test
+  protected void acquire_BucketEmpty_AvailableAgainAfterRefill() {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    ApiKeyScheduler scheduler = new ApiKeyScheduler(List.of("A"), 1, 2, Duration.ZERO, clock);
+
+    // Act
+    scheduler.acquire("");
+    scheduler.acquire("");
+    String whenEmpty = scheduler.acquire("");
+    clock.advance(Duration.ofSeconds(1));
+    String afterRefill = scheduler.acquire("");
+
+    // Assert
+    assertNull(whenEmpty);
+    assertEquals(afterRefill, "A");
+  }
+
+  @Test
+  protected void acquire_AfterFailure_PrefersAnotherKey() {
+    // Arrange
+    ApiKeyScheduler scheduler = new ApiKeyScheduler(List.of("A", "B", "C"), 5, 10,
+        Duration.ZERO, new ManualClock());
+
+    // Act
+    scheduler.recordFailure("B", 500);
+    String retryKey = scheduler.acquire("A");
+
+    // Assert
+    assertEquals(retryKey, "C");
+    assertTrue(scheduler.getErrorRate("B") > 0);
+  }
+
+  @Test
+  protected void acquire_NoKeyUntilRefill_WaitsOnInjectedClock() {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    AtomicLong sleptMillis = new AtomicLong();
+    ApiKeyScheduler scheduler = new ApiKeyScheduler(List.of("A"), 1, 1, Duration.ofSeconds(2),
+        clock, millis -> {
+          sleptMillis.addAndGet(millis);
+          clock.advance(Duration.ofMillis(millis));
+        });
+    scheduler.acquire("");
+
+    // Act
+    String afterWait = scheduler.acquire("");
+    scheduler.recordFailure("A", 429);
+    String whileCoolingDown = scheduler.acquire("");
+
+    // Assert
+    assertEquals(afterWait, "A");
+    assertEquals(sleptMillis.get(), 1000);
+    // The cool-down outlasts the maximum wait, so no time is spent waiting for it.
+    assertNull(whileCoolingDown);
+  }
+}
@@ -0,0 +1,120 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.AssetSymbolValidator;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class AssetSymbolValidator_ValidateUTest {
+
+  /**
+   * Quotes every symbol except those starting with BAD, unless told the provider is unreachable,
+   * and counts the requests made.
+   */
+  private static class CountingClient extends MockClient {
+    final AtomicInteger requests = new AtomicInteger();
+    volatile boolean unreachable;
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      requests.incrementAndGet();
+      List<AssetQuote> assetQuotes = new ArrayList<>();
+      if (unreachable) {
+        return assetQuotes;
+      }
+      for (String assetSymbol : assetSymbols) {
+        if (!assetSymbol.startsWith("BAD")) {
+          assetQuotes.add(super.getQuote(assetSymbol));
+        }
+      }
+      return assetQuotes;
+    }
+  }
+
+  @Test
+  protected void validate_MixedSymbols_OneRequestAndBitPerSymbol() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    AssetSymbolValidator validator = new AssetSymbolValidator(delegate);
+
+    // Act
+    BitSet valid = validator.validate(List.of("TSLA", "BADX", "", "aapl", "TSLA"));
+
+    // Assert
+    assertEquals(delegate.requests.get(), 1);
+    assertTrue(valid.get(0));
+    assertFalse(valid.get(1));
+    assertFalse(valid.get(2));
+    assertTrue(valid.get(3));
+    assertTrue(valid.get(4));
+  }
+
+  @Test
+  protected void isValid_KnownGoodSymbolAnyCase_NoRequest() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    AssetSymbolValidator validator = new AssetSymbolValidator(delegate);
+    validator.addKnownGood(List.of("TSLA"));
+
+    // Act
+    boolean valid = validator.isValid("tsla");
+
+    // Assert
+    assertTrue(valid);
+    assertEquals(delegate.requests.get(), 0);
+  }
+
+  @Test
+  protected void isValid_InvalidSymbolRepeated_LookedUpAgainOnlyAfterTimeToLive() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    ManualClock clock = new ManualClock();
+    AssetSymbolValidator validator = new AssetSymbolValidator(delegate, Duration.ofMinutes(5),
+        100, clock);
+    validator.addKnownGood(List.of("TSLA"));
+    validator.isValid("BADX");
+
+    // Act
+    boolean validBeforeExpiry = validator.isValid("badx");
+    int requestsBeforeExpiry = delegate.requests.get();
+    clock.advance(Duration.ofMinutes(6));
+    validator.isValid("BADX");
+
+    // Assert
+    assertFalse(validBeforeExpiry);
+    assertEquals(requestsBeforeExpiry, 1);
+    assertEquals(delegate.requests.get(), 2);
+    assertEquals(validator.getInvalidCount(), 1);
+  }
+
+  @Test
+  protected void validate_ProviderUnreachable_SymbolsNotRememberedAsInvalid() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    AssetSymbolValidator validator = new AssetSymbolValidator(delegate, Duration.ofMinutes(5),
+        100, new ManualClock());
+    validator.addKnownGood(List.of("TSLA"));
+    delegate.unreachable = true;
+
+    // Act
+    BitSet duringOutage = validator.validate(List.of("AAPL", "MSFT"));
+    delegate.unreachable = false;
+    BitSet afterOutage = validator.validate(List.of("AAPL", "MSFT"));
+
+    // Assert
+    assertTrue(duringOutage.isEmpty());
+    assertEquals(delegate.requests.get(), 2);
+    assertTrue(afterOutage.get(0));
+    assertTrue(afterOutage.get(1));
+    assertEquals(validator.getInvalidCount(), 0);
+  }
+}
@@ -0,0 +1,136 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.abstraction.AsyncMarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClient;
+import com.lyit.csd.marketapi.abstraction.MarketClientExecutors;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class AsyncMarketClient_OfUTest {
+
+  /**
+   * A blocking client that is not an {@link AsyncMarketClient}, and remembers the threads its
+   * lookups ran on. Every lookup waits until all expected lookups have started.
+   */
+  private static class BlockingClient implements MarketClient {
+    final MockClient quotes = new MockClient();
+    final List<Thread> threads = new ArrayList<>();
+    final CountDownLatch started;
+
+    BlockingClient(int expectedLookups) {
+      this.started = new CountDownLatch(expectedLookups);
+    }
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      synchronized (threads) {
+        threads.add(Thread.currentThread());
+      }
+      started.countDown();
+      try {
+        started.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return quotes.getQuote(assetSymbol);
+    }
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      return quotes.getQuote(assetSymbols);
+    }
+
+    @Override
+    public ArrayList<String> getTrendingStocksForRegion(String region) {
+      return quotes.getTrendingStocksForRegion(region);
+    }
+
+    @Override
+    public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                              String range) {
+      return quotes.getHistoricalInfo(assetSymbols, interval, range);
+    }
+
+    @Override
+    public String getExchangeInfo(String region, String exchange) {
+      return quotes.getExchangeInfo(region, exchange);
+    }
+
+    @Override
+    public boolean checkAssetSymbol(String assetSymbol) {
+      return quotes.checkAssetSymbol(assetSymbol);
+    }
+  }
+
+  @Test
+  protected void of_BlockingClient_LookupsRunConcurrentlyOffTheCallingThread() throws Exception {
+    // Arrange
+    BlockingClient blockingClient = new BlockingClient(2);
+    AsyncMarketClient client = AsyncMarketClient.of(blockingClient);
+
+    // Act
+    CompletableFuture<AssetQuote> first = client.getQuoteAsync("TSLA");
+    CompletableFuture<AssetQuote> second = client.getQuoteAsync("AAPL");
+
+    // Assert
+    // Each lookup waits for the other to start, so they only both finish if they run at once.
+    assertEquals(first.get(5, TimeUnit.SECONDS).getAssetSymbol(), "TSLA");
+    assertEquals(second.get(5, TimeUnit.SECONDS).getAssetSymbol(), "AAPL");
+    assertNotSame(client, blockingClient);
+    assertEquals(blockingClient.threads.size(), 2);
+    assertNotEquals(blockingClient.threads.get(0), blockingClient.threads.get(1));
+    assertFalse(blockingClient.threads.contains(Thread.currentThread()));
+  }
+
+  @Test
+  protected void of_AsyncClient_ReturnedAsItIs() {
+    // Arrange
+    MockClient mockClient = new MockClient();
+
+    // Act
+    AsyncMarketClient client = AsyncMarketClient.of(mockClient);
+
+    // Assert
+    assertSame(client, mockClient);
+  }
+
+  @Test
+  protected void newExecutor_TasksRun_OnThreadsThatDoNotKeepTheJvmAlive() throws Exception {
+    // Arrange
+    boolean virtualThreadsAvailable;
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      virtualThreadsAvailable = true;
+    } catch (NoSuchMethodException e) {
+      virtualThreadsAvailable = false;
+    }
+    ExecutorService executor = MarketClientExecutors.newExecutor();
+
+    // Act
+    Thread thread = executor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+    executor.shutdown();
+
+    // Assert
+    assertTrue(thread.isDaemon());
+    if (virtualThreadsAvailable) {
+      assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+    } else {
+      assertTrue(thread.getName().startsWith("market-client-"), thread.getName());
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.coalescing.BatchingMarketClient;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class BatchingMarketClient_GetQuoteUTest {
+  /**
+   * A batching window that never passes during a test, so batches are only sent once full or when
+   * the client is closed, and the requests made do not depend on timing.
+   */
+  private static final Duration NEVER = Duration.ofHours(1);
+
+  @Test
+  protected void getQuoteAsync_SymbolsWithinWindow_SentAsOneRequest() {
+    // Arrange
+    BatchingMarketClient client = new BatchingMarketClient(new MockClient(), NEVER, 50, 1500);
+    List<String> assetSymbols = List.of("TSLA", "AAPL", "NVDA", "MSFT", "GME");
+
+    // Act
+    List<CompletableFuture<AssetQuote>> futures = new ArrayList<>();
+    for (String assetSymbol : assetSymbols) {
+      futures.add(client.getQuoteAsync(assetSymbol));
+    }
+    client.close();
+
+    // Assert
+    for (int i = 0; i < assetSymbols.size(); i++) {
+      assertEquals(futures.get(i).join().getAssetSymbol(), assetSymbols.get(i));
+    }
+    assertEquals(client.getRequestCount(), 1);
+  }
+
+  @Test
+  protected void getQuote_MoreSymbolsThanBatchSize_FullBatchesSentStraightAway() {
+    // Arrange
+    BatchingMarketClient client = new BatchingMarketClient(new MockClient(), NEVER, 4, 1500);
+    List<String> assetSymbols = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      assetSymbols.add("SYM" + i);
+    }
+
+    // Act
+    List<CompletableFuture<AssetQuote>> futures = new ArrayList<>();
+    for (String assetSymbol : assetSymbols) {
+      futures.add(client.getQuoteAsync(assetSymbol));
+    }
+    // The two full batches complete without waiting for the window.
+    for (CompletableFuture<AssetQuote> future : futures.subList(0, 8)) {
+      future.join();
+    }
+    client.close();
+
+    // Assert
+    for (int i = 0; i < assetSymbols.size(); i++) {
+      assertEquals(futures.get(i).join().getAssetSymbol(), assetSymbols.get(i));
+    }
+    assertEquals(client.getRequestCount(), 3);
+    assertEquals(client.getSymbolCount(), 10);
+  }
+
+  @Test
+  protected void getQuote_SymbolListTooLong_SplitByLength() {
+    // Arrange
+    BatchingMarketClient client = new BatchingMarketClient(new MockClient(), NEVER, 50, 9);
+
+    // Act
+    CompletableFuture<List<AssetQuote>> future =
+        client.getQuoteAsync(List.of("TSLA", "AAPL", "NVDA"));
+    client.close();
+
+    // Assert
+    assertEquals(future.join().size(), 3);
+    assertEquals(client.getRequestCount(), 2);
+  }
+
+  @Test
+  protected void getQuote_LowerCaseSymbolReturnedUpperCase_QuoteMatched() {
+    // Arrange
+    MockClient upperCasing = new MockClient() {
+      @Override
+      public List<AssetQuote> getQuote(List<String> assetSymbols) {
+        List<String> upperCased = new ArrayList<>();
+        for (String assetSymbol : assetSymbols) {
+          upperCased.add(assetSymbol.toUpperCase(Locale.ROOT));
+        }
+        return super.getQuote(upperCased);
+      }
+    };
+    BatchingMarketClient client = new BatchingMarketClient(upperCasing, NEVER, 50, 1500);
+
+    // Act
+    CompletableFuture<List<AssetQuote>> future =
+        client.getQuoteAsync(List.of("tsla", "Aapl", "TSLA"));
+    client.close();
+
+    // Assert
+    List<AssetQuote> assetQuotes = future.join();
+    assertEquals(assetQuotes.size(), 2);
+    assertEquals(assetQuotes.get(0).getAssetSymbol(), "TSLA");
+    assertEquals(assetQuotes.get(1).getAssetSymbol(), "AAPL");
+    assertEquals(client.getSymbolCount(), 2);
+  }
+}
@@ -0,0 +1,129 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.caching.CachingMarketClient;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+public class CachingMarketClient_GetQuoteUTest {
+
+  /**
+   * Counts the quote requests that reach the wrapped client.
+   */
+  private static class CountingClient extends MockClient {
+    final AtomicInteger requests = new AtomicInteger();
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      requests.incrementAndGet();
+      return super.getQuote(assetSymbol);
+    }
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      requests.incrementAndGet();
+      return assetSymbols.stream().map(super::getQuote).toList();
+    }
+  }
+
+  @Test
+  protected void getQuote_RepeatedSymbol_FetchesOnce() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    CachingMarketClient client = new CachingMarketClient(delegate);
+
+    // Act
+    for (int i = 0; i < 10; i++) {
+      assertNotNull(client.getQuote("TSLA"));
+    }
+
+    // Assert
+    assertEquals(delegate.requests.get(), 1);
+    assertEquals(client.getMissCount(), 1);
+    assertEquals(client.getHitCount(), 9);
+  }
+
+  @Test
+  protected void getQuote_ListWithCachedSymbol_FetchesOnlyMissingSymbols() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    CachingMarketClient client = new CachingMarketClient(delegate);
+    client.getQuote("TSLA");
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("AAPL", "TSLA", "NVDA"));
+
+    // Assert
+    assertEquals(assetQuotes.size(), 3);
+    assertEquals(assetQuotes.get(1).getAssetSymbol(), "TSLA");
+    assertEquals(delegate.requests.get(), 2);
+    assertEquals(client.getQuote(List.of("AAPL", "NVDA")).size(), 2);
+    assertEquals(delegate.requests.get(), 2);
+  }
+
+  @Test
+  protected void getQuote_PastMaxStaleness_FetchesAgain() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    ManualClock clock = new ManualClock();
+    CachingMarketClient client = new CachingMarketClient(delegate, 10,
+        Duration.ofSeconds(5), Duration.ofSeconds(30), clock);
+    client.getQuote("TSLA");
+
+    // Act
+    clock.advance(Duration.ofSeconds(31));
+    client.getQuote("TSLA");
+
+    // Assert
+    assertEquals(delegate.requests.get(), 2);
+    assertEquals(client.getEvictionCount(), 1);
+  }
+
+  @Test
+  protected void getQuote_MoreSymbolsThanMaxEntries_EvictsLeastRecentlyUsed() {
+    // Arrange
+    CachingMarketClient client = new CachingMarketClient(new CountingClient(), 2,
+        Duration.ofSeconds(5), Duration.ofSeconds(30), new ManualClock());
+
+    // Act
+    client.getQuote("TSLA");
+    client.getQuote("AAPL");
+    client.getQuote("NVDA");
+
+    // Assert
+    assertEquals(client.size(), 2);
+    assertEquals(client.getEvictionCount(), 1);
+  }
+
+  @Test
+  protected void getQuote_LowerCaseSymbolReturnedUpperCase_QuoteReturnedAndCached() {
+    // Arrange
+    CountingClient delegate = new CountingClient() {
+      @Override
+      public List<AssetQuote> getQuote(List<String> assetSymbols) {
+        return super.getQuote(assetSymbols.stream()
+            .map(assetSymbol -> assetSymbol.toUpperCase(Locale.ROOT))
+            .toList());
+      }
+    };
+    CachingMarketClient client = new CachingMarketClient(delegate);
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("tsla", "AAPL", "Tsla"));
+    AssetQuote cachedQuote = client.getQuote("TSLA");
+
+    // Assert
+    assertEquals(assetQuotes.size(), 2);
+    assertEquals(assetQuotes.get(0).getAssetSymbol(), "TSLA");
+    assertEquals(cachedQuote, assetQuotes.get(0));
+    assertEquals(delegate.requests.get(), 1);
+    assertEquals(client.size(), 2);
+  }
+}
@@ -0,0 +1,108 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.coalescing.CoalescingMarketClient;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+public class CoalescingMarketClient_GetQuoteUTest {
+
+  /**
+   * Holds every quote request until released, counting the requests that arrive.
+   */
+  private static class BlockingClient extends MockClient {
+    final AtomicInteger requests = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      requests.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.getQuote(assetSymbols);
+    }
+  }
+
+  @Test
+  protected void getQuote_ConcurrentCallersSameSymbol_ShareOneRequest() throws Exception {
+    // Arrange
+    BlockingClient delegate = new BlockingClient();
+    CoalescingMarketClient client = new CoalescingMarketClient(delegate);
+    int callers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+    // Act
+    List<CompletableFuture<AssetQuote>> results = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      results.add(CompletableFuture.supplyAsync(() -> client.getQuote("TSLA"), executor));
+    }
+    while (client.getCoalescedCount() < callers - 1) {
+      Thread.sleep(5);
+    }
+    delegate.release.countDown();
+
+    // Assert
+    for (CompletableFuture<AssetQuote> result : results) {
+      assertEquals(result.get().getAssetSymbol(), "TSLA");
+    }
+    assertEquals(delegate.requests.get(), 1);
+    executor.shutdown();
+  }
+
+  @Test
+  protected void getQuote_SequentialCallers_EachMakeARequest() {
+    // Arrange
+    BlockingClient delegate = new BlockingClient();
+    delegate.release.countDown();
+    CoalescingMarketClient client = new CoalescingMarketClient(delegate);
+
+    // Act
+    client.getQuote("TSLA");
+    client.getQuote(List.of("TSLA", "AAPL"));
+
+    // Assert
+    assertEquals(delegate.requests.get(), 2);
+    assertEquals(client.getCoalescedCount(), 0);
+  }
+
+  @Test
+  protected void getQuote_LowerCaseSymbolReturnedUpperCase_QuoteMatched() {
+    // Arrange
+    MockClient upperCasing = new MockClient() {
+      @Override
+      public List<AssetQuote> getQuote(List<String> assetSymbols) {
+        List<String> upperCased = new ArrayList<>();
+        for (String assetSymbol : assetSymbols) {
+          upperCased.add(assetSymbol.toUpperCase(Locale.ROOT));
+        }
+        return super.getQuote(upperCased);
+      }
+    };
+    CoalescingMarketClient client = new CoalescingMarketClient(upperCasing);
+
+    // Act
+    AssetQuote assetQuote = client.getQuote("tsla");
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("aapl", "MSFT", "Aapl"));
+
+    // Assert
+    assertNotNull(assetQuote);
+    assertEquals(assetQuote.getAssetSymbol(), "TSLA");
+    assertEquals(assetQuotes.size(), 2);
+    assertEquals(assetQuotes.get(0).getAssetSymbol(), "AAPL");
+    assertEquals(assetQuotes.get(1).getAssetSymbol(), "MSFT");
+  }
+}
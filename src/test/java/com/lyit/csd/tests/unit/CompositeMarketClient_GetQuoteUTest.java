@@ -0,0 +1,134 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.composite.CompositeMarketClient;
+import com.lyit.csd.marketapi.composite.CompositeMarketClient.Policy;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class CompositeMarketClient_GetQuoteUTest {
+
+  /**
+   * Quotes only some symbols, after a delay, and remembers what it was asked for.
+   */
+  private static class PartialClient extends MockClient {
+    final AtomicInteger requests = new AtomicInteger();
+    final Set<String> known;
+    final long delayMillis;
+    volatile List<String> lastRequested;
+    volatile boolean interrupted;
+
+    PartialClient(long delayMillis, String... known) {
+      this.delayMillis = delayMillis;
+      this.known = Set.of(known);
+    }
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      return known.contains(assetSymbol) ? super.getQuote(assetSymbol) : null;
+    }
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      requests.incrementAndGet();
+      lastRequested = assetSymbols;
+      if (delayMillis > 0) {
+        try {
+          Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+          interrupted = true;
+          return List.of();
+        }
+      }
+      return super.getQuote(assetSymbols);
+    }
+  }
+
+  @Test
+  protected void getQuote_FirstProviderMissesSymbols_GapsBackfilledFromNext() {
+    // Arrange
+    PartialClient first = new PartialClient(0, "TSLA");
+    PartialClient second = new PartialClient(0, "TSLA", "AAPL", "MSFT");
+    CompositeMarketClient client = new CompositeMarketClient(Policy.Failover,
+        List.of(first, second));
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("MSFT", "TSLA", "AAPL"));
+
+    // Assert
+    assertEquals(assetQuotes.size(), 3);
+    assertEquals(assetQuotes.get(0).getAssetSymbol(), "MSFT");
+    assertEquals(assetQuotes.get(1).getAssetSymbol(), "TSLA");
+    assertEquals(second.lastRequested, List.of("MSFT", "AAPL"));
+    assertEquals(client.getBackfillCount(), 1);
+  }
+
+  @Test
+  protected void getQuote_FirstProviderThrows_FailsOverToNext() {
+    // Arrange
+    MockClient failing = new MockClient() {
+      @Override
+      public AssetQuote getQuote(String assetSymbol) {
+        throw new IllegalStateException("Service unavailable");
+      }
+    };
+    CompositeMarketClient client = new CompositeMarketClient(Policy.Failover,
+        List.of(failing, new MockClient()));
+
+    // Act
+    AssetQuote assetQuote = client.getQuote("TSLA");
+
+    // Assert
+    assertNotNull(assetQuote);
+  }
+
+  @Test
+  protected void getQuote_LatencyPolicy_FasterProviderAskedFirst() {
+    // Arrange
+    PartialClient slow = new PartialClient(100, "TSLA");
+    PartialClient fast = new PartialClient(0, "TSLA");
+    CompositeMarketClient client = new CompositeMarketClient(Policy.Latency, List.of(slow, fast),
+        Duration.ofMillis(1));
+    client.getQuote(List.of("TSLA"));
+    client.getQuote(List.of("TSLA"));
+
+    // Act
+    client.getQuote(List.of("TSLA"));
+    client.getQuote(List.of("TSLA"));
+
+    // Assert
+    assertEquals(slow.requests.get(), 1);
+    assertEquals(fast.requests.get(), 3);
+    assertTrue(client.getMedianLatencyNanos(0) > client.getMedianLatencyNanos(1));
+  }
+
+  @Test
+  protected void getQuote_RacePolicy_FirstAnswerWinsAndSlowerCallCancelled()
+      throws InterruptedException {
+    // Arrange
+    PartialClient slow = new PartialClient(5000, "TSLA");
+    PartialClient fast = new PartialClient(0, "TSLA");
+    CompositeMarketClient client = new CompositeMarketClient(Policy.Race, List.of(slow, fast));
+
+    // Act
+    long start = System.nanoTime();
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("TSLA"));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // Assert
+    assertEquals(assetQuotes.size(), 1);
+    assertTrue(elapsedMillis < 2000, "Took " + elapsedMillis + "ms");
+    assertEquals(client.getCancelledCount(), 1);
+    Thread.sleep(100);
+    assertFalse(slow.interrupted);
+  }
+}
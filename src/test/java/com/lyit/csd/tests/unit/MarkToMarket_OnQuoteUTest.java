@@ -0,0 +1,216 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.MarkToMarket;
+import com.lyit.csd.domain.PortfolioManager;
+import com.lyit.csd.marketapi.feed.QuoteFeed;
+import com.lyit.csd.marketapi.feed.RefreshScheduler;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class MarkToMarket_OnQuoteUTest {
+
+  /**
+   * Quotes each symbol at a price that can be changed, and runs deliveries on the calling thread.
+   */
+  private static class PricedClient extends MockClient {
+    final Map<String, Double> prices = new ConcurrentHashMap<>();
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      return quote(assetSymbol, prices.getOrDefault(assetSymbol, 100.0), 100);
+    }
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      List<AssetQuote> assetQuotes = new ArrayList<>();
+      for (String assetSymbol : assetSymbols) {
+        assetQuotes.add(getQuote(assetSymbol));
+      }
+      return assetQuotes;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+      return Runnable::run;
+    }
+  }
+
+  private static AssetQuote quote(String assetSymbol, double price, double previousClose) {
+    return new AssetQuote(assetSymbol, "NasdaqGS", (int) (price * 100), price, 0, 0, "EQUITY",
+        previousClose, previousClose);
+  }
+
+  @Test
+  protected void onQuote_OneSymbolMoves_OnlyItsDeltaApplied() {
+    // Arrange
+    MarkToMarket markToMarket = new MarkToMarket();
+    markToMarket.setPosition("TSLA", 10, 1000);
+    markToMarket.setPosition("AAPL", 4, 600);
+    markToMarket.onQuote(quote("TSLA", 110, 105));
+    markToMarket.onQuote(quote("AAPL", 140, 150));
+
+    // Act
+    markToMarket.onQuote(quote("tsla", 120, 105));
+
+    // Assert
+    assertEquals(markToMarket.getMarketValue(), 10 * 120 + 4 * 140, 1e-9);
+    assertEquals(markToMarket.getUnrealizedGain(), (1200 - 1000) + (560 - 600), 1e-9);
+    assertEquals(markToMarket.getDayChange(), 10 * 15 + 4 * -10, 1e-9);
+    assertEquals(markToMarket.getMark("TSLA").getMarketValue(), 1200, 1e-9);
+    assertEquals(markToMarket.getTickCount(), 3);
+  }
+
+  @Test
+  protected void onQuote_UnpricedAndNotHeldSymbols_LeftOutOfTotals() {
+    // Arrange
+    MarkToMarket markToMarket = new MarkToMarket();
+    markToMarket.setPosition("TSLA", 10, 1000);
+    markToMarket.setPosition("AAPL", 4, 600);
+
+    // Act
+    markToMarket.onQuote(quote("TSLA", 110, 105));
+    markToMarket.onQuote(quote("MSFT", 300, 300));
+    markToMarket.onQuote(quote("AAPL", 0, 150));
+
+    // Assert
+    assertEquals(markToMarket.getMarketValue(), 1100, 1e-9);
+    assertEquals(markToMarket.getUnpricedSymbols(), List.of("AAPL"));
+    assertNull(markToMarket.getMark("MSFT"));
+    assertEquals(markToMarket.getTickCount(), 1);
+  }
+
+  @Test
+  protected void onQuote_ManyTicks_TotalsMatchSumOfMarks() {
+    // Arrange
+    MarkToMarket markToMarket = new MarkToMarket();
+    for (int i = 0; i < 20; i++) {
+      markToMarket.setPosition("S" + i, 1 + i * 0.1, 10 * i);
+    }
+
+    // Act
+    for (int tick = 0; tick < 10_000; tick++) {
+      markToMarket.onQuote(quote("S" + (tick % 20), 50 + (tick % 97) * 0.01, 50));
+    }
+
+    // Assert
+    double expected = markToMarket.getMarks().values().stream()
+        .mapToDouble(MarkToMarket.Mark::getMarketValue).sum();
+    assertEquals(markToMarket.getMarketValue(), expected, 1e-6);
+    assertTrue(markToMarket.getResumCount() > 0);
+  }
+
+  @Test
+  protected void startMarkToMarket_PurchasesSalesAndFeedTicks_KeptInStepWithHoldings() {
+    // Arrange
+    PricedClient marketClient = new PricedClient();
+    PortfolioManager portfolioManager = new PortfolioManager(marketClient, false);
+    portfolioManager.addFunds(100000);
+    portfolioManager.purchaseAsset("TSLA", 10);
+    QuoteFeed quoteFeed = new QuoteFeed(marketClient, Duration.ofHours(1), 50);
+    MarkToMarket markToMarket = portfolioManager.startMarkToMarket(quoteFeed);
+    quoteFeed.poll();
+
+    // Act
+    marketClient.prices.put("AAPL", 50.0);
+    portfolioManager.purchaseAsset("AAPL", 20);
+    marketClient.prices.put("TSLA", 130.0);
+    quoteFeed.poll();
+    portfolioManager.sellAsset("TSLA", 4);
+
+    // Assert
+    assertEquals(markToMarket.getMarketValue(), 6 * 130 + 20 * 50, 1e-9);
+    assertEquals(markToMarket.getMarketValue(), portfolioManager.getPortfolioValue(), 1e-9);
+    assertEquals(markToMarket.getUnrealizedGain(), 6 * 30, 1e-9);
+    assertEquals(markToMarket.getDayChange(), 6 * 30 + 20 * -50, 1e-9);
+
+    portfolioManager.sellAsset("AAPL", 20);
+    assertNull(markToMarket.getMark("AAPL"));
+    markToMarket.close();
+    assertTrue(markToMarket.isClosed());
+    assertFalse(markToMarket.getMarks().isEmpty());
+    quoteFeed.close();
+  }
+
+  @Test
+  protected void startMarkToMarket_TradesMade_FeedRefreshesLargerHoldingsMoreOften() {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    // 10:00 in New York on a Thursday, when US equities trade.
+    clock.advance(Duration.ofHours(15));
+    RefreshScheduler refreshScheduler = new RefreshScheduler(Duration.ofSeconds(10), 100, clock);
+    PricedClient marketClient = new PricedClient();
+    QuoteFeed quoteFeed = new QuoteFeed(marketClient, refreshScheduler, 50, Duration.ofHours(1));
+    PortfolioManager portfolioManager = new PortfolioManager(marketClient, false);
+    portfolioManager.addFunds(100000);
+    portfolioManager.purchaseAsset("TSLA", 10);
+    portfolioManager.purchaseAsset("GME", 1);
+    portfolioManager.startMarkToMarket(quoteFeed);
+    quoteFeed.poll();
+    boolean tslaFirst = refreshScheduler.getIntervalMillis("TSLA")
+        < refreshScheduler.getIntervalMillis("GME");
+
+    // Act
+    portfolioManager.sellAsset("TSLA", 9);
+    portfolioManager.purchaseAsset("GME", 20);
+
+    // Assert
+    assertTrue(tslaFirst);
+    assertTrue(refreshScheduler.getIntervalMillis("GME")
+        < refreshScheduler.getIntervalMillis("TSLA"));
+    quoteFeed.close();
+  }
+
+  @Test
+  protected void setPosition_SoldOutWhileSubscribing_FeedNoLongerPollsSymbol() throws Exception {
+    // Arrange
+    CountDownLatch subscribing = new CountDownLatch(1);
+    CountDownLatch sold = new CountDownLatch(1);
+    QuoteFeed quoteFeed = new QuoteFeed(new PricedClient(), Duration.ofHours(1), 50) {
+      @Override
+      public void subscribe(List<String> assetSymbols,
+                            Flow.Subscriber<? super AssetQuote> subscriber) {
+        subscribing.countDown();
+        try {
+          sold.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.subscribe(assetSymbols, subscriber);
+      }
+    };
+    MarkToMarket markToMarket = new MarkToMarket(quoteFeed);
+    Thread buyer = new Thread(() -> markToMarket.setPosition("TSLA", 10, 1000));
+    buyer.start();
+    assertTrue(subscribing.await(5, TimeUnit.SECONDS));
+
+    // Act
+    // The sale cancels the subscriber before the purchase's subscribe reaches the feed.
+    markToMarket.setPosition("TSLA", 0, 0);
+    sold.countDown();
+    buyer.join(5000);
+    quoteFeed.poll();
+
+    // Assert
+    assertFalse(buyer.isAlive());
+    assertEquals(quoteFeed.getSymbolCount(), 0);
+    assertEquals(quoteFeed.getRequestCount(), 0);
+    assertNull(markToMarket.getMark("TSLA"));
+    markToMarket.close();
+    quoteFeed.close();
+  }
+}
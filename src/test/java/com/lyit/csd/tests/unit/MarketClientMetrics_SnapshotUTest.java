@@ -0,0 +1,137 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.marketapi.metrics.LatencyHistogram;
+import com.lyit.csd.marketapi.metrics.MarketClientMetrics;
+import com.lyit.csd.marketapi.metrics.MarketClientMetrics.Operation;
+import com.lyit.csd.marketapi.metrics.MetricsSnapshot;
+import com.lyit.csd.marketapi.yahoo.ApiKeyScheduler;
+import com.lyit.csd.marketapi.yahoo.YahooClient;
+import com.lyit.csd.marketapi.yahoo.YahooHttpTransport;
+import com.lyit.csd.marketapi.yahoo.standin.StandInBehaviour;
+import com.lyit.csd.marketapi.yahoo.standin.YahooStandInServer;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class MarketClientMetrics_SnapshotUTest {
+  private StandInBehaviour behaviour;
+  private YahooStandInServer server;
+  private ManualClock clock;
+  private MarketClientMetrics metrics;
+  private YahooClient client;
+
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    behaviour = new StandInBehaviour();
+    server = new YahooStandInServer(behaviour);
+    server.start();
+    clock = new ManualClock();
+    metrics = new MarketClientMetrics(Duration.ofMinutes(1), clock);
+    client = new YahooClient(server.getBaseUrl(), new ApiKeyScheduler(List.of("key1")),
+        YahooHttpTransport.getDefault(), metrics);
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    metrics.unregisterMBeans();
+    server.close();
+  }
+
+  @Test
+  protected void snapshot_QuoteFetched_RecordsCallBodyAndAttempt() {
+    // Act
+    client.getQuote(List.of("TSLA", "AAPL"));
+    MetricsSnapshot snapshot = metrics.snapshot();
+
+    // Assert
+    MetricsSnapshot.OperationSnapshot quote = snapshot.operations().get(Operation.Quote);
+    assertEquals(quote.latency().getCount(), 1);
+    assertEquals(quote.failureCount(), 0);
+    assertTrue(quote.bytesReceived() > 0);
+    assertEquals(quote.parseTime().getCount(), 1);
+    assertEquals(snapshot.operations().get(Operation.Spark).latency().getCount(), 0);
+    assertEquals(snapshot.apiKeys().get("key1").attemptCount(), 1);
+    assertEquals(snapshot.apiKeys().get("key1").retryCount(), 0);
+  }
+
+  @Test
+  protected void snapshot_EveryRequestFails_RecordsRetriesAndFailure() {
+    // Arrange
+    behaviour.setErrorRate(1);
+
+    // Act
+    client.getTrendingStocksForRegion("US");
+    MetricsSnapshot snapshot = metrics.snapshot();
+
+    // Assert
+    MetricsSnapshot.OperationSnapshot trending = snapshot.operations().get(Operation.Trending);
+    assertEquals(trending.failureCount(), 1);
+    assertNotNull(trending.lastError());
+    MetricsSnapshot.ApiKeySnapshot key = snapshot.apiKeys().get("key1");
+    assertEquals(key.attemptCount(), server.getRequestCount());
+    assertEquals(key.retryCount(), key.attemptCount() - 1);
+    assertEquals(key.failureCount(), key.attemptCount());
+    assertEquals(key.lastFailureStatus(), 500);
+  }
+
+  @Test
+  protected void snapshot_WindowRolledTwice_RecentLatencyExcludesOlderCalls() {
+    // Arrange
+    metrics.recordCall(Operation.Quote, 900_000_000, null);
+    clock.advance(Duration.ofMinutes(1));
+    metrics.snapshot();
+    metrics.recordCall(Operation.Quote, 1_000_000, null);
+    clock.advance(Duration.ofMinutes(1));
+
+    // Act
+    MetricsSnapshot snapshot = metrics.snapshot();
+
+    // Assert
+    MetricsSnapshot.OperationSnapshot quote = snapshot.operations().get(Operation.Quote);
+    assertEquals(quote.latency().getCount(), 2);
+    assertEquals(quote.recentLatency().getCount(), 1);
+    assertTrue(quote.recentLatency().getPercentile(99) < 2_000_000);
+  }
+
+  @Test
+  protected void getPercentile_UniformDurations_WithinAnEighth() {
+    // Arrange
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long millis = 1; millis <= 1000; millis++) {
+      histogram.record(millis * 1_000_000);
+    }
+
+    // Act
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    // Assert
+    assertEquals(snapshot.getCount(), 1000);
+    assertEquals(snapshot.getMax(), 1_000_000_000);
+    assertEquals(snapshot.getPercentile(99), 990_000_000, 990_000_000 / 8.0);
+    assertEquals(snapshot.getPercentile(50), 500_000_000, 500_000_000 / 8.0);
+  }
+
+  @Test
+  protected void registerMBeans_QuoteFetched_ExposesCallCountThroughJmx() throws JMException {
+    // Arrange
+    metrics.registerMBeans("snapshot-test");
+    client.getQuote("TSLA");
+
+    // Act
+    Object callCount = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(
+        "com.lyit.csd:type=MarketClient,name=\"snapshot-test\",operation=Quote"), "CallCount");
+
+    // Assert
+    assertEquals(callCount, 1L);
+  }
+}
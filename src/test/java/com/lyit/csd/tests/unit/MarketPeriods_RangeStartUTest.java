@@ -0,0 +1,51 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.marketapi.abstraction.MarketPeriods;
+import java.time.Instant;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class MarketPeriods_RangeStartUTest {
+  private static final long NOW = Instant.parse("2022-03-15T12:00:00Z").getEpochSecond();
+
+  @Test
+  protected void rangeStart_CountedRanges_CountedBackInCalendarUnits() {
+    // Act
+    long fiveDays = MarketPeriods.rangeStart("5d", NOW);
+    long oneMonth = MarketPeriods.rangeStart("1mo", NOW);
+    long twoYears = MarketPeriods.rangeStart("2y", NOW);
+
+    // Assert
+    assertEquals(fiveDays, Instant.parse("2022-03-10T12:00:00Z").getEpochSecond());
+    assertEquals(oneMonth, Instant.parse("2022-02-15T12:00:00Z").getEpochSecond());
+    assertEquals(twoYears, Instant.parse("2020-03-15T12:00:00Z").getEpochSecond());
+  }
+
+  @Test
+  protected void rangeStart_YearToDateAndMax_StartOfYearAndEpoch() {
+    // Act
+    long yearToDate = MarketPeriods.rangeStart("ytd", NOW);
+    long max = MarketPeriods.rangeStart("max", NOW);
+
+    // Assert
+    assertEquals(yearToDate, Instant.parse("2022-01-01T00:00:00Z").getEpochSecond());
+    assertEquals(max, 0);
+    assertEquals(MarketPeriods.rangeSeconds("max", NOW), NOW);
+  }
+
+  @Test
+  protected void intervalSeconds_EachUnit_LengthInSeconds() {
+    // Act
+    long fiveMinutes = MarketPeriods.intervalSeconds("5m");
+    long oneHour = MarketPeriods.intervalSeconds("1h");
+    long oneWeek = MarketPeriods.intervalSeconds("1wk");
+    long threeMonths = MarketPeriods.intervalSeconds("3mo");
+
+    // Assert
+    assertEquals(fiveMinutes, 300);
+    assertEquals(oneHour, 3600);
+    assertEquals(oneWeek, 7 * 86_400);
+    assertEquals(threeMonths, 90 * 86_400);
+  }
+}
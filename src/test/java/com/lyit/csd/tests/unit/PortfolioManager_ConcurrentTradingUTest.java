@@ -0,0 +1,188 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.Asset;
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.PortfolioManager;
+import com.lyit.csd.domain.Position;
+import com.lyit.csd.marketapi.feed.QuoteFeed;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class PortfolioManager_ConcurrentTradingUTest {
+  private static final double PRICE = 123.45;
+  private static final List<String> SYMBOLS =
+      List.of("TSLA", "AAPL", "GME", "NVDA", "BTC-USD", "MSFT");
+  private static final int THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  /**
+   * Runs a task on every thread at once, and waits for them all to finish.
+   */
+  private static void runConcurrently(Callable<Void> task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < THREADS; i++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        return task.call();
+      }));
+    }
+    start.countDown();
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+  }
+
+  @Test
+  protected void sellAsset_ManyThreadsSellOneSymbol_NeverOversold() throws Exception {
+    // Arrange
+    PortfolioManager portfolioManager = new PortfolioManager(new MockClient(), false);
+    portfolioManager.addFunds(100 * PRICE);
+    portfolioManager.purchaseAsset("TSLA", 100);
+    AtomicInteger sales = new AtomicInteger();
+
+    // Act
+    runConcurrently(() -> {
+      for (int i = 0; i < 5; i++) {
+        if (portfolioManager.sellAsset("TSLA", 10)) {
+          sales.incrementAndGet();
+        }
+      }
+      return null;
+    });
+
+    // Assert
+    assertEquals(sales.get(), 10);
+    assertEquals(portfolioManager.getPosition("TSLA").getUnitsHeld(), 0.0, 1e-9);
+    assertEquals(portfolioManager.getAvailableFunds(), 100 * PRICE, 1e-6);
+  }
+
+  @Test
+  protected void purchaseAsset_ManyThreadsSpendSameFunds_NeverOverspent() throws Exception {
+    // Arrange
+    PortfolioManager portfolioManager = new PortfolioManager(new MockClient(), false);
+    portfolioManager.addFunds(1000);
+    AtomicInteger purchases = new AtomicInteger();
+
+    // Act
+    runConcurrently(() -> {
+      for (int i = 0; i < 5; i++) {
+        String assetSymbol = SYMBOLS.get(i % SYMBOLS.size());
+        if (portfolioManager.purchaseAsset(assetSymbol, 1)) {
+          purchases.incrementAndGet();
+        }
+      }
+      return null;
+    });
+
+    // Assert
+    assertEquals(purchases.get(), (int) (1000 / PRICE));
+    assertEquals(portfolioManager.getAvailableFunds(), 1000 - purchases.get() * PRICE, 1e-6);
+    assertTrue(portfolioManager.getAvailableFunds() >= 0);
+  }
+
+  @Test
+  protected void tradeAssets_ManyThreadsManySymbols_FundsAndPositionsConsistent()
+      throws Exception {
+    // Arrange
+    double initialFunds = 1_000_000;
+    PortfolioManager portfolioManager = new PortfolioManager(new MockClient(), false);
+    portfolioManager.addFunds(initialFunds);
+    AtomicInteger seeds = new AtomicInteger();
+
+    // Act
+    runConcurrently(() -> {
+      Random random = new Random(seeds.incrementAndGet());
+      for (int i = 0; i < 500; i++) {
+        String assetSymbol = SYMBOLS.get(random.nextInt(SYMBOLS.size()));
+        double units = 1 + random.nextInt(5);
+        if (random.nextBoolean()) {
+          portfolioManager.purchaseAsset(assetSymbol, units);
+        } else {
+          portfolioManager.sellAsset(assetSymbol, units);
+        }
+        portfolioManager.getHeldUnits();
+      }
+      return null;
+    });
+
+    // Assert
+    double heldValue = 0;
+    for (String assetSymbol : SYMBOLS) {
+      Position position = portfolioManager.getPosition(assetSymbol);
+      if (position == null) {
+        continue;
+      }
+      double lotUnits = 0;
+      double lotUnitsSold = 0;
+      for (Asset asset : position.getLots()) {
+        assertTrue(asset.getCurrentUnitsBalance() >= 0);
+        lotUnits += asset.getCurrentUnitsBalance();
+        lotUnitsSold += asset.getSumOfUnitsSold();
+      }
+      assertEquals(position.getUnitsHeld(), lotUnits, 1e-9);
+      assertEquals(position.getUnitsSold(), lotUnitsSold, 1e-9);
+      assertEquals(position.getCostOfUnitsHeld(), lotUnits * PRICE, 1e-6);
+      heldValue += position.getUnitsHeld() * PRICE;
+    }
+    assertEquals(portfolioManager.getAvailableFunds() + heldValue, initialFunds, 1e-3);
+    assertEquals(portfolioManager.getPortfolioValue(), heldValue, 1e-6);
+  }
+
+  @Test
+  protected void purchaseAsset_FeedSlowToSubscribe_SameSymbolTradesNotHeldUp() throws Exception {
+    // Arrange
+    CountDownLatch subscribing = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    QuoteFeed slowFeed = new QuoteFeed(new MockClient(), Duration.ofHours(1), 50) {
+      @Override
+      public void subscribe(List<String> assetSymbols,
+                            Flow.Subscriber<? super AssetQuote> subscriber) {
+        subscribing.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.subscribe(assetSymbols, subscriber);
+      }
+    };
+    PortfolioManager portfolioManager = new PortfolioManager(new MockClient(), false);
+    portfolioManager.addFunds(100 * PRICE);
+    portfolioManager.startMarkToMarket(slowFeed);
+    CompletableFuture<Boolean> firstPurchase =
+        CompletableFuture.supplyAsync(() -> portfolioManager.purchaseAsset("TSLA", 10));
+    assertTrue(subscribing.await(5, TimeUnit.SECONDS));
+
+    // Act
+    CompletableFuture<Boolean> secondPurchase =
+        CompletableFuture.supplyAsync(() -> portfolioManager.purchaseAsset("TSLA", 5));
+
+    // Assert
+    try {
+      assertTrue(secondPurchase.get(5, TimeUnit.SECONDS));
+      assertEquals(portfolioManager.getPosition("TSLA").getUnitsHeld(), 15.0, 1e-9);
+    } finally {
+      release.countDown();
+    }
+    assertTrue(firstPurchase.get(5, TimeUnit.SECONDS));
+    slowFeed.close();
+  }
+}
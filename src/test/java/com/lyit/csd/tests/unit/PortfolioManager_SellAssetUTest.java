@@ -1,6 +1,7 @@
 package com.lyit.csd.tests.unit;
 
 
+import com.lyit.csd.domain.AssetQuote;
 import com.lyit.csd.domain.PortfolioManager;
 import com.lyit.csd.domain.PortfolioSystem;
 import com.lyit.csd.domain.Asset;
@@ -11,8 +12,10 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 public class PortfolioManager_SellAssetUTest {
@@ -45,4 +48,30 @@ public class PortfolioManager_SellAssetUTest {
     assertEquals(afterUnitsBalance, beforeUnitsBalance - 1);
     assertTrue(afterAvailableFunds > beforeAvailableFunds);
   }
+
+  @Test
+  protected void sellAsset_NotHeldOrTooManyUnits_NoQuoteRequested() {
+    // Arrange
+    AtomicInteger quoteRequests = new AtomicInteger();
+    MockClient marketClient = new MockClient() {
+      @Override
+      public AssetQuote getQuote(String assetSymbol) {
+        quoteRequests.incrementAndGet();
+        return super.getQuote(assetSymbol);
+      }
+    };
+    PortfolioManager portfolioManager = new PortfolioManager(marketClient, false);
+    portfolioManager.addFunds(10000);
+    portfolioManager.purchaseAsset("TSLA", 10);
+    quoteRequests.set(0);
+
+    // Act
+    boolean notHeldSold = portfolioManager.sellAsset("AAPL", 1);
+    boolean tooManySold = portfolioManager.sellAsset("TSLA", 11);
+
+    // Assert
+    assertFalse(notHeldSold);
+    assertFalse(tooManySold);
+    assertEquals(quoteRequests.get(), 0);
+  }
 }
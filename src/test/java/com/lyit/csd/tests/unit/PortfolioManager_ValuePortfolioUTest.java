@@ -0,0 +1,67 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.PortfolioManager;
+import com.lyit.csd.domain.PortfolioValuation;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class PortfolioManager_ValuePortfolioUTest {
+
+  /**
+   * Holds each bulk quote request until a given number of them are in flight at once.
+   */
+  private static class ConcurrentRequestsClient extends MockClient {
+    final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    final AtomicBoolean timedOut = new AtomicBoolean();
+    private final CountDownLatch inFlight;
+
+    ConcurrentRequestsClient(int expectedRequests) {
+      this.inFlight = new CountDownLatch(expectedRequests);
+    }
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      batchSizes.add(assetSymbols.size());
+      inFlight.countDown();
+      try {
+        if (!inFlight.await(5, TimeUnit.SECONDS)) {
+          timedOut.set(true);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return super.getQuote(assetSymbols);
+    }
+  }
+
+  @Test
+  protected void valuePortfolio_MoreSymbolsThanOneBatch_BatchesRequestedConcurrently() {
+    // Arrange
+    ConcurrentRequestsClient marketClient = new ConcurrentRequestsClient(2);
+    PortfolioManager portfolioManager = new PortfolioManager(marketClient, false);
+    portfolioManager.addFunds(100000);
+    for (int i = 0; i < 60; i++) {
+      portfolioManager.purchaseAsset("SYM" + i, 2);
+    }
+
+    // Act
+    PortfolioValuation valuation = portfolioManager.valuePortfolio();
+
+    // Assert
+    assertFalse(marketClient.timedOut.get());
+    assertEquals(marketClient.batchSizes.stream().sorted().toList(), List.of(10, 50));
+    assertTrue(valuation.isComplete());
+    assertEquals(valuation.getValues().size(), 60);
+    assertEquals(valuation.getTotalValue(), 60 * 2 * 123.45, 1e-6);
+  }
+}
@@ -0,0 +1,74 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.PortfolioManager;
+import com.lyit.csd.domain.PortfolioValuation;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class PortfolioValuation_OfUTest {
+
+  private static AssetQuote quote(String assetSymbol, double price) {
+    return new AssetQuote(assetSymbol, "Exchange", 0, price, 0, 0, "EQUITY", price, price);
+  }
+
+  @Test
+  protected void of_QuoteMissingForOneSymbol_SymbolReportedAndLeftOutOfTotal() {
+    // Arrange
+    Map<String, Double> heldUnits = new LinkedHashMap<>();
+    heldUnits.put("TSLA", 10.0);
+    heldUnits.put("AAPL", 5.0);
+    heldUnits.put("MSFT", 2.0);
+
+    // Act
+    PortfolioValuation valuation = PortfolioValuation.of(heldUnits,
+        List.of(quote("msft", 300), quote("TSLA", 100), quote("GOOG", 50)));
+
+    // Assert
+    assertEquals(valuation.getTotalValue(), 1600.0, 1e-9);
+    assertEquals(List.copyOf(valuation.getValues().keySet()), List.of("TSLA", "MSFT"));
+    assertEquals(valuation.getMissingSymbols(), List.of("AAPL"));
+    assertFalse(valuation.isComplete());
+  }
+
+  @Test
+  protected void of_ZeroPriceAndNoUnits_ZeroPriceReportedAndSoldOutSymbolIgnored() {
+    // Arrange
+    Map<String, Double> heldUnits = new LinkedHashMap<>();
+    heldUnits.put("TSLA", 0.0);
+    heldUnits.put("AAPL", 5.0);
+
+    // Act
+    PortfolioValuation valuation = PortfolioValuation.of(heldUnits,
+        List.of(quote("TSLA", 100), quote("AAPL", 0)));
+
+    // Assert
+    assertEquals(valuation.getTotalValue(), 0.0);
+    assertEquals(valuation.getMissingSymbols(), List.of("AAPL"));
+  }
+
+  @Test
+  protected void valuePortfolio_PortfolioManager_EveryHoldingValued() {
+    // Arrange
+    PortfolioManager portfolioManager = new PortfolioManager(new MockClient(), false);
+    portfolioManager.addFunds(10000);
+    portfolioManager.purchaseAsset("TSLA", 10);
+    portfolioManager.purchaseAsset("AAPL", 4);
+    portfolioManager.purchaseAsset("TSLA", 6);
+
+    // Act
+    PortfolioValuation valuation = portfolioManager.valuePortfolio();
+
+    // Assert
+    assertTrue(valuation.isComplete());
+    assertEquals(valuation.getValues().get("TSLA"), 16 * 123.45, 1e-9);
+    assertEquals(portfolioManager.getPortfolioValue(), 20 * 123.45, 1e-9);
+  }
+}
@@ -0,0 +1,59 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.Asset;
+import com.lyit.csd.domain.PortfolioManager;
+import com.lyit.csd.domain.Position;
+import com.lyit.csd.marketapi.mock.MockClient;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class Position_SellUTest {
+
+  @Test
+  protected void sell_PartOfTwoLots_RunningTotalsUpdated() {
+    // Arrange
+    MockClient marketClient = new MockClient();
+    Asset cheap = new Asset("TSLA", 0, 10, 100, marketClient);
+    Asset dear = new Asset("TSLA", 0, 10, 200, marketClient);
+    Position position = new Position("TSLA");
+    position.addLot(cheap);
+    position.addLot(dear);
+
+    // Act
+    position.sell(cheap, 10, 150);
+    position.sell(dear, 4, 150);
+
+    // Assert
+    assertEquals(position.getUnitsHeld(), 6.0);
+    assertEquals(position.getUnitsSold(), 14.0);
+    assertEquals(position.getTotalCost(), 3000.0);
+    assertEquals(position.getRealizedProceeds(), 2100.0);
+    assertEquals(position.getAveragePurchasePrice(), 150.0);
+    assertEquals(position.getOpenLots().size(), 1);
+    assertEquals(dear.getCurrentUnitsBalance(), 6.0);
+  }
+
+  @Test
+  protected void sellAsset_PortfolioManager_PositionKeptInStep() {
+    // Arrange
+    PortfolioManager portfolioManager = new PortfolioManager(new MockClient(), false);
+    portfolioManager.addFunds(10000);
+    portfolioManager.purchaseAsset("TSLA", 10);
+    portfolioManager.purchaseAsset("TSLA", 5);
+
+    // Act
+    portfolioManager.sellAsset("TSLA", 12);
+
+    // Assert
+    Position position = portfolioManager.getPosition("TSLA");
+    assertEquals(position.getUnitsHeld(), 3.0, 1e-9);
+    assertEquals(portfolioManager.getAssetsWithHoldings("TSLA").size(), 1);
+    assertEquals(portfolioManager.getHeldUnits().get("TSLA"), 3.0, 1e-9);
+    assertEquals(portfolioManager.getAverageInvestmentPrice("TSLA"), 123.45, 1e-9);
+    assertNull(portfolioManager.getPosition("AAPL"));
+    assertTrue(Double.isNaN(portfolioManager.getAverageInvestmentPrice("AAPL")));
+  }
+}
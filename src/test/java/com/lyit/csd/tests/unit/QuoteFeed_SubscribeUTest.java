@@ -0,0 +1,237 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.feed.QuoteFeed;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class QuoteFeed_SubscribeUTest {
+
+  /**
+   * Quotes each symbol at a price that can be changed, counts requests, and runs deliveries on the
+   * calling thread.
+   */
+  private static class PricedClient extends MockClient {
+    final Map<String, Double> prices = new ConcurrentHashMap<>();
+    final AtomicInteger requests = new AtomicInteger();
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      requests.incrementAndGet();
+      List<AssetQuote> assetQuotes = new ArrayList<>();
+      for (String assetSymbol : assetSymbols) {
+        assetQuotes.add(new AssetQuote(assetSymbol, "NasdaqGS", 1650000000,
+            prices.getOrDefault(assetSymbol, 100.0), 0, 0, "EQUITY", 100, 100));
+      }
+      return assetQuotes;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+      return Runnable::run;
+    }
+  }
+
+  /**
+   * Keeps every quote it is sent, requesting a fixed number up front.
+   */
+  private static class CollectingSubscriber implements Flow.Subscriber<AssetQuote> {
+    final List<AssetQuote> received = new ArrayList<>();
+    private final long initialRequest;
+    Flow.Subscription subscription;
+    boolean completed;
+    Throwable error;
+
+    CollectingSubscriber(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initialRequest);
+    }
+
+    @Override
+    public void onNext(AssetQuote item) {
+      received.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+  }
+
+  @Test
+  protected void poll_TwoSubscribersSameSymbols_OneRequestAndOnlyChangesPublished() {
+    // Arrange
+    PricedClient delegate = new PricedClient();
+    QuoteFeed feed = new QuoteFeed(delegate, Duration.ofHours(1), 50);
+    CollectingSubscriber first = new CollectingSubscriber(Long.MAX_VALUE);
+    CollectingSubscriber second = new CollectingSubscriber(Long.MAX_VALUE);
+    feed.subscribe(List.of("TSLA", "AAPL"), first);
+    feed.subscribe(List.of("tsla", "AAPL"), second);
+
+    // Act
+    feed.poll();
+    feed.poll();
+    delegate.prices.put("TSLA", 101.0);
+    feed.poll();
+
+    // Assert
+    assertEquals(delegate.requests.get(), 3);
+    assertEquals(feed.getPublishedCount(), 3);
+    assertEquals(first.received.size(), 3);
+    assertEquals(second.received.size(), 3);
+    assertEquals(second.received.get(2).getRegularMarketPrice(), 101.0);
+    feed.close();
+    assertTrue(first.completed);
+  }
+
+  @Test
+  protected void poll_SlowSubscriber_SentOnlyWhatItRequestedWithLatestPrice() {
+    // Arrange
+    PricedClient delegate = new PricedClient();
+    QuoteFeed feed = new QuoteFeed(delegate, Duration.ofHours(1), 50);
+    CollectingSubscriber subscriber = new CollectingSubscriber(1);
+    feed.subscribe(List.of("AAPL"), subscriber);
+
+    // Act
+    feed.poll();
+    delegate.prices.put("AAPL", 150.0);
+    feed.poll();
+    delegate.prices.put("AAPL", 175.0);
+    feed.poll();
+    int receivedBeforeRequest = subscriber.received.size();
+    subscriber.subscription.request(10);
+
+    // Assert
+    assertEquals(receivedBeforeRequest, 1);
+    assertEquals(subscriber.received.size(), 2);
+    assertEquals(subscriber.received.get(1).getRegularMarketPrice(), 175.0);
+    feed.close();
+  }
+
+  @Test
+  protected void subscribe_ManySymbolsAndLateSubscriber_BatchedAndSentLatestQuotes() {
+    // Arrange
+    PricedClient delegate = new PricedClient();
+    QuoteFeed feed = new QuoteFeed(delegate, Duration.ofHours(1), 2);
+    feed.subscribe(List.of("A", "B", "C", "D", "E"), new CollectingSubscriber(Long.MAX_VALUE));
+    feed.poll();
+
+    // Act
+    CollectingSubscriber late = new CollectingSubscriber(Long.MAX_VALUE);
+    feed.subscribe(List.of("C"), late);
+    late.subscription.cancel();
+    feed.poll();
+
+    // Assert
+    assertEquals(delegate.requests.get(), 6);
+    assertEquals(late.received.size(), 1);
+    assertEquals(feed.getSymbolCount(), 5);
+    feed.close();
+  }
+
+  @Test
+  protected void subscribe_WhilePollWaitsForProvider_DoesNotWaitForRequest() throws Exception {
+    // Arrange
+    CountDownLatch requested = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    PricedClient delegate = new PricedClient() {
+      @Override
+      public List<AssetQuote> getQuote(List<String> assetSymbols) {
+        requested.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.getQuote(assetSymbols);
+      }
+    };
+    QuoteFeed feed = new QuoteFeed(delegate, Duration.ofHours(1), 50);
+    feed.subscribe(List.of("TSLA"), new CollectingSubscriber(Long.MAX_VALUE));
+    CompletableFuture<Void> polling = CompletableFuture.runAsync(feed::poll);
+    assertTrue(requested.await(5, TimeUnit.SECONDS));
+
+    // Act
+    CompletableFuture<Void> subscribing = CompletableFuture.runAsync(() -> {
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      feed.subscribe(List.of("AAPL"), subscriber);
+      subscriber.subscription.cancel();
+    });
+
+    // Assert
+    try {
+      subscribing.get(5, TimeUnit.SECONDS);
+      assertEquals(feed.getSymbolCount(), 1);
+    } finally {
+      release.countDown();
+    }
+    polling.get(5, TimeUnit.SECONDS);
+    feed.close();
+  }
+
+  @Test
+  protected void subscribe_CancelledInOnSubscribe_NeverPolled() {
+    // Arrange
+    PricedClient delegate = new PricedClient();
+    QuoteFeed feed = new QuoteFeed(delegate, Duration.ofHours(1), 50);
+    CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE) {
+      @Override
+      public void onSubscribe(Flow.Subscription subscription) {
+        subscription.cancel();
+      }
+    };
+
+    // Act
+    feed.subscribe(List.of("TSLA"), subscriber);
+    feed.poll();
+
+    // Assert
+    assertEquals(feed.getSymbolCount(), 0);
+    assertEquals(delegate.requests.get(), 0);
+    assertTrue(subscriber.received.isEmpty());
+    feed.close();
+  }
+
+  @Test
+  protected void request_NonPositive_ErrorDeliveredAndSubscriptionRemoved() {
+    // Arrange
+    PricedClient delegate = new PricedClient();
+    QuoteFeed feed = new QuoteFeed(delegate, Duration.ofHours(1), 50);
+    CollectingSubscriber subscriber = new CollectingSubscriber(1);
+    feed.subscribe(List.of("TSLA"), subscriber);
+
+    // Act
+    subscriber.subscription.request(0);
+    feed.poll();
+
+    // Assert
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertEquals(feed.getSymbolCount(), 0);
+    assertEquals(delegate.requests.get(), 0);
+    feed.close();
+  }
+}
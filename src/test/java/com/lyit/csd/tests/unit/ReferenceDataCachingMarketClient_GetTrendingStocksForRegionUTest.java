@@ -0,0 +1,114 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.marketapi.caching.ReferenceDataCachingMarketClient;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class ReferenceDataCachingMarketClient_GetTrendingStocksForRegionUTest {
+
+  /**
+   * Returns a different trending list for every request, and runs refreshes on the calling
+   * thread.
+   */
+  private static class CountingClient extends MockClient {
+    final AtomicInteger trendingRequests = new AtomicInteger();
+    final AtomicInteger exchangeRequests = new AtomicInteger();
+
+    @Override
+    public ArrayList<String> getTrendingStocksForRegion(String region) {
+      int request = trendingRequests.incrementAndGet();
+      return new ArrayList<>(List.of(region + request));
+    }
+
+    @Override
+    public String getExchangeInfo(String region, String exchange) {
+      exchangeRequests.incrementAndGet();
+      return super.getExchangeInfo(region, exchange);
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+      return Runnable::run;
+    }
+  }
+
+  @Test
+  protected void getTrendingStocksForRegion_SameBucket_ServedFromMemory() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    ManualClock clock = new ManualClock();
+    ReferenceDataCachingMarketClient client = new ReferenceDataCachingMarketClient(delegate,
+        Duration.ofMinutes(5), 3, clock);
+    clock.advance(Duration.ofMinutes(1));
+    client.getTrendingStocksForRegion("US");
+    client.getExchangeInfo("US", "DOW");
+
+    // Act
+    clock.advance(Duration.ofMinutes(1));
+    List<String> trending = client.getTrendingStocksForRegion("US");
+    client.getExchangeInfo("US", "DOW");
+
+    // Assert
+    assertEquals(trending, List.of("US1"));
+    assertEquals(delegate.trendingRequests.get(), 1);
+    assertEquals(delegate.exchangeRequests.get(), 1);
+    assertEquals(client.getHitCount(), 2);
+    assertEquals(client.getLastUpdated("US"), Duration.ofMinutes(1).toMillis());
+    assertEquals(client.getLastUpdated("DE"), 0);
+    client.close();
+  }
+
+  @Test
+  protected void getTrendingStocksForRegion_NextBucket_StaleServedAndRefreshed() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    ManualClock clock = new ManualClock();
+    ReferenceDataCachingMarketClient client = new ReferenceDataCachingMarketClient(delegate,
+        Duration.ofMinutes(5), 3, clock);
+    client.getTrendingStocksForRegion("GB");
+
+    // Act
+    clock.advance(Duration.ofMinutes(6));
+    List<String> stale = client.getTrendingStocksForRegion("GB");
+    List<String> refreshed = client.getTrendingStocksForRegion("GB");
+
+    // Assert
+    assertEquals(stale, List.of("GB1"));
+    assertEquals(refreshed, List.of("GB2"));
+    assertEquals(client.getStaleHitCount(), 1);
+    assertEquals(client.getLastUpdated("GB"), Duration.ofMinutes(6).toMillis());
+    client.close();
+  }
+
+  @Test
+  protected void refreshStale_LookedUpRecently_RefreshedAndIdleDropped() {
+    // Arrange
+    CountingClient delegate = new CountingClient();
+    ManualClock clock = new ManualClock();
+    ReferenceDataCachingMarketClient client = new ReferenceDataCachingMarketClient(delegate,
+        Duration.ofMinutes(5), 1, clock);
+    client.getTrendingStocksForRegion("US");
+    client.getTrendingStocksForRegion("FR");
+
+    // Act
+    clock.advance(Duration.ofMinutes(5));
+    client.refreshStale();
+    client.getTrendingStocksForRegion("US");
+    clock.advance(Duration.ofMinutes(5));
+    client.refreshStale();
+    client.getTrendingStocksForRegion("FR");
+
+    // Assert
+    assertEquals(client.getRefreshCount(), 3);
+    assertEquals(client.getMissCount(), 3);
+    assertEquals(delegate.trendingRequests.get(), 6);
+    client.close();
+  }
+}
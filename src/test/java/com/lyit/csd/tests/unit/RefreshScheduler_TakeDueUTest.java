@@ -0,0 +1,132 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.feed.RefreshScheduler;
+import com.lyit.csd.marketapi.yahoo.ApiKeyScheduler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class RefreshScheduler_TakeDueUTest {
+
+  private static AssetQuote quote(String assetSymbol, String quoteType, double price) {
+    return new AssetQuote(assetSymbol, "NasdaqGS", 0, price, 0, 0, quoteType, price, price);
+  }
+
+  /**
+   * A clock at 10:00 in New York on a Thursday, when US equities trade.
+   */
+  private static ManualClock tradingHoursClock() {
+    ManualClock clock = new ManualClock();
+    clock.advance(Duration.ofHours(15));
+    return clock;
+  }
+
+  @Test
+  protected void takeDue_HeldAndWatchedSymbol_RefreshedMoreOften() {
+    // Arrange
+    ManualClock clock = tradingHoursClock();
+    RefreshScheduler scheduler = new RefreshScheduler(Duration.ofSeconds(10), 100, clock);
+    scheduler.setSubscriberCount("TSLA", 3);
+    scheduler.setSubscriberCount("GME", 1);
+    scheduler.setHoldings(Map.of("TSLA", 100.0));
+
+    // Act
+    List<String> firstDue = scheduler.takeDue(50);
+    scheduler.onRefreshed("TSLA", quote("TSLA", "EQUITY", 100));
+    scheduler.onRefreshed("GME", quote("GME", "EQUITY", 100));
+    clock.advance(Duration.ofSeconds(2));
+    List<String> secondDue = scheduler.takeDue(50);
+
+    // Assert
+    assertEquals(firstDue.size(), 2);
+    assertTrue(scheduler.getIntervalMillis("TSLA") < scheduler.getIntervalMillis("GME"));
+    assertEquals(secondDue, List.of("TSLA"));
+  }
+
+  @Test
+  protected void takeDue_EquityMarketClosed_CryptoStillRefreshed() {
+    // Arrange
+    ManualClock clock = tradingHoursClock();
+    clock.advance(Duration.ofDays(2));
+    RefreshScheduler scheduler = new RefreshScheduler(Duration.ofSeconds(10), 100, clock);
+    scheduler.setSubscriberCount("AAPL", 1);
+    scheduler.setSubscriberCount("BTC-USD", 1);
+    scheduler.takeDue(50);
+    scheduler.onRefreshed("AAPL", quote("AAPL", "EQUITY", 150));
+    scheduler.onRefreshed("BTC-USD", quote("BTC-USD", "CRYPTOCURRENCY", 40000));
+
+    // Act
+    clock.advance(Duration.ofMinutes(1));
+    List<String> due = scheduler.takeDue(50);
+
+    // Assert
+    assertEquals(due, List.of("BTC-USD"));
+    assertEquals(scheduler.getIntervalMillis("AAPL"), Duration.ofMinutes(15).toMillis());
+  }
+
+  @Test
+  protected void takeDue_MoreDueThanBudget_LimitedAndIntervalsStretched() {
+    // Arrange
+    ManualClock clock = tradingHoursClock();
+    RefreshScheduler scheduler = new RefreshScheduler(Duration.ofSeconds(1), 1, clock);
+    for (int i = 0; i < 10; i++) {
+      scheduler.setSubscriberCount("SYM" + i, 1);
+    }
+
+    // Act
+    List<String> first = scheduler.takeDue(2);
+    List<String> second = scheduler.takeDue(2);
+    clock.advance(Duration.ofSeconds(1));
+    List<String> third = scheduler.takeDue(2);
+
+    // Assert
+    assertEquals(first.size(), 2);
+    assertEquals(second.size(), 0);
+    assertEquals(third.size(), 2);
+    assertTrue(scheduler.getStretch() > 1);
+  }
+
+  @Test
+  protected void takeDue_BudgetFromKeyScheduler_MatchesKeyCapacity() {
+    // Arrange
+    ApiKeyScheduler keyScheduler = new ApiKeyScheduler(List.of("A", "B", "C"), 2, 10,
+        Duration.ZERO, new ManualClock());
+    RefreshScheduler scheduler = new RefreshScheduler(Duration.ofSeconds(1), keyScheduler);
+    for (int i = 0; i < 20; i++) {
+      scheduler.setSubscriberCount("SYM" + i, 1);
+    }
+
+    // Act
+    List<String> due = scheduler.takeDue(1);
+
+    // Assert
+    assertEquals(keyScheduler.getRequestsPerSecond(), 6.0);
+    assertEquals(due.size(), 6);
+  }
+
+  @Test
+  protected void take_MoreThanBudget_LimitedAndBudgetSpent() {
+    // Arrange
+    ManualClock clock = tradingHoursClock();
+    RefreshScheduler scheduler = new RefreshScheduler(Duration.ofSeconds(1), 1, clock);
+    List<String> symbols = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      symbols.add("SYM" + i);
+      scheduler.setSubscriberCount("SYM" + i, 1);
+    }
+
+    // Act
+    List<String> taken = scheduler.take(symbols, 2);
+    List<String> due = scheduler.takeDue(2);
+
+    // Assert
+    assertEquals(taken.size(), 2);
+    assertEquals(due.size(), 0);
+  }
+}
@@ -0,0 +1,123 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.mock.MockClient;
+import com.lyit.csd.marketapi.recording.RecordingMarketClient;
+import com.lyit.csd.marketapi.recording.ReplayMarketClient;
+import com.lyit.csd.marketapi.recording.ReplayMarketClient.ReplaySpeed;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class ReplayMarketClient_GetQuoteUTest {
+  private Path captureFile;
+
+  /**
+   * Prices each symbol differently and takes a little while to answer.
+   */
+  private static class SlowPricedClient extends MockClient {
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      List<AssetQuote> assetQuotes = new ArrayList<>();
+      for (String assetSymbol : assetSymbols) {
+        assetQuotes.add(new AssetQuote(assetSymbol, "NasdaqGS", 1650000000,
+            assetSymbol.length() * 10.5, 1.5, 2.5, "EQUITY", 100, 101));
+      }
+      return assetQuotes;
+    }
+
+    @Override
+    public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                              String range) {
+      AssetQuote assetQuote = new AssetQuote(assetSymbols.get(0));
+      assetQuote.addHistory(new long[] {1, 2, 3}, new double[] {10, 11, 12}, 3);
+      return List.of(assetQuote);
+    }
+  }
+
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    captureFile = Files.createTempFile("capture", ".bin");
+    Files.delete(captureFile);
+    try (RecordingMarketClient recorder =
+             new RecordingMarketClient(new SlowPricedClient(), captureFile)) {
+      recorder.getQuote(List.of("TSLA", "GOOGL"));
+      recorder.getHistoricalInfo(List.of("TSLA"), "1d", "5d");
+    }
+  }
+
+  @AfterMethod
+  protected void tearDown() throws IOException {
+    Files.deleteIfExists(captureFile);
+  }
+
+  @Test
+  protected void getQuote_RecordedCall_ReplaysRecordedQuotes() throws IOException {
+    // Arrange
+    ReplayMarketClient client = new ReplayMarketClient(captureFile, ReplaySpeed.AsFastAsPossible);
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("TSLA", "GOOGL"));
+
+    // Assert
+    assertEquals(assetQuotes.size(), 2);
+    assertEquals(assetQuotes.get(1).getAssetSymbol(), "GOOGL");
+    assertEquals(assetQuotes.get(1).getRegularMarketPrice(), 52.5);
+    assertEquals(assetQuotes.get(1).getRegularMarketOpen(), 101.0);
+    assertEquals(client.getReplayCount(), 1);
+  }
+
+  @Test
+  protected void getQuote_SymbolRecordedInAnotherCall_ReplaysLatestQuote() throws IOException {
+    // Arrange
+    ReplayMarketClient client = new ReplayMarketClient(captureFile, ReplaySpeed.AsFastAsPossible);
+
+    // Act
+    AssetQuote assetQuote = client.getQuote("GOOGL");
+
+    // Assert
+    assertEquals(assetQuote.getRegularMarketPrice(), 52.5);
+    assertNull(client.getQuote("NVDA"));
+  }
+
+  @Test
+  protected void getHistoricalInfo_RecordedCall_ReplaysHistory() throws IOException {
+    // Arrange
+    ReplayMarketClient client = new ReplayMarketClient(captureFile, ReplaySpeed.AsFastAsPossible);
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getHistoricalInfo(List.of("TSLA"), "1d", "5d");
+
+    // Assert
+    assertEquals(assetQuotes.get(0).getHistorySize(), 3);
+    assertEquals(assetQuotes.get(0).getHistoricClosingPrice(2), 12.0);
+  }
+
+  @Test
+  protected void getQuote_RecordedSpeed_TakesRecordedLatency() throws IOException {
+    // Arrange
+    ReplayMarketClient client = new ReplayMarketClient(captureFile, ReplaySpeed.Recorded);
+
+    // Act
+    long start = System.nanoTime();
+    client.getQuote(List.of("TSLA", "GOOGL"));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // Assert
+    assertTrue(elapsedMillis >= 45, "Took " + elapsedMillis + "ms");
+  }
+}
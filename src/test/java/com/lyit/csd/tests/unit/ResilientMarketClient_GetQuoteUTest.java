@@ -0,0 +1,171 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.mock.MockClient;
+import com.lyit.csd.marketapi.resilience.CircuitBreaker;
+import com.lyit.csd.marketapi.resilience.ResilientMarketClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class ResilientMarketClient_GetQuoteUTest {
+
+  /**
+   * Answers the first request slowly and every later request at once.
+   */
+  private static class SlowFirstClient extends MockClient {
+    final AtomicInteger requests = new AtomicInteger();
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      if (requests.incrementAndGet() == 1) {
+        try {
+          Thread.sleep(3000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return super.getQuote(assetSymbol);
+    }
+  }
+
+  /**
+   * Answers the first request and fails every later request until told to recover.
+   */
+  private static class FailingClient extends MockClient {
+    final AtomicInteger requests = new AtomicInteger();
+    volatile boolean recovered;
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      if (requests.incrementAndGet() > 1 && !recovered) {
+        throw new IllegalStateException("Service unavailable");
+      }
+      return super.getQuote(assetSymbol);
+    }
+  }
+
+  /**
+   * Answers until told the API is unreachable and then, like the Yahoo client, answers with null
+   * or an empty list instead of throwing.
+   */
+  private static class UnreachableClient extends MockClient {
+    final AtomicInteger unansweredRequests = new AtomicInteger();
+    volatile boolean unreachable;
+
+    @Override
+    public AssetQuote getQuote(String assetSymbol) {
+      if (unreachable) {
+        unansweredRequests.incrementAndGet();
+        return null;
+      }
+      return super.getQuote(assetSymbol);
+    }
+
+    @Override
+    public List<AssetQuote> getQuote(List<String> assetSymbols) {
+      if (unreachable) {
+        unansweredRequests.incrementAndGet();
+        return new ArrayList<>();
+      }
+      return super.getQuote(assetSymbols);
+    }
+  }
+
+  @Test
+  protected void getQuote_SlowRequest_HedgedAndFirstAnswerUsed() {
+    // Arrange
+    SlowFirstClient delegate = new SlowFirstClient();
+    ResilientMarketClient client = new ResilientMarketClient(delegate, new CircuitBreaker(),
+        Duration.ofMillis(50), Duration.ofSeconds(2));
+
+    // Act
+    long start = System.nanoTime();
+    AssetQuote assetQuote = client.getQuote("TSLA");
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    // Assert
+    assertNotNull(assetQuote);
+    assertEquals(client.getHedgeCount(), 1);
+    assertTrue(elapsedMillis < 2000, "Took " + elapsedMillis + "ms");
+  }
+
+  @Test
+  protected void getQuote_BreakerOpen_ServesLastKnownQuoteWithoutCalling() {
+    // Arrange
+    FailingClient delegate = new FailingClient();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(4, 2, 0.6, Duration.ofSeconds(30),
+        new ManualClock());
+    ResilientMarketClient client = new ResilientMarketClient(delegate, circuitBreaker,
+        Duration.ofMillis(50), Duration.ofSeconds(2));
+    client.getQuote("TSLA");
+    client.getQuote("TSLA");
+    client.getQuote("TSLA");
+
+    // Act
+    AssetQuote assetQuote = client.getQuote("TSLA");
+
+    // Assert
+    assertEquals(circuitBreaker.getState(), CircuitBreaker.State.Open);
+    assertNotNull(assetQuote);
+    assertEquals(assetQuote.getAssetSymbol(), "TSLA");
+    assertEquals(delegate.requests.get(), 3);
+    assertEquals(client.getRejectedCount(), 1);
+  }
+
+  @Test
+  protected void getQuote_AfterOpenDurationAndSuccessfulTrial_BreakerCloses() {
+    // Arrange
+    FailingClient delegate = new FailingClient();
+    ManualClock clock = new ManualClock();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(4, 2, 0.6, Duration.ofSeconds(30), clock);
+    ResilientMarketClient client = new ResilientMarketClient(delegate, circuitBreaker,
+        Duration.ofMillis(50), Duration.ofSeconds(2));
+    client.getQuote("TSLA");
+    client.getQuote("TSLA");
+    client.getQuote("TSLA");
+
+    // Act
+    delegate.recovered = true;
+    clock.advance(Duration.ofSeconds(31));
+    client.getQuote("TSLA");
+
+    // Assert
+    assertEquals(circuitBreaker.getState(), CircuitBreaker.State.Closed);
+    assertEquals(delegate.requests.get(), 4);
+  }
+
+  @Test
+  protected void getQuote_EmptyAnswers_BreakerOpensAndLastKnownQuotesServed() {
+    // Arrange
+    UnreachableClient delegate = new UnreachableClient();
+    CircuitBreaker circuitBreaker = new CircuitBreaker(4, 2, 0.6, Duration.ofSeconds(30),
+        new ManualClock());
+    ResilientMarketClient client = new ResilientMarketClient(delegate, circuitBreaker,
+        Duration.ofMillis(50), Duration.ofSeconds(2));
+    client.getQuote(List.of("TSLA", "AAPL"));
+
+    // Act
+    delegate.unreachable = true;
+    List<AssetQuote> failedAnswer = client.getQuote(List.of("tsla", "aapl"));
+    AssetQuote nullAnswer = client.getQuote(" tsla");
+    List<AssetQuote> rejectedAnswer = client.getQuote(List.of("AAPL"));
+
+    // Assert
+    assertEquals(circuitBreaker.getState(), CircuitBreaker.State.Open);
+    assertEquals(delegate.unansweredRequests.get(), 2);
+    assertEquals(client.getRejectedCount(), 1);
+    assertEquals(failedAnswer.size(), 2);
+    assertEquals(failedAnswer.get(0).getAssetSymbol(), "TSLA");
+    assertNotNull(nullAnswer);
+    assertEquals(nullAnswer.getAssetSymbol(), "TSLA");
+    assertEquals(rejectedAnswer.size(), 1);
+    assertEquals(rejectedAnswer.get(0).getAssetSymbol(), "AAPL");
+  }
+}
@@ -0,0 +1,96 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.simulated.SimulatedClient;
+import com.lyit.csd.marketapi.simulated.SimulatedClock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class SimulatedClient_GetQuoteUTest {
+  private static final Instant START = Instant.parse("2022-03-01T15:00:00Z");
+
+  @Test
+  protected void getQuote_SameSeedAndTime_SamePrice() {
+    // Arrange
+    SimulatedClient first = new SimulatedClient(7, 5_000, new SimulatedClock(START));
+    SimulatedClient second = new SimulatedClient(7, 5_000, new SimulatedClock(START));
+
+    // Act
+    AssetQuote firstQuote = first.getQuote("ABCD");
+    AssetQuote secondQuote = second.getQuote("ABCD");
+
+    // Assert
+    assertTrue(firstQuote.getRegularMarketPrice() > 0);
+    assertEquals(firstQuote.getRegularMarketPrice(), secondQuote.getRegularMarketPrice());
+  }
+
+  @Test
+  protected void getQuote_ClockAdvanced_PriceMoves() {
+    // Arrange
+    SimulatedClock clock = new SimulatedClock(START);
+    SimulatedClient client = new SimulatedClient(7, 5_000, clock);
+    double before = client.getQuote("TSLA").getRegularMarketPrice();
+
+    // Act
+    clock.advance(Duration.ofDays(3));
+    double after = client.getQuote("TSLA").getRegularMarketPrice();
+
+    // Assert
+    assertNotEquals(after, before);
+    assertEquals(client.getPrice("TSLA", START), before);
+  }
+
+  @Test
+  protected void getHistoricalInfo_DailyHistory_EndsAtCurrentQuote() {
+    // Arrange
+    SimulatedClient client = new SimulatedClient(7, 5_000,
+        new SimulatedClock(Instant.parse("2022-03-01T00:00:00Z")));
+
+    // Act
+    List<AssetQuote> history = client.getHistoricalInfo(List.of("AAPL", "NONE1"), "1d", "1mo");
+
+    // Assert
+    assertEquals(history.size(), 1);
+    AssetQuote assetQuote = history.get(0);
+    // February 2022 has 28 days.
+    assertEquals(assetQuote.getHistorySize(), 28);
+    assertEquals(assetQuote.getHistoricClosingPrice(27),
+        client.getQuote("AAPL").getRegularMarketPrice());
+  }
+
+  @Test
+  protected void getHistoricalInfo_YearToDateAndMaxRanges_WholeRangeReturned() {
+    // Arrange
+    SimulatedClient client = new SimulatedClient(7, 5_000,
+        new SimulatedClock(Instant.parse("2022-03-01T00:00:00Z")));
+
+    // Act
+    AssetQuote yearToDate = client.getHistoricalInfo(List.of("AAPL"), "1d", "ytd").get(0);
+    AssetQuote max = client.getHistoricalInfo(List.of("AAPL"), "1d", "max").get(0);
+
+    // Assert
+    assertEquals(yearToDate.getHistorySize(), 31 + 28);
+    assertEquals(max.getHistorySize(), 10_000);
+  }
+
+  @Test
+  protected void getTrendingStocksForRegion_ManySymbols_ReturnsKnownSymbols() {
+    // Arrange
+    SimulatedClient client = new SimulatedClient(7, 20_000, new SimulatedClock(START));
+
+    // Act
+    List<String> trending = client.getTrendingStocksForRegion("US");
+
+    // Assert
+    assertEquals(trending.size(), 20);
+    assertTrue(trending.stream().allMatch(client::checkAssetSymbol));
+    assertNull(client.getQuote("NOT-A-SYMBOL"));
+  }
+}
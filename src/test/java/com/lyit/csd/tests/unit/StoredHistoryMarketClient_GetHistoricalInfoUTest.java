@@ -0,0 +1,202 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.domain.TimeSeries;
+import com.lyit.csd.marketapi.history.HistoryStore;
+import com.lyit.csd.marketapi.history.StoredHistoryMarketClient;
+import com.lyit.csd.marketapi.mock.MockClient;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class StoredHistoryMarketClient_GetHistoricalInfoUTest {
+  private static final long DAY = 86_400;
+
+  private Path directory;
+
+  /**
+   * Answers daily histories that end at the clock's current time, and records the ranges asked
+   * for. Each day's point is timestamped at a fixed time of day, such as the market open.
+   */
+  private static class DailyClient extends MockClient {
+    final List<String> ranges = new ArrayList<>();
+    private final ManualClock clock;
+    private final long openSeconds;
+
+    DailyClient(ManualClock clock) {
+      this(clock, 0);
+    }
+
+    DailyClient(ManualClock clock, long openSeconds) {
+      this.clock = clock;
+      this.openSeconds = openSeconds;
+    }
+
+    @Override
+    public List<AssetQuote> getHistoricalInfo(List<String> assetSymbols, String interval,
+                                              String range) {
+      ranges.add(range);
+      long days = switch (range) {
+        case "5d" -> 5;
+        case "1mo" -> 31;
+        default -> 366;
+      };
+      long today = clock.millis() / 1000 / DAY * DAY;
+      List<AssetQuote> assetQuotes = new ArrayList<>();
+      for (String assetSymbol : assetSymbols) {
+        TimeSeries history = TimeSeries.onHeap();
+        for (long day = today - days * DAY; day <= today; day += DAY) {
+          history.append(day + openSeconds, day / DAY);
+        }
+        AssetQuote assetQuote = new AssetQuote(assetSymbol);
+        assetQuote.setHistory(history);
+        assetQuotes.add(assetQuote);
+      }
+      return assetQuotes;
+    }
+  }
+
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    directory = Files.createTempDirectory("history");
+  }
+
+  @AfterMethod
+  protected void tearDown() throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  protected void getHistoricalInfo_AskedAgainWithinInterval_ServedFromDisk() throws IOException {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    clock.advance(Duration.ofDays(1000).plusHours(12));
+    DailyClient delegate = new DailyClient(clock);
+    try (HistoryStore store = new HistoryStore(directory)) {
+      StoredHistoryMarketClient client = new StoredHistoryMarketClient(delegate, store, clock);
+      List<AssetQuote> first = client.getHistoricalInfo(List.of("TSLA", "AAPL"), "1d", "1y");
+
+      // Act
+      clock.advance(Duration.ofHours(1));
+      List<AssetQuote> second = client.getHistoricalInfo(List.of("TSLA", "AAPL"), "1d", "1y");
+
+      // Assert
+      assertEquals(delegate.ranges, List.of("1y"));
+      assertEquals(client.getDiskHitCount(), 2);
+      assertEquals(second.size(), 2);
+      // Today's point is still in progress, so the year ends yesterday.
+      assertEquals(second.get(0).getHistory().getTimestamp(second.get(0).getHistorySize() - 1),
+          999 * DAY);
+      assertEquals(second.get(1).getHistorySize(), first.get(1).getHistorySize());
+    }
+  }
+
+  @Test
+  protected void getHistoricalInfo_DaysLater_FetchesOnlyTheTail() throws IOException {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    clock.advance(Duration.ofDays(1000).plusHours(12));
+    DailyClient delegate = new DailyClient(clock);
+    try (HistoryStore store = new HistoryStore(directory)) {
+      new StoredHistoryMarketClient(delegate, store, clock)
+          .getHistoricalInfo(List.of("TSLA"), "1d", "1y");
+    }
+
+    // Act
+    clock.advance(Duration.ofDays(3));
+    try (HistoryStore reopened = new HistoryStore(directory)) {
+      StoredHistoryMarketClient client = new StoredHistoryMarketClient(delegate, reopened, clock);
+      AssetQuote assetQuote = client.getHistoricalInfo(List.of("tsla"), "1d", "1y").get(0);
+
+      // Assert
+      assertEquals(delegate.ranges, List.of("1y", "5d"));
+      assertEquals(client.getTailFetchCount(), 1);
+      TimeSeries history = assetQuote.getHistory();
+      assertEquals(history.getTimestamp(history.size() - 1), 1002 * DAY);
+      assertEquals(history.getClose(history.size() - 1), 1002.0);
+      assertEquals(reopened.read("TSLA", "1d", 1001 * DAY, 1003 * DAY).size(), 2);
+    }
+  }
+
+  @Test
+  protected void getHistoricalInfo_LongerRangeThanStored_FetchesWholeRange() throws IOException {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    clock.advance(Duration.ofDays(1000).plusHours(12));
+    DailyClient delegate = new DailyClient(clock);
+    try (HistoryStore store = new HistoryStore(directory)) {
+      StoredHistoryMarketClient client = new StoredHistoryMarketClient(delegate, store, clock);
+      client.getHistoricalInfo(List.of("TSLA"), "1d", "1mo");
+
+      // Act
+      AssetQuote assetQuote = client.getHistoricalInfo(List.of("TSLA"), "1d", "1y").get(0);
+
+      // Assert
+      assertEquals(delegate.ranges, List.of("1mo", "1y"));
+      assertEquals(client.getFullFetchCount(), 2);
+      assertEquals(assetQuote.getHistorySize(), 365);
+    }
+  }
+
+  @Test
+  protected void getHistoricalInfo_LongerRangeThanStored_ReplacementKeptOnDisk()
+      throws IOException {
+    // Arrange
+    ManualClock clock = new ManualClock();
+    clock.advance(Duration.ofDays(1000).plusHours(12));
+    DailyClient delegate = new DailyClient(clock);
+    try (HistoryStore store = new HistoryStore(directory)) {
+      StoredHistoryMarketClient client = new StoredHistoryMarketClient(delegate, store, clock);
+      client.getHistoricalInfo(List.of("TSLA"), "1d", "1mo");
+      store.read("TSLA", "1d", 0, 1000 * DAY);
+
+      // Act
+      client.getHistoricalInfo(List.of("TSLA"), "1d", "1y");
+    }
+
+    // Assert
+    try (HistoryStore reopened = new HistoryStore(directory);
+         Stream<Path> paths = Files.walk(directory)) {
+      StoredHistoryMarketClient client = new StoredHistoryMarketClient(delegate, reopened, clock);
+      assertEquals(client.getHistoricalInfo(List.of("TSLA"), "1d", "1y").get(0).getHistorySize(),
+          365);
+      assertEquals(delegate.ranges, List.of("1mo", "1y"));
+      assertEquals(paths.filter(path -> path.toString().endsWith(".tmp")).count(), 0);
+    }
+  }
+
+  @Test
+  protected void getHistoricalInfo_PointsStampedAtMarketOpen_LastCompleteDayKept()
+      throws IOException {
+    // Arrange
+    long open = Duration.ofHours(13).plusMinutes(30).toSeconds();
+    ManualClock clock = new ManualClock();
+    clock.advance(Duration.ofDays(1000).plusHours(10));
+    DailyClient delegate = new DailyClient(clock, open);
+    try (HistoryStore store = new HistoryStore(directory)) {
+      StoredHistoryMarketClient client = new StoredHistoryMarketClient(delegate, store, clock);
+
+      // Act
+      AssetQuote assetQuote = client.getHistoricalInfo(List.of("TSLA"), "1d", "1mo").get(0);
+
+      // Assert
+      // Yesterday's point opened less than a day ago, but its day is over.
+      TimeSeries history = assetQuote.getHistory();
+      assertEquals(history.getTimestamp(history.size() - 1), 999 * DAY + open);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.TimeSeries;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+public class TimeSeries_SliceUTest {
+
+  @Test
+  protected void slice_MiddleRange_SharesPointsInRange() {
+    // Arrange
+    TimeSeries series = TimeSeries.onHeap(2);
+    for (int i = 0; i < 10; i++) {
+      series.append(100L * i, i + 0.5);
+    }
+
+    // Act
+    TimeSeries slice = series.slice(250, 600);
+
+    // Assert
+    assertEquals(slice.size(), 3);
+    assertEquals(slice.getTimestamp(0), 300L);
+    assertEquals(slice.getClose(2), 5.5);
+    assertEquals(series.ceilingIndex(1_000), 10);
+    assertThrows(UnsupportedOperationException.class, () -> slice.append(900, 1.0));
+  }
+
+  @Test
+  protected void append_OffHeapBeyondCapacity_KeepsEveryPoint() {
+    // Arrange
+    TimeSeries series = TimeSeries.offHeap(1);
+
+    // Act
+    for (int i = 0; i < 1_000; i++) {
+      series.append(i, i * 2.0);
+    }
+
+    // Assert
+    assertTrue(series.isOffHeap());
+    assertEquals(series.size(), 1_000);
+    assertEquals(series.getTimestamp(999), 999L);
+    assertEquals(series.getClose(500), 1_000.0);
+  }
+
+  @Test
+  protected void append_OhlcvAfterClosingPrices_EarlierPointsHaveNoOpen() {
+    // Arrange
+    TimeSeries series = TimeSeries.onHeap();
+    series.append(1, 10.0);
+
+    // Act
+    series.append(2, 10.0, 12.0, 9.0, 11.0, 500);
+    series.append(3, 11.5);
+
+    // Assert
+    assertTrue(series.hasColumn(TimeSeries.Column.Volume));
+    assertTrue(Double.isNaN(series.getOpen(0)));
+    assertEquals(series.getHigh(1), 12.0);
+    assertEquals(series.getVolume(1), 500L);
+    assertTrue(Double.isNaN(series.getLow(2)));
+    assertEquals(series.getClose(2), 11.5);
+  }
+
+  @Test
+  protected void append_EarlierTimestamp_Rejected() {
+    // Arrange
+    TimeSeries series = TimeSeries.wrap(new long[] {5, 6}, new double[] {1.0, 2.0}, 2);
+
+    // Act
+    // Assert
+    assertFalse(series.hasColumn(TimeSeries.Column.Open));
+    assertThrows(IllegalArgumentException.class, () -> series.append(4, 3.0));
+    assertThrows(IllegalArgumentException.class,
+        () -> TimeSeries.wrap(new long[] {2, 1}, new double[] {1.0, 2.0}, 2));
+  }
+}
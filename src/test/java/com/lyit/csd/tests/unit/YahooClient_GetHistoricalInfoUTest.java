@@ -0,0 +1,56 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.yahoo.YahooClient;
+import com.lyit.csd.marketapi.yahoo.YahooHttpTransport;
+import com.lyit.csd.marketapi.yahoo.standin.StandInBehaviour;
+import com.lyit.csd.marketapi.yahoo.standin.YahooStandInServer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class YahooClient_GetHistoricalInfoUTest {
+
+  private YahooStandInServer server;
+  private YahooHttpTransport transport;
+
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    server = new YahooStandInServer(new StandInBehaviour());
+    server.start();
+    transport = new YahooHttpTransport();
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    transport.shutdown();
+    server.close();
+  }
+
+  @Test
+  protected void getHistoricalInfo_MoreThanTenSymbols_OneRequestPerTen() {
+    // Arrange
+    YahooClient client = new YahooClient(server.getBaseUrl(), List.of("key1"), transport);
+    List<String> assetSymbols = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      assetSymbols.add("SYM" + i);
+    }
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getHistoricalInfo(assetSymbols, "1d", "5d");
+
+    // Assert
+    assertEquals(server.getRequestCount(), 3);
+    assertEquals(assetQuotes.size(), 25);
+    for (int i = 0; i < 25; i++) {
+      assertEquals(assetQuotes.get(i).getAssetSymbol(), "SYM" + i);
+      assertTrue(assetQuotes.get(i).getHistorySize() > 0);
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.marketapi.yahoo.YahooClient;
+import com.lyit.csd.marketapi.yahoo.YahooHttpTransport;
+import com.lyit.csd.marketapi.yahoo.standin.StandInBehaviour;
+import com.lyit.csd.marketapi.yahoo.standin.YahooStandInServer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class YahooHttpTransport_ExecuteUTest {
+  private static final long CACHE_BYTES = 1024 * 1024;
+
+  private YahooStandInServer server;
+  private Path cacheDirectory;
+
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    server = new YahooStandInServer(new StandInBehaviour());
+    server.start();
+    cacheDirectory = Files.createTempDirectory("http-cache");
+  }
+
+  @AfterMethod
+  protected void tearDown() throws IOException {
+    server.close();
+    try (Stream<Path> paths = Files.walk(cacheDirectory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Test
+  protected void execute_TransportRestarted_FreshResponseServedFromDisk() {
+    // Arrange
+    YahooHttpTransport transport = new YahooHttpTransport(cacheDirectory, CACHE_BYTES);
+    new YahooClient(server.getBaseUrl(), List.of("key1"), transport)
+        .getTrendingStocksForRegion("US");
+    transport.shutdown();
+    YahooHttpTransport restarted = new YahooHttpTransport(cacheDirectory, CACHE_BYTES);
+
+    // Act
+    List<String> trending = new YahooClient(server.getBaseUrl(), List.of("key2"), restarted)
+        .getTrendingStocksForRegion("US");
+
+    // Assert
+    assertEquals(trending.size(), 20);
+    assertEquals(server.getRequestCount(), 1);
+    assertEquals(restarted.getCache().hitCount(), 1);
+    restarted.shutdown();
+  }
+
+  @Test
+  protected void execute_NoFreshness_RevalidatedWithEtag() throws IOException {
+    // Arrange
+    YahooHttpTransport transport = new YahooHttpTransport(cacheDirectory, CACHE_BYTES);
+    read(transport, "/v1/finance/trending/US", "key1");
+
+    // Act
+    String body = read(transport, "/v1/finance/trending/US", "key1");
+
+    // Assert
+    assertEquals(server.getRequestCount(), 2);
+    assertEquals(server.getNotModifiedCount(), 1);
+    assertFalse(body.isEmpty());
+    assertEquals(transport.getCache().hitCount(), 1);
+    transport.shutdown();
+  }
+
+  @Test
+  protected void execute_ParametersReorderedAndOtherKey_SameCacheEntryUsed() throws IOException {
+    // Arrange
+    YahooHttpTransport transport = new YahooHttpTransport(cacheDirectory, CACHE_BYTES);
+    Request first = request("/v8/finance/spark?interval=1d&range=5d&symbols=TSLA", "key1");
+    Request second = request("/v8/finance/spark?symbols=TSLA&range=5d&interval=1d", "key2");
+    transport.execute(first, Duration.ofMinutes(5)).close();
+
+    // Act
+    try (Response response = transport.execute(second, Duration.ofMinutes(5))) {
+
+      // Assert
+      assertEquals(response.code(), 200);
+      assertEquals(server.getRequestCount(), 1);
+    }
+    transport.shutdown();
+  }
+
+  @Test
+  protected void execute_EscapedParameterValues_SentUnchanged() throws IOException {
+    // Arrange
+    YahooHttpTransport transport = new YahooHttpTransport(cacheDirectory, CACHE_BYTES);
+
+    // Act
+    String body = read(transport, "/v6/finance/quote?symbols=A%2BB,C%25D&region=US", "key1");
+
+    // Assert
+    assertTrue(body.contains("\"symbol\":\"A+B\""), body);
+    assertTrue(body.contains("\"symbol\":\"C%D\""), body);
+    transport.shutdown();
+  }
+
+  private Request request(String pathAndQuery, String apiKey) {
+    return new Request.Builder()
+        .url(server.getBaseUrl() + pathAndQuery)
+        .addHeader("X-API-KEY", apiKey)
+        .build();
+  }
+
+  private String read(YahooHttpTransport transport, String pathAndQuery, String apiKey)
+      throws IOException {
+    try (Response response = transport.execute(request(pathAndQuery, apiKey))) {
+      return response.body().string();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.yahoo.YahooResponseDecoder;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+public class YahooResponseDecoder_DecodeUTest {
+
+  private static InputStream body(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  protected void decodeQuotes_QuoteResponse_ReturnsQuotes() throws IOException {
+    // Arrange
+    String json = "{\"quoteResponse\":{\"result\":[{\"symbol\":\"TSLA\",\"displayName\":\"Tesla\","
+        + "\"regularMarketPrice\":901.5,\"quoteType\":\"EQUITY\",\"ignored\":{\"a\":[1,2]}},"
+        + "{\"symbol\":\"BTC-USD\",\"shortName\":\"Bitcoin USD\",\"regularMarketPrice\":40000,"
+        + "\"quoteType\":\"CRYPTOCURRENCY\"}],\"error\":null}}";
+
+    // Act
+    List<AssetQuote> assetQuotes = YahooResponseDecoder.decodeQuotes(body(json));
+
+    // Assert
+    assertEquals(assetQuotes.size(), 2);
+    assertEquals(assetQuotes.get(0).getAssetSymbol(), "TSLA");
+    assertEquals(assetQuotes.get(0).getFullExchangeName(), "Tesla");
+    assertEquals(assetQuotes.get(0).getRegularMarketPrice(), 901.5);
+    assertEquals(assetQuotes.get(1).getFullExchangeName(), "Bitcoin USD");
+    assertEquals(assetQuotes.get(1).getQuoteType(), "CRYPTOCURRENCY");
+  }
+
+  @Test
+  protected void decodeSpark_NullPrices_DropsThosePoints() throws IOException {
+    // Arrange
+    String json = "{\"AAPL\":{\"symbol\":\"AAPL\",\"timestamp\":[1,2,3],"
+        + "\"close\":[10.5,null,11.5],\"chartPreviousClose\":10.0},"
+        + "\"MSFT\":{\"symbol\":\"MSFT\",\"timestamp\":[1],\"close\":[300]}}";
+
+    // Act
+    Map<String, AssetQuote> series = YahooResponseDecoder.decodeSpark(body(json));
+
+    // Assert
+    assertEquals(series.size(), 2);
+    assertEquals(series.get("AAPL").getAssetSymbol(), "AAPL");
+    assertFalse(series.containsKey("GME"));
+  }
+
+  @Test
+  protected void decodeTrending_TrendingResponse_ReturnsSymbols() throws IOException {
+    // Arrange
+    String json = "{\"finance\":{\"result\":[{\"count\":2,\"quotes\":[{\"symbol\":\"TSLA\"},"
+        + "{\"symbol\":\"^GSPC\"}],\"jobTimestamp\":1}],\"error\":null}}";
+
+    // Act
+    List<String> assetSymbols = YahooResponseDecoder.decodeTrending(body(json));
+
+    // Assert
+    assertEquals(assetSymbols, List.of("TSLA", "^GSPC"));
+  }
+}
@@ -0,0 +1,79 @@
+package com.lyit.csd.tests.unit;
+
+import com.lyit.csd.domain.AssetQuote;
+import com.lyit.csd.marketapi.yahoo.YahooClient;
+import com.lyit.csd.marketapi.yahoo.standin.StandInBehaviour;
+import com.lyit.csd.marketapi.yahoo.standin.YahooStandInServer;
+import java.io.IOException;
+import java.util.List;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class YahooStandInServer_HandleUTest {
+  private StandInBehaviour behaviour;
+  private YahooStandInServer server;
+  private YahooClient client;
+
+  @BeforeMethod
+  protected void setUp() throws IOException {
+    behaviour = new StandInBehaviour();
+    server = new YahooStandInServer(behaviour);
+    server.start();
+    client = new YahooClient(server.getBaseUrl(), List.of("key1", "key2"));
+  }
+
+  @AfterMethod
+  protected void tearDown() {
+    server.close();
+  }
+
+  @Test
+  protected void getQuote_StandInServer_ReturnsQuotePerSymbol() {
+    // Act
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("TSLA", "AAPL"));
+
+    // Assert
+    assertEquals(assetQuotes.size(), 2);
+    assertEquals(assetQuotes.get(0).getAssetSymbol(), "TSLA");
+    assertTrue(assetQuotes.get(1).getRegularMarketPrice() > 0);
+  }
+
+  @Test
+  protected void getTrendingStocksForRegion_PayloadScaled_ReturnsScaledList() {
+    // Arrange
+    behaviour.setPayloadScale(3);
+
+    // Act
+    List<String> assetSymbols = client.getTrendingStocksForRegion("US");
+
+    // Assert
+    assertEquals(assetSymbols.size(), 60);
+  }
+
+  @Test
+  protected void getHistoricalInfo_StandInServer_ReturnsSeriesPerSymbol() {
+    // Act
+    List<AssetQuote> assetQuotes = client.getHistoricalInfo(List.of("TSLA", "AAPL"), "1d", "5d");
+
+    // Assert
+    assertEquals(assetQuotes.size(), 2);
+  }
+
+  @Test
+  protected void getQuote_EveryRequestFails_ReturnsNoQuotes() {
+    // Arrange
+    behaviour.setErrorRate(1);
+
+    // Act
+    List<AssetQuote> assetQuotes = client.getQuote(List.of("TSLA"));
+
+    // Assert
+    assertTrue(assetQuotes.isEmpty());
+    assertEquals(server.getInjectedErrorCount(), server.getRequestCount());
+    assertTrue(server.getRequestCount() > 1);
+  }
+}